@@ -1,25 +1,39 @@
 package it.polimi.ingsw;
 
 import it.polimi.ingsw.network.client.ClientMain;
+import it.polimi.ingsw.network.CompressionStatistics;
 import it.polimi.ingsw.network.Preferences;
+import it.polimi.ingsw.network.commandHandler.CommandRegistry;
+import it.polimi.ingsw.network.server.ActiveGames;
+import it.polimi.ingsw.network.server.GameJournal;
+import it.polimi.ingsw.network.server.Gateway;
+import it.polimi.ingsw.network.server.NioServer;
 import it.polimi.ingsw.network.server.Server;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
 
 public class Eriantys {
 
-    public static final List<String> allowedParameters = Arrays.asList("--cli", "--gui", "--server", "--host", "--port");
-    public static final List<Boolean> parameterRequiresInput = Arrays.asList(false, false, false, true, true); //positional reference
+    public static final List<String> allowedParameters = Arrays.asList("--cli", "--gui", "--server", "--host", "--port", "--nio", "--backends", "--journal", "--record");
+    public static final List<Boolean> parameterRequiresInput = Arrays.asList(false, false, false, true, true, false, true, true, false); //positional reference
     private static String hostname;
     private static int portNumber;
-    private static boolean serverMode = false, GUIMode = false, CLIMode = false;
+    private static String backends; // the game servers behind the gateway, null if this isn't one
+    private static String journal; // the file keeping the games across restarts, null if they aren't kept
+    private static boolean recordGames; // true if the games are also recorded next to the journal
+    private static boolean serverMode = false, GUIMode = false, CLIMode = false, selectorMode = false;
 
 
 
     /**
      * Entry point for the game
      * In order of priority : Server mode > GUI mode > CLI mode
+     * A server given the --backends acts as a gateway forwarding the clients to those servers,
+     * any other server restores the games left unfinished in its --journal before accepting the clients,
+     * and with --record keeps a recording of every game next to it
      * @param args the arguments read from command line
      */
     public static void main(String[] args) {
@@ -27,8 +41,24 @@ public class Eriantys {
         readParameters(args);
 
 
+        // The bytes saved by the compression, to tune the threshold, and the time spent on each command
+        // are printed when the server is stopped
+        if(serverMode) Runtime.getRuntime().addShutdownHook(new Thread(() ->
+                System.out.print(CompressionStatistics.getReport() + CommandRegistry.getStatistics())));
+
+        // The games of the last run are restored before any client can connect
+        if(serverMode && backends == null) openJournal();
+
         //Starts the appropriate instance of the game
-        if(serverMode){
+        if(serverMode && backends != null){
+            Gateway gateway = new Gateway(portNumber, Gateway.parseBackends(backends));
+            gateway.startServer();
+        }
+        else if(serverMode && selectorMode){
+            NioServer server = new NioServer(portNumber);
+            server.startServer();
+        }
+        else if(serverMode){
             Server server = new Server(portNumber);
             server.startServer();
         }
@@ -48,12 +78,32 @@ public class Eriantys {
         portNumber = Preferences.readPortFromJson();
         hostname = Preferences.readHostnameFromJson();
         serverMode = false;
+        selectorMode = false;
+        backends = null;
+        journal = null;
+        recordGames = false;
         GUIMode = false;
         CLIMode = true;
 
         //Other preferences here;
     }
 
+    /**
+     * Opens the journal of the server and restores the games left unfinished in it,
+     * the server runs without it if the file can't be used
+     */
+    private static void openJournal() {
+        if(journal == null) return;
+        try {
+            GameJournal gameJournal = GameJournal.open(Path.of(journal), recordGames);
+            int restored = ActiveGames.restoreGames(gameJournal);
+            System.out.println("Journal " + journal + " opened, " + restored + " games restored");
+            Runtime.getRuntime().addShutdownHook(new Thread(gameJournal::close));
+        } catch (IOException e) {
+            System.err.println("The games won't survive a restart, the journal can't be used: " + e.getMessage());
+        }
+    }
+
     /**
      * Reads the arguments from the command line
      * Invalid parameters are ignored
@@ -68,7 +118,7 @@ public class Eriantys {
             if(!allowedParameters.contains(arguments[argumentIndex])){
                 continue;
             }
-            if(parameterRequiresInput.get(argumentIndex) && argumentIndex+1 >= argLength) { // There is no actual value
+            if(parameterRequiresInput.get(allowedParameters.indexOf(arguments[argumentIndex])) && argumentIndex+1 >= argLength) { // There is no actual value
                 // after a parameter that requires it
                 continue;
             }
@@ -92,6 +142,18 @@ public class Eriantys {
             else if (readArgument.equals(allowedParameters.get(4))) { // --port
                 portNumber = Integer.parseInt(arguments[argumentIndex+1]);
             }
+            else if (readArgument.equals(allowedParameters.get(5))) { // --nio
+                selectorMode = true;
+            }
+            else if (readArgument.equals(allowedParameters.get(6))) { // --backends
+                backends = arguments[argumentIndex+1];
+            }
+            else if (readArgument.equals(allowedParameters.get(7))) { // --journal
+                journal = arguments[argumentIndex+1];
+            }
+            else if (readArgument.equals(allowedParameters.get(8))) { // --record
+                recordGames = true;
+            }
 
             //Other parameters here, if needed
 
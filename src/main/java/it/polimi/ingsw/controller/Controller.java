@@ -1,9 +1,12 @@
 package it.polimi.ingsw.controller;
 
+import it.polimi.ingsw.controller.events.EventBus;
+import it.polimi.ingsw.controller.events.GameEvent;
 import it.polimi.ingsw.model.StudentEnum;
 import it.polimi.ingsw.model.TeamEnum;
 import it.polimi.ingsw.model.WizardEnum;
 import it.polimi.ingsw.model.beans.VirtualViewBean;
+import it.polimi.ingsw.model.beans.VirtualViewDeltaBean;
 import it.polimi.ingsw.model.characterCards.Requirements;
 import it.polimi.ingsw.model.game.AdvancedGame;
 import it.polimi.ingsw.model.game.IncorrectPlayersException;
@@ -12,11 +15,16 @@ import it.polimi.ingsw.model.game.SimpleGame;
 import it.polimi.ingsw.network.server.LoginHandler;
 import it.polimi.ingsw.view.VirtualView;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.SplittableRandom;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
+/**
+ * The controller of a game. On the server it's only used by the executor of its game,
+ * which handles the commands of the players one at a time, so it needs no locks
+ */
 public class Controller {
 
     protected SimpleGame simpleGame;
@@ -39,16 +47,14 @@ public class Controller {
     int disconnectedUserId;
     String disconnectedUserNickname;
 
-    //these two might be redundant
-    private ReentrantLock teamLock;
-    private ReentrantLock wizardLock;
-
-    public ReentrantLock startLock; // not the greatest to be put public but it's needed in the GameInitHandler
     private boolean gameStarted;
-    private AtomicBoolean gameUpdated;
-    private AtomicBoolean newTurn;
     private AtomicBoolean networkError;
     private AtomicBoolean gameWon;
+    private final EventBus eventBus;
+    private final List<GameEvent> deferredEvents; // published after the next update of the view
+    private final long seed;
+
+    private static final SplittableRandom seeds = new SplittableRandom(); // the seeds of the games of this server
 
 
     /**
@@ -58,16 +64,38 @@ public class Controller {
      * @param gameRule the rules chosen for this game
      */
     public Controller(List<Integer> playerNumbers, GameRuleEnum gameRule){
+        this(playerNumbers, gameRule, new EventBus());
+    }
+
+    /**
+     * Creates a new game controller publishing its events on the bus of its lobby
+     * @param playerNumbers the idUsers of the users playing:
+     *                      the user whose id is in position 0 will be PlayerEnum.PLAYER1, etc..
+     * @param gameRule the rules chosen for this game
+     * @param eventBus the bus on which the players of the game are told what happens
+     */
+    public Controller(List<Integer> playerNumbers, GameRuleEnum gameRule, EventBus eventBus){
+        this(playerNumbers, gameRule, eventBus, newSeed());
+    }
+
+    /**
+     * Creates a new game controller whose game draws every random choice from the given seed:
+     * the same seed and the same commands of the players give the same game
+     * @param playerNumbers the idUsers of the users playing:
+     *                      the user whose id is in position 0 will be PlayerEnum.PLAYER1, etc..
+     * @param gameRule the rules chosen for this game
+     * @param eventBus the bus on which the players of the game are told what happens
+     * @param seed the seed of the game
+     */
+    public Controller(List<Integer> playerNumbers, GameRuleEnum gameRule, EventBus eventBus, long seed){
+        this.seed = seed;
         this.playerNumbers = playerNumbers;
         this.gameRule = gameRule;
+        this.eventBus = eventBus;
+        this.deferredEvents = new ArrayList<>();
         createPlayerCreation();
-        teamLock = new ReentrantLock();
-        wizardLock = new ReentrantLock();
-        startLock = new ReentrantLock();
         gameStarted = false;
-        gameUpdated = new AtomicBoolean(false);
         networkError = new AtomicBoolean(false);
-        newTurn = new AtomicBoolean(false);
         gameWon = new AtomicBoolean(false);
         // Should we create it here or when the game starts?
         createView();
@@ -78,6 +106,25 @@ public class Controller {
     public Controller(){
         virtualView = new VirtualView();
         playerNumbers = null;
+        eventBus = new EventBus();
+        deferredEvents = new ArrayList<>();
+        seed = newSeed();
+    }
+
+    /**
+     * @return a seed for a new game, drawn from the generator of the server
+     */
+    public static long newSeed(){
+        synchronized (seeds){
+            return seeds.nextLong();
+        }
+    }
+
+    /**
+     * @return the seed every random choice of the game is drawn from
+     */
+    public long getSeed() {
+        return seed;
     }
 
     /**
@@ -90,7 +137,7 @@ public class Controller {
                     playerCreation.getWizards(),
                     playerCreation.getTeamColors(),
                     playerCreation.getNicknames(),
-                    virtualView);
+                    virtualView, seed);
         } catch (IncorrectPlayersException e) {
             System.err.println("Error creating the game!");
             return false;
@@ -110,7 +157,7 @@ public class Controller {
                     playerCreation.getWizards(),
                     playerCreation.getTeamColors(),
                     playerCreation.getNicknames(),
-                    virtualView);
+                    virtualView, seed);
         } catch (IncorrectPlayersException e) {
             System.err.println("Error creating the game!");
             return false;
@@ -192,7 +239,7 @@ public class Controller {
      * Once the relevant information has been obtained, creates and starts the actual game
      * @return true if the game was created successfully
      */
-    public synchronized boolean startPlayingGame(){
+    public boolean startPlayingGame(){
         if (!isAllSet()){
             return false;
         }
@@ -212,18 +259,46 @@ public class Controller {
 
         simpleGame.initializeGame();
         this.gameStarted = true;
-        this.gameUpdated.set(true);
-        this.newTurn.set(true);
+        publish(new GameEvent.GameStarted(this));
+        publish(new GameEvent.GameUpdated(this));
+        publish(new GameEvent.NewTurn(this));
 
         return true;
     }
 
 
     /**
-     * Sets this game "gameWon" flag to true
+     * Sets this game "gameWon" flag to true, the players are told after the last update of the view
      */
     private void gameWon() {
         this.gameWon.set(true);
+        deferEvent(new GameEvent.GameWon(this));
+    }
+
+    /**
+     * Tells the players of this game what happened
+     * @param event the event to publish
+     */
+    void publish(GameEvent event){
+        eventBus.publish(event);
+    }
+
+    /**
+     * Keeps an event caused by the command being handled until the view has been updated
+     * @param event the event to publish after the next update
+     */
+    private void deferEvent(GameEvent event){
+        if(!deferredEvents.contains(event)) deferredEvents.add(event);
+    }
+
+    /**
+     * Tells the players that the view changed, and then what the change caused
+     */
+    private void gameUpdated(){
+        List<GameEvent> events = new ArrayList<>(deferredEvents);
+        deferredEvents.clear();
+        publish(new GameEvent.GameUpdated(this));
+        events.forEach(this::publish);
     }
 
 
@@ -259,7 +334,7 @@ public class Controller {
      * Checks whether all wizards and towers have been chosen for this game
      * @return true if all selections were made and the game started
      */
-    public synchronized boolean isGameStarted(){
+    public boolean isGameStarted(){
         return this.gameStarted;
     }
 
@@ -273,41 +348,18 @@ public class Controller {
     }
 
     /**
-     * Sets the flag used for detecting whether the game started to false
+     * Tells the players that a wizard or a tower color has been chosen
      */
-    //todo maybe instead of unsetting this flag, make the clientHandler remember whether the user
-    // already joined the game
-    public void unsetGameStarted(){
-        this.gameStarted = false;
-    }
-
-    public boolean isPlayerCreationModified() {
-        return playerCreation.isModified();
-    }
-
-    public void setPlayerCreationModified(boolean modified) {
-        playerCreation.setModified(modified);
-    }
-
-    public boolean isGameUpdated(){
-        return gameUpdated.get();
-    }
-
-    public void setGameUpdated(boolean value){
-        gameUpdated.set(value);
-    }
-
-    public boolean isNewTurn() {
-        return newTurn.get();
+    void playerCreationModified() {
+        publish(new GameEvent.PlayerCreationModified(this));
     }
 
     /**
-     * To be set to true if there is another player that should now take control,
-     * either for the planning or action phase
-     * @param value true if after the handling of this command a different player should take control
+     * To be called if there is another player that should now take control,
+     * either for the planning or action phase: they're told after the view is updated
      */
-    public void setNewTurn(boolean value) {
-        newTurn.set(value);
+    void newTurn() {
+        deferEvent(new GameEvent.NewTurn(this));
     }
 
     public boolean isNetworkError(){
@@ -363,6 +415,18 @@ public class Controller {
         else return virtualView.renderAdvancedView();
     }
 
+    /**
+     * Gets the elements of the virtual view that changed after the given revision
+     * @param sinceRevision the last revision sent to the user, COMPLETE_VIEW to get the whole view
+     * @return the delta between that revision and the current one
+     */
+    public VirtualViewDeltaBean getViewChanges(int sinceRevision) {
+        if(GameRuleEnum.isSimple(gameRule.id)){
+            return virtualView.renderSimpleChanges(sinceRevision);
+        }
+        else return virtualView.renderAdvancedChanges(sinceRevision);
+    }
+
     /**
      * Checks whether at this moment someone won the game
      * Checks the condition of having no more towers or having too few island groups left
@@ -420,23 +484,18 @@ public class Controller {
      * @param idUser the user that selects the wizard
      * @return true if the assignment succeeded
      */
-    public synchronized boolean setWizard(Integer idWizard, Integer idUser) {
+    public boolean setWizard(Integer idWizard, Integer idUser) {
         //No need to sanitize the input, we assume the client won't send bad data
         int position = getPositionFromUserId(idUser);
         if (position >= 0){
             //The user might have already selected a wizard and changed their mind
-            wizardLock.lock();
-            try {
-                if (this.playerCreation.isWizardAvailable(idWizard)){
-                    this.playerCreation.clearWizard(position);
-                    this.playerCreation.setWizard(idWizard, position);
-                }
-                else return false;
-                // If the wizard was already taken by someone else then the method rightly fails
-                // If it was taken by the same player, the method exits without reassigning an already assigned wizard
-            }finally {
-                wizardLock.unlock();
+            if (this.playerCreation.isWizardAvailable(idWizard)){
+                this.playerCreation.clearWizard(position);
+                this.playerCreation.setWizard(idWizard, position);
             }
+            else return false;
+            // If the wizard was already taken by someone else then the method rightly fails
+            // If it was taken by the same player, the method exits without reassigning an already assigned wizard
             return true;
         }
         return false;
@@ -451,22 +510,17 @@ public class Controller {
      * @param idUser the user that chooses the team
      * @return true if the new assignment succeeded
      */
-    public synchronized boolean setTeamColor(TeamEnum towerColor, Integer idUser) {
+    public boolean setTeamColor(TeamEnum towerColor, Integer idUser) {
         //No need to sanitize the input, we assume the client won't send bad
         int position = getPositionFromUserId(idUser);
 
         if (position >= 0) {
             //The user might have already selected a color and changed their mind
-            teamLock.lock();
-            try {
-                if (this.playerCreation.isColorAvailable(towerColor)) {
-                    this.playerCreation.clearTeamColor(position);
-                    this.playerCreation.setTeamColor(towerColor, position);
-                }
-                else return false;
-            } finally {
-                teamLock.unlock();
+            if (this.playerCreation.isColorAvailable(towerColor)) {
+                this.playerCreation.clearTeamColor(position);
+                this.playerCreation.setTeamColor(towerColor, position);
             }
+            else return false;
             return true;
         }
         return false;
@@ -501,8 +555,7 @@ public class Controller {
             turnHandler.nextPhase();
             assistantHandler.assistantsPlayed.clear();      //clear the played assistant list in order to let play an assistant, played in this turn, in next turn
         }
-        setGameUpdated(true);
-        setNewTurn(true);
+        gameUpdated();
         return true;
     }
 
@@ -515,7 +568,7 @@ public class Controller {
         //needs to check that the player doesn't move more students than they're allowed
         if(boardHandler.allStudentsMoved()) return false;
         if(!selectionHandler.selectStudentAtEntrance(selectedStudent)) return false; //sanitized here
-        setGameUpdated(true);
+        gameUpdated();
         return true;
     }
 
@@ -525,7 +578,7 @@ public class Controller {
      */
     public boolean putInHall() {
         if(!boardHandler.moveFromEntranceToHall()) return false; //sanitized here
-        setGameUpdated(true);
+        gameUpdated();
         return true;
     }
 
@@ -536,7 +589,7 @@ public class Controller {
      */
     public boolean putInIsland(Integer idIsland) {
         if(!boardHandler.moveFromEntranceToIsland(idIsland)) return false; //sanitized here
-        setGameUpdated(true);
+        gameUpdated();
         return true;
     }
 
@@ -546,7 +599,7 @@ public class Controller {
      */
     public boolean deselectStudent() { // No input, no need to sanitize
         selectionHandler.deselectStudentAtEntrance();
-        setGameUpdated(true);
+        gameUpdated();
         return true;
     }
 
@@ -561,7 +614,7 @@ public class Controller {
             return false;
         }
         checkInstantWinner();
-        setGameUpdated(true);
+        gameUpdated();
         return true;
     }
 
@@ -575,7 +628,7 @@ public class Controller {
         if(!boardHandler.takeFromCloud(idCloud)){  //sanitized here
             return false;
         }
-        setGameUpdated(true);
+        gameUpdated();
         return true;
     }
 
@@ -588,7 +641,7 @@ public class Controller {
         if(turnHandler.isPhaseOver()){
             turnHandler.nextPhase();
         }
-        setGameUpdated(true);
+        gameUpdated();
         return true;
     }
 
@@ -606,7 +659,7 @@ public class Controller {
         if(!characterCardHandler.selectCard(cardId)) { //sanitized here
             return false;
         }
-        setGameUpdated(true);
+        gameUpdated();
         return true;
     }
 
@@ -620,7 +673,7 @@ public class Controller {
         if(!selectionHandler.selectStudentType(colors)){  //sanitized here
             return false;
         }
-        setGameUpdated(true);
+        gameUpdated();
         return true;
     }
 
@@ -632,7 +685,7 @@ public class Controller {
     public boolean selectStudentsOnCard(List<Integer> students) {
 
         if(!((AdvancedSelectionHandler)selectionHandler).selectStudentOnCard(students)) return false; //sanitized here
-        setGameUpdated(true);
+        gameUpdated();
         return true;
 
     }
@@ -645,7 +698,7 @@ public class Controller {
     public boolean selectEntranceStudents(List<Integer> students) {
 
         if(!selectionHandler.selectStudentAtEntrance(students)) return false; //sanitized here
-        setGameUpdated(true);
+        gameUpdated();
         return true;
     }
 
@@ -656,7 +709,7 @@ public class Controller {
      */
     public boolean selectIslandGroups(List<Integer> islandIds) {
         if(!selectionHandler.selectIsland(islandIds)) return false; //sanitized here
-        setGameUpdated(true);
+        gameUpdated();
         return true;
     }
 
@@ -667,8 +720,9 @@ public class Controller {
     public boolean playCard(){
 
         //We update the game regardless
-        setGameUpdated(true);
-        return characterCardHandler.playCard();
+        boolean played = characterCardHandler.playCard();
+        gameUpdated();
+        return played;
 
     }
 
@@ -715,6 +769,7 @@ public class Controller {
      */
     public void lostConnectionHandle(){
         setNetworkError(true);
+        publish(new GameEvent.UserDisconnected(this, disconnectedUserId, disconnectedUserNickname));
     }
 
 
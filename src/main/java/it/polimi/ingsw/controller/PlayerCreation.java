@@ -13,7 +13,6 @@ public class PlayerCreation {
     protected final List<TeamEnum> teamColor;
     protected final List<String> nicknames;
     private final List<Integer> wizards; // Wizard ids
-    private boolean modified;
 
     public PlayerCreation(Controller controller){
         this.controller = controller;
@@ -28,8 +27,6 @@ public class PlayerCreation {
             nicknames.add(user,null);
             wizards.add(user,null);
         }
-
-        modified = false;
     }
 
     /**
@@ -94,7 +91,7 @@ public class PlayerCreation {
                     .filter(Objects::nonNull)
                     .noneMatch(otherTeam -> team.index == otherTeam.index)){
                 teamColor.set(user, team);
-                modified = true;
+                controller.playerCreationModified();
                 return true;
             }
         }
@@ -107,7 +104,7 @@ public class PlayerCreation {
                         .filter(otherTeam -> otherTeam.index == team.index).count();
                 if(sameColor <= 1){
                     teamColor.set(user, team);
-                    modified = true;
+                    controller.playerCreationModified();
                     return true;
                 }
             }
@@ -122,7 +119,7 @@ public class PlayerCreation {
      */
     public synchronized void clearTeamColor(int user){
         teamColor.set(user, null);
-        modified = true;
+        controller.playerCreationModified();
     }
 
     /**
@@ -149,7 +146,7 @@ public class PlayerCreation {
             return false;
 
         wizards.set(user, idWizard);
-        modified = true;
+        controller.playerCreationModified();
         return true;
     }
 
@@ -159,7 +156,7 @@ public class PlayerCreation {
      */
     public synchronized void clearWizard(int user){
         wizards.set(user, null);
-        modified = true;
+        controller.playerCreationModified();
     }
 
     /**
@@ -197,12 +194,4 @@ public class PlayerCreation {
     public List<Integer> getWizards() {
         return wizards;
     }
-
-    public boolean isModified() {
-        return modified;
-    }
-
-    public void setModified(boolean modified) {
-        this.modified = modified;
-    }
 }
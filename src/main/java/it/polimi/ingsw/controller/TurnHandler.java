@@ -58,12 +58,13 @@ public class TurnHandler {
         if (currentPhase.equals(PhaseEnum.ACTION)){
             checkLastTurn();
             if(!controller.checkDeferredWinner()){
-                controller.setNewTurn(true);
+                controller.newTurn();
                 initializeNewTurn();
             }
         }
         else if(currentPhase.equals(PhaseEnum.PLANNING)){
             controller.simpleGame.sortPlayers();
+            controller.newTurn();
         }
 
         //Switches phase
@@ -87,7 +88,7 @@ public class TurnHandler {
     public void endPlayerPhase(){
         playersPlayedInThisTurn++;
         if(playersPlayedInThisTurn != numPlayers) {
-            controller.setNewTurn(true);
+            controller.newTurn();
             if (currentPhase.equals(PhaseEnum.PLANNING)) {
                 startPlanningPhase();
             } else startActionPhase();
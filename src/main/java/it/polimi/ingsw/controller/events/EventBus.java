@@ -0,0 +1,51 @@
+package it.polimi.ingsw.controller.events;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The events of a lobby and of its game, delivered to the players subscribed to it. <br>
+ * The events are delivered one at a time, so every subscriber receives them in the same order
+ * they were published in
+ */
+public class EventBus {
+
+    private final CopyOnWriteArrayList<GameEventListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong publishedCount = new AtomicLong(0);
+
+    /**
+     * @param listener the listener that will receive the events published from now on
+     */
+    public void subscribe(GameEventListener listener){
+        listeners.addIfAbsent(listener);
+    }
+
+    /**
+     * @param listener the listener that won't receive any more events
+     */
+    public void unsubscribe(GameEventListener listener){
+        listeners.remove(listener);
+    }
+
+    /**
+     * Delivers the event to all the subscribers
+     * @param event the event to deliver
+     */
+    public synchronized void publish(GameEvent event){
+        publishedCount.incrementAndGet();
+        for(GameEventListener listener : listeners){
+            listener.onEvent(event);
+        }
+    }
+
+    public int getSubscribersCount(){
+        return listeners.size();
+    }
+
+    /**
+     * @return the amount of events published so far
+     */
+    public long getPublishedCount(){
+        return publishedCount.get();
+    }
+}
@@ -0,0 +1,81 @@
+package it.polimi.ingsw.controller.events;
+
+import it.polimi.ingsw.controller.Controller;
+import it.polimi.ingsw.network.server.Lobby;
+
+/**
+ * Something that happened in a lobby or in its game, which its players may need to be told about
+ */
+public sealed interface GameEvent {
+
+    GameEventEnum getType();
+
+    /**
+     * @return the lobby or the controller that published the event
+     */
+    Object getSource();
+
+    /**
+     * A player joined or left the lobby, or changed their ready status
+     */
+    record LobbyModified(Lobby lobby) implements GameEvent {
+        public GameEventEnum getType() { return GameEventEnum.LOBBY_MODIFIED; }
+        public Object getSource() { return lobby; }
+    }
+
+    /**
+     * The game of the lobby has been created, its players can choose their wizards and towers
+     */
+    record LobbyStarted(Lobby lobby) implements GameEvent {
+        public GameEventEnum getType() { return GameEventEnum.LOBBY_STARTED; }
+        public Object getSource() { return lobby; }
+    }
+
+    /**
+     * A wizard or a tower color has been chosen
+     */
+    record PlayerCreationModified(Controller controller) implements GameEvent {
+        public GameEventEnum getType() { return GameEventEnum.PLAYER_CREATION_MODIFIED; }
+        public Object getSource() { return controller; }
+    }
+
+    /**
+     * Everything has been chosen and the game started
+     */
+    record GameStarted(Controller controller) implements GameEvent {
+        public GameEventEnum getType() { return GameEventEnum.GAME_STARTED; }
+        public Object getSource() { return controller; }
+    }
+
+    /**
+     * The view of the game changed
+     */
+    record GameUpdated(Controller controller) implements GameEvent {
+        public GameEventEnum getType() { return GameEventEnum.GAME_UPDATED; }
+        public Object getSource() { return controller; }
+    }
+
+    /**
+     * Another player now has control of the game
+     */
+    record NewTurn(Controller controller) implements GameEvent {
+        public GameEventEnum getType() { return GameEventEnum.NEW_TURN; }
+        public Object getSource() { return controller; }
+    }
+
+    /**
+     * A team won the game, which is now over
+     */
+    record GameWon(Controller controller) implements GameEvent {
+        public GameEventEnum getType() { return GameEventEnum.GAME_WON; }
+        public Object getSource() { return controller; }
+    }
+
+    /**
+     * The connection with a player was lost, so the game can't go on
+     */
+    record UserDisconnected(Controller controller, int idUser, String nickname) implements GameEvent {
+        public GameEventEnum getType() { return GameEventEnum.USER_DISCONNECTED; }
+        public Object getSource() { return controller; }
+    }
+}
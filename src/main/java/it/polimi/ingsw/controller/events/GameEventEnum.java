@@ -0,0 +1,25 @@
+package it.polimi.ingsw.controller.events;
+
+/**
+ * The kinds of event published by a lobby and by the controller of its game
+ */
+public enum GameEventEnum {
+    LOBBY_MODIFIED(true),
+    LOBBY_STARTED(false),
+    PLAYER_CREATION_MODIFIED(true),
+    GAME_STARTED(false),
+    GAME_UPDATED(true),
+    NEW_TURN(false),
+    GAME_WON(false),
+    USER_DISCONNECTED(false);
+
+    /**
+     * True if the event only says that a state changed: a subscriber that didn't handle it yet
+     * can ignore the next ones of the same source, since it will send the latest state anyway
+     */
+    public final boolean latestState;
+
+    GameEventEnum(boolean latestState){
+        this.latestState = latestState;
+    }
+}
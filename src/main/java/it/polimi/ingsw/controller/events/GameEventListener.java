@@ -0,0 +1,15 @@
+package it.polimi.ingsw.controller.events;
+
+/**
+ * Receives the events published on an EventBus
+ */
+@FunctionalInterface
+public interface GameEventListener {
+
+    /**
+     * Called by the thread publishing the event, while the bus is locked: the listener should only
+     * store it, and act on it later
+     * @param event the event published
+     */
+    void onEvent(GameEvent event);
+}
@@ -1,39 +1,29 @@
 package it.polimi.ingsw.model;
 
-import java.time.Instant;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 public class AdvancedSack extends Sack{
 
     public AdvancedSack(int numStudentsByType){
-        super(numStudentsByType);
+        this(numStudentsByType, new Random());
     }
 
     /**
-     * add  in a pseudorandom position param student to Sack, drawing a number of students from the Sack
-     * then reinsert them with pseudorandom choice
-     * @param student != NOSTUDENT
+     * @param numStudentsByType the students of each color in the sack
+     * @param generator the random generator of the game
      */
-    private void addStudent(StudentEnum student){
-        List<StudentEnum> shuffleNeeds = new ArrayList<>();
-        int random = (int) Instant.now().getEpochSecond() % (students.size()-1);
-        StudentEnum replaced;
-
-        shuffleNeeds = drawNStudents(size()-1);
-        replaced = shuffleNeeds.set(random, student);
-        shuffleNeeds.add(replaced);
-        while (!shuffleNeeds.isEmpty())
-            students.add(shuffleNeeds.remove(0));
-
+    public AdvancedSack(int numStudentsByType, Random generator){
+        super(numStudentsByType, generator);
     }
 
     /**
-     * Add students in sack from the list passed as argument
+     * Add students in sack from the list passed as argument,
+     * they can be drawn again as any other student since every draw is random
      * @param studentsToAdd
      */
     public void addStudents(List<StudentEnum> studentsToAdd){
         for(StudentEnum instance: studentsToAdd)
-            addStudent(instance);
+            students.add(instance);
     }
 }
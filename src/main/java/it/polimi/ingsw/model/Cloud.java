@@ -7,10 +7,17 @@ import it.polimi.ingsw.view.observer.CloudWatcher;
 import it.polimi.ingsw.view.observer.Watcher;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 
+/**
+ * A cloud, holding the students in the order they were put on it. <br>
+ * The students are kept in an array as big as the cloud, which only grows if the cloud is overfilled
+ */
 public class Cloud extends DrawableObject{
-    private List<StudentEnum> students;
+    private StudentEnum[] students;
+    private int size;
     private final int id;
     private final int studentsPerCloud;
     private List<Watcher> watcherList;
@@ -18,7 +25,7 @@ public class Cloud extends DrawableObject{
     public Cloud(int id, int studentsPerCloud){ //, VirtualView virtualView
         this.id = id;
         this.studentsPerCloud = studentsPerCloud;
-        students = new ArrayList<>();
+        students = new StudentEnum[studentsPerCloud];
         // CloudObserver obsCreated = new Observer();
         // this.addObserver(ciao);
         // virtualView.addNewObserver(obsCreated);
@@ -35,7 +42,7 @@ public class Cloud extends DrawableObject{
     public Cloud(int id, int studentsPerCloud, VirtualView virtualView){
         this.id = id;
         this.studentsPerCloud = studentsPerCloud;
-        students = new ArrayList<>();
+        students = new StudentEnum[studentsPerCloud];
         watcherList = new ArrayList<>();                                        //list of observers
         Watcher cloudWatcher = new CloudWatcher(this,virtualView);    //New observer and the observer look this object
         watcherList.add(cloudWatcher);                                         //This object has the observer
@@ -45,36 +52,40 @@ public class Cloud extends DrawableObject{
     }
 
     public void fill(List<StudentEnum> numStudents){
-        for(StudentEnum student: numStudents)
-            students.add(student);
+        for(StudentEnum student: numStudents){
+            if(size == students.length) students = Arrays.copyOf(students, size + 1);
+            students[size++] = student;
+        }
         alert();
     }
 
     public StudentEnum remove(int index){
-        if(students.isEmpty())
+        if(size == 0)
             return null;
 
-        StudentEnum toReturn = students.remove(index);
+        StudentEnum toReturn = students[Objects.checkIndex(index, size)];
+        System.arraycopy(students, index + 1, students, index, size - index - 1);
+        students[--size] = null;
         alert();
         return  toReturn;
     }
 
     public List<StudentEnum> empty(){
-        ArrayList<StudentEnum> studentsToReturn = new ArrayList<>();
-        while(!students.isEmpty())
-            studentsToReturn.add(students.remove(0));
+        List<StudentEnum> studentsToReturn = Arrays.asList(Arrays.copyOf(students, size));
+        Arrays.fill(students, 0, size, null);
+        size = 0;
 
         alert();
         return studentsToReturn;
     }
 
     public boolean isEmpty(){
-        return students.isEmpty();
+        return size == 0;
     }
 
     @Override
     public GameElementBean toBean() {
-        CloudBean bean = new CloudBean(id, students);
+        CloudBean bean = new CloudBean(id, new ArrayList<>(Arrays.asList(students).subList(0, size)));
         return bean;
     }
 }
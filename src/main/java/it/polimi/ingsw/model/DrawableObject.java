@@ -18,7 +18,7 @@ public abstract class DrawableObject {
     public void alert(){
         if(watchers!= null)
             for(Watcher watcher: watchers){
-                watcher.update();
+                watcher.notifyChange();
             }
     }
 
@@ -1,19 +1,38 @@
 package it.polimi.ingsw.model;
 
 import it.polimi.ingsw.model.islands.IslandGroup;
+import it.polimi.ingsw.model.islands.IslandRing;
 
 public class MotherNature {
     private IslandGroup position;
+    private final IslandRing ring;
 
     public MotherNature(IslandGroup initPosition){
         position = initPosition;
+        ring = null;
     }
+
     /**
-     * Moves Mother Nature across IslandGroups, the movement happens via the nextIslandGroup pointers;
+     * Creates Mother Nature moving on the groups of the given ring
+     * @param ring the ring of the island groups of the game
+     * @param initPosition a group of the ring
+     */
+    public MotherNature(IslandRing ring, IslandGroup initPosition){
+        position = initPosition;
+        this.ring = ring;
+    }
+
+    /**
+     * Moves Mother Nature across IslandGroups, at once on the ring if there is one,
+     * otherwise via the nextIslandGroup pointers;
      * @param steps the number of steps to move Mother Nature ( must be > 0 )
      * @return IslandGroup of the current position of Mother Nature
      */
     public IslandGroup move(int steps){
+        if(ring != null){
+            position = ring.step(position, steps);
+            return position;
+        }
         IslandGroup currentPosition = position;
         for (int i = 0; i < steps; i++) {
             currentPosition = currentPosition.getNextIslandGroup();
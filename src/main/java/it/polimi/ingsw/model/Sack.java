@@ -1,28 +1,43 @@
 package it.polimi.ingsw.model;
 
-import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
-import java.util.Stack;
 
+/**
+ * The sack the students are drawn from. Only the amount of students of each color is kept,
+ * and every draw picks one of the students left at random, so the sack never needs to be shuffled
+ */
 public class Sack {
-    protected Stack<StudentEnum> students;
+    protected StudentCounts students;
+    protected final Random generator;
 
+    /**
+     * Creates a sack drawing with a generator of its own, for the sacks not belonging to a game
+     * @param numStudentsByType the students of each color in the sack
+     */
     public Sack(int numStudentsByType){
-        List<StudentEnum> studentsList = new ArrayList<>();
-
-        for(StudentEnum type: StudentEnum.values())
-            for(int instances= 0; instances < numStudentsByType; instances++ ){
-                if(type != StudentEnum.NOSTUDENT)
-                studentsList.add(type);
-            }
+        this(numStudentsByType, new Random());
+    }
 
-        students = shuffle(studentsList);
+    /**
+     * Creates a sack drawing with the generator of its game, so that the game can be played again
+     * with the same draws from its seed
+     * @param numStudentsByType the students of each color in the sack
+     * @param generator the random generator of the game
+     */
+    public Sack(int numStudentsByType, Random generator){
+        this.generator = generator;
+        students = new StudentCounts();
+        for(StudentEnum type: StudentEnum.getStudents())
+            students.add(type, numStudentsByType);
     }
-    private StudentEnum drawOneStudent(){
-        if(!students.isEmpty()) return students.pop();
-        else return StudentEnum.NOSTUDENT;
+
+    /**
+     * @return a student drawn from the sack, NOSTUDENT if the sack is empty
+     */
+    public StudentEnum drawOneStudent(){
+        return students.removeRandom(generator);
     }
 
     /**
@@ -31,7 +46,7 @@ public class Sack {
      * @return a list of students, drawn from sack, and its size is numStudents
      */
     public List<StudentEnum> drawNStudents(int numStudents){
-        List<StudentEnum> drawnStudents = new ArrayList<>();
+        List<StudentEnum> drawnStudents = new ArrayList<>(numStudents);
 
         for(int draws = 0; draws < numStudents; ++draws)
             drawnStudents.add(drawOneStudent());
@@ -42,19 +57,4 @@ public class Sack {
         return students.isEmpty();
     }
     public int size(){return students.size();}
-    private Stack<StudentEnum> shuffle(List<StudentEnum> studentList){
-
-        Instant seed = Instant.now();
-        Random generator = new Random(seed.getEpochSecond());
-        Stack<StudentEnum> stackStudents = new Stack<>();
-        int position = 0;
-
-        while(studentList.size() > 0){
-            position = generator.nextInt(studentList.size());
-            stackStudents.add(studentList.remove(position));
-        }
-
-        return stackStudents;
-
-    }
 }
@@ -0,0 +1,195 @@
+package it.polimi.ingsw.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A group of students where only the amount of each color matters, such as the students on an island,
+ * in the hall, on a cloud or in the sack. <br>
+ * The students are kept as a count for each color: adding and removing a student takes constant time,
+ * the rest takes a time proportional to the colors, and nothing is allocated but the lists asked for. <br>
+ * When the students are seen as a list, they're sorted by color. NOSTUDENT is never part of the group
+ */
+public class StudentCounts {
+
+    private final int[] counts;
+    private int size;
+    private int modifications; // how many times the group changed, to tell whether what was derived from it is stale
+
+    /**
+     * Creates an empty group
+     */
+    public StudentCounts(){
+        counts = new int[StudentEnum.getNumStudentTypes()];
+        size = 0;
+    }
+
+    /**
+     * Creates a group holding the given students
+     * @param students the students, NOSTUDENT is ignored
+     */
+    public StudentCounts(Collection<StudentEnum> students){
+        this();
+        for(StudentEnum student : students) add(student);
+    }
+
+    /**
+     * Adds one student, NOSTUDENT is ignored
+     * @param student the color of the student
+     */
+    public void add(StudentEnum student){
+        add(student, 1);
+    }
+
+    /**
+     * Adds some students of the same color, NOSTUDENT is ignored
+     * @param student the color of the students
+     * @param amount the amount of students to add, >= 0
+     */
+    public void add(StudentEnum student, int amount){
+        if(student == StudentEnum.NOSTUDENT || amount <= 0) return;
+        counts[student.index] += amount;
+        size += amount;
+        modifications++;
+    }
+
+    /**
+     * Adds all the students of another group, which is left as it is
+     * @param students the group to add
+     */
+    public void addAll(StudentCounts students){
+        for(int color = 0; color < counts.length; color++) counts[color] += students.counts[color];
+        size += students.size;
+        modifications++;
+    }
+
+    /**
+     * Removes one student of the given color
+     * @param student the color of the student
+     * @return true if there was a student of that color
+     */
+    public boolean remove(StudentEnum student){
+        if(count(student) == 0) return false;
+        counts[student.index]--;
+        size--;
+        modifications++;
+        return true;
+    }
+
+    /**
+     * Removes the student at the given position, with the students sorted by color
+     * @param position >= 0 && < size()
+     * @return the removed student
+     * @throws IndexOutOfBoundsException if there is no student at that position
+     */
+    public StudentEnum removeAt(int position){
+        StudentEnum student = get(position);
+        counts[student.index]--;
+        size--;
+        modifications++;
+        return student;
+    }
+
+    /**
+     * Removes a student chosen at random, each student has the same chance of being chosen
+     * @param generator the generator choosing the student
+     * @return the removed student, NOSTUDENT if the group is empty
+     */
+    public StudentEnum removeRandom(Random generator){
+        if(size == 0) return StudentEnum.NOSTUDENT;
+        return removeAt(generator.nextInt(size));
+    }
+
+    /**
+     * Removes every student
+     */
+    public void clear(){
+        for(int color = 0; color < counts.length; color++) counts[color] = 0;
+        size = 0;
+        modifications++;
+    }
+
+    /**
+     * @param student a color
+     * @return the amount of students of that color, 0 for NOSTUDENT
+     */
+    public int count(StudentEnum student){
+        return student == StudentEnum.NOSTUDENT ? 0 : counts[student.index];
+    }
+
+    /**
+     * @param position >= 0 && < size()
+     * @return the student at the given position, with the students sorted by color
+     * @throws IndexOutOfBoundsException if there is no student at that position
+     */
+    public StudentEnum get(int position){
+        if(position < 0 || position >= size) throw new IndexOutOfBoundsException(position);
+        int color = 0;
+        while(position >= counts[color]){
+            position -= counts[color];
+            color++;
+        }
+        return StudentEnum.getColorById(color);
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    /**
+     * @return a number that changes every time a student is added or removed
+     */
+    public int modifications(){
+        return modifications;
+    }
+
+    /**
+     * @return a new list with the students, sorted by color
+     */
+    public List<StudentEnum> toList(){
+        List<StudentEnum> students = new ArrayList<>(size);
+        for(int color = 0; color < counts.length; color++)
+            for(int student = 0; student < counts[color]; student++) students.add(StudentEnum.getColorById(color));
+        return students;
+    }
+
+    /**
+     * @return the students as a list, sorted by color, which changes together with this group.
+     *         Students can be added to and removed from the list, but not replaced
+     */
+    public List<StudentEnum> asList(){
+        return new AbstractList<>() {
+            @Override
+            public StudentEnum get(int index) {
+                return StudentCounts.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public void add(int index, StudentEnum student) {
+                StudentCounts.this.add(student); // the position is given by the color
+            }
+
+            @Override
+            public StudentEnum remove(int index) {
+                return removeAt(index);
+            }
+
+            @Override
+            public boolean contains(Object student) {
+                return student instanceof StudentEnum color && count(color) > 0;
+            }
+        };
+    }
+}
@@ -0,0 +1,89 @@
+package it.polimi.ingsw.model.beans;
+
+import it.polimi.ingsw.network.Bean;
+import it.polimi.ingsw.network.BeanEnum;
+
+import java.util.List;
+
+/**
+ * The elements of the virtual view that changed between two revisions. <br>
+ * Every element (cloud, island group, player, character card, error and game board) is identified by the id
+ * of its watcher, a client holding the view at baseRevision gets the view at revision by replacing the
+ * changed elements and dropping the removed ones. <br>
+ * A delta with COMPLETE_VIEW as base revision contains every element and replaces the whole view
+ */
+public class VirtualViewDeltaBean implements Bean {
+
+    public static final int COMPLETE_VIEW = -1;
+
+    private final int baseRevision;
+    private final int revision;
+    private final boolean advanced;
+    private final List<ChangedElement> changedElements;
+    private final List<Integer> removedElements;
+
+    public VirtualViewDeltaBean(int baseRevision, int revision, boolean advanced,
+                                List<ChangedElement> changedElements, List<Integer> removedElements) {
+        this.baseRevision = baseRevision;
+        this.revision = revision;
+        this.advanced = advanced;
+        this.changedElements = changedElements;
+        this.removedElements = removedElements;
+    }
+
+    public int getBaseRevision() {
+        return baseRevision;
+    }
+
+    public int getRevision() {
+        return revision;
+    }
+
+    public boolean isAdvanced() {
+        return advanced;
+    }
+
+    public boolean isCompleteView() {
+        return baseRevision == COMPLETE_VIEW;
+    }
+
+    public List<ChangedElement> getChangedElements() {
+        return changedElements;
+    }
+
+    public List<Integer> getRemovedElements() {
+        return removedElements;
+    }
+
+    @Override
+    public BeanEnum getBeanType() {
+        return BeanEnum.VIRTUAL_VIEW_DELTA_BEAN;
+    }
+
+    /**
+     * The new version of a single element of the view
+     */
+    public static class ChangedElement {
+        private final int id;
+        private final BeanEnum beanType;
+        private final GameElementBean bean;
+
+        public ChangedElement(int id, GameElementBean bean) {
+            this.id = id;
+            this.beanType = bean.getBeanType();
+            this.bean = bean;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public BeanEnum getBeanType() {
+            return beanType;
+        }
+
+        public GameElementBean getBean() {
+            return bean;
+        }
+    }
+}
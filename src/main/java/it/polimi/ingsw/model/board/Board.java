@@ -2,39 +2,42 @@ package it.polimi.ingsw.model.board;
 
 import it.polimi.ingsw.model.*;
 import it.polimi.ingsw.model.game.ParameterHandler;
+import it.polimi.ingsw.model.player.PlayerEnum;
 import it.polimi.ingsw.model.islands.IslandGroup;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
-
 
+/**
+ * The board of a player. <br>
+ * The entrance is an array of slots, NOSTUDENT in the empty ones, whose free slots are also kept as the bits
+ * of a mask, so that a student finds the first free slot at once. The hall only counts the students of each color
+ */
 public class Board {
 
     private static final int tableSize = 10;
 
     private int numberOfTowers;
     private final TeamEnum towerColor;
-    private List<StudentEnum> studentsAtEntrance;
-    private List<Integer> studentsPerTable;
+    private final StudentEnum[] studentsAtEntrance;
+    private int freeEntranceSlots; // bit i is set if the slot i of the entrance is empty
+    private final StudentCounts studentsPerTable;
+    private PlayerEnum owner = PlayerEnum.NOPLAYER;
     private ParameterHandler parameters;
 
     public Board(TeamEnum teamColor, ParameterHandler parameters){
         numberOfTowers = parameters.getNumTowers();
         towerColor = teamColor;
-        studentsAtEntrance = new ArrayList<>();
 
         //initialise each entrance student with an empty student
-        for (int studentAtEntrance = 0; studentAtEntrance < parameters.getMaxStudentsAtEntrance(); studentAtEntrance++){
-            studentsAtEntrance.add(StudentEnum.NOSTUDENT);
-        }
+        studentsAtEntrance = new StudentEnum[parameters.getMaxStudentsAtEntrance()];
+        Arrays.fill(studentsAtEntrance, StudentEnum.NOSTUDENT);
+        freeEntranceSlots = (1 << studentsAtEntrance.length) - 1;
 
-        studentsPerTable = new ArrayList<>();
+        studentsPerTable = new StudentCounts();
         this.parameters = parameters;
-        for(StudentEnum table : StudentEnum.getStudents()){
-            studentsPerTable.add(0);
-        }
     }
 
 
@@ -68,10 +71,10 @@ public class Board {
         if (parameters.getSelectedEntranceStudents().isEmpty()) return StudentEnum.NOSTUDENT;
 
         int studentPos = parameters.getSelectedEntranceStudents().get().stream().findFirst().get();
-        StudentEnum student = studentsAtEntrance.get(studentPos);
+        StudentEnum student = studentsAtEntrance[studentPos];
 
         //table is full
-        if (studentsPerTable.get(student.ordinal()) >= tableSize) return StudentEnum.NOSTUDENT;
+        if (studentsPerTable.count(student) >= tableSize) return StudentEnum.NOSTUDENT;
 
         removeFromEntrance(studentPos);
         addToHall(student);
@@ -94,7 +97,7 @@ public class Board {
         || parameters.getSelectedEntranceStudents().get().isEmpty()) return;
 
         int studentPos = parameters.getSelectedEntranceStudents().get().stream().findFirst().get();
-        StudentEnum student = studentsAtEntrance.get(studentPos);
+        StudentEnum student = studentsAtEntrance[studentPos];
 
         removeFromEntrance(studentPos);
 
@@ -157,9 +160,11 @@ public class Board {
      */
     public void addToEntrance(StudentEnum studentToAdd){
 
-        int freeSlot = studentsAtEntrance.indexOf(StudentEnum.NOSTUDENT);
+        if (freeEntranceSlots == 0 || studentToAdd == StudentEnum.NOSTUDENT) return;
 
-        if (freeSlot >= 0) studentsAtEntrance.set(freeSlot, studentToAdd);
+        int freeSlot = Integer.numberOfTrailingZeros(freeEntranceSlots);
+        studentsAtEntrance[freeSlot] = studentToAdd;
+        freeEntranceSlots &= ~(1 << freeSlot);
     }
 
     /**
@@ -170,11 +175,12 @@ public class Board {
     public StudentEnum removeFromEntrance(int position){
 
         //position out of bounds
-        if(position >= parameters.getMaxStudentsAtEntrance()) return StudentEnum.NOSTUDENT;
+        if(position >= studentsAtEntrance.length) return StudentEnum.NOSTUDENT;
 
-        StudentEnum removedStudent = studentsAtEntrance.get(position);
+        StudentEnum removedStudent = studentsAtEntrance[position];
 
-        studentsAtEntrance.set(position, StudentEnum.NOSTUDENT);
+        studentsAtEntrance[position] = StudentEnum.NOSTUDENT;
+        freeEntranceSlots |= 1 << position;
 
         return removedStudent;
     }
@@ -184,10 +190,8 @@ public class Board {
      * @param student the color of the student to add
      */
     public void addToHall(StudentEnum student){
-
-        Integer previousNumStudents = studentsPerTable.get(student.index);
-        previousNumStudents = previousNumStudents + 1;
-        studentsPerTable.set(student.index, previousNumStudents);
+        studentsPerTable.add(student);
+        parameters.getProfessorTracker().studentAdded(owner, student);
     }
 
     /**
@@ -197,34 +201,37 @@ public class Board {
      * @return Student with chosen color or NOSTUDENT if the table is already empty
      */
     public StudentEnum removeFromHall(StudentEnum color){
-        Integer previousNumStudents = studentsPerTable.get(color.index);
-        if(previousNumStudents == 0){
-            return StudentEnum.NOSTUDENT;
-        }
-        studentsPerTable.set(color.index, previousNumStudents - 1);
+        if(!studentsPerTable.remove(color)) return StudentEnum.NOSTUDENT;
+        parameters.getProfessorTracker().studentRemoved(owner, color);
         return color;
     }
 
+    /**
+     * @return a copy of the students at the entrance by slot, NOSTUDENT in the empty ones
+     */
     public List<StudentEnum> getStudentsAtEntrance(){
-        return studentsAtEntrance;
+        return new ArrayList<>(Arrays.asList(studentsAtEntrance));
     }
 
     public StudentEnum getAtEntrance(int index){
-        return studentsAtEntrance.get(index);
+        return studentsAtEntrance[index];
     }
 
     public int entranceSize(){
+        //every slot not free holds an actual student
+        return studentsAtEntrance.length - Integer.bitCount(freeEntranceSlots);
+    }
 
-        int size = 0;
-
-        //count every studentEnum who is a representation of an actual student
-        for (StudentEnum student : studentsAtEntrance) size += student != StudentEnum.NOSTUDENT? 1 : 0;
-
-        return size;
+    /**
+     * Sets the player owning this board, so that the professor tracker of the game counts the students at its tables
+     * @param owner the player owning this board
+     */
+    public void setOwner(PlayerEnum owner) {
+        this.owner = owner;
     }
 
     public Integer getStudentsAtTable(StudentEnum color) {
-        return studentsPerTable.get(color.index);
+        return studentsPerTable.count(color);
     }
 
 }
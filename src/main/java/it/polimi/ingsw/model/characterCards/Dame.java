@@ -73,6 +73,8 @@ public class Dame extends InitialEffect{
             ((AdvancedPlayer)player).addCoin();
             advancedParameters.removeCoin();
         }
+        player.alert();
+
         //DRAW FROM SACK
         if(! sack.isEmpty())
             addAllStudents(sack.drawNStudents(1));
@@ -3,7 +3,6 @@ package it.polimi.ingsw.model.characterCards;
 import it.polimi.ingsw.model.game.AdvancedParameterHandler;
 import it.polimi.ingsw.model.game.ParameterHandler;
 
-import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
@@ -27,11 +26,23 @@ public class FactoryCharacterCard {
      * @return one random CharacterCard that is not contained in listCardsGot
      */
     public static CharacterCard getCharacterCard(List<CharacterCard> listCardsGot, ParameterHandler parameters, AdvancedParameterHandler advancedParameters){
+        return getCharacterCard(listCardsGot, parameters, advancedParameters, new Random());
+    }
+
+    /**
+     * choose a random card with the generator of the game, as getCharacterCard does
+     * @param listCardsGot != null
+     * @param parameters != null
+     * @param advancedParameters != null
+     * @param randomizer the random generator of the game
+     * @return one random CharacterCard that is not contained in listCardsGot
+     */
+    public static CharacterCard getCharacterCard(List<CharacterCard> listCardsGot, ParameterHandler parameters,
+                                                 AdvancedParameterHandler advancedParameters, Random randomizer){
 
         CharacterCard x = new Glutton(parameters, advancedParameters); //placeholder
         int times=0;
-        Random randomizer = new Random();
-        int random = Math.abs(randomizer.nextInt() % numCharacterCards);
+        int random = randomizer.nextInt(numCharacterCards);
 //        random = 3;    //todo Used for testing character cards, remove later
 
         while(times < numCharacterCards){ //wtf
@@ -14,11 +14,13 @@ import it.polimi.ingsw.model.islands.IslandGroup;
 import it.polimi.ingsw.model.player.AdvancedPlayer;
 import it.polimi.ingsw.model.player.FactoryPlayer;
 import it.polimi.ingsw.model.player.Player;
+import it.polimi.ingsw.model.player.PlayerEnum;
 import it.polimi.ingsw.view.VirtualView;
 import it.polimi.ingsw.view.observer.AdvancedGameWatcher;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 public class AdvancedGame extends SimpleGame {
     private List<CharacterCard> characterCards;
@@ -34,7 +36,7 @@ public class AdvancedGame extends SimpleGame {
         characterCards = new ArrayList<>();
         for(int card = 0; card < numCharacterCards; card++){
             characterCards.add(FactoryCharacterCard.
-                    getCharacterCard(characterCards, super.getParameters(), advancedParameters));
+                    getCharacterCard(characterCards, super.getParameters(), advancedParameters, random));
         }
 
     }
@@ -62,7 +64,7 @@ public class AdvancedGame extends SimpleGame {
         characterCards = new ArrayList<>();
         for(int card = 0; card < numCharacterCards; card++){
             characterCards.add(FactoryCharacterCard.
-                    getCharacterCard(characterCards, super.getParameters(), advancedParameters));
+                    getCharacterCard(characterCards, super.getParameters(), advancedParameters, random));
         }
 
         for(int card = 0; card < numCharacterCards; card++){
@@ -95,7 +97,25 @@ public class AdvancedGame extends SimpleGame {
     public AdvancedGame(int numPlayers, List<Integer> selectedWizards,
                         List<TeamEnum> selectedColors, List<String> nicknames,
                         VirtualView virtualView) throws  IncorrectPlayersException{
-        super(numPlayers, selectedWizards, selectedColors, nicknames, virtualView);
+        this(numPlayers, selectedWizards, selectedColors, nicknames, virtualView, new Random().nextLong());
+    }
+
+    /**
+     * Version with observer pattern and a seed
+     * Creates a new AdvancedGame whose random choices, character cards included, all come from the given seed
+     * @param numPlayers number of players in the game [2,4]
+     * @param selectedWizards array containing users' selection for their wizards
+     * @param selectedColors array containing users' selection for their tower colors
+     * @param nicknames array containing users' nicknames
+     * @param virtualView the view that will hold the watchers for the model classes
+     * @param seed the seed of the random choices of the game
+     * @throws IncorrectPlayersException the number of players isn't in the
+     *                                  allowed range
+     */
+    public AdvancedGame(int numPlayers, List<Integer> selectedWizards,
+                        List<TeamEnum> selectedColors, List<String> nicknames,
+                        VirtualView virtualView, long seed) throws  IncorrectPlayersException{
+        super(numPlayers, selectedWizards, selectedColors, nicknames, virtualView, seed);
         advancedParameters.setNumCoins(AdvancedParameterHandler.numStartingCoinsOnBoard -
                AdvancedParameterHandler.numInitialCoinsPerPlayer*numPlayers );
         // number of coins in the parameters is added at a later
@@ -105,7 +125,7 @@ public class AdvancedGame extends SimpleGame {
         characterCards = new ArrayList<>();
         for(int card = 0; card < AdvancedParameterHandler.numCharacterCardPerGame; card++){
             characterCards.add(FactoryCharacterCard.
-                    getCharacterCard(characterCards, super.getParameters(), advancedParameters));
+                    getCharacterCard(characterCards, super.getParameters(), advancedParameters, random));
         }
 
         for(int card = 0; card < AdvancedParameterHandler.numCharacterCardPerGame; card++){
@@ -200,7 +220,7 @@ public class AdvancedGame extends SimpleGame {
 
     @Override
     protected void createPlayingSack() {
-        sack = new AdvancedSack(super.getMaxStudentsByType()-2);
+        sack = new AdvancedSack(super.getMaxStudentsByType()-2, random);
     }
 
     /**
@@ -318,33 +338,15 @@ public class AdvancedGame extends SimpleGame {
     }
 
     /**
-     * Update professor considering the presence of glutton's effect
+     * Update professor considering the presence of glutton's effect,
+     * which gives the professor to the current player on a draw too
      * @param professor the professor who needs to checked for updates
      */
     @Override
     public void updateProfessor(StudentEnum professor) {
-        if(!advancedParameters.isDrawIsWin())
-            super.updateProfessor(professor);
-        else{
-            Player currentPlayer = parameters.getCurrentPlayer();
-            int max = currentPlayer.getNumStudentAtTable(professor);
-            Player challenger = currentPlayer;
-            int curr;
-
-            for(Player player: players){
-                curr = player.getNumStudentAtTable(professor);
-                if( curr > max ){
-                    challenger = player;
-                }
-            }
-
-            parameters.addProfessor(challenger.getPlayerId(), professor);
-        }
-        for (Player player : this.players){
-            player.alert();
-        }
-
-        alert();
+        PlayerEnum drawWinner = advancedParameters.isDrawIsWin() ?
+                parameters.getCurrentPlayer().getPlayerId() : PlayerEnum.NOPLAYER;
+        updateProfessor(professor, drawWinner);
     }
 
     /**
@@ -371,11 +373,7 @@ public class AdvancedGame extends SimpleGame {
      * @return true if chosen island have one or more block tiles
      */
     public boolean isBlocked(int idIsland){
-        IslandGroup island = null;
-        for(IslandGroup islandGroup: islandGroups){
-            if(islandGroup.getIdGroup() == idIsland)
-                island = islandGroup;
-        }
+        IslandGroup island = islandRing.getGroup(idIsland);
 
         if(island == null){
             parameters.setErrorState("WRONG ID ISLAND GROUP");
@@ -392,11 +390,7 @@ public class AdvancedGame extends SimpleGame {
      * @param idIsland > 0
      */
     public void unblockIsland(int idIsland){
-        IslandGroup island = null;
-        for(IslandGroup islandGroup: islandGroups){
-            if(islandGroup.getIdGroup() == idIsland)
-                island = islandGroup;
-        }
+        IslandGroup island = islandRing.getGroup(idIsland);
 
         if(island == null){
             parameters.setErrorState("WRONG ID ISLAND GROUP");
@@ -427,8 +421,8 @@ public class AdvancedGame extends SimpleGame {
         List<Integer> idCharacterCards = characterCards.stream().mapToInt(card -> card.id).
                                                 collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
 
-        sortIslandGroups();
-        for(IslandGroup islandGroup: islandGroups){
+        // The groups of the ring are already in order
+        for(IslandGroup islandGroup: islandRing.getGroups()){
             idIslands.add(islandGroup.getIdGroup());
         }
         for(Player player: players){
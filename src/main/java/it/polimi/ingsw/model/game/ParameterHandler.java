@@ -37,7 +37,8 @@ public class ParameterHandler extends DrawableObject {
     private Player currentPlayer;
     private int idIslandGroupMN;
     private PhaseEnum currentPhase;
-    private List<PlayerEnum> professors;
+    private ProfessorList professors;
+    private ProfessorTracker professorTracker;
     private int turn;
 
     //SELECTION PARAMETERS
@@ -60,11 +61,9 @@ public class ParameterHandler extends DrawableObject {
             numTowers             = numTowers2or4Players;
         }
 
-        playersAllegiance = new HashMap<>();
-        professors = new ArrayList<>();
-        for (StudentEnum studEnum : StudentEnum.getStudents()){
-            professors.add(PlayerEnum.NOPLAYER);
-        }
+        playersAllegiance = new EnumMap<>(PlayerEnum.class);
+        professors = new ProfessorList(StudentEnum.getStudents().size());
+        professorTracker = new ProfessorTracker();
 
         undoSelection();
 
@@ -87,11 +86,9 @@ public class ParameterHandler extends DrawableObject {
             numTowers             = numTowers2or4Players;
         }
 
-        playersAllegiance = new HashMap<>();
-        professors = new ArrayList<>();
-        for (StudentEnum studEnum : StudentEnum.values()){
-            professors.add(PlayerEnum.NOPLAYER);
-        }
+        playersAllegiance = new EnumMap<>(PlayerEnum.class);
+        professors = new ProfessorList(StudentEnum.values().length);
+        professorTracker = new ProfessorTracker();
 
         undoSelection();
 
@@ -128,6 +125,7 @@ public class ParameterHandler extends DrawableObject {
         for (Player player : players){
             playersAllegiance.put(player.getPlayerId(), player.getTeamColor());
         }
+        professors.version++;
     }
 
     public void setIdIslandGroupMN(int idIslandGroupMN) {
@@ -205,6 +203,26 @@ public class ParameterHandler extends DrawableObject {
         return professors;
     }
 
+    public ProfessorTracker getProfessorTracker() {
+        return professorTracker;
+    }
+
+    /**
+     * @return a number that changes every time a professor changes hands or the players change team,
+     *         to tell whether the influence derived from the professors is stale
+     */
+    public int getProfessorsVersion() {
+        return professors.version;
+    }
+
+    /**
+     * @param color a student color, not NOSTUDENT
+     * @return the team owning the professor of that color, NOTEAM if nobody owns it
+     */
+    public TeamEnum getProfessorTeam(StudentEnum color) {
+        return getPlayerTeamById(professors.get(color.index));
+    }
+
     public void addProfessor(PlayerEnum player, StudentEnum color){
         if(color == StudentEnum.NOSTUDENT || player == PlayerEnum.NOPLAYER)
             return;
@@ -271,4 +289,46 @@ public class ParameterHandler extends DrawableObject {
     public GameElementBean toBean() {
         return new ErrorBean(errorMessage);
     }
+
+    /**
+     * The owner of each professor by color, which counts the times it was changed
+     */
+    private static class ProfessorList extends AbstractList<PlayerEnum> implements RandomAccess {
+
+        private final List<PlayerEnum> owners;
+        private int version;
+
+        private ProfessorList(int colors){
+            owners = new ArrayList<>(Collections.nCopies(colors, PlayerEnum.NOPLAYER));
+        }
+
+        @Override
+        public PlayerEnum get(int color) {
+            return owners.get(color);
+        }
+
+        @Override
+        public PlayerEnum set(int color, PlayerEnum owner) {
+            PlayerEnum previousOwner = owners.set(color, owner);
+            if(previousOwner != owner) version++;
+            return previousOwner;
+        }
+
+        @Override
+        public void add(int color, PlayerEnum owner) {
+            owners.add(color, owner);
+            version++;
+        }
+
+        @Override
+        public PlayerEnum remove(int color) {
+            version++;
+            return owners.remove(color);
+        }
+
+        @Override
+        public int size() {
+            return owners.size();
+        }
+    }
 }
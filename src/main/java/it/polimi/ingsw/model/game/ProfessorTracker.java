@@ -0,0 +1,105 @@
+package it.polimi.ingsw.model.game;
+
+import it.polimi.ingsw.model.StudentEnum;
+import it.polimi.ingsw.model.player.PlayerEnum;
+
+import java.util.Optional;
+
+/**
+ * Counts the students of each color at the tables of each player, as the boards add and remove them,
+ * and decides from those amounts who owns each professor, without looking at the boards. <br>
+ * A professor changing hands is given back as a ProfessorChange, so that only the players involved are updated
+ */
+public class ProfessorTracker {
+
+    /**
+     * A professor changing hands
+     * @param professor the color of the professor
+     * @param previousOwner the player who owned it, NOPLAYER if nobody did
+     * @param newOwner the player who owns it now
+     */
+    public record ProfessorChange(StudentEnum professor, PlayerEnum previousOwner, PlayerEnum newOwner) {}
+
+    private final int[][] studentsAtTable; // by color, then by player
+
+    public ProfessorTracker(){
+        studentsAtTable = new int[StudentEnum.getNumStudentTypes()][PlayerEnum.getNumPlayerTypes()];
+    }
+
+    /**
+     * Counts a student added to the table of a player, NOSTUDENT and NOPLAYER are ignored
+     * @param player the owner of the board
+     * @param student the color of the student
+     */
+    public void studentAdded(PlayerEnum player, StudentEnum student){
+        if(player == PlayerEnum.NOPLAYER || student == StudentEnum.NOSTUDENT) return;
+        studentsAtTable[student.index][player.index]++;
+    }
+
+    /**
+     * Counts a student removed from the table of a player, NOSTUDENT and NOPLAYER are ignored
+     * @param player the owner of the board
+     * @param student the color of the student
+     */
+    public void studentRemoved(PlayerEnum player, StudentEnum student){
+        if(player == PlayerEnum.NOPLAYER || student == StudentEnum.NOSTUDENT) return;
+        if(studentsAtTable[student.index][player.index] > 0) studentsAtTable[student.index][player.index]--;
+    }
+
+    /**
+     * @param player a player, not NOPLAYER
+     * @param color a color, not NOSTUDENT
+     * @return the students of that color at the table of that player
+     */
+    public int getStudentsAtTable(PlayerEnum player, StudentEnum color){
+        return studentsAtTable[color.index][player.index];
+    }
+
+    /**
+     * @param color a color, not NOSTUDENT
+     * @return the player with more students of that color than anyone else, NOPLAYER if nobody has more
+     */
+    public PlayerEnum playerWithMoreStudents(StudentEnum color){
+        int[] students = studentsAtTable[color.index];
+        int maximum = 0;
+        PlayerEnum leader = PlayerEnum.NOPLAYER;
+
+        for(int player = 0; player < students.length; player++){
+            if(students[player] > maximum){
+                maximum = students[player];
+                leader = PlayerEnum.getPlayer(player);
+            }
+            else if(students[player] == maximum){
+                leader = PlayerEnum.NOPLAYER;
+            }
+        }
+        return leader;
+    }
+
+    /**
+     * Decides who owns a professor: the player with more students of its color than anyone else,
+     * or the player winning the draws if they have at least as many as anyone else. Otherwise it stays where it is
+     * @param professor the color of the professor, not NOSTUDENT
+     * @param owner the player owning the professor, NOPLAYER if nobody does
+     * @param drawWinner the player who takes the professor on a draw too, NOPLAYER if nobody does
+     * @return the change of owner, empty if the professor stays where it is
+     */
+    public Optional<ProfessorChange> update(StudentEnum professor, PlayerEnum owner, PlayerEnum drawWinner){
+        PlayerEnum newOwner = playerWithMoreStudents(professor);
+        if(drawWinner != PlayerEnum.NOPLAYER && hasTheMostStudents(drawWinner, professor)) newOwner = drawWinner;
+
+        if(newOwner == PlayerEnum.NOPLAYER || newOwner == owner) return Optional.empty();
+        return Optional.of(new ProfessorChange(professor, owner, newOwner));
+    }
+
+    /**
+     * @return true if the player has some students of that color, and no one has more
+     */
+    private boolean hasTheMostStudents(PlayerEnum player, StudentEnum color){
+        int[] students = studentsAtTable[color.index];
+        if(students[player.index] == 0) return false;
+        for(int amount : students)
+            if(amount > students[player.index]) return false;
+        return true;
+    }
+}
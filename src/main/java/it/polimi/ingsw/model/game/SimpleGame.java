@@ -7,6 +7,7 @@ import it.polimi.ingsw.model.beans.ErrorBean;
 import it.polimi.ingsw.model.beans.GameBoardBean;
 import it.polimi.ingsw.model.beans.GameElementBean;
 import it.polimi.ingsw.model.islands.IslandGroup;
+import it.polimi.ingsw.model.islands.IslandRing;
 import it.polimi.ingsw.model.islands.UnmergeableException;
 import it.polimi.ingsw.model.player.FactoryPlayer;
 import it.polimi.ingsw.model.player.Player;
@@ -19,7 +20,6 @@ import it.polimi.ingsw.view.observer.Watcher;
 import java.util.*;
 import java.util.stream.Collectors;
 
-import static java.lang.Math.abs;
 
 
 public class SimpleGame extends DrawableObject {
@@ -32,14 +32,15 @@ public class SimpleGame extends DrawableObject {
     private TeamEnum currentTeam;
     private boolean isLastTurn;
     private int currentIslandGroupId;
-    protected List<IslandGroup> islandGroups; // These are not in order of navigation, the order
-                                            // is given by the pointers
+    protected IslandRing islandRing; // Finds the island groups by id and gives their order
+    protected List<IslandGroup> islandGroups; // In order of navigation, as the ring lists them
     protected List<Player> players; // These will not be in order, they will get shifted around depending
                                     // on the turn order for that round
     private List<Cloud> clouds;
     private MotherNature MN;
     protected Sack sack;
     protected ParameterHandler parameters;
+    protected Random random; // every random choice of the game, so that it can be played again from its seed
 
     private boolean hasBeenInitialized;
 
@@ -66,6 +67,7 @@ public class SimpleGame extends DrawableObject {
         }
 
         int numberOfClouds = numPlayers;
+        this.random = new Random();
         this.hasBeenInitialized = false;
         this.amountOfIslands = 12;
         this.numPlayers = numPlayers;
@@ -81,9 +83,10 @@ public class SimpleGame extends DrawableObject {
         createIslandGroups();
 
         // Mother Nature starts on the first island group, will get moved in the initialization of the game
-        this.MN = new MotherNature(islandGroups.get(0));
+        this.islandRing = new IslandRing(islandGroups);
+        this.MN = new MotherNature(islandRing, islandGroups.get(0));
         //Creates the sack for the initialization phase, it will get used up and replaced in the initializeGame method
-        this.sack = new Sack(2);
+        this.sack = new Sack(2, random);
         //createPlayers(numPlayers);
         createPlayers(numPlayers, selectedWizards, selectedColors, nicknames);
         parameters.setPlayersAllegiance(players);
@@ -108,12 +111,32 @@ public class SimpleGame extends DrawableObject {
     public SimpleGame(int numPlayers, List<Integer> selectedWizards,
                       List<TeamEnum> selectedColors,
                       List<String> nicknames, VirtualView virtualView) throws  IncorrectPlayersException{
+        this(numPlayers, selectedWizards, selectedColors, nicknames, virtualView, new Random().nextLong());
+    }
+
+    /**
+     * Observer pattern version with a seed
+     * Creates a new SimpleGame whose random choices all come from the given seed: the same seed and the
+     * same moves of the players give the same game
+     * @param numPlayers number of players in the game [2,4]
+     * @param selectedWizards array containing users' selection for their wizards
+     * @param selectedColors array containing users' selection for their tower colors
+     * @param nicknames array containing users' nicknames
+     * @param virtualView the view that will hold the watchers for the model classes
+     * @param seed the seed of the random choices of the game
+     * @throws IncorrectPlayersException the number of players isn't in the
+     *                                  allowed range
+     */
+    public SimpleGame(int numPlayers, List<Integer> selectedWizards,
+                      List<TeamEnum> selectedColors,
+                      List<String> nicknames, VirtualView virtualView, long seed) throws  IncorrectPlayersException{
 
         if(numPlayers > 4 || numPlayers < 2){
             throw new IncorrectPlayersException();
         }
 
         int numberOfClouds = numPlayers;
+        this.random = new Random(seed);
         this.hasBeenInitialized = false;
         this.amountOfIslands = 12;
         this.numPlayers = numPlayers;
@@ -131,9 +154,10 @@ public class SimpleGame extends DrawableObject {
         createIslandGroups(virtualView);
 
         // Mother Nature starts on the first island group, will get moved in the initialization of the game
-        this.MN = new MotherNature(islandGroups.get(0));
+        this.islandRing = new IslandRing(islandGroups);
+        this.MN = new MotherNature(islandRing, islandGroups.get(0));
         //Creates the sack for the initialization phase, it will get used up and replaced in the initializeGame method
-        this.sack = new Sack(2);
+        this.sack = new Sack(2, random);
         //createPlayers(numPlayers);
         createPlayers(numPlayers, selectedWizards, selectedColors, nicknames, virtualView);
         parameters.setPlayersAllegiance(players);
@@ -161,7 +185,7 @@ public class SimpleGame extends DrawableObject {
         parameters.setTurn(1);
 
         // Moves Mother nature to a random island
-        int MNStartingPosition = abs(new Random().nextInt() % amountOfIslands);
+        int MNStartingPosition = random.nextInt(amountOfIslands);
         MN.move(MNStartingPosition);
         parameters.setIdIslandGroupMN(MN.getPosition().getIdGroup());
 
@@ -174,7 +198,7 @@ public class SimpleGame extends DrawableObject {
             // If the current position is MotherNature's or its opposite, we don't put a student there
             if(!(curPosition == MNStartingPosition ||
                     curPosition == (MNStartingPosition + amountOfIslands/2) % amountOfIslands)){
-                drawnStudent = sack.drawNStudents(1).get(0);
+                drawnStudent = sack.drawOneStudent();
                 islandGroups.get(curPosition).addStudent(drawnStudent);
             }
         }
@@ -214,7 +238,7 @@ public class SimpleGame extends DrawableObject {
      * to this game's sack. Can be overridden
      */
     protected void createPlayingSack(){
-        sack = new Sack(maxStudentsByType-2);
+        sack = new Sack(maxStudentsByType-2, random);
     }
 
     /**
@@ -350,43 +374,48 @@ public class SimpleGame extends DrawableObject {
     }
 
     /**
-     * Checks whether a professor needs to change hands by comparing the respective tables
-     * in the players' boards
+     * Checks whether a professor needs to change hands by comparing the students at the tables
+     * of the players, as counted by the professor tracker
      * @param professor the professor who needs to checked for updates
      */
     public void updateProfessor(StudentEnum professor){
-        int maximumStudents = 0;
-        int numberOfStudents;
-        PlayerEnum currentWinner = PlayerEnum.NOPLAYER;
+        updateProfessor(professor, PlayerEnum.NOPLAYER);
+    }
 
-        for(Player player : players){
-            numberOfStudents = player.getBoard().getStudentsAtTable(professor);
-            if (numberOfStudents > maximumStudents){
-                maximumStudents = numberOfStudents;
-                currentWinner = player.getPlayerId();
-            }
-            else if (numberOfStudents == maximumStudents){
-                currentWinner = PlayerEnum.NOPLAYER;
-            }
-        }
-        if(!currentWinner.equals(PlayerEnum.NOPLAYER)) {
-            assignProfessor(professor, currentWinner);
-        }
+    /**
+     * Checks whether a professor needs to change hands, and if it does gives it to its new owner
+     * and alerts only the players whose professors changed
+     * @param professor the professor who needs to checked for updates
+     * @param drawWinner the player who takes the professor on a draw too, NOPLAYER if nobody does
+     */
+    protected void updateProfessor(StudentEnum professor, PlayerEnum drawWinner){
+        if(professor == StudentEnum.NOSTUDENT) return;
 
-        for (Player player : players){
-            player.alert();
-        }
+        PlayerEnum owner = parameters.getProfessors().get(professor.index);
+        Optional<ProfessorTracker.ProfessorChange> change =
+                parameters.getProfessorTracker().update(professor, owner, drawWinner);
+        if(change.isEmpty()) return;
 
-        alert();
+        assignProfessor(professor, change.get().newOwner());
+        for(Player player : players){
+            if(player.getPlayerId() == change.get().previousOwner() || player.getPlayerId() == change.get().newOwner())
+                player.alert();
+        }
     }
 
     /**
-     * Updates the professor assigning it to the player chosen
+     * Updates the professor assigning it to the player chosen, and moves the influence
+     * of its students on the islands to the new owner's team
      * @param professor the professor's color
      * @param player the player to assign it to
      */
-    private void assignProfessor(StudentEnum professor, PlayerEnum player){
+    protected void assignProfessor(StudentEnum professor, PlayerEnum player){
+        if(professor == StudentEnum.NOSTUDENT || player == PlayerEnum.NOPLAYER)
+            return;
+        TeamEnum previousTeam = parameters.getProfessorTeam(professor);
         this.parameters.getProfessors().set(professor.index, player);
+        for(IslandGroup islandGroup : islandGroups)
+            islandGroup.professorChanged(professor, previousTeam);
     }
 
     /**
@@ -602,7 +631,7 @@ public class SimpleGame extends DrawableObject {
      * @return a Map with placed towers per team
      */
     public Map<TeamEnum, Integer> towersOnIslands(){
-        Map<TeamEnum, Integer> numTowerOnIslands = new HashMap<>();
+        Map<TeamEnum, Integer> numTowerOnIslands = new EnumMap<>(TeamEnum.class);
         int towersPerPlayer = parameters.getNumTowers();
         int placedTowers;
         TeamEnum team;
@@ -621,7 +650,7 @@ public class SimpleGame extends DrawableObject {
      * @return a Map of  the professors' numbers  owned by each team
      */
     public Map<TeamEnum, Integer> professorsPerTeam(){
-        Map<TeamEnum, Integer> numProfessorsPerTeam = new HashMap<>();
+        Map<TeamEnum, Integer> numProfessorsPerTeam = new EnumMap<>(TeamEnum.class);
         List<PlayerEnum> professors = parameters.getProfessors();
         TeamEnum team = TeamEnum.NOTEAM;
         int previous = 0;
@@ -700,9 +729,7 @@ public class SimpleGame extends DrawableObject {
      * @param idIslandGroup the id of the island on which to put the student
      */
     public void moveFromEntranceToIsland(Player player, int idIslandGroup){
-        IslandGroup island = islandGroups.stream()
-                .filter(islandGroup -> islandGroup.getIdGroup() == idIslandGroup)
-                .findFirst().get(); // Because of the check done before, this shouldn't be null
+        IslandGroup island = islandRing.getGroup(idIslandGroup); // Because of the check done before, this shouldn't be null
         player.moveFromEntranceToIsland(island);
         deselectAllEntranceStudents();
     }
@@ -732,7 +759,7 @@ public class SimpleGame extends DrawableObject {
      * @param idIslandGroup the island group to select
      */
     public void selectIslandGroup(int idIslandGroup){
-        IslandGroup islandGroup = islandGroups.get(idIslandGroup);
+        IslandGroup islandGroup = islandRing.getGroup(idIslandGroup);
         if(parameters.getSelectedIslands().isEmpty()){
             List<IslandGroup> islandList = new ArrayList<>();
             islandList.add(islandGroup);
@@ -826,7 +853,7 @@ public class SimpleGame extends DrawableObject {
      * @return true if there is an islandGroup that has the chosen id
      */
     public boolean checkValidIdIsland(final int idIslandGroup){
-        return islandGroups.stream().anyMatch(island -> island.getIdGroup() == idIslandGroup);
+        return islandRing.getGroup(idIslandGroup) != null;
     }
 
     /**
@@ -854,23 +881,7 @@ public class SimpleGame extends DrawableObject {
      * If nobody has more students  than other players return NoPlayer
      */
     public PlayerEnum playerWithMoreStudent(StudentEnum studentColor){
-        int max = 0;
-        int curr = 0;
-        PlayerEnum maxPlayer = PlayerEnum.NOPLAYER;
-
-        for(Player player: players){
-            curr = player.getNumStudentAtTable(studentColor);
-            if(curr > max){
-                max = curr;
-                maxPlayer = player.getPlayerId();
-            }
-
-            else if(curr == max){
-                maxPlayer = PlayerEnum.NOPLAYER;
-            }
-
-        }
-        return maxPlayer;
+        return parameters.getProfessorTracker().playerWithMoreStudents(studentColor);
     }
 
     /**
@@ -902,12 +913,9 @@ public class SimpleGame extends DrawableObject {
      */
     public void evaluateIsland(int idIsland) throws UnmergeableException {
         final int  offsetNewIdIslandGroup = 100;
-        IslandGroup island = null;
+        IslandGroup island = islandRing.getGroup(idIsland);
         IslandGroup newIsland = null;
         TeamEnum winnerTeam;
-        for(IslandGroup isla : islandGroups )
-            if(isla.getIdGroup() == idIsland)
-                island = isla;
 
 
         if(island != null){
@@ -915,12 +923,12 @@ public class SimpleGame extends DrawableObject {
             try{
                 winnerTeam = island.evaluateMostInfluential();
                 island.build(winnerTeam, players);
-                newIsland = island.mergeAdjacent(island.getIdGroup() + offsetNewIdIslandGroup,
-                        islandGroups);
+                newIsland = islandRing.merge(island, island.getIdGroup() + offsetNewIdIslandGroup);
+                islandGroups = new ArrayList<>(islandRing.getGroups());
 
                 //IF ISLAND GROUP WITH MN DOES NOT EXIST ANY MORE
                 //RESET MN POSITION
-                boolean setMN = !islandGroups.contains(MN.getPosition());
+                boolean setMN = islandRing.getGroup(MN.getPosition().getIdGroup()) != MN.getPosition();
                 if(setMN){
                 MN.setPosition(newIsland);
                 parameters.setIdIslandGroupMN(newIsland.getIdGroup());
@@ -974,8 +982,8 @@ public class SimpleGame extends DrawableObject {
         else
             phase = null;
 
-        sortIslandGroups();
-        for(IslandGroup islandGroup: islandGroups){
+        // The groups of the ring are already in order
+        for(IslandGroup islandGroup: islandRing.getGroups()){
             idIslands.add(islandGroup.getIdGroup());
         }
 
@@ -7,7 +7,6 @@ import it.polimi.ingsw.model.beans.GameElementBean;
 import it.polimi.ingsw.model.beans.IslandGroupBean;
 import it.polimi.ingsw.model.game.AdvancedParameterHandler;
 import it.polimi.ingsw.model.game.ParameterHandler;
-import it.polimi.ingsw.model.player.PlayerEnum;
 import it.polimi.ingsw.view.VirtualView;
 import it.polimi.ingsw.view.observer.AdvancedIslandGroupWatcher;
 import it.polimi.ingsw.view.observer.IslandGroupWatcher;
@@ -171,14 +170,13 @@ public class AdvancedIslandGroup extends IslandGroup {
     }
 
     /**
-     * Merges this islandGroup with the neighboring islands and updates the IslandGroup collection in game
+     * Merges this islandGroup with the neighboring islands that have the same towers, together with their block tiles
      * @param newId the id to assign the newly formed group
-     * @param islandGroups the islandGroup list that the new island will need to check for possible mergings
      * @return the new islandGroup created by the merging
      * @throws UnmergeableException The island group can't be merged with any neighbors
      */
     @Override
-    public IslandGroup mergeAdjacent(int newId, List<IslandGroup> islandGroups) throws UnmergeableException{
+    public IslandGroup mergeAdjacent(int newId) throws UnmergeableException{
         //todo move to controller
         //Checks if the island has a tower built on top of it
         if(getTowerColor().equals(TeamEnum.NOTEAM)){
@@ -195,7 +193,8 @@ public class AdvancedIslandGroup extends IslandGroup {
         IslandGroup successor = this;
         IslandGroup predecessor = this;
         List<Island> mergedIslands = new ArrayList<>(this.getIslands());
-        List<StudentEnum> mergedStudents = new ArrayList<>(this.getStudents());
+        StudentCounts mergedStudents = new StudentCounts();
+        mergedStudents.addAll(this.students);
         List<BlockTile> mergedBlocks = new ArrayList<>(this.blockTiles);
 
 
@@ -204,25 +203,19 @@ public class AdvancedIslandGroup extends IslandGroup {
         if (getNextIslandGroup().getTowerColor().equals(getTowerColor())){
             successor = getNextIslandGroup();
             mergedIslands.addAll(getNextIslandGroup().getIslands());
-            mergedStudents.addAll(getNextIslandGroup().getStudents());
+            mergedStudents.addAll(getNextIslandGroup().students);
             AdvancedIslandGroup groupTemp = (AdvancedIslandGroup) getNextIslandGroup();
             mergedBlocks.addAll(groupTemp.blockTiles);
-            // Once we know the island must be merged, we remove it from the group
-            islandGroups.remove(getNextIslandGroup());
             getNextIslandGroup().killAll();
         }
         if(getPrevIslandGroup().getTowerColor().equals(getTowerColor())){
             predecessor = getPrevIslandGroup();
             mergedIslands.addAll(getPrevIslandGroup().getIslands());
-            mergedStudents.addAll(getPrevIslandGroup().getStudents());
+            mergedStudents.addAll(getPrevIslandGroup().students);
             AdvancedIslandGroup groupTemp = (AdvancedIslandGroup) getPrevIslandGroup();
             mergedBlocks.addAll(groupTemp.blockTiles);
-            // Same as before
-            islandGroups.remove(getPrevIslandGroup());
             getPrevIslandGroup().killAll();
         }
-        // Finally, remove this island
-        islandGroups.remove(this);
         killAll();
 
         // prepare pointers
@@ -231,14 +224,13 @@ public class AdvancedIslandGroup extends IslandGroup {
 
 
         AdvancedIslandGroup mergedGroup = new AdvancedIslandGroup(newId, mergedIslands, nextPointer, previousPointer,
-                mergedStudents, getTowerColor(), mergedBlocks, getParameters(),
+                mergedStudents.asList(), getTowerColor(), mergedBlocks, getParameters(),
                 advancedParameters, parameters.getVirtualView());
 
         mergedGroup.nextIslandGroup.setPrevIslandGroup(mergedGroup);
         mergedGroup.prevIslandGroup.setNextIslandGroup(mergedGroup);
         mergedGroup.nextIslandGroup.alert();
         mergedGroup.prevIslandGroup.alert();
-        islandGroups.add(mergedGroup); // possibly unsafe handling of game attribute
 
         return mergedGroup;
     }
@@ -252,8 +244,10 @@ public class AdvancedIslandGroup extends IslandGroup {
     public TeamEnum evaluateMostInfluential(){
         int maximumInfluence = 0;
         TeamEnum mostInfluentialTeam = TeamEnum.NOTEAM;
-        PlayerEnum professorOwner;
-        TeamEnum owningTeam;
+        int[] influenceOfStudents = getInfluenceByTeam();
+        StudentEnum ignoredStudentType = advancedParameters.getIgnoredStudentType();
+        TeamEnum ignoredStudentsTeam = ignoredStudentType.equals(StudentEnum.NOSTUDENT) ?
+                TeamEnum.NOTEAM : getParameters().getProfessorTeam(ignoredStudentType);
 
         for (TeamEnum currentTeam : TeamEnum.values()){
 
@@ -262,9 +256,6 @@ public class AdvancedIslandGroup extends IslandGroup {
                 continue;
             }
 
-            professorOwner = PlayerEnum.NOPLAYER;
-            owningTeam = TeamEnum.NOTEAM;
-
             int currentInfluence = 0;
 
             // Check influence given by the knight
@@ -280,21 +271,9 @@ public class AdvancedIslandGroup extends IslandGroup {
                 }
             }
 
-            // Checks influence of students
-            for(StudentEnum stud : getStudents()){
-                if(!advancedParameters.getIgnoredStudentType().equals(stud)) {
-                    professorOwner = getParameters().getProfessors().get(stud.ordinal());
-
-                    // There's no point in adding influence to NOPLAYER     //redundant
-                    // if (professorOwner == PlayerEnum.NOPLAYER) continue;
-
-                    //Finds which team that owner is part of
-                    owningTeam = getParameters().getPlayerTeamById(professorOwner);
-
-                    // adds one to the influence if it's the current team being checked
-                    if (owningTeam.equals(currentTeam)) currentInfluence++;
-                }
-            }
+            // Checks influence of students, without the ones of the type ignored by the fungalmancer
+            currentInfluence += influenceOfStudents[currentTeam.ordinal()];
+            if (currentTeam.equals(ignoredStudentsTeam)) currentInfluence -= students.count(ignoredStudentType);
 
 
             if (currentInfluence > maximumInfluence){
@@ -356,7 +335,7 @@ public class AdvancedIslandGroup extends IslandGroup {
     public GameElementBean toBean() {
         int idIslandGroup = idGroup;
         List<Integer> idIsland = new ArrayList<>();
-        List<StudentEnum> studentsOnIsland = students;
+        List<StudentEnum> studentsOnIsland = students.toList();
         boolean isPresentMN = parameters.getIdIslandGroupMN() == idIslandGroup;
         TeamEnum tower = towerColor;
         int numBlockTiles = blockTiles.size();
@@ -5,25 +5,32 @@ import it.polimi.ingsw.model.beans.GameElementBean;
 import it.polimi.ingsw.model.beans.IslandGroupBean;
 import it.polimi.ingsw.model.game.ParameterHandler;
 import it.polimi.ingsw.model.player.Player;
-import it.polimi.ingsw.model.player.PlayerEnum;
 import it.polimi.ingsw.view.VirtualView;
 import it.polimi.ingsw.view.observer.IslandGroupWatcher;
 import it.polimi.ingsw.view.observer.SimpleGameWatcher;
 import it.polimi.ingsw.view.observer.Watcher;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class IslandGroup extends DrawableObject {
+    protected static final List<StudentEnum> studentColors = StudentEnum.getStudents();
+
     protected List<Watcher> watcherList;
     protected ParameterHandler parameters;
     protected final int idGroup;
     protected final List<Island> islands;
     protected IslandGroup nextIslandGroup;
     protected IslandGroup prevIslandGroup;
-    protected List<StudentEnum> students;
+    protected StudentCounts students;
     protected TeamEnum towerColor;
 
+    // the students under the professors of each team, by TeamEnum ordinal, kept up to date as students and professors move
+    private final int[] influenceByTeam = new int[TeamEnum.values().length];
+    private int countedStudents = -1;   // the modifications of the students when the influence was up to date
+    private int countedProfessors = -1; // the version of the professors when the influence was up to date
+
     /**
      * default constructor
      * create a generic IslandGroup
@@ -35,6 +42,7 @@ public class IslandGroup extends DrawableObject {
         islands.add(new Island(0));
         nextIslandGroup = null;
         prevIslandGroup = null;
+        students = new StudentCounts();
         towerColor = TeamEnum.NOTEAM;
         parameters = new ParameterHandler(2);
     }
@@ -45,7 +53,7 @@ public class IslandGroup extends DrawableObject {
         this.islands = islands;
         this.nextIslandGroup = nextIslandGroup;
         this.prevIslandGroup = prevIslandGroup;
-        this.students = students;
+        this.students = new StudentCounts(students);
         this.towerColor = towerColor;
         this.parameters = parameters;
     }
@@ -69,7 +77,7 @@ public class IslandGroup extends DrawableObject {
         this.islands = islands;
         this.nextIslandGroup = nextIslandGroup;
         this.prevIslandGroup = prevIslandGroup;
-        this.students = students;
+        this.students = new StudentCounts(students);
         this.towerColor = towerColor;
         this.parameters = parameters;
 
@@ -180,8 +188,11 @@ public class IslandGroup extends DrawableObject {
         return islands;
     }
 
+    /**
+     * @return the students on this group sorted by color, as a list backed by the group
+     */
     public List<StudentEnum> getStudents() {
-        return students;
+        return students.asList();
     }
 
     public TeamEnum getTowerColor() {
@@ -204,8 +215,7 @@ public class IslandGroup extends DrawableObject {
     public TeamEnum evaluateMostInfluential(){
         int maximumInfluence = 0;
         TeamEnum mostInfluentialTeam = TeamEnum.NOTEAM;
-        PlayerEnum professorOwner;
-        TeamEnum owningTeam;
+        int[] influenceOfStudents = getInfluenceByTeam();
 
         for (TeamEnum currentTeam : TeamEnum.values()){
 
@@ -214,9 +224,6 @@ public class IslandGroup extends DrawableObject {
                 continue;
             }
 
-            professorOwner = PlayerEnum.NOPLAYER;
-            owningTeam = TeamEnum.NOTEAM;
-
             int currentInfluence = 0;
 
             // Check influence of towers
@@ -225,18 +232,7 @@ public class IslandGroup extends DrawableObject {
             }
 
             // Checks influence of students
-            for(StudentEnum stud : students){
-                professorOwner = parameters.getProfessors().get(stud.ordinal());
-
-                // There's no point in adding influence to NOPLAYER     //redundant
-                // if (professorOwner == PlayerEnum.NOPLAYER) continue;
-
-                //Finds which team that owner is part of
-                owningTeam = parameters.getPlayerTeamById(professorOwner);
-
-                // adds one to the influence if it's the current team being checked
-                if (owningTeam.equals(currentTeam)) currentInfluence++;
-            }
+            currentInfluence += influenceOfStudents[currentTeam.ordinal()];
 
 
             if (currentInfluence > maximumInfluence){
@@ -250,6 +246,46 @@ public class IslandGroup extends DrawableObject {
         return mostInfluentialTeam;
     }
 
+    /**
+     * Returns the influence of the students on this group: for each team, the students whose professor it owns.
+     * It is updated as students are added and professors change hands, and counted again only if
+     * the students or the professors were changed without this group being told
+     * @return the influence of the students by TeamEnum ordinal, NOTEAM holding the students of unowned professors
+     */
+    protected int[] getInfluenceByTeam(){
+        if(!isInfluenceUpToDate()) countInfluence();
+        return influenceByTeam;
+    }
+
+    private boolean isInfluenceUpToDate(){
+        return countedStudents == students.modifications() && countedProfessors == parameters.getProfessorsVersion();
+    }
+
+    private void countInfluence(){
+        Arrays.fill(influenceByTeam, 0);
+        for(StudentEnum color : studentColors)
+            influenceByTeam[parameters.getProfessorTeam(color).ordinal()] += students.count(color);
+        countedStudents = students.modifications();
+        countedProfessors = parameters.getProfessorsVersion();
+    }
+
+    /**
+     * Moves the influence of the students of a color to the team now owning its professor.
+     * To be called on every group right after the professor changed hands
+     * @param color the color of the professor
+     * @param previousTeam the team that owned the professor before, NOTEAM if nobody did
+     */
+    public void professorChanged(StudentEnum color, TeamEnum previousTeam){
+        // if some other change was missed, the influence will be counted again when needed
+        if(countedStudents != students.modifications() || countedProfessors != parameters.getProfessorsVersion() - 1)
+            return;
+
+        int studentsOfColor = students.count(color);
+        influenceByTeam[previousTeam.ordinal()] -= studentsOfColor;
+        influenceByTeam[parameters.getProfessorTeam(color).ordinal()] += studentsOfColor;
+        countedProfessors = parameters.getProfessorsVersion();
+    }
+
 
     /**
      * Builds the towers according to the evaluation of the most influential Team
@@ -293,6 +329,27 @@ public class IslandGroup extends DrawableObject {
      * @return the new islandGroup created by the merging
      */
     public IslandGroup mergeAdjacent(int newId, List<IslandGroup> islandGroups) throws UnmergeableException{
+        IslandGroup next = nextIslandGroup;
+        IslandGroup previous = prevIslandGroup;
+        IslandGroup mergedGroup = mergeAdjacent(newId);
+
+        // The neighbors merged are the ones the new group doesn't point to
+        if(mergedGroup.nextIslandGroup != next) islandGroups.remove(next);
+        if(mergedGroup.prevIslandGroup != previous) islandGroups.remove(previous);
+        islandGroups.remove(this);
+        islandGroups.add(mergedGroup); // possibly unsafe handling of game attribute
+
+        return mergedGroup;
+    }
+
+    /**
+     * Merges this islandGroup with the neighboring islands that have the same towers, linking the new group
+     * to the neighbors of the merged ones. The groups merged aren't used anymore
+     * @param newId the id to assign the newly formed group
+     * @throws  UnmergeableException The island group can't be merged with any neighbors
+     * @return the new islandGroup created by the merging
+     */
+    public IslandGroup mergeAdjacent(int newId) throws UnmergeableException{
 
 
         //Checks if the island has a tower built on top of it
@@ -310,7 +367,8 @@ public class IslandGroup extends DrawableObject {
         IslandGroup successor = this;
         IslandGroup predecessor = this;
         List<Island> mergedIslands = new ArrayList<>(this.islands);
-        List<StudentEnum> mergedStudents = new ArrayList<>(this.students);
+        StudentCounts mergedStudents = new StudentCounts();
+        mergedStudents.addAll(this.students);
 
 
         // Finds what merging needs to happen (with the successor, the predecessor, or both),
@@ -319,20 +377,14 @@ public class IslandGroup extends DrawableObject {
             successor = nextIslandGroup;
             mergedIslands.addAll(nextIslandGroup.islands);
             mergedStudents.addAll(nextIslandGroup.students);
-            // Once we know the island must be merged, we remove it from the group
-            islandGroups.remove(nextIslandGroup);
             nextIslandGroup.killAll();
         }
         if(prevIslandGroup.towerColor.equals(towerColor)){
             predecessor = prevIslandGroup;
             mergedIslands.addAll(prevIslandGroup.islands);
             mergedStudents.addAll(prevIslandGroup.students);
-            // Same as before
-            islandGroups.remove(prevIslandGroup);
             prevIslandGroup.killAll();
         }
-        // Finally, remove this island
-        islandGroups.remove(this);
         killAll();
 
         // prepare pointers
@@ -343,14 +395,12 @@ public class IslandGroup extends DrawableObject {
 
 
         IslandGroup mergedGroup = new IslandGroup(newId, mergedIslands,
-                nextPointer, previousPointer, mergedStudents, towerColor, parameters, parameters.getVirtualView());
+                nextPointer, previousPointer, mergedStudents.asList(), towerColor, parameters, parameters.getVirtualView());
 
         mergedGroup.nextIslandGroup.setPrevIslandGroup(mergedGroup);
         mergedGroup.prevIslandGroup.setNextIslandGroup(mergedGroup);
         mergedGroup.nextIslandGroup.alert();
         mergedGroup.prevIslandGroup.alert();
-        islandGroups.add(mergedGroup); // possibly unsafe handling of game attribute
-
 
         return mergedGroup;
     }
@@ -360,7 +410,12 @@ public class IslandGroup extends DrawableObject {
      * @param student the student to add onto the island
      */
     public void addStudent(StudentEnum student){
+        boolean influenceUpToDate = isInfluenceUpToDate();
         students.add(student);
+        if(influenceUpToDate && student != StudentEnum.NOSTUDENT){
+            influenceByTeam[parameters.getProfessorTeam(student).ordinal()]++;
+            countedStudents = students.modifications();
+        }
         alert();
     }
 
@@ -377,9 +432,7 @@ public class IslandGroup extends DrawableObject {
      * @return the amount of students of type color
      */
     private int numberOfStudentsOfColor(StudentEnum color){
-        return (int) students.stream()
-                .filter(x -> x.equals(color))
-                .count();
+        return students.count(color);
     }
 
     /**
@@ -392,7 +445,7 @@ public class IslandGroup extends DrawableObject {
     public GameElementBean toBean(){
         int idIslandGroup = idGroup;
         List<Integer> idIsland = new ArrayList<>();
-        List<StudentEnum> studentsOnIsland = students;
+        List<StudentEnum> studentsOnIsland = students.toList();
         boolean isPresentMN = parameters.getIdIslandGroupMN() == idIslandGroup;
         TeamEnum tower = towerColor;
         for(Island island: islands)
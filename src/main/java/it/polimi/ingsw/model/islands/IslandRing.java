@@ -0,0 +1,200 @@
+package it.polimi.ingsw.model.islands;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The island groups of a game, indexed by the position of their islands on the ring of the base islands. <br>
+ * Which group an island belongs to is kept with a union-find over the positions, where the root of a group
+ * also holds its first island clockwise and its amount of islands, so that the neighbors of a group are found
+ * without following the pointers. The groups are also kept in clockwise order, starting from the group holding
+ * the first island, so that Mother Nature moves any amount of steps at once and the game lists its groups
+ * without sorting them. <br>
+ * A group is found by its id in constant time, and merging rebuilds only the order of the groups
+ */
+public class IslandRing {
+
+    private final int firstIslandId;
+    private final int[] parent;           // the union-find over the positions of the islands
+    private final int[] firstIsland;      // for a root, the position of the first island of its group clockwise
+    private final int[] islandsInGroup;   // for a root, the amount of islands of its group
+    private final int[] rank;             // for a root, the position of its group in the clockwise order
+    private final IslandGroup[] groups;   // for a root, its group
+    private final Map<Integer, Integer> rootById;
+    private final List<IslandGroup> orderedGroups;
+
+    /**
+     * Creates the ring of the given island groups
+     * @param islandGroups groups of consecutive islands, which together hold every island with an id
+     *                     between the lowest and the highest once
+     */
+    public IslandRing(List<IslandGroup> islandGroups){
+        int lowestId = Integer.MAX_VALUE;
+        int amountOfIslands = 0;
+        for(IslandGroup islandGroup : islandGroups){
+            for(Island island : islandGroup.getIslands()) lowestId = Math.min(lowestId, island.getId());
+            amountOfIslands += islandGroup.numOfIslandsInGroup();
+        }
+        firstIslandId = lowestId;
+        parent = new int[amountOfIslands];
+        firstIsland = new int[amountOfIslands];
+        islandsInGroup = new int[amountOfIslands];
+        rank = new int[amountOfIslands];
+        groups = new IslandGroup[amountOfIslands];
+        rootById = new HashMap<>();
+        orderedGroups = new ArrayList<>();
+
+        for(IslandGroup islandGroup : islandGroups){
+            int root = positionOf(islandGroup.getIslands().get(0));
+            for(Island island : islandGroup.getIslands()) parent[positionOf(island)] = root;
+            groups[root] = islandGroup;
+            islandsInGroup[root] = islandGroup.numOfIslandsInGroup();
+            rootById.put(islandGroup.getIdGroup(), root);
+        }
+        // The first island of a group is the one whose predecessor is in another group
+        for(IslandGroup islandGroup : islandGroups){
+            int root = rootById.get(islandGroup.getIdGroup());
+            firstIsland[root] = root;
+            for(Island island : islandGroup.getIslands()){
+                if(find(previousPosition(positionOf(island))) != root) firstIsland[root] = positionOf(island);
+            }
+        }
+        orderGroups();
+    }
+
+    /**
+     * @param idGroup the id of a group
+     * @return the group with that id, null if there is none
+     */
+    public IslandGroup getGroup(int idGroup){
+        Integer root = rootById.get(idGroup);
+        return root == null ? null : groups[root];
+    }
+
+    /**
+     * @param idIsland the id of a base island
+     * @return the group that island belongs to
+     */
+    public IslandGroup getGroupOfIsland(int idIsland){
+        return groups[find(idIsland - firstIslandId)];
+    }
+
+    /**
+     * @param islandGroup a group of this ring
+     * @param steps >= 0
+     * @return the group reached moving clockwise by the given amount of groups
+     */
+    public IslandGroup step(IslandGroup islandGroup, int steps){
+        int position = rank[rootOf(islandGroup)];
+        return orderedGroups.get((position + steps) % orderedGroups.size());
+    }
+
+    /**
+     * @return the groups clockwise, starting from the group holding the first island
+     */
+    public List<IslandGroup> getGroups(){
+        return Collections.unmodifiableList(orderedGroups);
+    }
+
+    public int size(){
+        return orderedGroups.size();
+    }
+
+    /**
+     * Merges a group with its neighbors that have the same towers, as IslandGroup.mergeAdjacent does,
+     * and puts the merged group in their place
+     * @param islandGroup a group of this ring
+     * @param newId the id of the merged group
+     * @return the merged group
+     * @throws UnmergeableException if no neighbor has the same towers, the ring is left as it was
+     */
+    public IslandGroup merge(IslandGroup islandGroup, int newId) throws UnmergeableException {
+        int root = rootOf(islandGroup);
+        int nextRoot = find(nextPosition(firstIsland[root] + islandsInGroup[root] - 1));
+        int previousRoot = find(previousPosition(firstIsland[root]));
+        boolean withNext = nextRoot != root &&
+                groups[nextRoot].getTowerColor().equals(islandGroup.getTowerColor());
+        boolean withPrevious = previousRoot != root && previousRoot != nextRoot &&
+                groups[previousRoot].getTowerColor().equals(islandGroup.getTowerColor());
+
+        IslandGroup mergedGroup = islandGroup.mergeAdjacent(newId);
+
+        int first = firstIsland[root];
+        int islands = islandsInGroup[root];
+        rootById.remove(islandGroup.getIdGroup());
+        if(withNext){
+            islands += islandsInGroup[nextRoot];
+            rootById.remove(groups[nextRoot].getIdGroup());
+            root = union(root, nextRoot);
+            islandsInGroup[root] = islands;
+        }
+        if(withPrevious){
+            first = firstIsland[previousRoot];
+            islands += islandsInGroup[previousRoot];
+            rootById.remove(groups[previousRoot].getIdGroup());
+            root = union(root, previousRoot);
+        }
+        firstIsland[root] = first;
+        islandsInGroup[root] = islands;
+        groups[root] = mergedGroup;
+        rootById.put(newId, root);
+        orderGroups();
+
+        return mergedGroup;
+    }
+
+    /**
+     * Lists the groups clockwise from the group holding the first island, and gives each root its rank
+     */
+    private void orderGroups(){
+        orderedGroups.clear();
+        int start = firstIsland[find(0)];
+        int position = start;
+        do{
+            int root = find(position);
+            rank[root] = orderedGroups.size();
+            orderedGroups.add(groups[root]);
+            position = nextPosition(firstIsland[root] + islandsInGroup[root] - 1);
+        } while(position != start);
+    }
+
+    private int rootOf(IslandGroup islandGroup){
+        return find(positionOf(islandGroup.getIslands().get(0)));
+    }
+
+    private int positionOf(Island island){
+        return island.getId() - firstIslandId;
+    }
+
+    private int nextPosition(int position){
+        return (position + 1) % parent.length;
+    }
+
+    private int previousPosition(int position){
+        return (position - 1 + parent.length) % parent.length;
+    }
+
+    private int find(int position){
+        while(parent[position] != position){
+            parent[position] = parent[parent[position]]; // halves the path
+            position = parent[position];
+        }
+        return position;
+    }
+
+    /**
+     * Joins two groups, the root of the larger one becomes the root of both
+     * @return the root of the joined group
+     */
+    private int union(int root, int otherRoot){
+        if(islandsInGroup[root] < islandsInGroup[otherRoot]){
+            parent[root] = otherRoot;
+            return otherRoot;
+        }
+        parent[otherRoot] = root;
+        return root;
+    }
+}
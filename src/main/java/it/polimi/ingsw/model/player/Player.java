@@ -45,6 +45,7 @@ public class Player extends DrawableObject {
         this.leader = leader;
         this.parameters = parameters;
         this.board = new Board(teamColor, parameters);
+        this.board.setOwner(playerId);
         this.wizard = FactoryWizard.getWizard(playerId.index*10);
     }
 
@@ -64,6 +65,7 @@ public class Player extends DrawableObject {
         this.wizard = wizard;
         this.leader = leader;
         this.board = createBoard(teamColor, parameters);
+        this.board.setOwner(playerId);
         this.parameters = parameters;
 
         if(!leader)
@@ -90,6 +92,7 @@ public class Player extends DrawableObject {
         this.wizard = wizard;
         this.leader = leader;
         this.board = createBoard(teamColor, parameters);
+        this.board.setOwner(playerId);
         this.parameters = parameters;
 
         if(!leader)
@@ -6,18 +6,20 @@ import it.polimi.ingsw.model.StudentEnum;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 
 public class ApplicationHelper {
 
     /**
      * Gets the int value from the read Object.<br>
-     * The field must be an Object that already contains an integer
+     * The field must be an Object that already contains an integer,
+     * a Double if read from json or an Integer if read from the binary format
      * @param readField the read Object
      * @return the int value parsed from the object
      */
     public static int getIntFromBrokerField(Object readField){
-        Double dRead = (Double) readField;
-        return dRead.intValue();
+        Number nRead = (Number) readField;
+        return nRead.intValue();
     }
 
     public static int[] getIntArrayFromBrokerField(Object readField){
@@ -35,7 +37,7 @@ public class ApplicationHelper {
      */
     public static List<Integer> getIntListFromBrokerField(Object readField) {
         try{
-            List<Object> readList = (List<Object>) readField;
+            List<?> readList = (List<?>) readField;
             return getIntListFromBrokerField(readList);
         } catch (ClassCastException e){}  // I didn't think gson would make me do this
 
@@ -49,6 +51,8 @@ public class ApplicationHelper {
             return getIntListFromBrokerField(readList3);
         } catch (ClassCastException e){}
 
+        if(readField instanceof int[] readList4) return Arrays.stream(readList4).boxed().collect(Collectors.toList());
+
         return new ArrayList<Integer>();
     }
 
@@ -76,10 +80,10 @@ public class ApplicationHelper {
      */
     public static List<Integer> getIntListFromBrokerField(Object[] readField) {
         List<Integer> retList = new ArrayList<>();
-        Double dRead;
+        Number nRead;
         for(Object d : readField){
-            dRead = (Double) d;
-            retList.add(dRead.intValue());
+            nRead = (Number) d;
+            retList.add(nRead.intValue());
         }
         return retList;
     }
@@ -90,13 +94,13 @@ public class ApplicationHelper {
      * @param readField the read list of objects
      * @return the int list parsed from the object
      */
-    public static List<Integer> getIntListFromBrokerField(List<Object> readField) {
+    public static List<Integer> getIntListFromBrokerField(List<?> readField) {
 
         List<Integer> retList = new ArrayList<>();
-        Double dRead;
+        Number nRead;
         for(Object o : readField){
-            dRead = (Double) o;
-            retList.add(dRead.intValue());
+            nRead = (Number) o;
+            retList.add(nRead.intValue());
         }
         return retList;
     }
@@ -13,7 +13,8 @@ public enum BeanEnum {
     GAMEBOARD_BEAN("GameBoardBean"),
     ISLANDGROUP_BEAN("IslandGroupBean"),
     PLAYER_BEAN("PlayerBean"),
-    VIRTUAL_VIEW_BEAN("VirtualViewBean");
+    VIRTUAL_VIEW_BEAN("VirtualViewBean"),
+    VIRTUAL_VIEW_DELTA_BEAN("VirtualViewDeltaBean");
 
     public final String name;
 
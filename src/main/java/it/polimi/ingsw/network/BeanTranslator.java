@@ -13,6 +13,7 @@ import it.polimi.ingsw.view.LobbyBean;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Translates from a LinkedTreeMap to a bean of the correct type
@@ -35,8 +36,8 @@ public class BeanTranslator {
         boolean gameStarted;
         int host;
         try {
-            nicknames = (List<String>) map.get("nicknames");
-            readyPlayers = (List<Boolean>) map.get("readyPlayers");
+            nicknames = toListOf(String.class, map.get("nicknames"));
+            readyPlayers = toListOf(Boolean.class, map.get("readyPlayers"));
             gameStarted = (boolean) map.get("gameStarted");
             host = ApplicationHelper.getIntFromBrokerField( map.get("host"));
         } catch (NullPointerException e){
@@ -55,8 +56,8 @@ public class BeanTranslator {
         List<TeamEnum> chosenColors;
         List<WizardEnum> chosenWizards;
         try{
-            chosenColors = toListOfEnum(TeamEnum.class, (ArrayList<String>) map.get("availableColors"));
-            chosenWizards = toListOfEnum(WizardEnum.class, (ArrayList<String>) map.get("availableWizards"));
+            chosenColors = toListOfEnum(TeamEnum.class, map.get("availableColors"));
+            chosenWizards = toListOfEnum(WizardEnum.class, map.get("availableWizards"));
         } catch (NullPointerException e){
             return null;
         }
@@ -88,7 +89,7 @@ public class BeanTranslator {
 
     private static CloudBean deserializeCloudBean(LinkedTreeMap<String, Object> map){
         int idCloud = ApplicationHelper.getIntFromBrokerField(map.get("idCloud"));
-        List<StudentEnum> students = toListOfEnum(StudentEnum.class, (ArrayList<String>)map.get("students"));
+        List<StudentEnum> students = toListOfEnum(StudentEnum.class, map.get("students"));
         return new CloudBean(idCloud, students);
     }
 
@@ -103,7 +104,7 @@ public class BeanTranslator {
             numBlocks = ApplicationHelper.getIntFromBrokerField(map.get("numBlocks"));
         }
         if(fieldPresent(map.get("students"))) {
-            students = toListOfEnum(StudentEnum.class, (ArrayList<String>) map.get("students"));
+            students = toListOfEnum(StudentEnum.class, map.get("students"));
         }
         boolean hasBeenUsed = (boolean)map.get("hasBeenUsed");
         CharacterCardBean beanToReturn = new CharacterCardBean(id,name, description, students, cost, hasBeenUsed);
@@ -114,7 +115,7 @@ public class BeanTranslator {
     private static IslandGroupBean deserializeIslandGroupBean(LinkedTreeMap<String, Object> map) {
         int idIslandGroup = ApplicationHelper.getIntFromBrokerField(map.get("idIslandGroup"));
         List<Integer> idIslands = ApplicationHelper.getIntListFromBrokerField(map.get("idIslands"));
-        List<StudentEnum> studentsOnIsland = toListOfEnum(StudentEnum.class, (ArrayList<String>)map.get("studentsOnIsland"));
+        List<StudentEnum> studentsOnIsland = toListOfEnum(StudentEnum.class, map.get("studentsOnIsland"));
         boolean isPresentMN = (boolean)map.get("isPresentMN");
         TeamEnum towersColor = TeamEnum.fromObjectToEnum(map.get("towersColor"));
         int idPrevIslandGroup = ApplicationHelper.getIntFromBrokerField(map.get("idPrevIslandGroup"));
@@ -168,16 +169,16 @@ public class BeanTranslator {
         boolean leader = (boolean) map.get("leader");
         TeamEnum towerColor = TeamEnum.fromObjectToEnum(map.get("towerColor"));
         int numTowers = ApplicationHelper.getIntFromBrokerField(map.get("numTowers"));
-        List<StudentEnum> studentsAtEntrance = toListOfEnum(StudentEnum.class, (ArrayList<String>) map.get("studentsAtEntrance"));
+        List<StudentEnum> studentsAtEntrance = toListOfEnum(StudentEnum.class, map.get("studentsAtEntrance"));
         List<Integer> studentsPerTable = ApplicationHelper.getIntListFromBrokerField(map.get("studentsPerTable"));
-        List<Assistant> assistants = getListOfAssistantsFromObject((ArrayList<LinkedTreeMap<String, Object>>)map.get("assistants"));
-        List<StudentEnum> professors = toListOfEnum(StudentEnum.class, (ArrayList<String>) map.get("professors"));
+        List<Assistant> assistants = getListOfAssistantsFromObject(map.get("assistants"));
+        List<StudentEnum> professors = toListOfEnum(StudentEnum.class, map.get("professors"));
         int turn = ApplicationHelper.getIntFromBrokerField(map.get("turn"));
 
         Assistant assistantPlayed = null;
         //todo there might be problems with this null value
         if(fieldPresent(map.get("assistantPlayed"))){
-            assistantPlayed = getAssistantFromObject((LinkedTreeMap<String, Object>) map.get("assistantPlayed"));
+            assistantPlayed = getAssistantFromObject(toFieldMap(map.get("assistantPlayed")));
         }
         return new PlayerBean(nickname, playerId, leader, towerColor, numTowers, studentsAtEntrance, studentsPerTable, professors, assistants, assistantPlayed, turn);
     }
@@ -189,9 +190,9 @@ public class BeanTranslator {
         return new Assistant(id, motherNatureSteps, turnOrder);
     }
 
-    private static List<Assistant> getListOfAssistantsFromObject(ArrayList<LinkedTreeMap<String, Object>> list) {
+    private static List<Assistant> getListOfAssistantsFromObject(Object list) {
         List<Assistant> assistants = new ArrayList<>();
-        for(LinkedTreeMap<String, Object> assistant : list){
+        for(LinkedTreeMap<String, Object> assistant : toListOfFieldMaps(list)){
             assistants.add(getAssistantFromObject(assistant));
         }
         return assistants;
@@ -210,56 +211,97 @@ public class BeanTranslator {
 
         if(fieldPresent(map.get("cloudBeans"))) {
             cloudBeans = new ArrayList<>();
-            for (LinkedTreeMap<String, Object> element : (ArrayList<LinkedTreeMap<String, Object>>) map.get("cloudBeans")) {
+            for (LinkedTreeMap<String, Object> element : toListOfFieldMaps(map.get("cloudBeans"))) {
                 cloudBeans.add(deserializeCloudBean(element));
             }
         }
         if(fieldPresent(map.get("characterCardBeans"))) {
             characterCardBeans = new ArrayList<>();
-            for (LinkedTreeMap<String, Object> element : (ArrayList<LinkedTreeMap<String, Object>>) map.get("characterCardBeans")) {
+            for (LinkedTreeMap<String, Object> element : toListOfFieldMaps(map.get("characterCardBeans"))) {
                 characterCardBeans.add(deserializeCharacterCardBean(element));
             }
         }
         if(fieldPresent(map.get("islandGroupBeans"))) {
             islandGroupBeans = new ArrayList<>();
-            for (LinkedTreeMap<String, Object> element : (ArrayList<LinkedTreeMap<String, Object>>) map.get("islandGroupBeans")) {
+            for (LinkedTreeMap<String, Object> element : toListOfFieldMaps(map.get("islandGroupBeans"))) {
                 islandGroupBeans.add(deserializeIslandGroupBean(element));
             }
         }
         if(fieldPresent(map.get("advancedIslandGroupBeans"))) {
             advancedIslandGroupBeans = new ArrayList<>();
-            for (LinkedTreeMap<String, Object> element : (ArrayList<LinkedTreeMap<String, Object>>) map.get("advancedIslandGroupBeans")) {
+            for (LinkedTreeMap<String, Object> element : toListOfFieldMaps(map.get("advancedIslandGroupBeans"))) {
                 advancedIslandGroupBeans.add(deserializeAdvancedIslandGroupBean(element));
             }
         }
         if(fieldPresent(map.get("playerBeans"))) {
             playerBeans = new ArrayList<>();
-            for (LinkedTreeMap<String, Object> element : (ArrayList<LinkedTreeMap<String, Object>>) map.get("playerBeans")) {
+            for (LinkedTreeMap<String, Object> element : toListOfFieldMaps(map.get("playerBeans"))) {
                 playerBeans.add(deserializePlayerBean(element));
             }
         }
         if(fieldPresent(map.get("advancedPlayerBeans"))) {
             advancedPlayerBeans = new ArrayList<>();
-            for (LinkedTreeMap<String, Object> element : (ArrayList<LinkedTreeMap<String, Object>>) map.get("advancedPlayerBeans")) {
+            for (LinkedTreeMap<String, Object> element : toListOfFieldMaps(map.get("advancedPlayerBeans"))) {
                 advancedPlayerBeans.add(deserializeAdvancedPlayerBean(element));
             }
         }
         if(fieldPresent(map.get("errorBeans"))) {
             errorBeans = new ArrayList<>();
-            for (LinkedTreeMap<String, Object> element : (ArrayList<LinkedTreeMap<String, Object>>) map.get("errorBeans")) {
+            for (LinkedTreeMap<String, Object> element : toListOfFieldMaps(map.get("errorBeans"))) {
                 errorBeans.add(deserializeErrorBean(element));
             }
         }
         if(fieldPresent(map.get("gameBoardBean"))){
-            gameBoardBean = deserializeGameBoardBean( (LinkedTreeMap<String, Object>) map.get("gameBoardBean"));
+            gameBoardBean = deserializeGameBoardBean(toFieldMap(map.get("gameBoardBean")));
         }
         if(fieldPresent(map.get("advancedGameBoardBean"))){
-            advancedGameBoardBean = deserializeAdvancedGameBoardBean((LinkedTreeMap<String, Object>) map.get("advancedGameBoardBean"));
+            advancedGameBoardBean = deserializeAdvancedGameBoardBean(toFieldMap(map.get("advancedGameBoardBean")));
         }
         return new VirtualViewBean(cloudBeans,characterCardBeans,islandGroupBeans,advancedIslandGroupBeans,
                 playerBeans, advancedPlayerBeans,errorBeans,gameBoardBean,advancedGameBoardBean);
     }
 
+    /**
+     * Takes a map from the gson serialization and returns a VirtualViewDeltaBean
+     * @param map the map read from the broker
+     * @return The translated VirtualViewDeltaBean
+     */
+    public static VirtualViewDeltaBean deserializeViewDeltaBean(LinkedTreeMap<String, Object> map) {
+        int baseRevision = ApplicationHelper.getIntFromBrokerField(map.get("baseRevision"));
+        int revision = ApplicationHelper.getIntFromBrokerField(map.get("revision"));
+        boolean advanced = (boolean) map.get("advanced");
+        List<VirtualViewDeltaBean.ChangedElement> changedElements = new ArrayList<>();
+        List<Integer> removedElements = new ArrayList<>();
+
+        if(fieldPresent(map.get("changedElements"))) {
+            for (LinkedTreeMap<String, Object> element : toListOfFieldMaps(map.get("changedElements"))) {
+                int id = ApplicationHelper.getIntFromBrokerField(element.get("id"));
+                BeanEnum beanType = BeanEnum.valueOf((String) element.get("beanType"));
+                GameElementBean bean = deserializeElementBean(beanType, toFieldMap(element.get("bean")));
+                if(bean != null) changedElements.add(new VirtualViewDeltaBean.ChangedElement(id, bean));
+            }
+        }
+        if(fieldPresent(map.get("removedElements"))) {
+            removedElements = ApplicationHelper.getIntListFromBrokerField(map.get("removedElements"));
+        }
+        return new VirtualViewDeltaBean(baseRevision, revision, advanced, changedElements, removedElements);
+    }
+
+    private static GameElementBean deserializeElementBean(BeanEnum beanType, LinkedTreeMap<String, Object> map) {
+        return switch (beanType) {
+            case CLOUD_BEAN -> deserializeCloudBean(map);
+            case CHARACTER_CARD_BEAN -> deserializeCharacterCardBean(map);
+            case ISLANDGROUP_BEAN -> deserializeIslandGroupBean(map);
+            case ADVANCED_ISLANDGROUP_BEAN -> deserializeAdvancedIslandGroupBean(map);
+            case PLAYER_BEAN -> deserializePlayerBean(map);
+            case ADVANCED_PLAYER_BEAN -> deserializeAdvancedPlayerBean(map);
+            case ERROR_BEAN -> deserializeErrorBean(map);
+            case GAMEBOARD_BEAN -> deserializeGameBoardBean(map);
+            case ADVANCED_GAMEBOARD_BEAN -> deserializeAdvancedGameBoardBean(map);
+            default -> null;
+        };
+    }
+
 
     /**
      * Checks whether the field in the received message is meaningful
@@ -276,16 +318,101 @@ public class BeanTranslator {
     /**
      * Translates the list from a gson map into a list of appropriate enums
      * @param enumClass the type of enum one wishes to translate to
-     * @param list the list (an ArrayList< String >) to get the data from
+     * @param list the list (a list of strings) to get the data from
      * @param <T> A generic enum
      * @return a list of enums of type T reflecting the list structure
      */
-    private static <T extends Enum<T>> List<T> toListOfEnum (Class<T> enumClass, ArrayList<String> list){
+    private static <T extends Enum<T>> List<T> toListOfEnum (Class<T> enumClass, Object list){
         List<T> retList = new ArrayList<>();
-        for(String element : list){
+        for(String element : toListOf(String.class, list)){
             retList.add(T.valueOf(enumClass, element));
         }
         return retList;
     }
 
+    /**
+     * Copies a list from a gson map, checking the type of each of its elements
+     * @param elementClass the type of the elements
+     * @param list the list to get the data from
+     * @param <T> the type of the elements
+     * @return the copied list, or null if the field was null
+     * @throws ClassCastException if an element isn't of the given type
+     */
+    private static <T> List<T> toListOf(Class<T> elementClass, Object list){
+        if(list == null) return null;
+        List<T> retList = new ArrayList<>();
+        for(Object element : (List<?>) list){
+            retList.add(elementClass.cast(element));
+        }
+        return retList;
+    }
+
+    /**
+     * Copies a list of objects from a gson map, each of them being a map itself
+     * @param list the list to get the data from
+     * @return the list of the copied maps
+     */
+    private static List<LinkedTreeMap<String, Object>> toListOfFieldMaps(Object list){
+        List<LinkedTreeMap<String, Object>> retList = new ArrayList<>();
+        for(Object element : (List<?>) list){
+            retList.add(toFieldMap(element));
+        }
+        return retList;
+    }
+
+    /**
+     * Reads the LobbyBean of a broker field, already built if it came in the binary format
+     * @param field the field read from the broker
+     * @return the LobbyBean, or null if some fields were null during the translating process
+     */
+    public static LobbyBean readLobbyBean(Object field){
+        if(field instanceof LobbyBean lobbyBean) return lobbyBean;
+        return deserializeLobbyBean(toFieldMap(field));
+    }
+
+    /**
+     * Reads the GameInitBean of a broker field, already built if it came in the binary format
+     * @param field the field read from the broker
+     * @return the GameInitBean, or null if some fields were null during the translating process
+     */
+    public static GameInitBean readGameInitBean(Object field){
+        if(field instanceof GameInitBean gameInitBean) return gameInitBean;
+        return deserializeGameInitBean(toFieldMap(field));
+    }
+
+    /**
+     * Reads the VirtualViewBean of a broker field, already built if it came in the binary format
+     * @param field the field read from the broker
+     * @return the VirtualViewBean
+     */
+    public static VirtualViewBean readViewBean(Object field){
+        if(field instanceof VirtualViewBean viewBean) return viewBean;
+        return deserializeViewBean(toFieldMap(field));
+    }
+
+    /**
+     * Reads the VirtualViewDeltaBean of a broker field, already built if it came in the binary format
+     * @param field the field read from the broker
+     * @return the VirtualViewDeltaBean
+     */
+    public static VirtualViewDeltaBean readViewDeltaBean(Object field){
+        if(field instanceof VirtualViewDeltaBean viewDeltaBean) return viewDeltaBean;
+        return deserializeViewDeltaBean(toFieldMap(field));
+    }
+
+    /**
+     * Copies an object from the gson serialization, checking that its keys are the names of its fields
+     * @param map the map read from the broker
+     * @return the copied map, or null if the field was null
+     * @throws ClassCastException if the object isn't a map with string keys
+     */
+    public static LinkedTreeMap<String, Object> toFieldMap(Object map){
+        if(map == null) return null;
+        LinkedTreeMap<String, Object> retMap = new LinkedTreeMap<>();
+        for(Map.Entry<?, ?> entry : ((Map<?, ?>) map).entrySet()){
+            retMap.put((String) entry.getKey(), entry.getValue());
+        }
+        return retMap;
+    }
+
 }
@@ -0,0 +1,504 @@
+package it.polimi.ingsw.network;
+
+import com.google.gson.*;
+import com.google.gson.internal.LinkedTreeMap;
+import com.google.gson.internal.UnsafeAllocator;
+import it.polimi.ingsw.controller.GameRuleEnum;
+import it.polimi.ingsw.model.StudentEnum;
+import it.polimi.ingsw.model.TeamEnum;
+import it.polimi.ingsw.model.WizardEnum;
+import it.polimi.ingsw.model.assistantCards.Assistant;
+import it.polimi.ingsw.model.beans.*;
+import it.polimi.ingsw.model.game.PhaseEnum;
+import it.polimi.ingsw.model.player.PlayerEnum;
+import it.polimi.ingsw.view.GameInitBean;
+import it.polimi.ingsw.view.LobbyBean;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Compact binary form of the messages exchanged by the MessageBroker, used on the connections
+ * that negotiated the BINARY wire format. <br>
+ * Keys are written as the ordinal of their NetworkFieldEnum, the known enums as two bytes (type and ordinal),
+ * integers as zigzag varints and the beans as the values of their fields in a fixed order, without the names. <br>
+ * The decoded message holds the same content gson would have produced from the json version of the same message,
+ * but already typed: the whole numbers are Integers, the arrays of the requests are arrays and the known beans
+ * are instances of their class, with their enums as constants. The enums outside the beans are still their names,
+ * as the fields are read with the fromObjectToEnum of their enum, and anything unknown is still a LinkedTreeMap. <br>
+ * Both sides must share the same version of the enums and beans listed here, which is already
+ * required by the json format
+ */
+public class BinaryCodec {
+
+    // Value tags
+    private static final int NULL = 0;
+    private static final int FALSE = 1;
+    private static final int TRUE = 2;
+    private static final int INTEGER = 3;
+    private static final int DOUBLE = 4;
+    private static final int STRING = 5;
+    private static final int LIST = 6;
+    private static final int MAP = 7;
+    private static final int BEAN = 8;
+    private static final int ENUM = 9;
+
+    /**
+     * Deepest nesting of lists, maps and beans a message may have, the views of the server need less than 10
+     */
+    private static final int MAX_DEPTH = 32;
+
+    /**
+     * Enums written as a single ordinal byte, the position in the list is their type byte.
+     * New enums must be appended, the others keep their type
+     */
+    private static final List<Class<? extends Enum<?>>> knownEnums = List.of(
+            CommandEnum.class,
+            StudentEnum.class,
+            TeamEnum.class,
+            PhaseEnum.class,
+            PlayerEnum.class,
+            WizardEnum.class,
+            GameRuleEnum.class,
+            BeanEnum.class,
+            WireFormatEnum.class);
+
+    /**
+     * Classes written with a fixed schema, the position in the list is their schema byte.
+     * New classes must be appended, the others keep their schema
+     */
+    private static final List<Class<?>> knownBeans = List.of(
+            VirtualViewBean.class,
+            CloudBean.class,
+            CharacterCardBean.class,
+            IslandGroupBean.class,
+            AdvancedIslandGroupBean.class,
+            PlayerBean.class,
+            AdvancedPlayerBean.class,
+            ErrorBean.class,
+            GameBoardBean.class,
+            AdvancedGameBoardBean.class,
+            LobbyBean.class,
+            GameInitBean.class,
+            Assistant.class,
+            VirtualViewDeltaBean.class,
+            VirtualViewDeltaBean.ChangedElement.class);
+
+    private static final Map<Class<?>, Integer> enumTypes = new HashMap<>();
+    private static final Map<Class<?>, Integer> beanSchemas = new HashMap<>();
+    private static final List<Field[]> schemaFields = new ArrayList<>();
+    private static final Gson gson = new Gson();
+    private static final NetworkFieldEnum[] fields = NetworkFieldEnum.values();
+    // Builds the beans without their constructors, as gson does
+    private static final UnsafeAllocator allocator = UnsafeAllocator.create();
+
+    static {
+        for(int type = 0; type < knownEnums.size(); type++) enumTypes.put(knownEnums.get(type), type);
+        for(int schema = 0; schema < knownBeans.size(); schema++){
+            beanSchemas.put(knownBeans.get(schema), schema);
+            schemaFields.add(buildSchema(knownBeans.get(schema)));
+        }
+    }
+
+    private BinaryCodec(){
+        // We don't want to instantiate this class
+    }
+
+    /**
+     * @return the names of the constants of the known enums, used by the MessageCompressor dictionary
+     */
+    static List<String> knownEnumNames(){
+        List<String> names = new ArrayList<>();
+        for(Class<? extends Enum<?>> enumClass : knownEnums)
+            for(Enum<?> constant : enumClass.getEnumConstants()) names.add(constant.name());
+        return names;
+    }
+
+    /**
+     * @return the names of the fields of the known beans, used by the MessageCompressor dictionary
+     */
+    static List<String> knownBeanFieldNames(){
+        List<String> names = new ArrayList<>();
+        for(Field[] schema : schemaFields)
+            for(Field field : schema) names.add(field.getName());
+        return names;
+    }
+
+    /**
+     * The schema of a bean is made of the fields gson would serialize (static and transient ones excluded),
+     * from the class itself up to its superclasses and sorted by name inside each class,
+     * so that the order doesn't depend on the reflection implementation
+     * @param beanClass the class of the bean
+     * @return the fields in the order they are written
+     */
+    private static Field[] buildSchema(Class<?> beanClass){
+        List<Field> schema = new ArrayList<>();
+        for(Class<?> current = beanClass; current != null && current != Object.class; current = current.getSuperclass()){
+            List<Field> declared = new ArrayList<>();
+            for(Field field : current.getDeclaredFields()){
+                int modifiers = field.getModifiers();
+                if(Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) continue;
+                field.setAccessible(true);
+                declared.add(field);
+            }
+            declared.sort(Comparator.comparing(Field::getName));
+            schema.addAll(declared);
+        }
+        return schema.toArray(new Field[0]);
+    }
+
+    /**
+     * Encodes a message, fields with a null value are skipped as in the json format
+     * @param message the message to encode
+     * @return the encoded message
+     */
+    public static byte[] encode(Map<NetworkFieldEnum, Object> message){
+        ByteArrayOutputStream output = new ByteArrayOutputStream(256);
+        int fieldsCount = 0;
+        for(Object value : message.values()) if(value != null) fieldsCount++;
+
+        writeVarInt(output, fieldsCount);
+        for(Map.Entry<NetworkFieldEnum, Object> entry : message.entrySet()){
+            if(entry.getValue() == null) continue;
+            output.write(entry.getKey().ordinal());
+            writeValue(output, entry.getValue());
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Decodes a message
+     * @param payload the buffer containing the encoded message
+     * @param length the amount of valid bytes in the buffer
+     * @return the decoded message, with the typed values described by the class
+     * @throws IOException if the bytes aren't a valid message
+     */
+    public static Map<NetworkFieldEnum, Object> decode(byte[] payload, int length) throws IOException {
+        Decoder decoder = new Decoder(payload, length);
+        Map<NetworkFieldEnum, Object> message = new LinkedHashMap<>();
+        try {
+            int fieldsCount = decoder.readVarInt();
+            for(int field = 0; field < fieldsCount; field++){
+                int ordinal = decoder.readByte();
+                if(ordinal >= fields.length) throw new IOException("Unknown field " + ordinal);
+                message.put(fields[ordinal], toFieldType(fields[ordinal], decoder.readValue(0, false)));
+            }
+        } catch (IndexOutOfBoundsException | IllegalArgumentException | ClassCastException e){
+            throw new IOException("Bad binary message", e);
+        }
+        if(decoder.position != length) throw new IOException("Trailing bytes in binary message");
+        return message;
+    }
+
+    /**
+     * Reads the arrays of the requests as the arrays they were written from,
+     * so that the broker has nothing left to convert
+     * @param field the field of the message
+     * @param value the value read
+     * @return the value as the type of the field, if it's one of the arrays
+     * @throws ClassCastException if the list doesn't hold the elements of the array
+     */
+    private static Object toFieldType(NetworkFieldEnum field, Object value){
+        if(!(value instanceof List<?> list)) return value;
+        Class<?> type = NetworkFieldEnum.getClass(field);
+        if(type == int[].class) return list.stream().mapToInt(element -> (Integer) element).toArray();
+        if(type == StudentEnum[].class) return list.stream().map(StudentEnum::fromObjectToEnum).toArray(StudentEnum[]::new);
+        return value;
+    }
+
+    /**
+     * Builds the bytes that, written before a message from fieldsCountLength(message), make a single message
+     * with the fields of both: the total count of fields followed by the fields of the header
+     * @param header an encoded message
+     * @param message another encoded message, without any field of the header
+     * @return the prefix to write before the fields of the message
+     */
+    static byte[] splicePrefix(byte[] header, byte[] message){
+        Decoder headerDecoder = new Decoder(header, header.length);
+        int headerFields = headerDecoder.readVarInt();
+        int messageFields = new Decoder(message, message.length).readVarInt();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream(header.length + 1);
+        writeVarInt(output, headerFields + messageFields);
+        output.write(header, headerDecoder.position, header.length - headerDecoder.position);
+        return output.toByteArray();
+    }
+
+    /**
+     * @param message an encoded message
+     * @return the amount of bytes taken by its count of fields, the fields start right after
+     */
+    static int fieldsCountLength(byte[] message){
+        Decoder decoder = new Decoder(message, message.length);
+        decoder.readVarInt();
+        return decoder.position;
+    }
+
+    private static void writeValue(ByteArrayOutputStream output, Object value){
+        if(value == null){
+            output.write(NULL);
+        }
+        else if(value instanceof Boolean){
+            output.write((Boolean) value ? TRUE : FALSE);
+        }
+        else if(value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte){
+            output.write(INTEGER);
+            writeVarLong(output, ((Number) value).longValue());
+        }
+        else if(value instanceof Number){
+            writeDouble(output, ((Number) value).doubleValue());
+        }
+        else if(value instanceof String || value instanceof Character){
+            output.write(STRING);
+            writeString(output, value.toString());
+        }
+        else if(value instanceof Enum<?>){
+            writeEnum(output, (Enum<?>) value);
+        }
+        else if(value instanceof Collection<?>){
+            Collection<?> collection = (Collection<?>) value;
+            output.write(LIST);
+            writeVarInt(output, collection.size());
+            for(Object element : collection) writeValue(output, element);
+        }
+        else if(value.getClass().isArray()){
+            int size = Array.getLength(value);
+            output.write(LIST);
+            writeVarInt(output, size);
+            for(int index = 0; index < size; index++) writeValue(output, Array.get(value, index));
+        }
+        else if(value instanceof Map<?, ?>){
+            Map<?, ?> map = (Map<?, ?>) value;
+            output.write(MAP);
+            writeVarInt(output, map.size());
+            for(Map.Entry<?, ?> entry : map.entrySet()){
+                writeString(output, String.valueOf(entry.getKey()));
+                writeValue(output, entry.getValue());
+            }
+        }
+        else if(beanSchemas.containsKey(value.getClass())){
+            writeBean(output, value);
+        }
+        else {
+            // Anything unknown goes through gson, it loses the schema but not the content
+            writeJsonElement(output, gson.toJsonTree(value));
+        }
+    }
+
+    private static void writeDouble(ByteArrayOutputStream output, double value){
+        // Gson reads every number as a double, so whole numbers can use the shorter form
+        long asLong = (long) value;
+        if(asLong == value && !(value == 0 && 1 / value < 0)){
+            output.write(INTEGER);
+            writeVarLong(output, asLong);
+            return;
+        }
+        output.write(DOUBLE);
+        long bits = Double.doubleToLongBits(value);
+        for(int shift = 56; shift >= 0; shift -= 8) output.write((int) (bits >>> shift));
+    }
+
+    private static void writeEnum(ByteArrayOutputStream output, Enum<?> value){
+        Integer type = enumTypes.get(value.getDeclaringClass());
+        if(type == null){
+            output.write(STRING);
+            writeString(output, value.name());
+            return;
+        }
+        output.write(ENUM);
+        output.write(type);
+        output.write(value.ordinal());
+    }
+
+    private static void writeBean(ByteArrayOutputStream output, Object bean){
+        int schema = beanSchemas.get(bean.getClass());
+        output.write(BEAN);
+        output.write(schema);
+        for(Field field : schemaFields.get(schema)){
+            try {
+                writeValue(output, field.get(bean));
+            } catch (IllegalAccessException e) {
+                output.write(NULL);
+            }
+        }
+    }
+
+    private static void writeJsonElement(ByteArrayOutputStream output, JsonElement element){
+        if(element == null || element.isJsonNull()){
+            output.write(NULL);
+        }
+        else if(element.isJsonArray()){
+            JsonArray array = element.getAsJsonArray();
+            output.write(LIST);
+            writeVarInt(output, array.size());
+            for(JsonElement item : array) writeJsonElement(output, item);
+        }
+        else if(element.isJsonObject()){
+            Set<Map.Entry<String, JsonElement>> entries = element.getAsJsonObject().entrySet();
+            output.write(MAP);
+            writeVarInt(output, entries.size());
+            for(Map.Entry<String, JsonElement> entry : entries){
+                writeString(output, entry.getKey());
+                writeJsonElement(output, entry.getValue());
+            }
+        }
+        else {
+            JsonPrimitive primitive = element.getAsJsonPrimitive();
+            if(primitive.isBoolean()) output.write(primitive.getAsBoolean() ? TRUE : FALSE);
+            else if(primitive.isNumber()) writeDouble(output, primitive.getAsDouble());
+            else {
+                output.write(STRING);
+                writeString(output, primitive.getAsString());
+            }
+        }
+    }
+
+    private static void writeString(ByteArrayOutputStream output, String value){
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(output, bytes.length);
+        output.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream output, int value){
+        while((value & ~0x7F) != 0){
+            output.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.write(value);
+    }
+
+    /**
+     * Writes a signed number with the zigzag encoding, so that small negative numbers are short too
+     */
+    private static void writeVarLong(ByteArrayOutputStream output, long value){
+        long zigzag = (value << 1) ^ (value >> 63);
+        while((zigzag & ~0x7FL) != 0){
+            output.write((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        output.write((int) zigzag);
+    }
+
+    /**
+     * Reading state of a single message
+     */
+    private static class Decoder {
+        private final byte[] payload;
+        private final int length;
+        private int position;
+
+        Decoder(byte[] payload, int length){
+            this.payload = payload;
+            this.length = length;
+            this.position = 0;
+        }
+
+        int readByte(){
+            if(position >= length) throw new IndexOutOfBoundsException();
+            return payload[position++] & 0xFF;
+        }
+
+        int readVarInt(){
+            long value = readVarLongBits();
+            if(value < 0 || value > Integer.MAX_VALUE) throw new IllegalArgumentException("Bad length");
+            return (int) value;
+        }
+
+        long readVarLongBits(){
+            long value = 0;
+            for(int shift = 0; shift < 64; shift += 7){
+                int read = readByte();
+                value |= (long) (read & 0x7F) << shift;
+                if((read & 0x80) == 0) return value;
+            }
+            throw new IllegalArgumentException("Varint too long");
+        }
+
+        String readString(){
+            int size = readVarInt();
+            if(size > length - position) throw new IndexOutOfBoundsException();
+            String value = new String(payload, position, size, StandardCharsets.UTF_8);
+            position += size;
+            return value;
+        }
+
+        /**
+         * @param depth the nesting of the value, refused beyond MAX_DEPTH
+         * @param inBean true inside a bean, where the enums are read as their constants
+         * @return the value read
+         * @throws IOException if the value is nested too deeply or doesn't fit the schema of its bean
+         */
+        Object readValue(int depth, boolean inBean) throws IOException {
+            int tag = readByte();
+            if((tag == LIST || tag == MAP || tag == BEAN) && depth >= MAX_DEPTH)
+                throw new IOException("Binary message nested too deeply");
+            switch (tag){
+                case NULL:
+                    return null;
+                case FALSE:
+                    return Boolean.FALSE;
+                case TRUE:
+                    return Boolean.TRUE;
+                case INTEGER:
+                    long zigzag = readVarLongBits();
+                    long number = (zigzag >>> 1) ^ -(zigzag & 1);
+                    if(number == (int) number) return (int) number;
+                    return number;
+                case DOUBLE:
+                    long bits = 0;
+                    for(int read = 0; read < 8; read++) bits = (bits << 8) | readByte();
+                    return Double.longBitsToDouble(bits);
+                case STRING:
+                    return readString();
+                case ENUM:
+                    int type = readByte();
+                    int ordinal = readByte();
+                    Enum<?> constant = knownEnums.get(type).getEnumConstants()[ordinal];
+                    return inBean ? constant : constant.name();
+                case LIST:
+                    int size = readVarInt();
+                    List<Object> list = new ArrayList<>(Math.min(size, length - position));
+                    for(int element = 0; element < size; element++) list.add(readValue(depth + 1, inBean));
+                    return list;
+                case MAP:
+                    int entries = readVarInt();
+                    LinkedTreeMap<String, Object> map = new LinkedTreeMap<>();
+                    for(int entry = 0; entry < entries; entry++){
+                        String key = readString();
+                        Object value = readValue(depth + 1, inBean);
+                        if(value != null) map.put(key, value);
+                    }
+                    return map;
+                case BEAN:
+                    int schema = readByte();
+                    Object bean = newBean(knownBeans.get(schema));
+                    for(Field field : schemaFields.get(schema)){
+                        Object value = readValue(depth + 1, true);
+                        // gson leaves the missing fields to their default value too
+                        if(value == null) continue;
+                        try {
+                            field.set(bean, value);
+                        } catch (IllegalAccessException e) {
+                            throw new IOException("Can't set the field " + field.getName(), e);
+                        }
+                    }
+                    return bean;
+                default:
+                    throw new IllegalArgumentException("Unknown tag " + tag);
+            }
+        }
+
+        private Object newBean(Class<?> beanClass) throws IOException {
+            try {
+                return allocator.newInstance(beanClass);
+            } catch (Exception e) {
+                throw new IOException("Can't build a " + beanClass.getSimpleName(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package it.polimi.ingsw.network;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts, for each type of message sent by the brokers using compression, how many bytes the
+ * MessageCompressor saved. Messages below the threshold are counted as well, to show which types
+ * would be worth compressing with a lower one
+ */
+public class CompressionStatistics {
+
+    public static final String REPLY_TYPE = "REPLY"; // the replies to the client commands have no command field
+
+    private static final Map<String, Counters> countersByType = new ConcurrentHashMap<>();
+
+    private CompressionStatistics(){
+        // We don't want to instantiate this class
+    }
+
+    private static class Counters {
+        private final LongAdder messages = new LongAdder();
+        private final LongAdder compressedMessages = new LongAdder();
+        private final LongAdder originalBytes = new LongAdder();
+        private final LongAdder sentBytes = new LongAdder();
+    }
+
+    /**
+     * Records a message sent
+     * @param messageType the command of the message, or REPLY_TYPE
+     * @param originalBytes the size of the encoded message
+     * @param sentBytes the size of the payload actually sent
+     */
+    public static void record(String messageType, int originalBytes, int sentBytes){
+        Counters counters = countersByType.computeIfAbsent(messageType, type -> new Counters());
+        counters.messages.increment();
+        if(sentBytes != originalBytes) counters.compressedMessages.increment();
+        counters.originalBytes.add(originalBytes);
+        counters.sentBytes.add(sentBytes);
+    }
+
+    /**
+     * @param messageType the command of the messages
+     * @return the bytes saved by the compression of the messages of this type
+     */
+    public static long getBytesSaved(String messageType){
+        Counters counters = countersByType.get(messageType);
+        if(counters == null) return 0;
+        return counters.originalBytes.sum() - counters.sentBytes.sum();
+    }
+
+    /**
+     * @return a line for each type of message sent: how many were compressed, their average size
+     * before and after and the bytes saved
+     */
+    public static String getReport(){
+        StringBuilder report = new StringBuilder("Compression by message type:\n");
+        for(Map.Entry<String, Counters> entry : new TreeMap<>(countersByType).entrySet()){
+            Counters counters = entry.getValue();
+            long messages = counters.messages.sum();
+            long original = counters.originalBytes.sum();
+            long sent = counters.sentBytes.sum();
+            report.append(String.format("%-35s %8d messages, %8d compressed, avg %7d -> %7d bytes, %10d bytes saved%n",
+                    entry.getKey(), messages, counters.compressedMessages.sum(),
+                    original / messages, sent / messages, original - sent));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Forgets every message recorded
+     */
+    public static void reset(){
+        countersByType.clear();
+    }
+}
@@ -0,0 +1,148 @@
+package it.polimi.ingsw.network;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a stream of bytes into complete messages, in any of the formats of WireFormatEnum:
+ * the curly bracket counting rule of MessageBroker.receive(InputStream) or the length prefixed frames,
+ * whose payload can also be binary. <br>
+ * Unlike the broker, this decoder never blocks: it is fed with whatever bytes are available
+ * and keeps the state of a partially read message between calls. <br>
+ * The bytes are only decoded as UTF-8 once a message is complete, so multi-byte characters
+ * are never split
+ */
+public class JsonFrameDecoder {
+
+    private final ByteArrayOutputStream currentMessage;
+    private WireFormatEnum wireFormat;
+    private boolean inString;
+    private boolean escaped;
+    private int numberOfOpenCurlyBrackets;
+    private int headerBytesRead;
+    private int frameLength;
+
+    public JsonFrameDecoder(){
+        currentMessage = new ByteArrayOutputStream();
+        wireFormat = WireFormatEnum.BRACES;
+        reset();
+    }
+
+    /**
+     * Reads all the remaining bytes of the buffer
+     * @param buffer a buffer ready to be read (already flipped)
+     * @return the complete messages found, in the order they were received
+     */
+    public List<String> decode(ByteBuffer buffer){
+        List<String> messages = new ArrayList<>();
+        String message;
+        while((message = nextMessage(buffer)) != null) messages.add(message);
+        return messages;
+    }
+
+    /**
+     * Reads the buffer until a message is complete, leaving the following bytes in the buffer. <br>
+     * This allows to change the format between two messages
+     * @param buffer a buffer ready to be read (already flipped)
+     * @return the first complete message, null if the buffer ended before the message did
+     * @throws IllegalStateException if a length prefixed frame declares an invalid length
+     */
+    public String nextMessage(ByteBuffer buffer){
+        byte[] payload = nextPayload(buffer);
+        if(payload == null) return null;
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Same as nextMessage, without decoding the bytes, which is needed by the binary format
+     * @param buffer a buffer ready to be read (already flipped)
+     * @return the payload of the first complete message, null if the buffer ended before the message did
+     * @throws IllegalStateException if a length prefixed frame declares an invalid length
+     */
+    public byte[] nextPayload(ByteBuffer buffer){
+        if(wireFormat.isFramed()) return nextFrame(buffer);
+        return nextBracesMessage(buffer);
+    }
+
+    private byte[] nextBracesMessage(ByteBuffer buffer){
+        byte rawByte;
+
+        while(buffer.hasRemaining()){
+            rawByte = buffer.get();
+
+            //Whitespace between two messages isn't part of either of them
+            if(numberOfOpenCurlyBrackets == 0 && rawByte != '{') continue;
+
+            if (!escaped) {
+                if (rawByte == '\\') escaped = true;
+                if (rawByte == '"') inString = !inString;
+            }
+            else escaped = false;
+
+            if (!inString && rawByte == '{') numberOfOpenCurlyBrackets++;
+            else if (!inString && rawByte == '}') numberOfOpenCurlyBrackets--;
+
+            currentMessage.write(rawByte);
+
+            if (numberOfOpenCurlyBrackets == 0) return completeMessage();
+        }
+        return null;
+    }
+
+    private byte[] nextFrame(ByteBuffer buffer){
+        while(headerBytesRead < WireFormatEnum.HEADER_BYTES){
+            if(!buffer.hasRemaining()) return null;
+            frameLength = (frameLength << 8) | (buffer.get() & 0xFF);
+            headerBytesRead++;
+            if(headerBytesRead == WireFormatEnum.HEADER_BYTES
+                    && (frameLength <= 0 || frameLength > WireFormatEnum.MAX_FRAME_BYTES))
+                throw new IllegalStateException("Bad frame length");
+        }
+
+        int missingBytes = frameLength - currentMessage.size();
+        int available = Math.min(missingBytes, buffer.remaining());
+        if(buffer.hasArray()){
+            currentMessage.write(buffer.array(), buffer.arrayOffset() + buffer.position(), available);
+            buffer.position(buffer.position() + available);
+        }
+        else {
+            for(int readByte = 0; readByte < available; readByte++) currentMessage.write(buffer.get());
+        }
+
+        if(currentMessage.size() == frameLength) return completeMessage();
+        return null;
+    }
+
+    private byte[] completeMessage(){
+        byte[] message = currentMessage.toByteArray();
+        reset();
+        return message;
+    }
+
+    /**
+     * @return the amount of bytes of the message that is still incomplete
+     */
+    public int pendingBytes(){
+        return currentMessage.size();
+    }
+
+    /**
+     * Changes the format of the next messages, should only be called between two messages
+     * @param wireFormat the new format
+     */
+    public void setWireFormat(WireFormatEnum wireFormat) {
+        this.wireFormat = wireFormat;
+    }
+
+    private void reset(){
+        currentMessage.reset();
+        inString = false;
+        escaped = false;
+        numberOfOpenCurlyBrackets = 0;
+        headerBytesRead = 0;
+        frameLength = 0;
+    }
+}
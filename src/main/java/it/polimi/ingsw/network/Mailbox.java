@@ -0,0 +1,219 @@
+package it.polimi.ingsw.network;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The messages received on a connection and waiting to be handled. <br>
+ * Any number of threads can put messages in it without taking a lock: it's a linked queue whose producers
+ * swap the tail with an atomic exchange, while a single thread at a time takes the messages out. <br>
+ * It's bounded, but a message is never dropped: once the capacity is reached, a producer reading from a
+ * blocking stream waits for room in put(), so that the stream stops being read, while a non-blocking one
+ * is told by offer() to stop reading and is called back through the room listener once the consumer has
+ * taken out half of the messages
+ * @param <T> the type of the messages
+ */
+public class Mailbox<T> {
+
+    private final int capacity;
+    private final AtomicReference<Node<T>> tail;
+    private Node<T> head; // only used by the consumer, it's always an already consumed node
+    private final AtomicInteger depth;
+    private final AtomicInteger maxDepth;
+    private final AtomicBoolean producerPaused;
+    private final AtomicInteger waitingProducers;
+    private final Object roomMonitor; // only used by the producers waiting for room
+    private volatile Thread waitingConsumer;
+    private volatile Runnable roomListener;
+
+    private static class Node<T> {
+        private volatile Node<T> next;
+        private T value;
+
+        private Node(T value){
+            this.value = value;
+        }
+    }
+
+    /**
+     * @param capacity the amount of messages after which the producers are asked to stop
+     */
+    public Mailbox(int capacity){
+        this.capacity = capacity;
+        Node<T> stub = new Node<>(null);
+        this.head = stub;
+        this.tail = new AtomicReference<>(stub);
+        this.depth = new AtomicInteger(0);
+        this.maxDepth = new AtomicInteger(0);
+        this.producerPaused = new AtomicBoolean(false);
+        this.waitingProducers = new AtomicInteger(0);
+        this.roomMonitor = new Object();
+    }
+
+    /**
+     * Sets the action run, by the consumer, when a producer told to stop can start again
+     * @param roomListener the action to run, it should only hand over the work to the producer
+     */
+    public void setRoomListener(Runnable roomListener){
+        this.roomListener = roomListener;
+    }
+
+    /**
+     * Adds a message without ever waiting, can be called by any thread
+     * @param message the message to add
+     * @return false if the mailbox is full: the producer should stop until the room listener is called
+     */
+    public boolean offer(T message){
+        if(append(message) < capacity) return true;
+
+        producerPaused.set(true);
+        // The consumer may have emptied the mailbox before seeing the producer stopped
+        if(depth.get() <= capacity / 2 && producerPaused.compareAndSet(true, false)) return true;
+        return false;
+    }
+
+    /**
+     * Adds a message, waiting for room if the mailbox is full, can be called by any thread
+     * @param message the message to add
+     * @throws InterruptedException if the thread is interrupted while waiting for room
+     */
+    public void put(T message) throws InterruptedException {
+        if(depth.get() >= capacity){
+            waitingProducers.incrementAndGet();
+            try {
+                synchronized (roomMonitor){
+                    while(depth.get() >= capacity) roomMonitor.wait(10);
+                }
+            } finally {
+                waitingProducers.decrementAndGet();
+            }
+        }
+        append(message);
+    }
+
+    /**
+     * @return the depth after adding the message
+     */
+    private int append(T message){
+        Node<T> node = new Node<>(message);
+        Node<T> previous = tail.getAndSet(node);
+        previous.next = node;
+        int newDepth = depth.incrementAndGet();
+        if(newDepth > maxDepth.get()) maxDepth.accumulateAndGet(newDepth, Math::max);
+
+        Thread consumer = waitingConsumer;
+        if(consumer != null) LockSupport.unpark(consumer);
+        return newDepth;
+    }
+
+    /**
+     * Takes out the oldest message, to be called by the consumer only
+     * @return the oldest message, null if there are none
+     */
+    public T poll(){
+        Node<T> next = head.next;
+        if(next == null) return null;
+        T message = next.value;
+        next.value = null;
+        head = next;
+
+        int newDepth = depth.decrementAndGet();
+        if(newDepth < capacity && waitingProducers.get() > 0){
+            synchronized (roomMonitor){
+                roomMonitor.notifyAll();
+            }
+        }
+        if(newDepth <= capacity / 2 && producerPaused.get() && producerPaused.compareAndSet(true, false)){
+            Runnable listener = roomListener;
+            if(listener != null) listener.run();
+        }
+        return message;
+    }
+
+    /**
+     * Takes out the oldest message, waiting for it if there are none, to be called by the consumer only
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return the oldest message, null if none arrived before the timeout
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+        T message = poll();
+        if(message != null || timeout <= 0) return message;
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        waitingConsumer = Thread.currentThread();
+        try {
+            while((message = poll()) == null){
+                long remaining = deadline - System.nanoTime();
+                if(remaining <= 0) return null;
+                LockSupport.parkNanos(this, remaining);
+                if(Thread.interrupted()) throw new InterruptedException();
+            }
+            return message;
+        } finally {
+            waitingConsumer = null;
+        }
+    }
+
+    /**
+     * Takes out the oldest message, waiting for it if there are none, to be called by the consumer only
+     * @return the oldest message
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public T take() throws InterruptedException {
+        T message = poll();
+        if(message != null) return message;
+
+        waitingConsumer = Thread.currentThread();
+        try {
+            while((message = poll()) == null){
+                LockSupport.park(this);
+                if(Thread.interrupted()) throw new InterruptedException();
+            }
+            return message;
+        } finally {
+            waitingConsumer = null;
+        }
+    }
+
+    /**
+     * @return the oldest message without taking it out, null if there are none. To be called by the consumer only
+     */
+    public T peek(){
+        Node<T> next = head.next;
+        return next != null ? next.value : null;
+    }
+
+    /**
+     * @return the amount of messages waiting, can be read by any thread
+     */
+    public int size(){
+        return depth.get();
+    }
+
+    public boolean isEmpty(){
+        return depth.get() == 0;
+    }
+
+    /**
+     * @return true if a producer has been told to stop and hasn't been called back yet
+     */
+    public boolean isProducerPaused(){
+        return producerPaused.get();
+    }
+
+    /**
+     * @return the highest amount of messages ever waiting at the same time
+     */
+    public int getMaxDepth(){
+        return maxDepth.get();
+    }
+
+    public int getCapacity(){
+        return capacity;
+    }
+}
@@ -2,10 +2,11 @@ package it.polimi.ingsw.network;
 
 import com.google.gson.*;
 import com.google.gson.reflect.TypeToken;
-import it.polimi.ingsw.controller.GameRuleEnum;
 import it.polimi.ingsw.model.StudentEnum;
-import it.polimi.ingsw.model.TeamEnum;
-import it.polimi.ingsw.model.game.PhaseEnum;
+import it.polimi.ingsw.network.request.FieldDecoders;
+import it.polimi.ingsw.network.request.MalformedRequestException;
+import it.polimi.ingsw.network.request.Request;
+import it.polimi.ingsw.network.request.RequestDecoders;
 
 import java.io.*;
 import java.lang.reflect.Type;
@@ -13,11 +14,10 @@ import java.lang.reflect.Type;
 import java.net.SocketException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 public class MessageBroker {
@@ -29,17 +29,48 @@ public class MessageBroker {
                                                                                                         //when using gson functions toJson and fromJson
     private final String connectionResetString = "Connection Reset";
 
-    private BlockingQueue<Map<NetworkFieldEnum, Object>> incomingSyncMessages;
-    private BlockingQueue<Map<NetworkFieldEnum, Object>> incomingAsyncMessages;
+    private Mailbox<ReceivedMessage> incomingSyncMessages;
+    private Mailbox<ReceivedMessage> incomingAsyncMessages;
     private Map<NetworkFieldEnum, Object> currentIncomingSyncMessage;
     private Map<NetworkFieldEnum, Object> currentIncomingAsyncMessage;
+    private Request currentRequest; // the current sync message, decoded when it was received
+    private MalformedRequestException currentRequestError; // why the current sync message couldn't be decoded
     private Map<NetworkFieldEnum, Object> outgoingMessage;
-
-    private final int BLOCKING_QUEUE_CAPACITY = 100;
+    private SharedMessage outgoingSharedPart; // sent together with the outgoing message, encoded once for all the recipients
+
+    private final int MAILBOX_CAPACITY = 100;
+    private static final int INITIAL_FRAME_BUFFER_SIZE = 1024;
+
+    // The negotiated settings are changed by the thread reading the CONNECTION_REQUEST, but read by the ones sending
+    private volatile WireFormatEnum inputFormat;
+    private volatile WireFormatEnum outputFormat;
+    private volatile WireFormatEnum nextOutputFormat; // the format accepted by the server, used after its reply
+    private boolean lengthPrefixedAllowed;
+    private boolean binaryAllowed;
+    private boolean compressionAllowed;
+    private volatile MessageCompressor compressor; // created when the compression is accepted in the CONNECTION_REQUEST
+    private volatile boolean outputCompressed;
+    private volatile boolean nextOutputCompressed; // the compression accepted by the server, used after its reply
+    private boolean heartbeatAllowed;
+    private volatile boolean heartbeatOnMainSocket; // the pings travel with the commands instead of on a second socket
+    private InputStream lastSourceInput;
+    private BufferedInputStream bufferedSourceInput;
+    private byte[] frameBuffer; // reused for every length prefixed message read
 
     public MessageBroker(){
         gson = new Gson();
         //readyForNext = true;
+        inputFormat = WireFormatEnum.BRACES;
+        outputFormat = WireFormatEnum.BRACES;
+        nextOutputFormat = null;
+        lengthPrefixedAllowed = true;
+        binaryAllowed = true;
+        compressionAllowed = true;
+        outputCompressed = false;
+        nextOutputCompressed = false;
+        heartbeatAllowed = true;
+        heartbeatOnMainSocket = false;
+        frameBuffer = new byte[INITIAL_FRAME_BUFFER_SIZE];
         outFlush();
         inFlush();
     }
@@ -50,10 +81,57 @@ public class MessageBroker {
 
     private Map<NetworkFieldEnum, Object> deserialize(String JSONString){
 
-        Map<NetworkFieldEnum, Object> returnableMap = gson.fromJson(JSONString, mapType);
-        returnableMap.replaceAll((k, v) -> (Object) returnableMap.get(k));
+        return gson.fromJson(JSONString, mapType);
+    }
+
+    /**
+     * Deserializes a message directly from the bytes read, without building a String first
+     * @param payload the buffer containing the UTF-8 json message
+     * @param length the amount of valid bytes in the buffer
+     */
+    private Map<NetworkFieldEnum, Object> deserialize(byte[] payload, int length){
+
+        Reader reader = new InputStreamReader(new ByteArrayInputStream(payload, 0, length), StandardCharsets.UTF_8);
+        return gson.fromJson(reader, mapType);
+    }
+
+    /**
+     * Decodes a payload according to the input format
+     * @param payload the buffer containing the message
+     * @param length the amount of valid bytes in the buffer
+     * @throws IOException if the payload isn't a valid message
+     */
+    private Map<NetworkFieldEnum, Object> decodePayload(byte[] payload, int length) throws IOException {
+        if(SharedMessage.isShared(payload, length)) return decodeShared(payload, length);
+        if(compressor != null && MessageCompressor.isCompressed(payload, length)){
+            payload = compressor.decompress(payload, length);
+            length = payload.length;
+        }
+        if(inputFormat == WireFormatEnum.BINARY) return BinaryCodec.decode(payload, length);
+        try{
+            return deserialize(payload, length);
+        } catch (JsonParseException e){
+            throw new IOException();
+        }
+    }
 
-        return returnableMap;
+    /**
+     * Decodes a payload made of the fields of this recipient and a compressed shared message
+     * @param payload the buffer containing the payload, starting with SHARED_MARKER
+     * @param length the amount of valid bytes in the buffer
+     * @throws IOException if the payload isn't a valid message
+     */
+    private Map<NetworkFieldEnum, Object> decodeShared(byte[] payload, int length) throws IOException {
+        if(length < 3) throw new IOException("Bad shared message");
+        int headerLength = ((payload[1] & 0xFF) << 8) | (payload[2] & 0xFF);
+        if(3 + headerLength >= length) throw new IOException("Bad shared message");
+
+        Map<NetworkFieldEnum, Object> header = decodePayload(Arrays.copyOfRange(payload, 3, 3 + headerLength), headerLength);
+        Map<NetworkFieldEnum, Object> message = decodePayload(Arrays.copyOfRange(payload, 3 + headerLength, length),
+                length - 3 - headerLength);
+        if(header == null || message == null) throw new IOException("Bad shared message");
+        message.putAll(header);
+        return message;
     }
 
     /**
@@ -66,6 +144,37 @@ public class MessageBroker {
         outgoingMessage.put(fieldName, messageObject);
     }
 
+    /**
+     * Adds all the fields of a message to the outgoing message, overwriting the ones already set
+     * @param message the fields to send
+     */
+    public void addAllToMessage(Map<NetworkFieldEnum, Object> message){
+        outgoingMessage.putAll(message);
+    }
+
+    /**
+     * Sets the part of the outgoing message that is the same for several recipients, the fields added
+     * with addToMessage() are sent together with it and mustn't repeat the shared ones
+     * @param sharedPart the shared fields of the message
+     */
+    public void setSharedPart(SharedMessage sharedPart){
+        outgoingSharedPart = sharedPart;
+    }
+
+    /**
+     * @return the shared part of the outgoing message, null if the message has none
+     */
+    public SharedMessage getSharedPart(){
+        return outgoingSharedPart;
+    }
+
+    /**
+     * Empties the outgoing message without sending it, used when the recipient can't be reached
+     */
+    public void discardOutgoingMessage(){
+        outFlush();
+    }
+
     /**
      * Returns the value of the given fieldName for the first SYNCHRONOUS inbound message, taken from the queue
      * or null in case the message received doesn't have the specified field
@@ -75,7 +184,39 @@ public class MessageBroker {
      *                              waitSyncMessage() method
      */
     public Object readField(NetworkFieldEnum fieldName) throws NullPointerException {
-        return currentIncomingSyncMessage.get(fieldName);
+        Object value = currentIncomingSyncMessage.get(fieldName);
+        if(value instanceof List<?> && FieldDecoders.isValid(fieldName, value)){
+            value = convertListToArray(fieldName, (List<?>) value);
+            currentIncomingSyncMessage.put(fieldName, value);
+        }
+        return value;
+    }
+
+    /**
+     * Returns the first SYNCHRONOUS inbound message as the typed request of its command.
+     * The requests are decoded once, when they are received, so this only hands over the result
+     * @return the request sent by the client
+     * @throws MalformedRequestException if the message misses a field needed by its command,
+     * or if its command isn't a request
+     * @throws NullPointerException if there is no message read with the
+     *                              waitSyncMessage() method
+     */
+    public Request readRequest() throws MalformedRequestException {
+        if(currentRequestError != null) throw currentRequestError;
+        if(currentRequest == null) currentRequest = RequestDecoders.decode(currentIncomingSyncMessage);
+        return currentRequest;
+    }
+
+    /**
+     * Makes the given request the current synchronous message, as if the client had just sent it. <br>
+     * Used to execute again the commands recorded by the journal of a game
+     * @param request the request, already decoded
+     */
+    public void setCurrentRequest(Request request){
+        currentIncomingSyncMessage = new HashMap<>();
+        currentIncomingSyncMessage.put(NetworkFieldEnum.COMMAND, request.command().name());
+        currentRequest = request;
+        currentRequestError = null;
     }
 
     /**
@@ -98,7 +239,7 @@ public class MessageBroker {
      * @throws InterruptedException if the thread is interrupted before a message was available
      */
     public void waitSyncMessage() throws InterruptedException{
-        currentIncomingSyncMessage = incomingSyncMessages.take();
+        setCurrentSyncMessage(incomingSyncMessages.take());
     }
 
     /**
@@ -112,14 +253,20 @@ public class MessageBroker {
      * @throws InterruptedException if the thread is interrupted before a message was available
      */
     public boolean waitSyncMessage(Integer waitTimeMillis) throws InterruptedException{
-        Map<NetworkFieldEnum, Object> message = incomingSyncMessages.poll(waitTimeMillis, TimeUnit.MILLISECONDS);
+        ReceivedMessage message = incomingSyncMessages.poll(waitTimeMillis, TimeUnit.MILLISECONDS);
         if(message != null){
-            currentIncomingSyncMessage = message;
+            setCurrentSyncMessage(message);
             return true;
         }
         return false;
     }
 
+    private void setCurrentSyncMessage(ReceivedMessage message){
+        currentIncomingSyncMessage = message.fields();
+        currentRequest = message.request();
+        currentRequestError = message.error();
+    }
+
     /**
      * Waits for a new message on the asynchronous message buffer
      * Acts as a buffer between the queue and the list of messages received.
@@ -128,7 +275,34 @@ public class MessageBroker {
      * @throws InterruptedException if the thread is interrupted before a message was available
      */
     public void waitAsyncMessage() throws InterruptedException{
-        currentIncomingAsyncMessage = incomingAsyncMessages.take();
+        currentIncomingAsyncMessage = incomingAsyncMessages.take().fields();
+    }
+
+    /**
+     * Takes the oldest message received, synchronous or asynchronous, without making it the current one. <br>
+     * Called after every receive(InputStream), it gives the messages in the order they were read,
+     * for those forwarding them as they are, like the gateway
+     * @return the message, or null if there is none
+     */
+    public Map<NetworkFieldEnum, Object> pollMessage(){
+        ReceivedMessage message = incomingSyncMessages.poll();
+        if(message == null) message = incomingAsyncMessages.poll();
+        return message != null ? message.fields() : null;
+    }
+
+    /**
+     * @return the fields of the oldest synchronous message received, left in the mailbox, or null if there is none
+     */
+    public Map<NetworkFieldEnum, Object> peekSyncMessage(){
+        ReceivedMessage message = incomingSyncMessages.peek();
+        return message != null ? message.fields() : null;
+    }
+
+    /**
+     * @return true if there is at least a synchronous message waiting to be read
+     */
+    public boolean isSyncMessageAvailable(){
+        return !incomingSyncMessages.isEmpty();
     }
 
     /**
@@ -136,6 +310,8 @@ public class MessageBroker {
      */
     public void flushFirstSyncMessage(){
         currentIncomingSyncMessage = null;
+        currentRequest = null;
+        currentRequestError = null;
     }
 
     /**
@@ -147,11 +323,12 @@ public class MessageBroker {
 
     private void outFlush(){
         outgoingMessage = new HashMap<>();
+        outgoingSharedPart = null;
     }
 
     private void inFlush(){
-        incomingSyncMessages = new ArrayBlockingQueue<>(BLOCKING_QUEUE_CAPACITY);
-        incomingAsyncMessages = new ArrayBlockingQueue<>(BLOCKING_QUEUE_CAPACITY);
+        incomingSyncMessages = new Mailbox<>(MAILBOX_CAPACITY);
+        incomingAsyncMessages = new Mailbox<>(MAILBOX_CAPACITY);
     }
 
     /**
@@ -161,12 +338,24 @@ public class MessageBroker {
      */
     public void send(OutputStream destinationOutput) throws IOException {
 
-        String sendable = serialise(outgoingMessage);
+        if(outgoingSharedPart != null){
+            sendWithSharedPart(destinationOutput);
+            return;
+        }
+
+        // The reply to the CONNECTION_REQUEST tells the client which format was accepted
+        if(nextOutputFormat != null) outgoingMessage.put(NetworkFieldEnum.WIRE_FORMAT, nextOutputFormat);
+        if(nextOutputCompressed) outgoingMessage.put(NetworkFieldEnum.COMPRESSION, true);
+
+        byte[] sendable;
+        if(outputFormat == WireFormatEnum.BINARY) sendable = BinaryCodec.encode(outgoingMessage);
+        else sendable = serialise(outgoingMessage).getBytes(StandardCharsets.UTF_8);
+        if(outputCompressed) sendable = compress(sendable);
 
         // System.out.println("sending" + sendable + " to " + "???"); // Either we get the ip via the socket or we don't log this line
 
         try {
-            destinationOutput.write(sendable.getBytes(StandardCharsets.UTF_8));
+            destinationOutput.write(frame(sendable));
             destinationOutput.flush();
         } catch (IOException e) {
             //System.err.println("Couldn't send the message via the network");
@@ -174,6 +363,93 @@ public class MessageBroker {
             throw e;
         }
         outFlush();
+
+        // The reply to the CONNECTION_REQUEST is the last message sent in the old format
+        if(nextOutputFormat != null){
+            outputFormat = nextOutputFormat;
+            nextOutputFormat = null;
+        }
+        if(nextOutputCompressed){
+            outputCompressed = true;
+            nextOutputCompressed = false;
+        }
+    }
+
+    /**
+     * Sends the outgoing message, holding the fields of this recipient only, followed by the shared part
+     * encoded once for every recipient using the same format
+     * @param destinationOutput the OutputStream of the host to send the message to
+     */
+    private void sendWithSharedPart(OutputStream destinationOutput) throws IOException {
+        byte[] header = SharedMessage.encodeFields(outgoingMessage, outputFormat);
+        byte[] shared = outgoingSharedPart.encode(outputFormat);
+        byte[] prefix;
+        int sharedOffset;
+
+        byte[] compressedShared = outputCompressed ? outgoingSharedPart.encodeCompressed(outputFormat, compressor) : shared;
+        if(compressedShared != shared){
+            prefix = SharedMessage.compressedPrefix(header);
+            CompressionStatistics.record(outgoingSharedPart.getFields().get(NetworkFieldEnum.COMMAND).toString(),
+                    header.length + shared.length, prefix.length + compressedShared.length);
+            shared = compressedShared;
+            sharedOffset = 0;
+        }
+        else {
+            prefix = SharedMessage.splicePrefix(header, shared, outputFormat);
+            sharedOffset = SharedMessage.sharedOffset(shared, outputFormat);
+        }
+
+        int sharedLength = shared.length - sharedOffset;
+        if(outputFormat.isFramed()) prefix = frame(prefix, prefix.length + sharedLength);
+
+        if(destinationOutput instanceof SharedBufferOutput sharedOutput){
+            sharedOutput.writeShared(prefix, shared, sharedOffset, sharedLength);
+        }
+        else {
+            destinationOutput.write(prefix);
+            destinationOutput.write(shared, sharedOffset, sharedLength);
+        }
+        destinationOutput.flush();
+        outFlush();
+    }
+
+    /**
+     * Compresses the outgoing payload, recording the bytes saved for its type of message
+     * @param payload the encoded message
+     * @return the payload to frame
+     */
+    private byte[] compress(byte[] payload){
+        byte[] compressed = compressor.compress(payload);
+        Object command = outgoingMessage.get(NetworkFieldEnum.COMMAND);
+        CompressionStatistics.record(command == null ? CompressionStatistics.REPLY_TYPE : command.toString(),
+                payload.length, compressed.length);
+        return compressed;
+    }
+
+    /**
+     * Adds the length header to the payload if the output is framed
+     * @param payload the encoded message
+     * @return the bytes to write on the stream
+     */
+    private byte[] frame(byte[] payload){
+        if(!outputFormat.isFramed()) return payload;
+        return frame(payload, payload.length);
+    }
+
+    /**
+     * Adds the length header to the beginning of a payload
+     * @param start the first bytes of the payload
+     * @param payloadLength the length of the whole payload, the rest is written separately
+     * @return the header followed by the first bytes of the payload
+     */
+    private static byte[] frame(byte[] start, int payloadLength){
+        byte[] framed = new byte[WireFormatEnum.HEADER_BYTES + start.length];
+        framed[0] = (byte) (payloadLength >>> 24);
+        framed[1] = (byte) (payloadLength >>> 16);
+        framed[2] = (byte) (payloadLength >>> 8);
+        framed[3] = (byte) payloadLength;
+        System.arraycopy(start, 0, framed, WireFormatEnum.HEADER_BYTES, start.length);
+        return framed;
     }
 
     /**
@@ -183,9 +459,41 @@ public class MessageBroker {
      */
     public void receive(InputStream sourceInput) throws IOException  //IOException includes SocketException
     {
+        // The stream is read through a buffer, kept between calls since it could already
+        // contain the beginning of the next message
+        if(sourceInput != lastSourceInput){
+            lastSourceInput = sourceInput;
+            bufferedSourceInput = new BufferedInputStream(sourceInput);
+        }
+        if(inputFormat.isFramed()) receiveFrame(bufferedSourceInput);
+        else receiveBraces(bufferedSourceInput);
+    }
+
+    /**
+     * Reads a length prefixed message: the header first, then the whole payload at once
+     * @param sourceInput the InputStream of the host to read the message from
+     */
+    private void receiveFrame(InputStream sourceInput) throws IOException {
+        byte[] header = sourceInput.readNBytes(WireFormatEnum.HEADER_BYTES);
+        if(header.length < WireFormatEnum.HEADER_BYTES) throw new EOFException();
+
+        int length = ((header[0] & 0xFF) << 24) | ((header[1] & 0xFF) << 16)
+                | ((header[2] & 0xFF) << 8) | (header[3] & 0xFF);
+        if(length <= 0 || length > WireFormatEnum.MAX_FRAME_BYTES) throw new IOException("Bad frame length");
+
+        if(frameBuffer.length < length) frameBuffer = new byte[Math.max(length, frameBuffer.length * 2)];
+        if(sourceInput.readNBytes(frameBuffer, 0, length) < length) throw new EOFException();
+
+        storeWaiting(decodePayload(frameBuffer, length));
+    }
+
+    /**
+     * Reads a message in the original format, byte by byte until the curly brackets are balanced
+     * @param sourceInput the InputStream of the host to read the message from
+     */
+    private void receiveBraces(InputStream sourceInput) throws IOException {
         String receivedMessage;
-        StringBuilder tempString = new StringBuilder();
-        Map<NetworkFieldEnum, Object> deserializedMessage;
+        ByteArrayOutputStream tempBytes = new ByteArrayOutputStream();
         int rawReadInt;
         char rawChar;
         boolean endOfMessage = false;
@@ -195,7 +503,8 @@ public class MessageBroker {
         try {
             while(!endOfMessage) {
                 rawReadInt = sourceInput.read();
-                rawChar = (char) rawReadInt;
+                if(rawReadInt < 0) throw new EOFException();
+                rawChar = (char) rawReadInt; // only compared with ASCII characters, which are never part of a multi-byte one
 
                 if (!escaped) {
                     if (rawChar == '\\') escaped = true;
@@ -209,7 +518,7 @@ public class MessageBroker {
                 if (numberOfOpenCurlyBrackets == 0) {
                     endOfMessage = true;
                 }
-                tempString.append(rawChar);
+                tempBytes.write(rawReadInt);
             }
         } catch (SocketException e) {
             //System.err.println("Socket error, couldn't read the message");
@@ -224,54 +533,318 @@ public class MessageBroker {
             throw e;
 
         }
-        receivedMessage = tempString.toString();
+        receivedMessage = tempBytes.toString(StandardCharsets.UTF_8);
+
+        storeWaiting(parseJson(receivedMessage));
+    }
+
+    /**
+     * Deserializes and stores an already framed message in the incoming message buffer. <br>
+     * Used by the receivers that don't read directly from a blocking stream, such as the
+     * selector-based server
+     * @param receivedMessage the complete json message
+     * @throws IOException if the message isn't a valid json message
+     */
+    public void receive(String receivedMessage) throws IOException {
+        store(parseJson(receivedMessage));
+    }
 
+    private Map<NetworkFieldEnum, Object> parseJson(String receivedMessage) throws IOException {
         try{
-            deserializedMessage = deserialize(receivedMessage);
+            return deserialize(receivedMessage);
         } catch (JsonSyntaxException e){
             //System.err.println("Bad message read");
             throw new IOException();
         }
+    }
 
-        convertListsToArrays(deserializedMessage);
+    /**
+     * Decodes and stores an already framed message in the incoming message buffer,
+     * following the current input format (a json message in UTF-8 or a binary one). <br>
+     * Used by the receivers that don't read directly from a blocking stream, such as the
+     * selector-based server
+     * @param payload the complete message, without the length header
+     * @throws IOException if the payload isn't a valid message
+     */
+    public void receive(byte[] payload) throws IOException {
+        store(decodePayload(payload, payload.length));
+    }
 
-        if (checkValidity(deserializedMessage)) {
-            if(isAsynchronous(deserializedMessage)){
-                if (!incomingAsyncMessages.offer(deserializedMessage)) {
-                    System.err.println("ERROR: Message buffer full, the message was dropped");
-                }
-            }
-            else {
-                if (!incomingSyncMessages.offer(deserializedMessage)) {
-                    System.err.println("ERROR: Message buffer full, the message was dropped");
-                }
+    /**
+     * Checks the deserialized message and puts it in the right mailbox, even if it's full:
+     * the caller is expected to stop receiving while isInboundPaused()
+     * @param deserializedMessage the message just read
+     */
+    private void store(Map<NetworkFieldEnum, Object> deserializedMessage) throws IOException {
+        ReceivedMessage message = accept(deserializedMessage);
+
+        if(isAsynchronous(deserializedMessage)) incomingAsyncMessages.offer(message);
+        else incomingSyncMessages.offer(message);
+    }
+
+    /**
+     * Checks the deserialized message and puts it in the right mailbox, waiting for room if it's full,
+     * so that nothing more is read from the stream until the messages already received are handled
+     * @param deserializedMessage the message just read
+     */
+    private void storeWaiting(Map<NetworkFieldEnum, Object> deserializedMessage) throws IOException {
+        ReceivedMessage message = accept(deserializedMessage);
+
+        try {
+            if(isAsynchronous(deserializedMessage)) incomingAsyncMessages.put(message);
+            else incomingSyncMessages.put(message);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for room in the mailbox");
+        }
+    }
+
+    /**
+     * Checks the message just read, decodes it if it's a request and applies the negotiations it carries. <br>
+     * A message that isn't a map of known fields with values of the right type is refused before
+     * anything else reads it, as it can only come from a broken or hostile peer. <br>
+     * A request is validated by its decoder while it's decoded, in a single pass, and only the decoded
+     * request is used from then on: a request missing one of its fields is kept, so that the handler of its
+     * command can reply with the error. The other messages have no decoder and have each field checked instead
+     * @param deserializedMessage the message just read
+     * @return the message to store
+     * @throws IOException if the message isn't valid
+     */
+    private ReceivedMessage accept(Map<NetworkFieldEnum, Object> deserializedMessage) throws IOException {
+        if(deserializedMessage == null) throw new IOException("Empty message");
+        if(deserializedMessage.containsKey(null)) throw new IOException("Unknown field in the message"); // gson reads it as a null key
+
+        CommandEnum command = readReceivedField(deserializedMessage, NetworkFieldEnum.COMMAND, CommandEnum.class);
+        Request request = null;
+        MalformedRequestException error = null;
+        if(isRequest(deserializedMessage, command)){
+            try {
+                request = RequestDecoders.decode(deserializedMessage);
+            } catch (MalformedRequestException e) {
+                if(!e.isMissingField()) throw new IOException(e.getMessage());
+                error = e;
             }
         }
+        else if(!checkValidity(deserializedMessage)) throw new IOException("Invalid field in the message");
+
+        negotiateWireFormat(deserializedMessage, command);
+        negotiateHeartbeat(deserializedMessage, command);
+        return new ReceivedMessage(deserializedMessage, request, error);
     }
 
     /**
-     * Extremely crude way to circumvent gson deserialization behavior
+     * @param message the message just read
+     * @param command its command, null if it has none
+     * @return true if the message is a command sent by a client, and not a reply or an asynchronous message
      */
-    private void convertListsToArrays(Map<NetworkFieldEnum, Object> deserializedMessage) {
+    private boolean isRequest(Map<NetworkFieldEnum, Object> message, CommandEnum command){
+        return command != null && RequestDecoders.isDecodable(command) && !isAsynchronous(message)
+                && message.get(NetworkFieldEnum.SERVER_REPLY_STATUS) == null;
+    }
 
-        for (NetworkFieldEnum field : deserializedMessage.keySet()){
-            if(field.equals(NetworkFieldEnum.CHOSEN_ENTRANCE_POSITIONS) ||
-                field.equals(NetworkFieldEnum.CHOSEN_CARD_POSITIONS)){
-                ArrayList<Double> values = (ArrayList<Double>) deserializedMessage.get(field);
-                deserializedMessage.put(field,
-                        (double[])(values.stream()
-                                .mapToDouble(Double::doubleValue)
-                                .toArray()));
-            }
-            else if(field.equals(NetworkFieldEnum.CHOSEN_STUDENT_COLORS)){
-                ArrayList<String> colors = (ArrayList<String>) deserializedMessage.get(field);
-                deserializedMessage.put(field,
-                                 colors.stream()
-                                .map(StudentEnum::fromObjectToEnum)
-                                .toArray(StudentEnum[]::new)
-                );
-            }
+    /**
+     * Reads a field of the message just read, the message is refused if its value isn't valid
+     * @return the value of the field, or null if the message doesn't have it
+     * @throws IOException if the value can't be read as the type of the field
+     */
+    private static <T> T readReceivedField(Map<NetworkFieldEnum, Object> message, NetworkFieldEnum field, Class<T> type)
+            throws IOException {
+        try {
+            return FieldDecoders.readOptional(message, field, type, null);
+        } catch (MalformedRequestException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
+    /**
+     * @return true if a mailbox is full: the messages handed over with receive(byte[]) or receive(String)
+     * are still stored, but the caller should stop reading until the inbound room listener is called
+     */
+    public boolean isInboundPaused(){
+        return incomingSyncMessages.isProducerPaused() || incomingAsyncMessages.isProducerPaused();
+    }
+
+    /**
+     * Sets the action run, by the thread handling the messages, once the receiving can start again
+     * after isInboundPaused()
+     * @param roomListener the action to run, it should only hand over the work to the receiving thread
+     */
+    public void setInboundRoomListener(Runnable roomListener){
+        incomingSyncMessages.setRoomListener(roomListener);
+        incomingAsyncMessages.setRoomListener(roomListener);
+    }
+
+    /**
+     * @return the amount of messages received and not handled yet
+     */
+    public int getInboundDepth(){
+        return incomingSyncMessages.size() + incomingAsyncMessages.size();
+    }
+
+    /**
+     * @return the highest amount of messages ever waiting at the same time in a mailbox
+     */
+    public int getMaxInboundDepth(){
+        return Math.max(incomingSyncMessages.getMaxDepth(), incomingAsyncMessages.getMaxDepth());
+    }
+
+    /**
+     * Switches to the format asked by a CONNECTION_REQUEST, or to the closest one allowed. <br>
+     * On the server (the request has no reply status) the input switches right away, as the client won't
+     * send anything before the reply, while the reply itself is still sent in the old format and carries
+     * the accepted format. <br>
+     * On the client (the reply has a status) both directions switch to the format accepted by the server.
+     * If this broker allows no framed format, the field is removed and the original format is kept. <br>
+     * The COMPRESSION field is negotiated the same way, and only together with a framed format
+     * @param message the message just received
+     * @param command the command of the message
+     * @throws IOException if the negotiated fields aren't valid
+     */
+    private void negotiateWireFormat(Map<NetworkFieldEnum, Object> message, CommandEnum command) throws IOException {
+        if(command != CommandEnum.CONNECTION_REQUEST) return;
+        WireFormatEnum acceptedFormat = readReceivedField(message, NetworkFieldEnum.WIRE_FORMAT, WireFormatEnum.class);
+        if(acceptedFormat == null) return;
+
+        if(acceptedFormat == WireFormatEnum.BINARY && !binaryAllowed) acceptedFormat = WireFormatEnum.LENGTH_PREFIXED;
+        if(!lengthPrefixedAllowed || !acceptedFormat.isFramed()){
+            message.remove(NetworkFieldEnum.WIRE_FORMAT);
+            message.remove(NetworkFieldEnum.COMPRESSION);
+            return;
+        }
+        message.put(NetworkFieldEnum.WIRE_FORMAT, acceptedFormat.name());
+
+        boolean isRequest = message.get(NetworkFieldEnum.SERVER_REPLY_STATUS) == null;
+        inputFormat = acceptedFormat;
+        if(isRequest) nextOutputFormat = acceptedFormat;
+        else outputFormat = acceptedFormat;
+
+        // The compression needs the frames, so it's only negotiated together with a framed format
+        if(!compressionAllowed || !Boolean.TRUE.equals(readReceivedField(message, NetworkFieldEnum.COMPRESSION, Boolean.class))){
+            message.remove(NetworkFieldEnum.COMPRESSION);
+            return;
+        }
+        if(compressor == null) compressor = new MessageCompressor();
+        if(isRequest) nextOutputCompressed = true;
+        else outputCompressed = true;
+    }
+
+    /**
+     * Accepts the pings on the main socket asked by a CONNECTION_REQUEST. The field stays in the request only
+     * if this broker allows it, so that the server echoes it in the reply, and the client only switches
+     * when the reply carries it. Unlike the compression, it works with any format
+     * @param message the message just received
+     * @param command the command of the message
+     * @throws IOException if the negotiated field isn't valid
+     */
+    private void negotiateHeartbeat(Map<NetworkFieldEnum, Object> message, CommandEnum command) throws IOException {
+        if(command != CommandEnum.CONNECTION_REQUEST) return;
+        Boolean heartbeat = readReceivedField(message, NetworkFieldEnum.HEARTBEAT, Boolean.class);
+        if(heartbeat == null) return;
+
+        if(!heartbeatAllowed || !heartbeat){
+            message.remove(NetworkFieldEnum.HEARTBEAT);
+            return;
+        }
+        heartbeatOnMainSocket = true;
+    }
+
+    /**
+     * Decides whether a CONNECTION_REQUEST asking for the length prefixed format is accepted (true by default)
+     * @param lengthPrefixedAllowed false to keep using the original format with every client
+     */
+    public void setLengthPrefixedAllowed(boolean lengthPrefixedAllowed) {
+        this.lengthPrefixedAllowed = lengthPrefixedAllowed;
+    }
+
+    /**
+     * Decides whether a CONNECTION_REQUEST asking for the binary format is accepted (true by default),
+     * when it isn't the length prefixed json format is used instead
+     * @param binaryAllowed false to never use the BinaryCodec with the clients
+     */
+    public void setBinaryAllowed(boolean binaryAllowed) {
+        this.binaryAllowed = binaryAllowed;
+    }
+
+    /**
+     * Decides whether a CONNECTION_REQUEST asking for compression is accepted (true by default)
+     * @param compressionAllowed false to never compress the messages
+     */
+    public void setCompressionAllowed(boolean compressionAllowed) {
+        this.compressionAllowed = compressionAllowed;
+    }
+
+    /**
+     * @return true if the messages sent above the compression threshold are compressed
+     */
+    public boolean isOutputCompressed() {
+        return outputCompressed;
+    }
+
+    /**
+     * Decides whether a CONNECTION_REQUEST asking for the pings on the main socket is accepted (true by default),
+     * when it isn't the client opens a second socket for them
+     * @param heartbeatAllowed false to keep a ping socket for every client
+     */
+    public void setHeartbeatAllowed(boolean heartbeatAllowed) {
+        this.heartbeatAllowed = heartbeatAllowed;
+    }
+
+    /**
+     * @return true if both sides agreed to send the pings on this connection instead of a second socket
+     */
+    public boolean isHeartbeatOnMainSocket() {
+        return heartbeatOnMainSocket;
+    }
+
+    /**
+     * Creates a broker writing in the same format as this one, so that control messages (like the pings)
+     * can be sent on the same stream without touching the message being built on this broker.
+     * The writes on the stream still have to be synchronized by the caller
+     * @return a new broker sharing the output settings of this one
+     */
+    public MessageBroker newControlBroker(){
+        MessageBroker controlBroker = new MessageBroker();
+        controlBroker.inputFormat = inputFormat;
+        controlBroker.outputFormat = outputFormat;
+        controlBroker.compressor = compressor;
+        controlBroker.outputCompressed = outputCompressed;
+        return controlBroker;
+    }
+
+    /**
+     * @return the compressor of this connection, null if the compression wasn't negotiated
+     */
+    public MessageCompressor getCompressor() {
+        return compressor;
+    }
+
+    public WireFormatEnum getInputFormat() {
+        return inputFormat;
+    }
+
+    public WireFormatEnum getOutputFormat() {
+        return outputFormat;
+    }
+
+    /**
+     * Extremely crude way to circumvent gson deserialization behavior. <br>
+     * Only called by readField() on the valid lists, as the requests are read through readRequest()
+     * and the binary format already reads the arrays as arrays
+     * @return the list as the array type of its field, or the list itself if its field isn't an array
+     */
+    private static Object convertListToArray(NetworkFieldEnum field, List<?> values) {
+        if(field.equals(NetworkFieldEnum.CHOSEN_ENTRANCE_POSITIONS) ||
+            field.equals(NetworkFieldEnum.CHOSEN_CARD_POSITIONS)){
+            return values.stream()
+                    .mapToDouble(value -> ((Number) value).doubleValue())
+                    .toArray();
+        }
+        else if(field.equals(NetworkFieldEnum.CHOSEN_STUDENT_COLORS)){
+            return values.stream()
+                    .map(StudentEnum::fromObjectToEnum)
+                    .toArray(StudentEnum[]::new);
         }
+        return values;
     }
 
     /**
@@ -298,125 +871,28 @@ public class MessageBroker {
      */
     @Deprecated
     public boolean checkFirstValidity() throws InterruptedException{
-        return checkValidity(incomingSyncMessages.take());
+        return checkValidity(incomingSyncMessages.take().fields());
     }
 
     /**
-     * Checks if the message is in a valid format
+     * Checks if the message is in a valid format, reading each field with its decoder
      * @param message The message to check
      * @return true if the message is valid, false otherwise
      */
     private boolean checkValidity(Map<NetworkFieldEnum, Object> message){
-
-        Object object;
-        Class objClass;
-        Class neededClass;
-        // For each field, check whether it can be cast and return false if an exception is raised
-        List<NetworkFieldEnum> keyArray = new ArrayList<>(message.keySet());
-        for(NetworkFieldEnum field : keyArray){
-            object = message.get(field);
-
-            objClass = object.getClass();
-
-            switch (field){
-                case ID_USER:
-                case ID_REQUEST:
-                case ID_PING_REQUEST:
-                case ID_TOWER_COLOR:
-                case ID_WIZARD:
-                case ID_ASSISTANT:
-                case ID_CHARACTER:
-                case ID_CLOUD:
-                case CHOSEN_ENTRANCE_STUDENT:
-                case CHOSEN_ISLAND:
-                case CHOSEN_ISLAND_CHAR:
-                case STEPS_MN:
-                case CHARACTER_CARD_POSITION:
-                case ASYNC_ID_REQUEST:
-                case ASYNC_ID_USER:
-                    // The json reads these parameters as doubles, where they should be ints,
-                    // in case they actually are doubles, "cast" to integer
-                    if(objClass.equals(Double.class)) objClass = Integer.class;
-                    neededClass = Integer.class;
-                    break;
-                case COMMAND:
-                case NICKNAME:
-                    neededClass = String.class;
-                    break;
-                case GAME_RULE:
-                    // This would be read as a String, but we need to make sure it's
-                    // actually a GameRuleEnum
-                    try{
-                        GameRuleEnum.fromObjectToEnum(object);
-                        objClass = GameRuleEnum.class;
-                    } catch (IllegalArgumentException e){
-                        objClass = Void.class;
-                    }
-
-                    neededClass = GameRuleEnum.class;
-                    break;
-                case CHOSEN_ENTRANCE_POSITIONS:
-                case CHOSEN_CARD_POSITIONS:
-                    // The json reads these parameters as doubles, where they should be ints,
-                    // in case they actually are doubles, "cast" to integer
-                    if(objClass.equals(double[].class)) objClass = int[].class;
-                    neededClass = int[].class;
-                    break;
-                case CHOSEN_STUDENT_COLORS:
-                    // This would be read as a String, but we need to make sure it's
-                    // actually a StudentEnum
-                    neededClass = StudentEnum[].class;
-                    break;
-                case GAME_PHASE:
-                case ASYNC_GAME_PHASE:
-                    // This would be read as a String, but we need to make sure it's
-                    // actually a PhaseEnum
-                    try{
-                        PhaseEnum.fromObjectToEnum(object);
-                        objClass = PhaseEnum.class;
-                    } catch (IllegalArgumentException e){
-                        objClass = Void.class;
-                    }
-
-                    neededClass = PhaseEnum.class;
-                    break;
-                case ASYNC_WINNER:
-                    // This would be read as a String, but we need to make sure it's
-                    // actually a TeamEnum
-                    try{
-                        TeamEnum.fromObjectToEnum(object);
-                        objClass = TeamEnum.class;
-                    } catch (IllegalArgumentException e){
-                        objClass = Void.class;
-                    }
-                    neededClass = TeamEnum.class;
-                    break;
-                    //todo case for async_view
-
-                default:
-                    // If an unrecognized field is encountered, it's implicitly accepted
-                    neededClass = objClass;
-                    break;
-            }
-            if (!objClass.equals(neededClass)){
-                return false;
-            }
-        }
+        for(Map.Entry<NetworkFieldEnum, Object> field : message.entrySet())
+            if(!FieldDecoders.isValid(field.getKey(), field.getValue())) return false;
         return true;
     }
 
     public static boolean isOfType(Object object, Type type){
-        return object.getClass().getTypeName().equals(type.getTypeName());
+        return type.equals(object.getClass());
     }
 
     public static boolean isOfTheSameType(Object object, Object sample){
-        return object.getClass().getTypeName().equals(sample.getClass().getTypeName());
+        return object.getClass().equals(sample.getClass());
     }
 
-    //for testing purposes
-    public BlockingQueue<Map<NetworkFieldEnum, Object>> getIncomingSyncMessages() {
-        return incomingSyncMessages;
-    }
 
     //for testing purposes
     public Map<NetworkFieldEnum, Object> getOutgoingMessage() {
@@ -432,4 +908,11 @@ public class MessageBroker {
     }
 
 
+
+    /**
+     * A message waiting in a mailbox: its fields and, for the requests, the request decoded when it was
+     * received or the reason it couldn't be
+     */
+    private record ReceivedMessage(Map<NetworkFieldEnum, Object> fields, Request request,
+                                   MalformedRequestException error) {}
 }
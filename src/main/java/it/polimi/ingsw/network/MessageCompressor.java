@@ -0,0 +1,125 @@
+package it.polimi.ingsw.network;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflates the payloads sent on a connection and inflates the ones received, once both sides agreed on it
+ * in the CONNECTION_REQUEST. <br>
+ * Only payloads above the threshold are compressed, and only if it actually makes them smaller.
+ * A compressed payload starts with COMPRESSED_MARKER, which can't start a json message (not valid UTF-8)
+ * nor a binary one (more fields than the network has), so plain payloads are sent as they are. <br>
+ * The Deflater and the Inflater are reused for every message of the connection, and both start from a
+ * dictionary made of the field names, bean fields and enum constants found in the messages
+ */
+public class MessageCompressor {
+
+    public static final byte COMPRESSED_MARKER = (byte) 0xFF;
+    public static final int DEFAULT_THRESHOLD_BYTES = 512;
+
+    private static final byte[] dictionary = buildDictionary();
+
+    private final Deflater deflater;
+    private final Inflater inflater;
+    private final byte[] buffer;
+    private int threshold;
+
+    public MessageCompressor(){
+        deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        inflater = new Inflater();
+        buffer = new byte[4096];
+        threshold = DEFAULT_THRESHOLD_BYTES;
+    }
+
+    /**
+     * The dictionary is the same on both sides, as it's built from the classes only. <br>
+     * Deflate finds the matches nearer to the end of the dictionary more cheaply, so the network fields,
+     * found in every json message, come last
+     * @return the dictionary shared by every connection
+     */
+    private static byte[] buildDictionary(){
+        Set<String> entries = new LinkedHashSet<>();
+        for(String name : BinaryCodec.knownEnumNames()) entries.add("\"" + name + "\",");
+        for(String name : BinaryCodec.knownBeanFieldNames()) entries.add("\"" + name + "\":");
+        for(NetworkFieldEnum field : NetworkFieldEnum.values()) entries.add("\"" + field.name() + "\":");
+        return String.join("", entries).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compresses the payload if it's larger than the threshold
+     * @param payload the encoded message
+     * @return the compressed payload, starting with COMPRESSED_MARKER, or the payload itself if it's
+     * below the threshold or compressing it doesn't save anything
+     */
+    public synchronized byte[] compress(byte[] payload){
+        if(payload.length < threshold) return payload;
+
+        deflater.reset();
+        deflater.setDictionary(dictionary);
+        deflater.setInput(payload);
+        deflater.finish();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream(payload.length / 2);
+        output.write(COMPRESSED_MARKER);
+        while(!deflater.finished()){
+            int written = deflater.deflate(buffer);
+            output.write(buffer, 0, written);
+            if(output.size() >= payload.length) return payload;
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * @param payload the buffer containing the received payload
+     * @param length the amount of valid bytes in the buffer
+     * @return true if the payload was compressed by the sender
+     */
+    public static boolean isCompressed(byte[] payload, int length){
+        return length > 0 && payload[0] == COMPRESSED_MARKER;
+    }
+
+    /**
+     * Restores a payload compressed by the other side
+     * @param payload the buffer containing the compressed payload, marker included
+     * @param length the amount of valid bytes in the buffer
+     * @return the original payload
+     * @throws IOException if the payload isn't valid deflate data, or would be larger than a frame
+     */
+    public synchronized byte[] decompress(byte[] payload, int length) throws IOException {
+        inflater.reset();
+        inflater.setInput(payload, 1, length - 1);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream(length * 4);
+        try {
+            while(!inflater.finished()){
+                int read = inflater.inflate(buffer);
+                if(read == 0){
+                    if(inflater.needsDictionary()) inflater.setDictionary(dictionary);
+                    else if(inflater.needsInput()) throw new IOException("Truncated compressed message");
+                }
+                output.write(buffer, 0, read);
+                if(output.size() > WireFormatEnum.MAX_FRAME_BYTES) throw new IOException("Compressed message too large");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Bad compressed message", e);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * @param threshold the size in bytes from which the payloads are compressed
+     */
+    public synchronized void setThreshold(int threshold) {
+        this.threshold = threshold;
+    }
+
+    public synchronized int getThreshold() {
+        return threshold;
+    }
+}
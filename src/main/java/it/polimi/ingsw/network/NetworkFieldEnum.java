@@ -4,6 +4,7 @@ import it.polimi.ingsw.controller.GameRuleEnum;
 import it.polimi.ingsw.model.StudentEnum;
 import it.polimi.ingsw.model.TeamEnum;
 import it.polimi.ingsw.model.beans.VirtualViewBean;
+import it.polimi.ingsw.model.beans.VirtualViewDeltaBean;
 import it.polimi.ingsw.model.game.PhaseEnum;
 
 public enum NetworkFieldEnum {
@@ -28,6 +29,14 @@ public enum NetworkFieldEnum {
     CHOSEN_ISLAND_CHAR("chosenIslandChar", int.class),
     CHOSEN_CARD_POSITIONS("chosenCardPositions", int[].class),
     CHOSEN_STUDENT_COLORS("chosenStudentColors", StudentEnum[].class),
+    WIRE_FORMAT("wireFormat", WireFormatEnum.class), // Asked in the CONNECTION_REQUEST, echoed if accepted
+    VIEW_RESYNC("viewResync", boolean.class), // Sent with a PING when the client missed a view delta
+    COMPRESSION("compression", boolean.class), // Asked in the CONNECTION_REQUEST, echoed if accepted
+    HEARTBEAT("heartbeat", boolean.class), // Asked in the CONNECTION_REQUEST, echoed if the pings can share the main socket
+    QUICK_MATCH("quickMatch", boolean.class), // Sent with a PLAY_GAME when the game must start as soon as the lobby is full
+    RESUME_TOKEN("resumeToken", String.class), // Given in the reply to the CONNECTION_REQUEST, sent back to resume the session
+    LAST_ASYNC_ID_REQUEST("lastAsyncIdRequest", int.class), // Sent with the RESUME_TOKEN, the last asynchronous message read
+    RESUMABLE("resumable", boolean.class), // Asked in the CONNECTION_REQUEST when the session must be kept if the connection is lost
 
     // SERVER-ONLY FIELDS
     SERVER_REPLY_MESSAGE("serverReplyMessage", String.class),
@@ -52,6 +61,7 @@ public enum NetworkFieldEnum {
     ASYNC_ID_USER("asyncIdUser", int.class),
     ASYNC_GAME_PHASE("asyncGamePhase", PhaseEnum.class),
     ASYNC_VIEW("asyncView", VirtualViewBean.class),
+    ASYNC_VIEW_DELTA("asyncViewDelta", VirtualViewDeltaBean.class),
     ASYNC_WINNER("asyncWinner",TeamEnum.class),
     ASYNC_USER_NICKNAME("asyncUserNickname", String.class);
 
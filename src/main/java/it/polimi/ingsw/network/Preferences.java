@@ -14,6 +14,12 @@ public class Preferences {
     private static final String filename = "/jsonFiles/NetworkParameters.json";
     private static final int standardPort = 54321;
     private static final String standardHostname = "127.0.0.1";
+    private static final WireFormatEnum standardWireFormat = WireFormatEnum.LENGTH_PREFIXED;
+    private static final boolean standardCompression = true;
+    private static final boolean standardHeartbeat = true;
+    private static final long standardOutboundHighWaterBytes = 1 << 20;
+    private static final long standardOutboundMaxBehindMillis = 10000;
+    private static final long standardResumeGraceMillis = 30000;
     private static final Gson gson = new Gson();
 
     /**
@@ -67,4 +73,162 @@ public class Preferences {
         returnString = (String)map.get("defaultHostname");
         return returnString;
     }
+
+    /**
+     * Reads the wire format the client asks for when connecting from a json file,
+     * the server may still answer with a simpler one
+     * @return the wire format read from the file
+     */
+    public static WireFormatEnum readWireFormatFromJson(){
+
+        Type mapType = new TypeToken<Map<String, Object>>() {}.getType();
+        Map<String, Object> map;
+        Reader reader;
+        InputStream stream;
+
+        try {
+            stream = Preferences.class.getResourceAsStream(filename);
+            reader = new InputStreamReader(stream);
+        } catch (NullPointerException e) {
+            System.err.println("Preferences file hasn't been found, using standard wire format");
+            return standardWireFormat;
+        }
+
+        map = gson.fromJson(reader, mapType);
+        try {
+            return WireFormatEnum.fromObjectToEnum(map.get("defaultWireFormat"));
+        } catch (IllegalArgumentException | NullPointerException | ClassCastException e) {
+            return standardWireFormat;
+        }
+    }
+
+    /**
+     * Reads whether the client asks for the compression of the large messages when connecting
+     * from a json file, the server may still refuse it
+     * @return true if the compression is asked for
+     */
+    public static boolean readCompressionFromJson(){
+
+        Type mapType = new TypeToken<Map<String, Object>>() {}.getType();
+        Map<String, Object> map;
+        Reader reader;
+        InputStream stream;
+
+        try {
+            stream = Preferences.class.getResourceAsStream(filename);
+            reader = new InputStreamReader(stream);
+        } catch (NullPointerException e) {
+            System.err.println("Preferences file hasn't been found, using standard compression");
+            return standardCompression;
+        }
+
+        map = gson.fromJson(reader, mapType);
+        Object compression = map.get("defaultCompression");
+        if(compression instanceof Boolean) return (Boolean) compression;
+        return standardCompression;
+    }
+
+    /**
+     * Reads whether the client sends its pings on the main socket, instead of opening a second one,
+     * from a json file. The server may still refuse it, the second socket is then opened after the login
+     * @return true if the pings should share the main socket
+     */
+    public static boolean readHeartbeatFromJson(){
+
+        Type mapType = new TypeToken<Map<String, Object>>() {}.getType();
+        Map<String, Object> map;
+        Reader reader;
+        InputStream stream;
+
+        try {
+            stream = Preferences.class.getResourceAsStream(filename);
+            reader = new InputStreamReader(stream);
+        } catch (NullPointerException e) {
+            System.err.println("Preferences file hasn't been found, using standard heartbeat");
+            return standardHeartbeat;
+        }
+
+        map = gson.fromJson(reader, mapType);
+        Object heartbeat = map.get("defaultHeartbeat");
+        if(heartbeat instanceof Boolean) return (Boolean) heartbeat;
+        return standardHeartbeat;
+    }
+
+    /**
+     * Reads from a json file the amount of bytes the server lets pile up for a client before
+     * considering it behind
+     * @return the high-water mark of the outbound queues, in bytes
+     */
+    public static long readOutboundHighWaterFromJson(){
+
+        Type mapType = new TypeToken<Map<String, Object>>() {}.getType();
+        Map<String, Object> map;
+        Reader reader;
+        InputStream stream;
+
+        try {
+            stream = Preferences.class.getResourceAsStream(filename);
+            reader = new InputStreamReader(stream);
+        } catch (NullPointerException e) {
+            System.err.println("Preferences file hasn't been found, using standard high-water mark");
+            return standardOutboundHighWaterBytes;
+        }
+
+        map = gson.fromJson(reader, mapType);
+        Object highWater = map.get("outboundHighWaterBytes");
+        if(highWater instanceof Number && ((Number) highWater).longValue() > 0) return ((Number) highWater).longValue();
+        return standardOutboundHighWaterBytes;
+    }
+
+    /**
+     * Reads from a json file how long a client can stay behind the high-water mark before
+     * being disconnected by the server
+     * @return the maximum time behind, in milliseconds
+     */
+    public static long readOutboundMaxBehindFromJson(){
+
+        Type mapType = new TypeToken<Map<String, Object>>() {}.getType();
+        Map<String, Object> map;
+        Reader reader;
+        InputStream stream;
+
+        try {
+            stream = Preferences.class.getResourceAsStream(filename);
+            reader = new InputStreamReader(stream);
+        } catch (NullPointerException e) {
+            System.err.println("Preferences file hasn't been found, using standard time behind");
+            return standardOutboundMaxBehindMillis;
+        }
+
+        map = gson.fromJson(reader, mapType);
+        Object maxBehind = map.get("outboundMaxBehindMillis");
+        if(maxBehind instanceof Number && ((Number) maxBehind).longValue() >= 0) return ((Number) maxBehind).longValue();
+        return standardOutboundMaxBehindMillis;
+    }
+
+    /**
+     * Reads from a json file how long the session of a user who lost the connection is kept,
+     * waiting for the client to resume it
+     * @return the grace window, in milliseconds, 0 if the sessions can't be resumed
+     */
+    public static long readResumeGraceFromJson(){
+
+        Type mapType = new TypeToken<Map<String, Object>>() {}.getType();
+        Map<String, Object> map;
+        Reader reader;
+        InputStream stream;
+
+        try {
+            stream = Preferences.class.getResourceAsStream(filename);
+            reader = new InputStreamReader(stream);
+        } catch (NullPointerException e) {
+            System.err.println("Preferences file hasn't been found, using standard grace window");
+            return standardResumeGraceMillis;
+        }
+
+        map = gson.fromJson(reader, mapType);
+        Object grace = map.get("resumeGraceMillis");
+        if(grace instanceof Number && ((Number) grace).longValue() >= 0) return ((Number) grace).longValue();
+        return standardResumeGraceMillis;
+    }
 }
@@ -0,0 +1,20 @@
+package it.polimi.ingsw.network;
+
+import java.io.IOException;
+
+/**
+ * An output that can send bytes shared with other outputs without copying them,
+ * used by the MessageBroker for the SharedMessages
+ */
+public interface SharedBufferOutput {
+
+    /**
+     * Writes a prefix followed by a part of a shared array as a single message
+     * @param prefix the bytes of this recipient only
+     * @param shared an array that is never modified, it may be kept until it has been sent
+     * @param offset the position of the first byte of the array to send
+     * @param length the amount of bytes of the array to send
+     * @throws IOException if the output has been closed
+     */
+    void writeShared(byte[] prefix, byte[] shared, int offset, int length) throws IOException;
+}
@@ -0,0 +1,151 @@
+package it.polimi.ingsw.network;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The part of a message that is the same for every recipient of a broadcast, such as a game update. <br>
+ * Its fields are encoded once for every wire format (and once more when compressed), the brokers sending it
+ * only encode the few fields of their own recipient, like the ASYNC_ID_REQUEST, and put them in front
+ * of the shared bytes: <br>
+ * - uncompressed, the recipient fields are spliced into the shared message, so the receiver reads an
+ *   ordinary message of the negotiated format, <br>
+ * - compressed, the payload starts with SHARED_MARKER, followed by the length of the recipient fields on
+ *   two bytes, the recipient fields and the compressed shared message. <br>
+ * The encoded bytes are never modified, so they can be written to every recipient as they are
+ */
+public class SharedMessage {
+
+    public static final byte SHARED_MARKER = (byte) 0xFE; // can't start a json nor a binary message, as COMPRESSED_MARKER
+    public static final int MAX_HEADER_BYTES = 0xFFFF;
+
+    private static final Type mapType = new TypeToken<Map<NetworkFieldEnum, Object>>() {}.getType();
+    private static final Gson gson = new Gson();
+
+    private final Map<NetworkFieldEnum, Object> fields;
+    private final Map<WireFormatEnum, byte[]> encodings;
+    private final Map<WireFormatEnum, byte[]> compressedEncodings;
+    private int encodingsCount;
+
+    /**
+     * @param fields the fields shared by every recipient, they mustn't be modified afterwards
+     */
+    public SharedMessage(Map<NetworkFieldEnum, Object> fields){
+        this.fields = Collections.unmodifiableMap(new LinkedHashMap<>(fields));
+        this.encodings = new EnumMap<>(WireFormatEnum.class);
+        this.compressedEncodings = new EnumMap<>(WireFormatEnum.class);
+        this.encodingsCount = 0;
+    }
+
+    public Map<NetworkFieldEnum, Object> getFields() {
+        return fields;
+    }
+
+    /**
+     * @param format the format of the recipient
+     * @return the shared fields encoded in the format, done the first time only
+     */
+    public synchronized byte[] encode(WireFormatEnum format){
+        byte[] encoded = encodings.get(format);
+        if(encoded == null){
+            encoded = encodeFields(fields, format);
+            encodings.put(format, encoded);
+            encodingsCount++;
+        }
+        return encoded;
+    }
+
+    /**
+     * @param format the format of the recipient
+     * @param compressor a compressor of a connection that negotiated the compression, they all produce
+     *                   payloads any of them can read
+     * @return the shared fields encoded in the format and compressed, or the plain encoding if the
+     * compression doesn't apply to it
+     */
+    public synchronized byte[] encodeCompressed(WireFormatEnum format, MessageCompressor compressor){
+        byte[] compressed = compressedEncodings.get(format);
+        if(compressed == null){
+            compressed = compressor.compress(encode(format));
+            compressedEncodings.put(format, compressed);
+        }
+        return compressed;
+    }
+
+    /**
+     * @return how many times the shared fields have been serialized, once for every format used
+     */
+    public synchronized int getEncodingsCount() {
+        return encodingsCount;
+    }
+
+    /**
+     * Encodes a whole message in a format, as the MessageBroker would
+     * @param message the fields of the message
+     * @param format the format of the connection
+     * @return the payload of the message, before the framing
+     */
+    static byte[] encodeFields(Map<NetworkFieldEnum, Object> message, WireFormatEnum format){
+        if(format == WireFormatEnum.BINARY) return BinaryCodec.encode(message);
+        return gson.toJson(message, mapType).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Builds the bytes written before the uncompressed shared message, so that together they read as
+     * a single message with the fields of both
+     * @param header the recipient fields, encoded in the same format
+     * @param shared the shared fields, encoded
+     * @param format the format of both
+     * @return the bytes to write before the shared message, which is written from sharedOffset()
+     */
+    static byte[] splicePrefix(byte[] header, byte[] shared, WireFormatEnum format){
+        if(format == WireFormatEnum.BINARY) return BinaryCodec.splicePrefix(header, shared);
+
+        // {"header":1} followed by {"shared":2} becomes {"header":1,"shared":2}
+        if(header.length <= 2) return new byte[]{'{'};
+        byte[] prefix = new byte[header.length];
+        System.arraycopy(header, 0, prefix, 0, header.length - 1);
+        prefix[header.length - 1] = ',';
+        return prefix;
+    }
+
+    /**
+     * @param shared the shared fields, encoded
+     * @param format the format of the shared fields
+     * @return the position in the shared message from which it's written after splicePrefix()
+     */
+    static int sharedOffset(byte[] shared, WireFormatEnum format){
+        if(format == WireFormatEnum.BINARY) return BinaryCodec.fieldsCountLength(shared);
+        return 1; // the opening brace, written by the prefix
+    }
+
+    /**
+     * Builds the bytes written before the compressed shared message
+     * @param header the recipient fields, encoded in the connection format
+     * @return the marker, the length of the header and the header
+     */
+    static byte[] compressedPrefix(byte[] header){
+        if(header.length > MAX_HEADER_BYTES) throw new IllegalArgumentException("Header too large");
+        byte[] prefix = new byte[3 + header.length];
+        prefix[0] = SHARED_MARKER;
+        prefix[1] = (byte) (header.length >>> 8);
+        prefix[2] = (byte) header.length;
+        System.arraycopy(header, 0, prefix, 3, header.length);
+        return prefix;
+    }
+
+    /**
+     * @param payload the buffer containing the received payload
+     * @param length the amount of valid bytes in the buffer
+     * @return true if the payload is made of recipient fields and a compressed shared message
+     */
+    public static boolean isShared(byte[] payload, int length){
+        return length > 0 && payload[0] == SHARED_MARKER;
+    }
+}
@@ -0,0 +1,36 @@
+package it.polimi.ingsw.network;
+
+/**
+ * The ways a message can be delimited on the network. <br>
+ * BRACES is the original format: the json message is written as it is and its end is found by
+ * counting the curly brackets. <br>
+ * LENGTH_PREFIXED writes a 4 bytes (big endian) header with the length of the UTF-8 payload,
+ * which is then read in a single operation. It's requested by the client in the CONNECTION_REQUEST
+ * and used by both sides from the message after the reply onwards. <br>
+ * BINARY uses the same frames, but their payload is encoded by the BinaryCodec instead of gson.
+ * A server that doesn't accept it can still answer with LENGTH_PREFIXED
+ */
+public enum WireFormatEnum {
+    BRACES,
+    LENGTH_PREFIXED,
+    BINARY;
+
+    public static final int HEADER_BYTES = 4;
+    public static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+
+    /**
+     * @return true if the messages are preceded by the length header
+     */
+    public boolean isFramed(){
+        return this != BRACES;
+    }
+
+    /**
+     * Gets the enum value from the read object
+     * @param field the wire format in Object form
+     * @return the converted enum
+     */
+    public static WireFormatEnum fromObjectToEnum(Object field) {
+        return WireFormatEnum.valueOf((String)field);
+    }
+}
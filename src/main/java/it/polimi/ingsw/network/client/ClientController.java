@@ -5,6 +5,7 @@ import it.polimi.ingsw.controller.GameRuleEnum;
 import it.polimi.ingsw.model.TeamEnum;
 import it.polimi.ingsw.model.WizardEnum;
 import it.polimi.ingsw.model.beans.VirtualViewBean;
+import it.polimi.ingsw.model.beans.VirtualViewDeltaBean;
 import it.polimi.ingsw.model.game.PhaseEnum;
 import it.polimi.ingsw.network.*;
 import it.polimi.ingsw.network.connectionState.*;
@@ -24,6 +25,7 @@ public class ClientController {
 
     private UserInterface userInterface;
     private VirtualViewBean view;
+    private final VirtualViewReplica viewReplica = new VirtualViewReplica();
     private MessageBroker broker;
     private ConnectionState gameState;
     private GameRuleEnum chosenRule;
@@ -140,7 +142,7 @@ public class ClientController {
         }
         else {
             userInterface.clearCommands();
-            gameState = new WaitingForControl();
+            gameState = FactoryConnectionState.getState(ConnectionStateEnum.WAITING_FOR_CONTROL);
             allowStateCommands();
             userInterface.showGameCommandSuccess(); // can be omitted maybe
 
@@ -154,7 +156,7 @@ public class ClientController {
         }
         else {
             userInterface.clearCommands();
-            gameState = new StudentMoving(chosenRule);
+            gameState = FactoryConnectionState.getState(ConnectionStateEnum.STUDENT_MOVING, chosenRule);
             allowStateCommands();
 
             userInterface.showGameCommandSuccess(); // can be omitted maybe
@@ -170,10 +172,10 @@ public class ClientController {
             userInterface.clearCommands();
             boolean moreStudentsToMove = (boolean) broker.readField(NetworkFieldEnum.MORE_STUDENTS_TO_MOVE);
             if(moreStudentsToMove){
-                gameState = new StudentChoosing(chosenRule);
+                gameState = FactoryConnectionState.getState(ConnectionStateEnum.STUDENT_CHOOSING, chosenRule);
             }
             else {
-                gameState = new MNMoving(chosenRule);
+                gameState = FactoryConnectionState.getState(ConnectionStateEnum.MN_MOVING, chosenRule);
             }
             allowStateCommands();
             userInterface.showGameCommandSuccess(); // can be omitted maybe
@@ -190,10 +192,10 @@ public class ClientController {
             userInterface.clearCommands();
             boolean moreStudentsToMove = (boolean) broker.readField(NetworkFieldEnum.MORE_STUDENTS_TO_MOVE);
             if(moreStudentsToMove){
-                gameState = new StudentChoosing(chosenRule);
+                gameState = FactoryConnectionState.getState(ConnectionStateEnum.STUDENT_CHOOSING, chosenRule);
             }
             else {
-                gameState = new MNMoving(chosenRule);
+                gameState = FactoryConnectionState.getState(ConnectionStateEnum.MN_MOVING, chosenRule);
             }
             allowStateCommands();
             userInterface.showGameCommandSuccess(); // can be omitted maybe
@@ -208,7 +210,7 @@ public class ClientController {
         }
         else {
             userInterface.clearCommands();
-            gameState = new StudentChoosing(chosenRule);
+            gameState = FactoryConnectionState.getState(ConnectionStateEnum.STUDENT_CHOOSING, chosenRule);
             allowStateCommands();
             userInterface.showGameCommandSuccess(); // can be omitted maybe
         }
@@ -221,7 +223,7 @@ public class ClientController {
         }
         else {
             userInterface.clearCommands();
-            gameState = new CloudChoosing(chosenRule);
+            gameState = FactoryConnectionState.getState(ConnectionStateEnum.CLOUD_CHOOSING, chosenRule);
             allowStateCommands();
             userInterface.showGameCommandSuccess(); // can be omitted maybe
 
@@ -235,7 +237,7 @@ public class ClientController {
         }
         else {
             userInterface.clearCommands();
-            gameState = new EndTurn(chosenRule);
+            gameState = FactoryConnectionState.getState(ConnectionStateEnum.END_TURN, chosenRule);
             allowStateCommands();
             userInterface.showGameCommandSuccess(); // can be omitted maybe
 
@@ -249,7 +251,7 @@ public class ClientController {
         }
         else {
             userInterface.clearCommands();
-            gameState = new WaitingForControl();
+            gameState = FactoryConnectionState.getState(ConnectionStateEnum.WAITING_FOR_CONTROL);
             allowStateCommands();
             userInterface.showGameCommandSuccess(); // can be omitted maybe
 
@@ -270,7 +272,7 @@ public class ClientController {
             int colorsRequired = ApplicationHelper.getIntFromBrokerField(broker.readField(NetworkFieldEnum.COLORS_REQUIRED));
 
             userInterface.clearCommands();
-            gameState = new CharacterCardActivation();
+            gameState = FactoryConnectionState.getState(ConnectionStateEnum.CHARACTER_CARD_ACTIVATION);
             allowStateCommands();
             userInterface.setCardRequirements(islandsRequired, studentsOnCardRequired, studentsAtEntranceRequired, colorsRequired);
             userInterface.showGameCommandSuccess(); // can be omitted maybe
@@ -361,8 +363,7 @@ public class ClientController {
     //<editor-fold desc="Asynchronous commands">
 
     public void handleLobbyUpdate(){
-        LobbyBean lobbyBean = BeanTranslator.deserializeLobbyBean
-                ((LinkedTreeMap<String, Object>) broker.readAsyncField(NetworkFieldEnum.BEAN));
+        LobbyBean lobbyBean = BeanTranslator.readLobbyBean(broker.readAsyncField(NetworkFieldEnum.BEAN));
         if(lobbyBean == null) return;
         userInterface.printLobby(lobbyBean);
     }
@@ -373,8 +374,7 @@ public class ClientController {
     }
 
     public void handleGameInitUpdate(){
-        GameInitBean gameInitBean = BeanTranslator.deserializeGameInitBean
-                ((LinkedTreeMap<String, Object>) broker.readAsyncField(NetworkFieldEnum.BEAN));
+        GameInitBean gameInitBean = BeanTranslator.readGameInitBean(broker.readAsyncField(NetworkFieldEnum.BEAN));
         if(gameInitBean == null) return;
         userInterface.printGameInitInfo(gameInitBean);
     }
@@ -383,7 +383,7 @@ public class ClientController {
         userInterface.setGameStarting(); //This will make the other method, showTowerAndWizardSelection, return
                                         // after the atomic boolean has been set
         userInterface.clearCommands();
-        gameState = new WaitingForControl();
+        gameState = FactoryConnectionState.getState(ConnectionStateEnum.WAITING_FOR_CONTROL);
         allowStateCommands();
     }
 
@@ -395,10 +395,10 @@ public class ClientController {
 
         userInterface.clearCommands();
         if(phase.equals(PhaseEnum.PLANNING)){
-            gameState = new PlanningPhaseTurn();
+            gameState = FactoryConnectionState.getState(ConnectionStateEnum.PLANNING_PHASE_TURN);
         }
         else {
-            gameState = new StudentChoosing(chosenRule);
+            gameState = FactoryConnectionState.getState(ConnectionStateEnum.STUDENT_CHOOSING, chosenRule);
         }
         allowStateCommands();
 
@@ -409,21 +409,32 @@ public class ClientController {
 
 
 
-    public void handleGameUpdate(){
+    /**
+     * Updates the view, either patching the local copy with the received delta or replacing it
+     * @return false if the delta couldn't be applied because an update was missed,
+     * in which case the complete view has to be requested
+     */
+    public boolean handleGameUpdate(){
         //update the beans, either giving them to the ui and then calling update() with the available beans,
         // or directly calling the method passing the beans as parameter
-        VirtualViewBean receivedViewBean = BeanTranslator.deserializeViewBean(
-                (LinkedTreeMap<String, Object>) broker.readAsyncField(NetworkFieldEnum.ASYNC_VIEW));
-        this.view = receivedViewBean;
+        Object receivedDelta = broker.readAsyncField(NetworkFieldEnum.ASYNC_VIEW_DELTA);
+        if(receivedDelta != null){
+            VirtualViewDeltaBean viewDelta = BeanTranslator.readViewDeltaBean(receivedDelta);
+            if(!viewReplica.apply(viewDelta)) return false;
+            this.view = viewReplica.render();
+        }
+        else {
+            this.view = BeanTranslator.readViewBean(broker.readAsyncField(NetworkFieldEnum.ASYNC_VIEW));
+        }
         userInterface.printGameInterface(view);
         userInterface.setUpdateAvailable(true);
-
+        return true;
     }
 
     public void handleGameWon(){
         TeamEnum winner = TeamEnum.fromObjectToEnum(broker.readAsyncField(NetworkFieldEnum.ASYNC_WINNER));
         userInterface.clearCommands();
-        gameState = new LookingForLobby();
+        gameState = FactoryConnectionState.getState(ConnectionStateEnum.LOOKING_FOR_LOBBY);
         allowStateCommands();
         userInterface.setGameWon(winner);
     }
@@ -433,7 +444,7 @@ public class ClientController {
         // We call this to wake up the main game interface
         String problemUser = (String)(broker.readAsyncField(NetworkFieldEnum.ASYNC_USER_NICKNAME));
         userInterface.showUserDisconnected(problemUser);
-        this.gameState = new LookingForLobby();
+        this.gameState = FactoryConnectionState.getState(ConnectionStateEnum.LOOKING_FOR_LOBBY);
         allowStateCommands();
     }
 
@@ -13,7 +13,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
 /**
  * This class receives messages from the server, whether synchronous (initiated by the client in the
  * Sender) or asynchronous (receieved from the server as a result of another user's command)
- * This class doesn't deal with the ping routine
+ * This class doesn't deal with the ping routine, it only discards the replies to the pings
+ * sent on the main socket
  */
 public class ClientReceiver {
 
@@ -103,6 +104,7 @@ public class ClientReceiver {
                 while (connected.get()) {
                     try {
                         mainBroker.receive(inputStream);
+                        initialConnector.notifyMessageReceived();
                     } catch (IOException e) {
                         closeConnection();
                     }
@@ -133,6 +135,12 @@ public class ClientReceiver {
                 continue;
             }
 
+            // The replies to the pings only matter for having been received
+            if(CommandEnum.PONG.equals(CommandEnum.fromObjectToEnum(mainBroker.readField(NetworkFieldEnum.COMMAND)))){
+                mainBroker.flushFirstSyncMessage();
+                continue;
+            }
+
             isCommandScheduled.set(false);
 
             if(!checkCorrectIdRequest()) continue;
@@ -209,7 +217,9 @@ public class ClientReceiver {
                         case SERVER_GAME_INITIALIZATION_STATUS -> clientController.handleGameInitUpdate();
                         case SERVER_GAME_START -> clientController.handleGameStart();
                         case SERVER_YOUR_TURN -> clientController.handleTurnUpdate();
-                        case SERVER_GAME_UPDATE -> clientController.handleGameUpdate();
+                        case SERVER_GAME_UPDATE -> {
+                            if(!clientController.handleGameUpdate()) initialConnector.requestViewResync();
+                        }
                         case SERVER_GAME_WON -> clientController.handleGameWon();
                         case SERVER_USER_DISCONNECTED -> clientController.handleUserDisconnection();
                         default -> closeConnection();
@@ -7,6 +7,7 @@ import it.polimi.ingsw.model.WizardEnum;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
 import it.polimi.ingsw.network.NetworkFieldEnum;
+import it.polimi.ingsw.network.Preferences;
 
 import java.io.IOException;
 import java.io.OutputStream;
@@ -16,7 +17,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
 /**
  * This class is only tasked to send messages to the server, it doesn't check
  * their respective answers, which will be left to the Receiver
- * This class doesn't deal with the ping routine
+ * This class doesn't deal with the ping routine, but it shares the output stream with it
+ * when the pings are sent on the main socket
  */
 public class ClientSender {
 
@@ -74,6 +76,9 @@ public class ClientSender {
 
         mainBroker.addToMessage(NetworkFieldEnum.COMMAND, CommandEnum.CONNECTION_REQUEST);
         mainBroker.addToMessage(NetworkFieldEnum.NICKNAME, nickname);
+        mainBroker.addToMessage(NetworkFieldEnum.WIRE_FORMAT, Preferences.readWireFormatFromJson());
+        if(Preferences.readCompressionFromJson()) mainBroker.addToMessage(NetworkFieldEnum.COMPRESSION, true);
+        if(Preferences.readHeartbeatFromJson()) mainBroker.addToMessage(NetworkFieldEnum.HEARTBEAT, true);
 
         sendToServer();
         return true;
@@ -86,6 +91,17 @@ public class ClientSender {
      * @return true if the message was successfully sent, false if nothing was sent to the server
      */
     public boolean sendGameModePreference(int gamemode, int numPlayers){
+        return sendGameModePreference(gamemode, numPlayers, false);
+    }
+
+    /**
+     * Sends the gamerule preferences to the server
+     * @param gamemode the gamemode chosen, "1" for Simple, "2" for Advanced
+     * @param numPlayers the number of players chosen
+     * @param quickMatch true if the game must start as soon as the lobby is full, without the players being ready
+     * @return true if the message was successfully sent, false if nothing was sent to the server
+     */
+    public boolean sendGameModePreference(int gamemode, int numPlayers, boolean quickMatch){
 
         GameRuleEnum rule;
         //Converts the input to a gamerule
@@ -98,6 +114,7 @@ public class ClientSender {
 
         mainBroker.addToMessage(NetworkFieldEnum.COMMAND, CommandEnum.PLAY_GAME);
         mainBroker.addToMessage(NetworkFieldEnum.GAME_RULE, rule);
+        if(quickMatch) mainBroker.addToMessage(NetworkFieldEnum.QUICK_MATCH, true);
 
         sendToServer();
 
@@ -350,12 +367,15 @@ public class ClientSender {
         addIdUser();
 
         try{
-            mainBroker.send(outputStream);
+            synchronized (outputStream) { // The pings may be written on the same stream
+                mainBroker.send(outputStream);
+            }
         }
         catch (IOException e){
             initialConnector.notifyNetworkError("Couldn't send the message to the server, closing...");
             return false;
         }
+        initialConnector.notifyMessageSent();
 
         return true;
     }
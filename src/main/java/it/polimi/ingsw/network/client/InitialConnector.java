@@ -2,6 +2,7 @@ package it.polimi.ingsw.network.client;
 
 import it.polimi.ingsw.network.ConnectionFailedException;
 import it.polimi.ingsw.network.MessageBroker;
+import it.polimi.ingsw.network.Preferences;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -14,7 +15,9 @@ import java.util.concurrent.locks.ReentrantLock;
 /**
  * This class is used to initialize the connection between the client and the server
  * It manages the coordination between the sender and receiver classes, and holds
- * the shared resources between the two
+ * the shared resources between the two <br>
+ * The pings are sent on the main socket when the server accepts the HEARTBEAT asked in the
+ * CONNECTION_REQUEST, otherwise a second socket is opened for them
  */
 public class InitialConnector {
     private ClientSender sender;
@@ -31,6 +34,7 @@ public class InitialConnector {
     private AtomicBoolean isCommandScheduled; //Related to the main broker
 
     private int currentIdRequest;
+    private volatile long lastSentMillis, lastReceivedMillis; // traffic on the main socket, pings included
 
     public InitialConnector(String hostname, int portNumber){
         this.hostname = hostname;
@@ -90,7 +94,8 @@ public class InitialConnector {
 
         try {
             mainSocket = connect(hostname,portNumber);
-            pingSocket = connect(hostname,portNumber);
+            // The second socket is opened right away only if the pings won't be asked on the main one
+            pingSocket = Preferences.readHeartbeatFromJson() ? null : connect(hostname,pingPortNumber);
         } catch (ConnectionFailedException e){
             notifyNetworkError(e.getErrorMessage());
             return false;
@@ -104,7 +109,8 @@ public class InitialConnector {
             return false;
         }
 
-        this.pingHandler = new PingHandler(this, pingBroker, pingSocket);
+        lastSentMillis = System.currentTimeMillis();
+        lastReceivedMillis = lastSentMillis;
 
         //Start the sender
         sender.initialize(outputStream, mainBroker, connected, isCommandScheduled);
@@ -181,7 +187,7 @@ public class InitialConnector {
         connected.set(false);
         try{
             mainSocket.close();
-            pingSocket.close();
+            if(pingSocket != null) pingSocket.close();
             System.err.println("Sockets closed");
         }
         catch (IOException | NullPointerException e){
@@ -191,12 +197,32 @@ public class InitialConnector {
 
     /**
      * Actions to take once the connection is established
-     * - Starts the ping routine
+     * - Starts the ping routine, on the main socket if the server accepted it
+     *   or on a second socket otherwise
      * - Sets the user id for all the network components that require it
      */
     public void loginSuccessful(int idUser) {
 
         sender.assignIdUser(idUser);
+
+        if(mainBroker.isHeartbeatOnMainSocket()){
+            // The pings are written on the main stream with their own broker, and their replies
+            // are discarded by the receiver
+            pingHandler = new PingHandler(this, mainBroker.newControlBroker(), mainSocket);
+            pingHandler.assignIdUser(idUser);
+            this.pingThread = pingHandler.startHeartbeat();
+            return;
+        }
+
+        if(pingSocket == null){ // The server refused the heartbeat
+            try {
+                pingSocket = connect(hostname, pingPortNumber);
+            } catch (ConnectionFailedException e) {
+                notifyNetworkError(e.getErrorMessage());
+                return;
+            }
+        }
+        pingHandler = new PingHandler(this, pingBroker, pingSocket);
         pingHandler.assignIdUser(idUser);
         this.pingThread = pingHandler.startPinging();
         //start the user's ping routine in a new thread, this will send messages
@@ -204,6 +230,36 @@ public class InitialConnector {
 
     }
 
+    /**
+     * Called by the sender after writing a message on the main socket
+     */
+    public void notifyMessageSent() {
+        lastSentMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Called by the receiver after reading a message from the main socket
+     */
+    public void notifyMessageReceived() {
+        lastReceivedMillis = System.currentTimeMillis();
+    }
+
+    public long getLastSentMillis() {
+        return lastSentMillis;
+    }
+
+    public long getLastReceivedMillis() {
+        return lastReceivedMillis;
+    }
+
+    /**
+     * Called by the receiver when an update of the game view was missed,
+     * the request reaches the server with the next ping
+     */
+    public void requestViewResync() {
+        if(pingHandler != null) pingHandler.requestViewResync();
+    }
+
     public void setSender(ClientSender sender) {
         this.sender = sender;
     }
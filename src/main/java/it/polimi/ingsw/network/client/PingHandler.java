@@ -8,7 +8,14 @@ import java.io.OutputStream;
 import java.net.Socket;
 import java.time.Duration;
 import java.util.concurrent.*;
-
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the server aware that the client is still connected, and notices when the server isn't. <br>
+ * The pings are either sent on a socket of their own, waiting for each reply, or on the main
+ * socket when the server accepted the HEARTBEAT: they are then skipped while the client is
+ * sending commands anyway, and any message received counts as a reply
+ */
 public class PingHandler {
     private int progressiveIdPingRequest;
     private MessageBroker pingBroker;
@@ -18,12 +25,19 @@ public class PingHandler {
     private final Duration timeout = Duration.ofSeconds(PING_TIMEOUT_SECONDS);
     public static final int waitBetweenPingsMilliseconds = 1000;
     private int idUser;
+    private final AtomicBoolean viewResyncNeeded;
 
+    /**
+     * @param initialConnector the connector notified of the network errors
+     * @param pingBroker the broker used to send the pings
+     * @param pingSocket the socket dedicated to the pings, or the main socket when using startHeartbeat()
+     */
     public PingHandler(InitialConnector initialConnector, MessageBroker pingBroker, Socket pingSocket) {
         this.initialConnector = initialConnector;
         this.pingBroker = pingBroker;
         this.pingSocket = pingSocket;
         this.progressiveIdPingRequest = 0;
+        this.viewResyncNeeded = new AtomicBoolean(false);
     }
 
     /**
@@ -83,6 +97,7 @@ public class PingHandler {
                     pingBroker.addToMessage(NetworkFieldEnum.ID_USER, idUser);
                     pingBroker.addToMessage(NetworkFieldEnum.COMMAND, CommandEnum.PING);
                     pingBroker.addToMessage(NetworkFieldEnum.ID_PING_REQUEST, increaseAndGetPingRequestId());
+                    if(viewResyncNeeded.getAndSet(false)) pingBroker.addToMessage(NetworkFieldEnum.VIEW_RESYNC, true);
 
                     try {
                         pingBroker.send(outStream);
@@ -139,6 +154,62 @@ public class PingHandler {
         return pingThread;
     }
 
+    /**
+     * Starts the ping thread on the main socket and returns. <br>
+     * Every waitBetweenPingsMilliseconds a ping is sent, unless another message was sent in the meantime
+     * or a view resync must be asked. The connection is considered lost when nothing at all was received
+     * for PING_TIMEOUT_SECONDS; the pongs themselves are read and discarded by the ClientReceiver
+     * @return the thread running the ping routine
+     */
+    public Thread startHeartbeat() {
+
+        Thread pingThread = new Thread(() -> {
+
+            OutputStream outStream;
+            try {
+                outStream = pingSocket.getOutputStream();
+            } catch (IOException e) {
+                initialConnector.notifyNetworkError("Couldn't get the output stream");
+                return;
+            }
+
+            while (initialConnector.isConnected()) {
+                try {
+                    Thread.sleep(waitBetweenPingsMilliseconds);
+                } catch (InterruptedException e) {
+                    return; // The connection is being reset
+                }
+
+                long now = System.currentTimeMillis();
+                if (now - initialConnector.getLastReceivedMillis() > timeout.toMillis()) {
+                    initialConnector.notifyNetworkError("Connection timed out");
+                    return;
+                }
+                // A command sent in the meantime already told the server that this client is alive
+                if (now - initialConnector.getLastSentMillis() < waitBetweenPingsMilliseconds
+                        && !viewResyncNeeded.get()) continue;
+
+                pingBroker.addToMessage(NetworkFieldEnum.ID_USER, idUser);
+                pingBroker.addToMessage(NetworkFieldEnum.COMMAND, CommandEnum.PING);
+                pingBroker.addToMessage(NetworkFieldEnum.ID_PING_REQUEST, increaseAndGetPingRequestId());
+                if(viewResyncNeeded.getAndSet(false)) pingBroker.addToMessage(NetworkFieldEnum.VIEW_RESYNC, true);
+
+                try {
+                    synchronized (outStream) { // Shared with the ClientSender
+                        pingBroker.send(outStream);
+                    }
+                } catch (IOException e) {
+                    initialConnector.notifyNetworkError("Ping routine couldn't send message");
+                    return;
+                }
+                initialConnector.notifyMessageSent();
+            }
+        });
+        pingThread.setName("PingThread");
+        pingThread.start();
+        return pingThread;
+    }
+
     /**
      * Increments the request id by one and returns it
      * @return the new request id
@@ -148,6 +219,14 @@ public class PingHandler {
         return progressiveIdPingRequest;
     }
 
+    /**
+     * Asks the server for the complete game view with the next ping,
+     * used when an update of the view was missed
+     */
+    public void requestViewResync(){
+        viewResyncNeeded.set(true);
+    }
+
     public void assignIdUser(int idUser) {
         this.idUser = idUser;
     }
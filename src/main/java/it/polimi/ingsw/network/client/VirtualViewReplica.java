@@ -0,0 +1,98 @@
+package it.polimi.ingsw.network.client;
+
+import it.polimi.ingsw.model.beans.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Client side copy of the virtual view, kept up to date with the deltas sent by the server. <br>
+ * The elements are kept by id, which follows the order in which the server created them,
+ * so the rendered view has the same ordering of the one built by the server
+ */
+public class VirtualViewReplica {
+
+    private final Map<Integer, GameElementBean> elements;
+    private int revision;
+    private boolean advanced;
+
+    public VirtualViewReplica(){
+        elements = new TreeMap<>();
+        revision = VirtualViewDeltaBean.COMPLETE_VIEW;
+        advanced = false;
+    }
+
+    /**
+     * Applies a delta received from the server
+     * @param delta the changes between its base revision and its revision
+     * @return false if the delta doesn't start from the revision held by this replica, which is left untouched:
+     * an update was missed and the complete view is needed
+     */
+    public synchronized boolean apply(VirtualViewDeltaBean delta){
+        if(delta.isCompleteView()) elements.clear();
+        else if(delta.getBaseRevision() != revision) return false;
+
+        for(VirtualViewDeltaBean.ChangedElement element : delta.getChangedElements())
+            elements.put(element.getId(), element.getBean());
+        for(Integer removedId : delta.getRemovedElements())
+            elements.remove(removedId);
+
+        revision = delta.getRevision();
+        advanced = delta.isAdvanced();
+        return true;
+    }
+
+    /**
+     * Builds the view from the elements held, in the same form of VirtualView.renderSimpleView()
+     * and VirtualView.renderAdvancedView()
+     * @return the current view
+     */
+    public synchronized VirtualViewBean render(){
+        List<CloudBean> clouds = new ArrayList<>();
+        List<CharacterCardBean> characters = new ArrayList<>();
+        List<IslandGroupBean> islands = new ArrayList<>();
+        List<AdvancedIslandGroupBean> advancedIslands = new ArrayList<>();
+        List<PlayerBean> players = new ArrayList<>();
+        List<AdvancedPlayerBean> advancedPlayers = new ArrayList<>();
+        List<ErrorBean> errors = new ArrayList<>();
+        GameBoardBean gameBoard = null;
+        AdvancedGameBoardBean advancedGameBoard = null;
+
+        for(GameElementBean bean : elements.values()){
+            switch (bean.getBeanType()) {
+                case CLOUD_BEAN -> clouds.add((CloudBean) bean);
+                case CHARACTER_CARD_BEAN -> characters.add((CharacterCardBean) bean);
+                case ISLANDGROUP_BEAN -> islands.add((IslandGroupBean) bean);
+                case ADVANCED_ISLANDGROUP_BEAN -> advancedIslands.add((AdvancedIslandGroupBean) bean);
+                case PLAYER_BEAN -> players.add((PlayerBean) bean);
+                case ADVANCED_PLAYER_BEAN -> advancedPlayers.add((AdvancedPlayerBean) bean);
+                case ERROR_BEAN -> errors.add((ErrorBean) bean);
+                case GAMEBOARD_BEAN -> gameBoard = (GameBoardBean) bean;
+                case ADVANCED_GAMEBOARD_BEAN -> advancedGameBoard = (AdvancedGameBoardBean) bean;
+                default -> { }
+            }
+        }
+        orderIslandBeans(islands);
+        orderIslandBeans(advancedIslands);
+
+        if(advanced) return new VirtualViewBean(clouds, characters, null, advancedIslands,
+                null, advancedPlayers, errors, null, advancedGameBoard);
+        return new VirtualViewBean(clouds, null, islands, null,
+                players, null, errors, gameBoard, null);
+    }
+
+    /**
+     * Orders the island groups by the lowest id of their islands, as the server does
+     * @param beans the list of beans to sort
+     */
+    private void orderIslandBeans(List<? extends IslandGroupBean> beans) {
+        beans.sort((x,y) -> x.getIdIslands().stream().min(Integer::compare).get()
+                            - y.getIdIslands().stream().min(Integer::compare).get());
+    }
+
+    public synchronized int getRevision() {
+        return revision;
+    }
+}
@@ -0,0 +1,148 @@
+package it.polimi.ingsw.network.commandHandler;
+
+import it.polimi.ingsw.controller.events.GameEventEnum;
+import it.polimi.ingsw.network.CommandEnum;
+import it.polimi.ingsw.network.MessageBroker;
+import it.polimi.ingsw.network.commandHandler.asynchronous.AsyncCommandHandler;
+import it.polimi.ingsw.network.commandHandler.synchronous.CommandHandler;
+import it.polimi.ingsw.network.server.ClientHandlerParameters;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The command handlers of the server, created once and shared by all the client handlers,
+ * since they keep no state of their own. <br>
+ * Each command is routed to its handler with a single lookup, and the server keeps track of how
+ * many times each command was handled and of how long it took
+ */
+public class CommandRegistry {
+
+    private static final Map<CommandEnum, CommandHandler<?>> commandHandlers = createCommandHandlers();
+    private static final Map<GameEventEnum, List<AsyncCommandHandler>> asyncHandlers = createAsyncHandlers();
+
+    // Indexed by the ordinal of the command
+    private static final AtomicLongArray invocations = new AtomicLongArray(CommandEnum.values().length);
+    private static final AtomicLongArray failures = new AtomicLongArray(CommandEnum.values().length);
+    private static final AtomicLongArray totalNanos = new AtomicLongArray(CommandEnum.values().length);
+    private static final AtomicLongArray maxNanos = new AtomicLongArray(CommandEnum.values().length);
+
+    /**
+     * We don't want to instantiate this class
+     */
+    private CommandRegistry(){}
+
+    private static Map<CommandEnum, CommandHandler<?>> createCommandHandlers(){
+        Map<CommandEnum, CommandHandler<?>> handlers = new EnumMap<>(CommandEnum.class);
+        for(CommandHandler<?> commandHandler : FactoryCommandHandler.getAllCommandHandlers()){
+            if(handlers.put(commandHandler.getCommandAccepted(), commandHandler) != null)
+                throw new IllegalStateException("Two handlers for " + commandHandler.getCommandAccepted());
+        }
+        return Collections.unmodifiableMap(handlers);
+    }
+
+    private static Map<GameEventEnum, List<AsyncCommandHandler>> createAsyncHandlers(){
+        Map<GameEventEnum, List<AsyncCommandHandler>> handlers = new EnumMap<>(GameEventEnum.class);
+        for(Map.Entry<GameEventEnum, List<AsyncCommandHandler>> entry : FactoryCommandHandler.getAsyncCommandHandlersByEvent().entrySet()){
+            handlers.put(entry.getKey(), List.copyOf(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(handlers);
+    }
+
+    /**
+     * Runs the handler of the command read by the broker
+     * @param command the command read
+     * @param messageBroker the broker containing the message with the command, on which the reply is written
+     * @param parameters the parameters of the connection that sent the command
+     * @return true if the command was executed successfully, false if it failed or has no handler
+     */
+    public static boolean dispatch(CommandEnum command, MessageBroker messageBroker, ClientHandlerParameters parameters){
+        CommandHandler<?> commandHandler = commandHandlers.get(command);
+        if(commandHandler == null) return false;
+
+        boolean successfulOperation;
+        long start = System.nanoTime();
+        try {
+            successfulOperation = commandHandler.executeCommand(messageBroker, parameters);
+        } catch (UnexecutableCommandException e) {
+            successfulOperation = false;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        int index = command.ordinal();
+        invocations.incrementAndGet(index);
+        if(!successfulOperation) failures.incrementAndGet(index);
+        totalNanos.addAndGet(index, elapsed);
+        maxNanos.accumulateAndGet(index, elapsed, Math::max);
+        return successfulOperation;
+    }
+
+    /**
+     * @param command a synchronous command
+     * @return the handler of the command, null if it has none
+     */
+    public static CommandHandler<?> getCommandHandler(CommandEnum command){
+        return commandHandlers.get(command);
+    }
+
+    /**
+     * @return the asynchronous command handlers triggered by each kind of event, the map can't be modified
+     */
+    public static Map<GameEventEnum, List<AsyncCommandHandler>> getAsyncHandlers(){
+        return asyncHandlers;
+    }
+
+    /**
+     * @return the amount of times the command was handled since the server started
+     */
+    public static long getInvocations(CommandEnum command){
+        return invocations.get(command.ordinal());
+    }
+
+    /**
+     * @return the amount of times the handler of the command didn't succeed
+     */
+    public static long getFailures(CommandEnum command){
+        return failures.get(command.ordinal());
+    }
+
+    /**
+     * @return the time spent handling the command, in nanoseconds
+     */
+    public static long getTotalNanos(CommandEnum command){
+        return totalNanos.get(command.ordinal());
+    }
+
+    /**
+     * @return the longest time spent handling the command once, in nanoseconds
+     */
+    public static long getMaxNanos(CommandEnum command){
+        return maxNanos.get(command.ordinal());
+    }
+
+    /**
+     * @return the average time spent handling the command, in nanoseconds, 0 if it was never handled
+     */
+    public static long getAverageNanos(CommandEnum command){
+        long count = getInvocations(command);
+        return count == 0 ? 0 : getTotalNanos(command) / count;
+    }
+
+    /**
+     * @return a line for each command handled so far, with its invocations and latency,
+     * printed with the compression report when the server is stopped
+     */
+    public static String getStatistics(){
+        StringBuilder statistics = new StringBuilder("Commands handled:\n");
+        for(CommandEnum command : commandHandlers.keySet()){
+            if(getInvocations(command) == 0) continue;
+            statistics.append(String.format("%-35s %8d handled, %8d failed, avg %7d us, max %7d us%n",
+                    command.name(), getInvocations(command), getFailures(command),
+                    getAverageNanos(command) / 1000, getMaxNanos(command) / 1000));
+        }
+        return statistics.toString();
+    }
+}
@@ -1,10 +1,13 @@
 package it.polimi.ingsw.network.commandHandler;
 
+import it.polimi.ingsw.controller.events.GameEventEnum;
 import it.polimi.ingsw.network.commandHandler.asynchronous.*;
 import it.polimi.ingsw.network.commandHandler.synchronous.*;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 public class FactoryCommandHandler {
 
@@ -12,9 +15,9 @@ public class FactoryCommandHandler {
      *
      * @return a list of all Synchronous command handlers
      */
-    public static List<CommandHandler> getAllCommandHandlers(){
+    public static List<CommandHandler<?>> getAllCommandHandlers(){
 
-        List<CommandHandler> commandHandlers = new ArrayList<>();
+        List<CommandHandler<?>> commandHandlers = new ArrayList<>();
         commandHandlers.add(new ChooseAssistantHandler());
         commandHandlers.add(new ChooseCloudHandler());
         commandHandlers.add(new ConnectionRequestHandler());
@@ -44,14 +47,11 @@ public class FactoryCommandHandler {
 
     /**
      * Gets all the asynchronous command handlers.
-     * The order in which these are returned, and thus the order in which
-     * they are queried by the client handler, matters as some updates have priority over others
+     * The commands are sent in the order of the events that trigger them, not in this one
      * @return a list of all the Async command handlers
      */
     public static List<AsyncCommandHandler> getAsyncCommandHandlers() {
         List<AsyncCommandHandler> asyncHandlers = new ArrayList<>();
-        //LobbyStart must come before GameInitUpdate!
-        // Do not change!
         asyncHandlers.add(new UserDisconnectedHandler());
         asyncHandlers.add(new LobbyStartHandler());
         asyncHandlers.add(new GameInitUpdateHandler());
@@ -63,4 +63,21 @@ public class FactoryCommandHandler {
 
         return asyncHandlers;
     }
+
+    /**
+     * Gets the asynchronous command handlers triggered by each kind of event
+     * @return the Async command handlers to run when an event of each kind is received
+     */
+    public static Map<GameEventEnum, List<AsyncCommandHandler>> getAsyncCommandHandlersByEvent() {
+        Map<GameEventEnum, List<AsyncCommandHandler>> handlersByEvent = new EnumMap<>(GameEventEnum.class);
+        for(GameEventEnum event : GameEventEnum.values()){
+            handlersByEvent.put(event, new ArrayList<>());
+        }
+        for(AsyncCommandHandler asyncHandler : getAsyncCommandHandlers()){
+            for(GameEventEnum event : asyncHandler.getTriggers()){
+                handlersByEvent.get(event).add(asyncHandler);
+            }
+        }
+        return handlersByEvent;
+    }
 }
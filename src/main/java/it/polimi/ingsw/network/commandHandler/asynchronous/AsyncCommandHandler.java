@@ -1,41 +1,77 @@
 package it.polimi.ingsw.network.commandHandler.asynchronous;
 
+import it.polimi.ingsw.controller.events.GameEvent;
+import it.polimi.ingsw.controller.events.GameEventEnum;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
-import it.polimi.ingsw.network.commandHandler.UnexecutableCommandException;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
 
+import java.util.EnumSet;
+
 /**
  * This class is to be extended by handlers of a single asynchronous network command started by the server
- * Each handler deals with one command, which must be assigned in the constructor
+ * Each handler deals with one command, and the events that trigger it, which must be assigned in the constructor
  */
 public abstract class AsyncCommandHandler {
 
     CommandEnum commandHandled;
+    EnumSet<GameEventEnum> triggers;
 
     public CommandEnum getCommandHandled() {
         return commandHandled;
     }
 
+    /**
+     * @return the kinds of event this handler sends its command for
+     */
+    public EnumSet<GameEventEnum> getTriggers() {
+        return triggers;
+    }
+
     /**
      * Each AsyncCommandHandler will execute a single command
      * @param messageBroker the broker on which to write the result of the command
      * @param parameters the parameters of this connection
+     * @param event the event the client is being told about
      * @return true if the command was executed successfully
      */
-    public abstract boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters);
+    public abstract boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters, GameEvent event);
 
     /**
-     * Each handler specifies on what condition they will send a command
-     * @param parameters the client handler parameters used to determine whether to take the action
-     * @return true if the condition that triggers the sending of the command is verified
+     * Executes the command for one of the recipients of a broadcast. The handlers whose message is
+     * the same for every recipient take it from the broadcast, so that it's built and encoded once
+     * @param messageBroker the broker on which to write the result of the command
+     * @param parameters the parameters of this connection
+     * @param event the event the client is being told about
+     * @param broadcast the messages already built for the other recipients of the same change
+     * @return true if the command was executed successfully
      */
-    public abstract boolean triggerCondition(ClientHandlerParameters parameters);
+    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters, GameEvent event, Broadcast broadcast){
+        return executeCommand(messageBroker, parameters, event);
+    }
+
+    /**
+     * @return true if the command carries the latest state of something, so that a message still
+     * waiting to be written can be replaced by a newer one
+     */
+    public boolean isLatestState(){
+        return false;
+    }
+
+    /**
+     * Called when the last message of this handler never reached the client, having been replaced
+     * before being written: the next one must cover what it contained
+     * @param parameters the parameters of this connection
+     */
+    public void onRetracted(ClientHandlerParameters parameters){
+    }
 
     /**
-     * Clears the condition that allowed this handler to trigger
+     * Each handler specifies on what condition they will send a command for an event they're triggered by
      * @param parameters the client handler parameters used to determine whether to take the action
+     * @param event the event received, which may no longer concern the client
+     * @return true if the client should be sent the command
      */
-    public abstract void clearCondition(ClientHandlerParameters parameters);
+    public abstract boolean triggerCondition(ClientHandlerParameters parameters, GameEvent event);
 
 }
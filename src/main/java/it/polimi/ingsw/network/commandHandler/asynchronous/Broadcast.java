@@ -0,0 +1,34 @@
+package it.polimi.ingsw.network.commandHandler.asynchronous;
+
+import it.polimi.ingsw.network.NetworkFieldEnum;
+import it.polimi.ingsw.network.SharedMessage;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * The messages shared by the recipients of the asynchronous commands caused by a single change,
+ * such as the players of a lobby after a move: the first recipient builds each message, the others
+ * reuse it together with its encodings
+ */
+public class Broadcast {
+
+    private final Map<Object, SharedMessage> messages = new HashMap<>();
+
+    /**
+     * @param key identifies the content of the message: recipients with the same key get the same message
+     * @param fieldsBuilder builds the shared fields, called only for the first recipient
+     * @return the message shared by the recipients with the same key
+     */
+    public synchronized SharedMessage getMessage(Object key, Supplier<Map<NetworkFieldEnum, Object>> fieldsBuilder){
+        return messages.computeIfAbsent(key, k -> new SharedMessage(fieldsBuilder.get()));
+    }
+
+    /**
+     * @return the amount of different messages built for this change
+     */
+    public synchronized int getMessagesCount(){
+        return messages.size();
+    }
+}
@@ -1,42 +1,62 @@
 package it.polimi.ingsw.network.commandHandler.asynchronous;
 
+import it.polimi.ingsw.controller.events.GameEvent;
+import it.polimi.ingsw.controller.events.GameEventEnum;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
 import it.polimi.ingsw.network.NetworkFieldEnum;
+import it.polimi.ingsw.network.SharedMessage;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
 import it.polimi.ingsw.view.GameInitBean;
 
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
 public class GameInitUpdateHandler extends AsyncCommandHandler {
 
     public GameInitUpdateHandler() {
         commandHandled = CommandEnum.SERVER_GAME_INITIALIZATION_STATUS;
+        triggers = EnumSet.of(GameEventEnum.PLAYER_CREATION_MODIFIED);
     }
 
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) {
-
-        if(!triggerCondition(parameters)) return false;
-        messageBroker.addToMessage(NetworkFieldEnum.COMMAND, commandHandled);
-
-        GameInitBean gameInitBean = new GameInitBean(
-                parameters.getUserController().getTowerColorsAvailable(),
-                parameters.getUserController().getWizardsAvailable()
-        );
-        messageBroker.addToMessage(NetworkFieldEnum.BEAN_TYPE, gameInitBean.getBeanType());
-        messageBroker.addToMessage(NetworkFieldEnum.BEAN, gameInitBean);
+    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters, GameEvent event) {
+        return executeCommand(messageBroker, parameters, event, new Broadcast());
+    }
 
+    /**
+     * Every player of the game gets the same choices left, built and encoded once
+     */
+    @Override
+    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters, GameEvent event, Broadcast broadcast) {
+
+        if(!triggerCondition(parameters, event)) return false;
+
+        SharedMessage status = broadcast.getMessage(List.of(commandHandled, parameters.getUserController()), () -> {
+            GameInitBean gameInitBean = new GameInitBean(
+                    parameters.getUserController().getTowerColorsAvailable(),
+                    parameters.getUserController().getWizardsAvailable()
+            );
+            Map<NetworkFieldEnum, Object> fields = new EnumMap<>(NetworkFieldEnum.class);
+            fields.put(NetworkFieldEnum.COMMAND, commandHandled);
+            fields.put(NetworkFieldEnum.BEAN_TYPE, gameInitBean.getBeanType());
+            fields.put(NetworkFieldEnum.BEAN, gameInitBean);
+            return fields;
+        });
+        messageBroker.setSharedPart(status);
         return true;
     }
 
     @Override
-    public boolean triggerCondition(ClientHandlerParameters parameters) {
-        if(parameters.getUserController() == null) return false;
-        return parameters.getUserController().isPlayerCreationModified();
+    public boolean isLatestState() {
+        return true;
     }
 
     @Override
-    public void clearCondition(ClientHandlerParameters parameters) {
-        if(parameters.getUserController() == null) return;
-        parameters.getUserController().setPlayerCreationModified(false);
+    public boolean triggerCondition(ClientHandlerParameters parameters, GameEvent event) {
+        if(parameters.getUserController() == null) return false;
+        return event.getSource() == parameters.getUserController();
     }
 }
@@ -1,36 +1,36 @@
 package it.polimi.ingsw.network.commandHandler.asynchronous;
 
+import it.polimi.ingsw.controller.events.GameEvent;
+import it.polimi.ingsw.controller.events.GameEventEnum;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
 import it.polimi.ingsw.network.NetworkFieldEnum;
-import it.polimi.ingsw.network.connectionState.WaitingForControl;
+import it.polimi.ingsw.network.connectionState.ConnectionStateEnum;
+import it.polimi.ingsw.network.connectionState.FactoryConnectionState;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
 
+import java.util.EnumSet;
+
 public class GameStartHandler extends AsyncCommandHandler {
 
     public GameStartHandler() {
         commandHandled = CommandEnum.SERVER_GAME_START;
+        triggers = EnumSet.of(GameEventEnum.GAME_STARTED);
     }
 
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) {
-        if(!triggerCondition(parameters)) return false;
+    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters, GameEvent event) {
+        if(!triggerCondition(parameters, event)) return false;
 
-        parameters.setConnectionState(new WaitingForControl());
+        parameters.setConnectionState(FactoryConnectionState.getState(ConnectionStateEnum.WAITING_FOR_CONTROL));
         messageBroker.addToMessage(NetworkFieldEnum.COMMAND, commandHandled);
 
         return true;
     }
 
     @Override
-    public boolean triggerCondition(ClientHandlerParameters parameters) {
+    public boolean triggerCondition(ClientHandlerParameters parameters, GameEvent event) {
         if(parameters.getUserController() == null) return false;
-        return parameters.getUserController().isGameStarted();
-    }
-
-    @Override
-    public void clearCondition(ClientHandlerParameters parameters) {
-        if(parameters.getUserController() == null) return;
-        parameters.getUserController().unsetGameStarted();
+        return event.getSource() == parameters.getUserController();
     }
 }
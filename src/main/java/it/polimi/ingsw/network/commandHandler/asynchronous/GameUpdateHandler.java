@@ -1,38 +1,76 @@
 package it.polimi.ingsw.network.commandHandler.asynchronous;
 
-import it.polimi.ingsw.model.beans.VirtualViewBean;
+import it.polimi.ingsw.controller.events.GameEvent;
+import it.polimi.ingsw.controller.events.GameEventEnum;
+import it.polimi.ingsw.controller.Controller;
+import it.polimi.ingsw.model.beans.VirtualViewDeltaBean;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
 import it.polimi.ingsw.network.NetworkFieldEnum;
+import it.polimi.ingsw.network.SharedMessage;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
 
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
 public class GameUpdateHandler extends AsyncCommandHandler {
 
     public GameUpdateHandler() {
         commandHandled = CommandEnum.SERVER_GAME_UPDATE;
+        triggers = EnumSet.of(GameEventEnum.GAME_UPDATED);
     }
 
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) {
+    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters, GameEvent event) {
+        return executeCommand(messageBroker, parameters, event, new Broadcast());
+    }
 
-        if(!triggerCondition(parameters)) return false;
+    /**
+     * The players that received the same updates so far get the same delta, rendered and encoded once
+     */
+    @Override
+    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters, GameEvent event, Broadcast broadcast) {
 
-        messageBroker.addToMessage(NetworkFieldEnum.COMMAND, commandHandled);
-        //todo do we send a single bean containing all other beans? might be best
-        VirtualViewBean viewBean = parameters.getUserController().getView();
-        messageBroker.addToMessage(NetworkFieldEnum.ASYNC_VIEW, viewBean);
+        if(!triggerCondition(parameters, event)) return false;
+
+        // Only the elements changed since the last update are sent, everything if the client lost track
+        int sinceRevision = parameters.getLastViewRevision();
+        if(parameters.isViewResyncRequested()){
+            parameters.setViewResyncRequested(false);
+            sinceRevision = VirtualViewDeltaBean.COMPLETE_VIEW;
+        }
+        Controller controller = parameters.getUserController();
+        int since = sinceRevision;
+        SharedMessage update = broadcast.getMessage(List.of(commandHandled, controller, since), () -> {
+            Map<NetworkFieldEnum, Object> fields = new EnumMap<>(NetworkFieldEnum.class);
+            fields.put(NetworkFieldEnum.COMMAND, commandHandled);
+            fields.put(NetworkFieldEnum.ASYNC_VIEW_DELTA, controller.getViewChanges(since));
+            return fields;
+        });
+        messageBroker.setSharedPart(update);
+        parameters.setLastViewBaseRevision(since);
+        parameters.setLastViewRevision(((VirtualViewDeltaBean) update.getFields().get(NetworkFieldEnum.ASYNC_VIEW_DELTA)).getRevision());
         return true;
     }
 
     @Override
-    public boolean triggerCondition(ClientHandlerParameters parameters) {
-        if(parameters.getUserController() == null) return false;
-        return parameters.getUserController().isGameUpdated();
+    public boolean isLatestState() {
+        return true;
     }
 
+    /**
+     * The client never received the last delta, the next one starts from where that one did
+     */
     @Override
-    public void clearCondition(ClientHandlerParameters parameters) {
-        if(parameters.getUserController() == null) return;
-        parameters.getUserController().setGameUpdated(false);
+    public void onRetracted(ClientHandlerParameters parameters) {
+        parameters.setLastViewRevision(parameters.getLastViewBaseRevision());
+    }
+
+    @Override
+    public boolean triggerCondition(ClientHandlerParameters parameters, GameEvent event) {
+        if(parameters.getUserController() == null) return false;
+        return event.getSource() == parameters.getUserController();
     }
 }
@@ -1,49 +1,48 @@
 package it.polimi.ingsw.network.commandHandler.asynchronous;
 
+import it.polimi.ingsw.controller.events.GameEvent;
+import it.polimi.ingsw.controller.events.GameEventEnum;
 import it.polimi.ingsw.model.TeamEnum;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
 import it.polimi.ingsw.network.NetworkFieldEnum;
-import it.polimi.ingsw.network.connectionState.LookingForLobby;
+import it.polimi.ingsw.network.connectionState.ConnectionStateEnum;
+import it.polimi.ingsw.network.connectionState.FactoryConnectionState;
 import it.polimi.ingsw.network.server.ActiveGames;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
 
+import java.util.EnumSet;
+
 public class GameWonHandler extends AsyncCommandHandler{
 
     public GameWonHandler() {
         commandHandled = CommandEnum.SERVER_GAME_WON;
+        triggers = EnumSet.of(GameEventEnum.GAME_WON);
     }
 
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) {
-        if(!triggerCondition(parameters)) return false;
+    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters, GameEvent event) {
+        if(!triggerCondition(parameters, event)) return false;
         messageBroker.addToMessage(NetworkFieldEnum.COMMAND, commandHandled);
 
         TeamEnum winner = parameters.getUserController().getWinnerTeam();
         messageBroker.addToMessage(NetworkFieldEnum.ASYNC_WINNER, winner);
 
         //This command being executed means the game is over, and thus the controller should reflect this  new situation
-        parameters.setConnectionState(new LookingForLobby());
+        parameters.setConnectionState(FactoryConnectionState.getState(ConnectionStateEnum.LOOKING_FOR_LOBBY));
         parameters.setUserLobby(null);
         parameters.setUserController(null);
         ActiveGames.deleteUserAssociation(parameters.getIdUser());
+        // Take care of the controller and delete everything from the now finished game
+        ActiveGames.removeEndedGames();
+        //todo how do we delete the lobby though
 
         return true;
     }
 
     @Override
-    public boolean triggerCondition(ClientHandlerParameters parameters) {
+    public boolean triggerCondition(ClientHandlerParameters parameters, GameEvent event) {
         if(parameters.getUserController() == null) return false;
-        else return parameters.getUserController().isGameWon();
-    }
-
-    @Override
-    public void clearCondition(ClientHandlerParameters parameters) {
-        /* This event doesn't need be cleared, since the controller will
-            be killed regardless after the game is over.
-            Instead, take care of the controller and delete everything from the now finished game
-         */
-        ActiveGames.removeEndedGames();
-        //todo how do we delete the lobby though
+        else return event.getSource() == parameters.getUserController();
     }
 }
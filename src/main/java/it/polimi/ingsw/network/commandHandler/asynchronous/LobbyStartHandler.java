@@ -1,24 +1,30 @@
 package it.polimi.ingsw.network.commandHandler.asynchronous;
 
+import it.polimi.ingsw.controller.events.GameEvent;
+import it.polimi.ingsw.controller.events.GameEventEnum;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
 import it.polimi.ingsw.network.NetworkFieldEnum;
-import it.polimi.ingsw.network.connectionState.StartingGame;
+import it.polimi.ingsw.network.connectionState.ConnectionStateEnum;
+import it.polimi.ingsw.network.connectionState.FactoryConnectionState;
 import it.polimi.ingsw.network.server.ActiveGames;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
 
+import java.util.EnumSet;
+
 public class LobbyStartHandler extends AsyncCommandHandler {
 
     public LobbyStartHandler() {
         commandHandled = CommandEnum.SERVER_LOBBY_START;
+        triggers = EnumSet.of(GameEventEnum.LOBBY_STARTED);
     }
 
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) {
-        if(!triggerCondition(parameters)) return false;
+    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters, GameEvent event) {
+        if(!triggerCondition(parameters, event)) return false;
 
         // Put the user in the appropriate state
-        parameters.setConnectionState(new StartingGame());
+        parameters.setConnectionState(FactoryConnectionState.getState(ConnectionStateEnum.STARTING_GAME));
 
         if(parameters.getUserController() == null){
             parameters.setUserController(ActiveGames.getGameFromUserId(parameters.getIdUser()));
@@ -29,15 +35,8 @@ public class LobbyStartHandler extends AsyncCommandHandler {
     }
 
     @Override
-    public boolean triggerCondition(ClientHandlerParameters parameters) {
+    public boolean triggerCondition(ClientHandlerParameters parameters, GameEvent event) {
         if(parameters.getUserLobby() == null) return false;
-        else return parameters.getUserLobby().isGameStarted();
-    }
-
-    @Override
-    public void clearCondition(ClientHandlerParameters parameters) {
-        if(parameters.getUserLobby() != null){
-            parameters.getUserLobby().setStartGame(false);
-        }
+        else return event.getSource() == parameters.getUserLobby();
     }
 }
@@ -1,39 +1,59 @@
 package it.polimi.ingsw.network.commandHandler.asynchronous;
 
+import it.polimi.ingsw.controller.events.GameEvent;
+import it.polimi.ingsw.controller.events.GameEventEnum;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
 import it.polimi.ingsw.network.NetworkFieldEnum;
+import it.polimi.ingsw.network.SharedMessage;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
 import it.polimi.ingsw.view.LobbyBean;
 
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
 public class LobbyUpdateHandler extends AsyncCommandHandler {
 
     public LobbyUpdateHandler() {
         commandHandled = CommandEnum.SERVER_LOBBY_STATUS;
+        triggers = EnumSet.of(GameEventEnum.LOBBY_MODIFIED);
     }
 
     @Override
-    public boolean triggerCondition(ClientHandlerParameters parameters) {
-        if(parameters.getUserLobby() == null) return false;
-        return parameters.getUserLobby().isModified();
+    public boolean isLatestState() {
+        return true;
     }
 
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) {
-
-        if(!triggerCondition(parameters)) return false;
-        messageBroker.addToMessage(NetworkFieldEnum.COMMAND, commandHandled);
+    public boolean triggerCondition(ClientHandlerParameters parameters, GameEvent event) {
+        if(parameters.getUserLobby() == null) return false;
+        return event.getSource() == parameters.getUserLobby();
+    }
 
-        LobbyBean lobbyBean = parameters.getUserLobby().toBean();
-        messageBroker.addToMessage(NetworkFieldEnum.BEAN_TYPE, lobbyBean.getBeanType());
-        messageBroker.addToMessage(NetworkFieldEnum.BEAN, lobbyBean);
-        return true;
+    @Override
+    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters, GameEvent event) {
+        return executeCommand(messageBroker, parameters, event, new Broadcast());
     }
 
+    /**
+     * Every player of the lobby gets the same status, built and encoded once
+     */
     @Override
-    public void clearCondition(ClientHandlerParameters parameters) {
-        if(parameters.getUserLobby() != null){
-            parameters.getUserLobby().setModified(false);
-        }
+    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters, GameEvent event, Broadcast broadcast) {
+
+        if(!triggerCondition(parameters, event)) return false;
+
+        SharedMessage status = broadcast.getMessage(List.of(commandHandled, parameters.getUserLobby()), () -> {
+            LobbyBean lobbyBean = parameters.getUserLobby().toBean();
+            Map<NetworkFieldEnum, Object> fields = new EnumMap<>(NetworkFieldEnum.class);
+            fields.put(NetworkFieldEnum.COMMAND, commandHandled);
+            fields.put(NetworkFieldEnum.BEAN_TYPE, lobbyBean.getBeanType());
+            fields.put(NetworkFieldEnum.BEAN, lobbyBean);
+            return fields;
+        });
+        messageBroker.setSharedPart(status);
+        return true;
     }
 }
@@ -1,27 +1,34 @@
 package it.polimi.ingsw.network.commandHandler.asynchronous;
 
+import it.polimi.ingsw.controller.events.GameEvent;
+import it.polimi.ingsw.controller.events.GameEventEnum;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
 import it.polimi.ingsw.network.NetworkFieldEnum;
-import it.polimi.ingsw.network.connectionState.LookingForLobby;
+import it.polimi.ingsw.network.connectionState.ConnectionStateEnum;
+import it.polimi.ingsw.network.connectionState.FactoryConnectionState;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
 
+import java.util.EnumSet;
+
 public class UserDisconnectedHandler extends AsyncCommandHandler {
 
     public UserDisconnectedHandler() {
         commandHandled = CommandEnum.SERVER_USER_DISCONNECTED;
+        triggers = EnumSet.of(GameEventEnum.USER_DISCONNECTED);
     }
 
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) {
-        if(!triggerCondition(parameters)) return false;
+    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters, GameEvent event) {
+        if(!triggerCondition(parameters, event)) return false;
 
+        GameEvent.UserDisconnected disconnection = (GameEvent.UserDisconnected) event;
         messageBroker.addToMessage(NetworkFieldEnum.COMMAND, commandHandled);
-        messageBroker.addToMessage(NetworkFieldEnum.ASYNC_ID_USER, parameters.getUserController().getDisconnectedUserId());
-        messageBroker.addToMessage(NetworkFieldEnum.ASYNC_USER_NICKNAME, parameters.getUserController().getDisconnectedUserNickname());
+        messageBroker.addToMessage(NetworkFieldEnum.ASYNC_ID_USER, disconnection.idUser());
+        messageBroker.addToMessage(NetworkFieldEnum.ASYNC_USER_NICKNAME, disconnection.nickname());
 
         //We go back to the lobby
-        parameters.setConnectionState(new LookingForLobby());
+        parameters.setConnectionState(FactoryConnectionState.getState(ConnectionStateEnum.LOOKING_FOR_LOBBY));
 
         parameters.setUserLobby(null);
         parameters.setUserController(null);
@@ -30,16 +37,8 @@ public class UserDisconnectedHandler extends AsyncCommandHandler {
     }
 
     @Override
-    public boolean triggerCondition(ClientHandlerParameters parameters) {
+    public boolean triggerCondition(ClientHandlerParameters parameters, GameEvent event) {
         if(parameters.getUserController() == null) return false;
-        else {
-            return parameters.getUserController().isNetworkError();
-        }
-    }
-
-    @Override
-    public void clearCondition(ClientHandlerParameters parameters) {
-        //If this catastrophic event happens, we don't want to clear the condition.
-        // Theoretically, the client handlers will stop and not query this again
+        else return event.getSource() == parameters.getUserController();
     }
 }
@@ -1,52 +1,50 @@
 package it.polimi.ingsw.network.commandHandler.asynchronous;
 
+import it.polimi.ingsw.controller.events.GameEvent;
+import it.polimi.ingsw.controller.events.GameEventEnum;
 import it.polimi.ingsw.model.game.PhaseEnum;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
 import it.polimi.ingsw.network.NetworkFieldEnum;
-import it.polimi.ingsw.network.connectionState.PlanningPhaseTurn;
-import it.polimi.ingsw.network.connectionState.StudentChoosing;
+import it.polimi.ingsw.network.connectionState.ConnectionStateEnum;
+import it.polimi.ingsw.network.connectionState.FactoryConnectionState;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
 
+import java.util.EnumSet;
+
 public class YourTurnHandler extends AsyncCommandHandler{
 
     public YourTurnHandler() {
         commandHandled = CommandEnum.SERVER_YOUR_TURN;
+        triggers = EnumSet.of(GameEventEnum.NEW_TURN);
     }
 
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) {
-        if(!triggerCondition(parameters)) return false;
+    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters, GameEvent event) {
+        if(!triggerCondition(parameters, event)) return false;
 
         messageBroker.addToMessage(NetworkFieldEnum.COMMAND, commandHandled);
         PhaseEnum currentPhase = parameters.getUserController().getGamePhase();
         messageBroker.addToMessage(NetworkFieldEnum.ASYNC_GAME_PHASE, currentPhase);
 
         if(currentPhase.equals(PhaseEnum.PLANNING)){
-            parameters.setConnectionState(new PlanningPhaseTurn());
+            parameters.setConnectionState(FactoryConnectionState.getState(ConnectionStateEnum.PLANNING_PHASE_TURN));
         }
         else if(currentPhase.equals(PhaseEnum.ACTION)){
-            parameters.setConnectionState(new StudentChoosing(parameters.getUserController().getGameRule()));
+            parameters.setConnectionState(FactoryConnectionState.getState(ConnectionStateEnum.STUDENT_CHOOSING, parameters.getUserController().getGameRule()));
         }
         return true;
     }
 
     @Override
-    public boolean triggerCondition(ClientHandlerParameters parameters) {
+    public boolean triggerCondition(ClientHandlerParameters parameters, GameEvent event) {
         if(parameters.getUserController() == null) return false;
         else {
-            if(parameters.getUserController().isNewTurn() &&
+            if(event.getSource() == parameters.getUserController() &&
                     parameters.getUserController().isMyTurn(parameters.getIdUser())){
                 return true;
             }
         }
         return false;
     }
-
-    @Override
-    public void clearCondition(ClientHandlerParameters parameters) {
-        if(parameters.getUserController() != null) {
-            parameters.getUserController().setNewTurn(false);
-        }
-    }
 }
@@ -6,10 +6,11 @@ import it.polimi.ingsw.network.server.ClientHandlerParameters;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
 import it.polimi.ingsw.network.NetworkFieldEnum;
-import it.polimi.ingsw.network.connectionState.PlanningPhaseTurn;
-import it.polimi.ingsw.network.connectionState.StudentChoosing;
+import it.polimi.ingsw.network.connectionState.ConnectionStateEnum;
+import it.polimi.ingsw.network.connectionState.FactoryConnectionState;
+import it.polimi.ingsw.network.request.UserRequest;
 @Deprecated
-public class AskForControlHandler extends CommandHandler{
+public class AskForControlHandler extends CommandHandler<UserRequest>{
 
     /**
      * While waiting for their turn, the user periodically sends this message to ask for their turn to start
@@ -24,10 +25,10 @@ public class AskForControlHandler extends CommandHandler{
         PhaseEnum gamePhase = PhaseEnum.fromObjectToEnum(messageBroker.readField(NetworkFieldEnum.GAME_PHASE));
         if(parameters.getUserController().askForControl(parameters.getIdUser(), gamePhase)){
             if(gamePhase.equals(PhaseEnum.PLANNING)){
-                parameters.setConnectionState(new PlanningPhaseTurn());
+                parameters.setConnectionState(FactoryConnectionState.getState(ConnectionStateEnum.PLANNING_PHASE_TURN));
             }
             else if(gamePhase.equals(PhaseEnum.ACTION)){
-                parameters.setConnectionState(new StudentChoosing(parameters.getUserController().getGameRule()));
+                parameters.setConnectionState(FactoryConnectionState.getState(ConnectionStateEnum.STUDENT_CHOOSING, parameters.getUserController().getGameRule()));
             }
             notifySuccessfulOperation(messageBroker);
         }
@@ -1,14 +1,13 @@
 package it.polimi.ingsw.network.commandHandler.synchronous;
 
-import it.polimi.ingsw.network.ApplicationHelper;
-import it.polimi.ingsw.network.commandHandler.UnexecutableCommandException;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
-import it.polimi.ingsw.network.NetworkFieldEnum;
-import it.polimi.ingsw.network.connectionState.WaitingForControl;
+import it.polimi.ingsw.network.connectionState.ConnectionStateEnum;
+import it.polimi.ingsw.network.connectionState.FactoryConnectionState;
+import it.polimi.ingsw.network.request.ChoiceRequest;
 
-public class ChooseAssistantHandler extends CommandHandler{
+public class ChooseAssistantHandler extends CommandHandler<ChoiceRequest>{
 
     public ChooseAssistantHandler(){
         commandAccepted = CommandEnum.CHOOSE_ASSISTANT;
@@ -19,15 +18,12 @@ public class ChooseAssistantHandler extends CommandHandler{
      * if the assistant can't be played
      */
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) throws UnexecutableCommandException {
+    protected boolean executeRequest(ChoiceRequest request, MessageBroker messageBroker, ClientHandlerParameters parameters) {
 
-        CommandEnum readCommand = CommandEnum.fromObjectToEnum(messageBroker.readField(NetworkFieldEnum.COMMAND));
-        if(!checkHandleable(readCommand, commandAccepted)) throw new UnexecutableCommandException();
-
-        Integer idAssistant = ApplicationHelper.getIntFromBrokerField(messageBroker.readField(NetworkFieldEnum.ID_ASSISTANT));
+        int idAssistant = request.choice();
         if(parameters.getUserController().playAssistant(idAssistant)){
             notifySuccessfulOperation(messageBroker);
-            parameters.setConnectionState(new WaitingForControl());
+            parameters.setConnectionState(FactoryConnectionState.getState(ConnectionStateEnum.WAITING_FOR_CONTROL));
             return true;
         }
         else {
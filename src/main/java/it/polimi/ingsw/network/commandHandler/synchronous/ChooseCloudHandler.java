@@ -1,15 +1,13 @@
 package it.polimi.ingsw.network.commandHandler.synchronous;
 
-import it.polimi.ingsw.network.ApplicationHelper;
-import it.polimi.ingsw.network.commandHandler.UnexecutableCommandException;
-import it.polimi.ingsw.network.connectionState.EndTurn;
+import it.polimi.ingsw.network.connectionState.ConnectionStateEnum;
+import it.polimi.ingsw.network.connectionState.FactoryConnectionState;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
-import it.polimi.ingsw.network.NetworkFieldEnum;
-import it.polimi.ingsw.network.connectionState.WaitingForControl;
+import it.polimi.ingsw.network.request.ChoiceRequest;
 
-public class ChooseCloudHandler extends CommandHandler{
+public class ChooseCloudHandler extends CommandHandler<ChoiceRequest>{
 
     public ChooseCloudHandler(){
         commandAccepted = CommandEnum.CHOOSE_CLOUD;
@@ -19,14 +17,11 @@ public class ChooseCloudHandler extends CommandHandler{
      * The user chooses a cloud to refill their entrance with
      */
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) throws UnexecutableCommandException {
+    protected boolean executeRequest(ChoiceRequest request, MessageBroker messageBroker, ClientHandlerParameters parameters) {
 
-        CommandEnum readCommand = CommandEnum.fromObjectToEnum(messageBroker.readField(NetworkFieldEnum.COMMAND));
-        if(!checkHandleable(readCommand, commandAccepted)) throw new UnexecutableCommandException();
-
-        Integer idCloud = ApplicationHelper.getIntFromBrokerField(messageBroker.readField(NetworkFieldEnum.ID_CLOUD));
+        int idCloud = request.choice();
         if(parameters.getUserController().chooseCloud(idCloud)){
-            parameters.setConnectionState(new EndTurn(parameters.getUserController().getGameRule()));
+            parameters.setConnectionState(FactoryConnectionState.getState(ConnectionStateEnum.END_TURN, parameters.getUserController().getGameRule()));
             notifySuccessfulOperation(messageBroker);
             return true;
         }
@@ -5,25 +5,57 @@ import it.polimi.ingsw.network.server.ClientHandlerParameters;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
 import it.polimi.ingsw.network.NetworkFieldEnum;
+import it.polimi.ingsw.network.request.MalformedRequestException;
+import it.polimi.ingsw.network.request.Request;
 
 /**
  * This class is to be extended by handlers of a single network command
- * Each handler deals with one command, which must be assigned in the constructor
+ * Each handler deals with one command, which must be assigned in the constructor,
+ * and receives it already decoded as the request type R
  */
-public abstract class CommandHandler {
+public abstract class CommandHandler<R extends Request> {
 
     CommandEnum commandAccepted;
 
     /**
      * Processes the command stored inside the given messageBroker if it's responsibility of the specific class
-     * and replies to the Client
+     * and replies to the Client. <br>
+     * The message is decoded into its request, replying with an error if it's malformed, and then executed
      *
      * @param messageBroker The broker containing the message to execute
      * @param parameters    The clientHandler parameters containing all the fields the command is allowed to see and edit
      * @return true if the operation was successful. false if an occurred error should be brought to the attention of the server
      * @throws UnexecutableCommandException If the command is not this class' responsibility
      */
-    public abstract boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) throws UnexecutableCommandException;
+    @SuppressWarnings("unchecked")
+    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) throws UnexecutableCommandException {
+
+        CommandEnum readCommand = CommandEnum.fromObjectToEnum(messageBroker.readField(NetworkFieldEnum.COMMAND));
+        if(!checkHandleable(readCommand, commandAccepted)) throw new UnexecutableCommandException();
+
+        R request;
+        try {
+            request = (R) messageBroker.readRequest(); // RequestDecoders decodes each command into the same request type
+        } catch (MalformedRequestException e) {
+            notifyError(messageBroker, e.getMessage());
+            return false;
+        }
+        return executeRequest(request, messageBroker, parameters);
+    }
+
+    /**
+     * Executes the request of the command accepted by this handler and replies to the Client. <br>
+     * Handlers still reading the fields from the broker override executeCommand instead
+     *
+     * @param request       The request sent by the client, already validated
+     * @param messageBroker The broker where the reply is written
+     * @param parameters    The clientHandler parameters containing all the fields the command is allowed to see and edit
+     * @return true if the operation was successful. false if an occurred error should be brought to the attention of the server
+     * @throws UnexecutableCommandException If the handler doesn't execute decoded requests
+     */
+    protected boolean executeRequest(R request, MessageBroker messageBroker, ClientHandlerParameters parameters) throws UnexecutableCommandException {
+        throw new UnexecutableCommandException();
+    }
 
     /**
      * Returns the command enum value of the given object, if it's a variable
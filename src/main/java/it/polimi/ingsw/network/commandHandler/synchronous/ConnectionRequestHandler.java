@@ -1,13 +1,16 @@
 package it.polimi.ingsw.network.commandHandler.synchronous;
 
 import it.polimi.ingsw.network.*;
-import it.polimi.ingsw.network.commandHandler.UnexecutableCommandException;
-import it.polimi.ingsw.network.connectionState.LookingForLobby;
+import it.polimi.ingsw.network.connectionState.ConnectionStateEnum;
+import it.polimi.ingsw.network.connectionState.FactoryConnectionState;
 import it.polimi.ingsw.network.server.ActiveClients;
+import it.polimi.ingsw.network.server.ClientHandler;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
 import it.polimi.ingsw.network.server.LoginHandler;
+import it.polimi.ingsw.network.server.ResumableSessions;
+import it.polimi.ingsw.network.request.ConnectionRequest;
 
-public class ConnectionRequestHandler extends CommandHandler{
+public class ConnectionRequestHandler extends CommandHandler<ConnectionRequest>{
 
     public ConnectionRequestHandler(){
         commandAccepted = CommandEnum.CONNECTION_REQUEST;
@@ -15,17 +18,25 @@ public class ConnectionRequestHandler extends CommandHandler{
 
     /**
      * Handles the connections of a new user, checking whether their nickname
-     * satisfies the requirement of uniqueness
+     * satisfies the requirement of uniqueness. <br>
+     * Only the sessions asked to be resumable get a resume token, the others are dropped as soon as their
+     * connection is lost. A user sending the resume token of a suspended session takes it over instead,
+     * keeping their id; if the session expired they log in as a new user
      */
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) throws UnexecutableCommandException {
-
-        CommandEnum readCommand = CommandEnum.fromObjectToEnum(messageBroker.readField(NetworkFieldEnum.COMMAND));
-        if(!checkHandleable(readCommand, commandAccepted)) throw new UnexecutableCommandException();
+    protected boolean executeRequest(ConnectionRequest request, MessageBroker messageBroker, ClientHandlerParameters parameters) {
 
+        ClientHandler suspended = ResumableSessions.resume(request.resumeToken(), request.nickname());
+        if(suspended != null){
+            ActiveClients.getHandlerFromId(parameters.getIdUser()).resumeSession(suspended, request.lastAsyncIdRequest());
+            messageBroker.addToMessage(NetworkFieldEnum.ID_USER, parameters.getIdUser());
+            messageBroker.addToMessage(NetworkFieldEnum.RESUME_TOKEN, parameters.getResumeToken());
+            notifySuccessfulOperation(messageBroker);
+            return true;
+        }
 
         boolean loginSuccessful;
-        loginSuccessful= LoginHandler.login((String)messageBroker.readField(NetworkFieldEnum.NICKNAME),
+        loginSuccessful= LoginHandler.login(request.nickname(),
                                             parameters.getIdUser());
         if(!loginSuccessful){
             notifyError(messageBroker,"Nickname already taken");
@@ -35,9 +46,13 @@ public class ConnectionRequestHandler extends CommandHandler{
         }
         else {
             messageBroker.addToMessage(NetworkFieldEnum.ID_USER, parameters.getIdUser());
+            if(request.resumable()){
+                parameters.setResumeToken(ResumableSessions.newToken());
+                messageBroker.addToMessage(NetworkFieldEnum.RESUME_TOKEN, parameters.getResumeToken());
+            }
             notifySuccessfulOperation(messageBroker);
         }
-        parameters.setConnectionState(new LookingForLobby());
+        parameters.setConnectionState(FactoryConnectionState.getState(ConnectionStateEnum.LOOKING_FOR_LOBBY));
         return true;
     }
 }
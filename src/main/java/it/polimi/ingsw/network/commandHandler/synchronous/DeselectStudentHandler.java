@@ -1,14 +1,13 @@
 package it.polimi.ingsw.network.commandHandler.synchronous;
 
-import it.polimi.ingsw.network.ApplicationHelper;
-import it.polimi.ingsw.network.commandHandler.UnexecutableCommandException;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
-import it.polimi.ingsw.network.NetworkFieldEnum;
-import it.polimi.ingsw.network.connectionState.StudentChoosing;
+import it.polimi.ingsw.network.connectionState.ConnectionStateEnum;
+import it.polimi.ingsw.network.connectionState.FactoryConnectionState;
+import it.polimi.ingsw.network.request.UserRequest;
 
-public class DeselectStudentHandler extends CommandHandler{
+public class DeselectStudentHandler extends CommandHandler<UserRequest>{
 
     public DeselectStudentHandler(){
         commandAccepted = CommandEnum.DESELECT_STUDENT;
@@ -18,15 +17,12 @@ public class DeselectStudentHandler extends CommandHandler{
      * The user deselects the student
      */
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) throws UnexecutableCommandException {
+    protected boolean executeRequest(UserRequest request, MessageBroker messageBroker, ClientHandlerParameters parameters) {
 
-        CommandEnum readCommand = CommandEnum.fromObjectToEnum(messageBroker.readField(NetworkFieldEnum.COMMAND));
-        if(!checkHandleable(readCommand, commandAccepted)) throw new UnexecutableCommandException();
-
-//        Integer studentPosition = ApplicationHelper.getIntFromBrokerField(messageBroker.readField(NetworkFieldEnum.CHOSEN_ENTRANCE_STUDENT));
+//        int studentPosition = request.choice();
         if(parameters.getUserController().deselectStudent()){
             notifySuccessfulOperation(messageBroker);
-            parameters.setConnectionState(new StudentChoosing(parameters.getUserController().getGameRule()));
+            parameters.setConnectionState(FactoryConnectionState.getState(ConnectionStateEnum.STUDENT_CHOOSING, parameters.getUserController().getGameRule()));
             return true;
         }
         else {
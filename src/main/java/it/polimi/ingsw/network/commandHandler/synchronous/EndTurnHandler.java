@@ -2,12 +2,13 @@ package it.polimi.ingsw.network.commandHandler.synchronous;
 
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
-import it.polimi.ingsw.network.NetworkFieldEnum;
 import it.polimi.ingsw.network.commandHandler.UnexecutableCommandException;
-import it.polimi.ingsw.network.connectionState.WaitingForControl;
+import it.polimi.ingsw.network.connectionState.ConnectionStateEnum;
+import it.polimi.ingsw.network.connectionState.FactoryConnectionState;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
+import it.polimi.ingsw.network.request.UserRequest;
 
-public class EndTurnHandler extends CommandHandler{
+public class EndTurnHandler extends CommandHandler<UserRequest>{
 
     public EndTurnHandler(){
         commandAccepted = CommandEnum.END_TURN;
@@ -21,13 +22,10 @@ public class EndTurnHandler extends CommandHandler{
      * @throws UnexecutableCommandException if the command could not be executed by this handler
      */
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) throws UnexecutableCommandException {
-
-        CommandEnum readCommand = CommandEnum.fromObjectToEnum(messageBroker.readField(NetworkFieldEnum.COMMAND));
-        if(!checkHandleable(readCommand, commandAccepted)) throw new UnexecutableCommandException();
+    protected boolean executeRequest(UserRequest request, MessageBroker messageBroker, ClientHandlerParameters parameters) {
 
         if(parameters.getUserController().endTurn()){
-           parameters.setConnectionState(new WaitingForControl());
+           parameters.setConnectionState(FactoryConnectionState.getState(ConnectionStateEnum.WAITING_FOR_CONTROL));
            notifySuccessfulOperation(messageBroker);
            return true;
         }
@@ -6,31 +6,29 @@ import it.polimi.ingsw.network.server.ClientHandlerParameters;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
 import it.polimi.ingsw.network.NetworkFieldEnum;
-import it.polimi.ingsw.network.connectionState.WaitingForControl;
+import it.polimi.ingsw.network.connectionState.ConnectionStateEnum;
+import it.polimi.ingsw.network.connectionState.FactoryConnectionState;
+import it.polimi.ingsw.network.request.UserRequest;
 import it.polimi.ingsw.view.GameInitBean;
 
 @Deprecated
-public class GetGameInitializationStatus extends CommandHandler{
+public class GetGameInitializationStatus extends CommandHandler<UserRequest>{
 
     @Override
     public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) throws UnexecutableCommandException {
         CommandEnum readCommand = CommandEnum.fromObjectToEnum(messageBroker.readField(NetworkFieldEnum.COMMAND));
         if(!checkHandleable(readCommand, commandAccepted)) throw new UnexecutableCommandException();
 
-        parameters.getUserController().startLock.lock();
         try {
             if (parameters.getUserController().isGameStarted()) { // If the game has started here for this client...
-                parameters.setConnectionState(new WaitingForControl());
+                parameters.setConnectionState(FactoryConnectionState.getState(ConnectionStateEnum.WAITING_FOR_CONTROL));
             } else if (parameters.getUserController().startPlayingGame()) { // ...or starts here for everyone...
-                parameters.setConnectionState(new WaitingForControl());
+                parameters.setConnectionState(FactoryConnectionState.getState(ConnectionStateEnum.WAITING_FOR_CONTROL));
             }
         } catch(RuntimeException e){
             System.err.println("Error creating game");
             //quit game
         }
-        finally {
-          parameters.getUserController().startLock.unlock();
-        }
         GameInitBean gameInitBean = new GameInitBean(
                 parameters.getUserController().getTowerColorsAvailable(),
                 parameters.getUserController().getWizardsAvailable()
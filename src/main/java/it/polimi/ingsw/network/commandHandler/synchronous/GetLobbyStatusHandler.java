@@ -4,10 +4,11 @@ import it.polimi.ingsw.network.*;
 import it.polimi.ingsw.network.commandHandler.UnexecutableCommandException;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
 import it.polimi.ingsw.network.server.Lobby;
+import it.polimi.ingsw.network.request.UserRequest;
 import it.polimi.ingsw.view.LobbyBean;
 
 @Deprecated
-public class GetLobbyStatusHandler extends CommandHandler{
+public class GetLobbyStatusHandler extends CommandHandler<UserRequest>{
 
     @Override
     public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) throws UnexecutableCommandException {
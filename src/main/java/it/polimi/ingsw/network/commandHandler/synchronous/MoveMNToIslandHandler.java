@@ -1,14 +1,13 @@
 package it.polimi.ingsw.network.commandHandler.synchronous;
 
-import it.polimi.ingsw.network.ApplicationHelper;
-import it.polimi.ingsw.network.commandHandler.UnexecutableCommandException;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
-import it.polimi.ingsw.network.NetworkFieldEnum;
-import it.polimi.ingsw.network.connectionState.CloudChoosing;
+import it.polimi.ingsw.network.connectionState.ConnectionStateEnum;
+import it.polimi.ingsw.network.connectionState.FactoryConnectionState;
+import it.polimi.ingsw.network.request.ChoiceRequest;
 
-public class MoveMNToIslandHandler extends CommandHandler{
+public class MoveMNToIslandHandler extends CommandHandler<ChoiceRequest>{
 
     public MoveMNToIslandHandler(){
         commandAccepted = CommandEnum.MOVE_MN;
@@ -18,15 +17,12 @@ public class MoveMNToIslandHandler extends CommandHandler{
      * The user moves mother nature
      */
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) throws UnexecutableCommandException {
+    protected boolean executeRequest(ChoiceRequest request, MessageBroker messageBroker, ClientHandlerParameters parameters) {
 
-        CommandEnum readCommand = CommandEnum.fromObjectToEnum(messageBroker.readField(NetworkFieldEnum.COMMAND));
-        if(!checkHandleable(readCommand, commandAccepted)) throw new UnexecutableCommandException();
-
-        Integer steps = ApplicationHelper.getIntFromBrokerField(messageBroker.readField(NetworkFieldEnum.STEPS_MN));
+        int steps = request.choice();
         if(parameters.getUserController().moveMNToIsland(steps)){
             notifySuccessfulOperation(messageBroker);
-            parameters.setConnectionState(new CloudChoosing(parameters.getUserController().getGameRule()));
+            parameters.setConnectionState(FactoryConnectionState.getState(ConnectionStateEnum.CLOUD_CHOOSING, parameters.getUserController().getGameRule()));
             return true;
         }
         else {
@@ -1,13 +1,11 @@
 package it.polimi.ingsw.network.commandHandler.synchronous;
 
-import it.polimi.ingsw.network.ApplicationHelper;
-import it.polimi.ingsw.network.commandHandler.UnexecutableCommandException;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
-import it.polimi.ingsw.network.NetworkFieldEnum;
+import it.polimi.ingsw.network.request.UserRequest;
 
-public class PlayCharacterHandler extends CommandHandler{
+public class PlayCharacterHandler extends CommandHandler<UserRequest>{
 
     public PlayCharacterHandler(){
         commandAccepted = CommandEnum.PLAY_CHARACTER;
@@ -17,10 +15,7 @@ public class PlayCharacterHandler extends CommandHandler{
      * The player plays the card for which they (optionally) selected the requirements
      */
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) throws UnexecutableCommandException {
-
-        CommandEnum readCommand = CommandEnum.fromObjectToEnum(messageBroker.readField(NetworkFieldEnum.COMMAND));
-        if(!checkHandleable(readCommand, commandAccepted)) throw new UnexecutableCommandException();
+    protected boolean executeRequest(UserRequest request, MessageBroker messageBroker, ClientHandlerParameters parameters) {
 
         if(parameters.getUserController().playCard()){
             super.notifySuccessfulOperation(messageBroker);
@@ -2,31 +2,31 @@ package it.polimi.ingsw.network.commandHandler.synchronous;
 
 import it.polimi.ingsw.controller.GameRuleEnum;
 import it.polimi.ingsw.network.*;
-import it.polimi.ingsw.network.commandHandler.UnexecutableCommandException;
-import it.polimi.ingsw.network.connectionState.InLobby;
+import it.polimi.ingsw.network.connectionState.ConnectionStateEnum;
+import it.polimi.ingsw.network.connectionState.FactoryConnectionState;
 import it.polimi.ingsw.network.server.ActiveLobbies;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
+import it.polimi.ingsw.network.request.PlayGameRequest;
 
-public class PlayGameHandler extends CommandHandler{
+public class PlayGameHandler extends CommandHandler<PlayGameRequest>{
 
     public PlayGameHandler(){
         commandAccepted = CommandEnum.PLAY_GAME;
     }
 
     /**
-     * The user requests to play a game with the given rules
+     * The user requests to play a game with the given rules. <br>
+     * The user listens to the lobby before taking their seat, so that they're told if the game of a quick match
+     * starts as soon as they join
      */
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) throws UnexecutableCommandException {
+    protected boolean executeRequest(PlayGameRequest request, MessageBroker messageBroker, ClientHandlerParameters parameters) {
 
-        CommandEnum readCommand = CommandEnum.fromObjectToEnum(messageBroker.readField(NetworkFieldEnum.COMMAND));
-        if(!checkHandleable(readCommand, commandAccepted)) throw new UnexecutableCommandException();
+        GameRuleEnum rules = request.gameRule();
 
-        GameRuleEnum rules = GameRuleEnum.fromObjectToEnum(messageBroker.readField(NetworkFieldEnum.GAME_RULE));
-
-        parameters.setUserLobby(ActiveLobbies.assignLobby(rules));
-        parameters.getUserLobby().addPlayer(parameters.getIdUser());
-        parameters.setConnectionState(new InLobby());
+        parameters.setUserLobby(ActiveLobbies.reserveSeat(rules, request.quickMatch()));
+        parameters.setConnectionState(FactoryConnectionState.getState(ConnectionStateEnum.IN_LOBBY));
+        ActiveLobbies.takeSeat(parameters.getUserLobby(), parameters.getIdUser());
         notifySuccessfulOperation(messageBroker);
 
         return true;
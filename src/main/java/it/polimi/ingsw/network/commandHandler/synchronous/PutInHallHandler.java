@@ -1,14 +1,14 @@
 package it.polimi.ingsw.network.commandHandler.synchronous;
 
-import it.polimi.ingsw.network.commandHandler.UnexecutableCommandException;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
 import it.polimi.ingsw.network.NetworkFieldEnum;
-import it.polimi.ingsw.network.connectionState.MNMoving;
-import it.polimi.ingsw.network.connectionState.StudentChoosing;
+import it.polimi.ingsw.network.connectionState.ConnectionStateEnum;
+import it.polimi.ingsw.network.connectionState.FactoryConnectionState;
+import it.polimi.ingsw.network.request.UserRequest;
 
-public class PutInHallHandler extends CommandHandler{
+public class PutInHallHandler extends CommandHandler<UserRequest>{
 
     public PutInHallHandler(){
         commandAccepted = CommandEnum.PUT_IN_HALL;
@@ -18,20 +18,17 @@ public class PutInHallHandler extends CommandHandler{
      * The user chooses to put their student in their hall
      */
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) throws UnexecutableCommandException {
-
-        CommandEnum readCommand = CommandEnum.fromObjectToEnum(messageBroker.readField(NetworkFieldEnum.COMMAND));
-        if(!checkHandleable(readCommand, commandAccepted)) throw new UnexecutableCommandException();
+    protected boolean executeRequest(UserRequest request, MessageBroker messageBroker, ClientHandlerParameters parameters) {
 
         if(parameters.getUserController().putInHall()){
             notifySuccessfulOperation(messageBroker);
             if(parameters.getUserController().allStudentsMoved()){
                 messageBroker.addToMessage(NetworkFieldEnum.MORE_STUDENTS_TO_MOVE, false);
-                parameters.setConnectionState(new MNMoving(parameters.getUserController().getGameRule()));
+                parameters.setConnectionState(FactoryConnectionState.getState(ConnectionStateEnum.MN_MOVING, parameters.getUserController().getGameRule()));
             }
             else {
                 messageBroker.addToMessage(NetworkFieldEnum.MORE_STUDENTS_TO_MOVE, true);
-                parameters.setConnectionState(new StudentChoosing(parameters.getUserController().getGameRule()));
+                parameters.setConnectionState(FactoryConnectionState.getState(ConnectionStateEnum.STUDENT_CHOOSING, parameters.getUserController().getGameRule()));
             }
             return true;
         }
@@ -1,15 +1,14 @@
 package it.polimi.ingsw.network.commandHandler.synchronous;
 
-import it.polimi.ingsw.network.ApplicationHelper;
-import it.polimi.ingsw.network.commandHandler.UnexecutableCommandException;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
 import it.polimi.ingsw.network.NetworkFieldEnum;
-import it.polimi.ingsw.network.connectionState.MNMoving;
-import it.polimi.ingsw.network.connectionState.StudentChoosing;
+import it.polimi.ingsw.network.connectionState.ConnectionStateEnum;
+import it.polimi.ingsw.network.connectionState.FactoryConnectionState;
+import it.polimi.ingsw.network.request.ChoiceRequest;
 
-public class PutInIslandHandler extends CommandHandler{
+public class PutInIslandHandler extends CommandHandler<ChoiceRequest>{
 
     public PutInIslandHandler(){
         commandAccepted = CommandEnum.PUT_IN_ISLAND;
@@ -19,21 +18,18 @@ public class PutInIslandHandler extends CommandHandler{
      * The user chooses to put the student on the selected island
      */
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) throws UnexecutableCommandException {
+    protected boolean executeRequest(ChoiceRequest request, MessageBroker messageBroker, ClientHandlerParameters parameters) {
 
-        CommandEnum readCommand = CommandEnum.fromObjectToEnum(messageBroker.readField(NetworkFieldEnum.COMMAND));
-        if(!checkHandleable(readCommand, commandAccepted)) throw new UnexecutableCommandException();
-
-        Integer idIsland = ApplicationHelper.getIntFromBrokerField(messageBroker.readField(NetworkFieldEnum.CHOSEN_ISLAND));
+        int idIsland = request.choice();
         if(parameters.getUserController().putInIsland(idIsland)){
             notifySuccessfulOperation(messageBroker);
             if(parameters.getUserController().allStudentsMoved()){
                 messageBroker.addToMessage(NetworkFieldEnum.MORE_STUDENTS_TO_MOVE, false);
-                parameters.setConnectionState(new MNMoving(parameters.getUserController().getGameRule()));
+                parameters.setConnectionState(FactoryConnectionState.getState(ConnectionStateEnum.MN_MOVING, parameters.getUserController().getGameRule()));
             }
             else {
                 messageBroker.addToMessage(NetworkFieldEnum.MORE_STUDENTS_TO_MOVE, true);
-                parameters.setConnectionState(new StudentChoosing(parameters.getUserController().getGameRule()));
+                parameters.setConnectionState(FactoryConnectionState.getState(ConnectionStateEnum.STUDENT_CHOOSING, parameters.getUserController().getGameRule()));
             }
             return true;
         }
@@ -1,30 +1,28 @@
 package it.polimi.ingsw.network.commandHandler.synchronous;
 
 import it.polimi.ingsw.network.*;
-import it.polimi.ingsw.network.commandHandler.UnexecutableCommandException;
 import it.polimi.ingsw.network.server.ActiveClients;
 import it.polimi.ingsw.network.server.ActiveGames;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
+import it.polimi.ingsw.network.request.QuitRequest;
 
-public class QuitGameHandler extends CommandHandler{
+public class QuitGameHandler extends CommandHandler<QuitRequest>{
 
     public QuitGameHandler(){
         commandAccepted = CommandEnum.QUIT;
     }
 
     /**
-     * Closes the connection for this user
+     * Closes the connection for this user, whose session can't be resumed anymore
      */
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) throws UnexecutableCommandException {
-
-        CommandEnum readCommand = CommandEnum.fromObjectToEnum(messageBroker.readField(NetworkFieldEnum.COMMAND));
-        if(!checkHandleable(readCommand, commandAccepted)) throw new UnexecutableCommandException();
+    protected boolean executeRequest(QuitRequest request, MessageBroker messageBroker, ClientHandlerParameters parameters) {
 
+        parameters.setResumeToken(null);
         if(parameters.getUserController() == null){
             // The user decides to quit the game while still in the lobby, so the other users
             // shouldn't be kicked out automatically
-            parameters.getUserLobby().removePlayer(parameters.getIdUser());
+            if(parameters.getUserLobby() != null) parameters.getUserLobby().removePlayer(parameters.getIdUser());
         }
         else {
             // The game is already starting or already started, so the game shall end for
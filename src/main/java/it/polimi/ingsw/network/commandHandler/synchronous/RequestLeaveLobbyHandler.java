@@ -1,13 +1,13 @@
 package it.polimi.ingsw.network.commandHandler.synchronous;
 
-import it.polimi.ingsw.network.commandHandler.UnexecutableCommandException;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
-import it.polimi.ingsw.network.NetworkFieldEnum;
-import it.polimi.ingsw.network.connectionState.LookingForLobby;
+import it.polimi.ingsw.network.connectionState.ConnectionStateEnum;
+import it.polimi.ingsw.network.connectionState.FactoryConnectionState;
+import it.polimi.ingsw.network.request.UserRequest;
 
-public class RequestLeaveLobbyHandler extends CommandHandler{
+public class RequestLeaveLobbyHandler extends CommandHandler<UserRequest>{
 
     public RequestLeaveLobbyHandler(){
         commandAccepted = CommandEnum.LEAVE_LOBBY;
@@ -17,15 +17,12 @@ public class RequestLeaveLobbyHandler extends CommandHandler{
      * The user requests to leave the current lobby
      */
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) throws UnexecutableCommandException {
-
-        CommandEnum readCommand = CommandEnum.fromObjectToEnum(messageBroker.readField(NetworkFieldEnum.COMMAND));
-        if(!checkHandleable(readCommand, commandAccepted)) throw new UnexecutableCommandException();
+    protected boolean executeRequest(UserRequest request, MessageBroker messageBroker, ClientHandlerParameters parameters) {
 
         parameters.getUserLobby().removePlayer(parameters.getIdUser());
         parameters.setJustLeftLobby(parameters.getUserLobby());
         parameters.setUserLobby(null);
-        parameters.setConnectionState(new LookingForLobby());
+        parameters.setConnectionState(FactoryConnectionState.getState(ConnectionStateEnum.LOOKING_FOR_LOBBY));
         notifySuccessfulOperation(messageBroker);
 
         return true;
@@ -1,15 +1,15 @@
 package it.polimi.ingsw.network.commandHandler.synchronous;
 
 import it.polimi.ingsw.model.characterCards.Requirements;
-import it.polimi.ingsw.network.ApplicationHelper;
-import it.polimi.ingsw.network.commandHandler.UnexecutableCommandException;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
 import it.polimi.ingsw.network.NetworkFieldEnum;
-import it.polimi.ingsw.network.connectionState.CharacterCardActivation;
+import it.polimi.ingsw.network.connectionState.ConnectionStateEnum;
+import it.polimi.ingsw.network.connectionState.FactoryConnectionState;
+import it.polimi.ingsw.network.request.ChoiceRequest;
 
-public class SelectCharacterHandler extends CommandHandler{
+public class SelectCharacterHandler extends CommandHandler<ChoiceRequest>{
 
     public SelectCharacterHandler(){
         commandAccepted = CommandEnum.SELECT_CHARACTER;
@@ -19,13 +19,9 @@ public class SelectCharacterHandler extends CommandHandler{
      * The user selects a character card to play
      */
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) throws UnexecutableCommandException {
+    protected boolean executeRequest(ChoiceRequest request, MessageBroker messageBroker, ClientHandlerParameters parameters) {
 
-        CommandEnum readCommand = CommandEnum.fromObjectToEnum(messageBroker.readField(NetworkFieldEnum.COMMAND));
-        if(!checkHandleable(readCommand, commandAccepted)) throw new UnexecutableCommandException();
-
-
-        Integer cardPosition = ApplicationHelper.getIntFromBrokerField(messageBroker.readField(NetworkFieldEnum.CHARACTER_CARD_POSITION));
+        int cardPosition = request.choice();
         if(!parameters.getUserController().selectCard(cardPosition)){
             notifyError(messageBroker,parameters.getUserController().getGameErrorMessage());
             return false;
@@ -42,7 +38,7 @@ public class SelectCharacterHandler extends CommandHandler{
             messageBroker.addToMessage(NetworkFieldEnum.ISLANDS_REQUIRED, requirements.islands);
             messageBroker.addToMessage(NetworkFieldEnum.ON_CARD_REQUIRED, requirements.studentOnCard);
 
-            parameters.setConnectionState(new CharacterCardActivation());
+            parameters.setConnectionState(FactoryConnectionState.getState(ConnectionStateEnum.CHARACTER_CARD_ACTIVATION));
             return true;
         }
     }
@@ -1,17 +1,16 @@
 package it.polimi.ingsw.network.commandHandler.synchronous;
 
-import it.polimi.ingsw.network.ApplicationHelper;
-import it.polimi.ingsw.network.commandHandler.UnexecutableCommandException;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
-import it.polimi.ingsw.network.NetworkFieldEnum;
-import it.polimi.ingsw.network.connectionState.StudentMoving;
+import it.polimi.ingsw.network.connectionState.ConnectionStateEnum;
+import it.polimi.ingsw.network.connectionState.FactoryConnectionState;
+import it.polimi.ingsw.network.request.ChoiceRequest;
 
 /**
  * The user asks to select a student from their entrance
  */
-public class SelectEntranceStudentHandler extends CommandHandler{
+public class SelectEntranceStudentHandler extends CommandHandler<ChoiceRequest>{
 
     public SelectEntranceStudentHandler(){
         commandAccepted = CommandEnum.SELECT_STUDENT;
@@ -21,15 +20,12 @@ public class SelectEntranceStudentHandler extends CommandHandler{
      * The user asks to select a student from their entrance
      */
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) throws UnexecutableCommandException {
+    protected boolean executeRequest(ChoiceRequest request, MessageBroker messageBroker, ClientHandlerParameters parameters) {
 
-        CommandEnum readCommand = CommandEnum.fromObjectToEnum(messageBroker.readField(NetworkFieldEnum.COMMAND));
-        if(!checkHandleable(readCommand, commandAccepted)) throw new UnexecutableCommandException();
-
-        Integer selectedStudent = ApplicationHelper.getIntFromBrokerField(messageBroker.readField(NetworkFieldEnum.CHOSEN_ENTRANCE_STUDENT));
+        int selectedStudent = request.choice();
         if(parameters.getUserController().selectStudent(selectedStudent)){
             notifySuccessfulOperation(messageBroker);
-            parameters.setConnectionState(new StudentMoving(parameters.getUserController().getGameRule()));
+            parameters.setConnectionState(FactoryConnectionState.getState(ConnectionStateEnum.STUDENT_MOVING, parameters.getUserController().getGameRule()));
             return true;
         }
         else {
@@ -1,21 +1,18 @@
 package it.polimi.ingsw.network.commandHandler.synchronous;
 
-import it.polimi.ingsw.network.commandHandler.UnexecutableCommandException;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
-import it.polimi.ingsw.network.NetworkFieldEnum;
+import it.polimi.ingsw.network.request.PositionsRequest;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Card requirements method.
  * The user sends the selected students at their entrance
  */
-public class SelectEntranceStudentsHandler extends CommandHandler{
+public class SelectEntranceStudentsHandler extends CommandHandler<PositionsRequest>{
 
     public SelectEntranceStudentsHandler(){
         commandAccepted = CommandEnum.SELECT_ENTRANCE_STUDENTS;
@@ -26,16 +23,9 @@ public class SelectEntranceStudentsHandler extends CommandHandler{
      * The user sends the selected students at their entrance
      */
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) throws UnexecutableCommandException {
+    protected boolean executeRequest(PositionsRequest request, MessageBroker messageBroker, ClientHandlerParameters parameters) {
 
-        CommandEnum readCommand = CommandEnum.fromObjectToEnum(messageBroker.readField(NetworkFieldEnum.COMMAND));
-        if(!checkHandleable(readCommand, commandAccepted)) throw new UnexecutableCommandException();
-
-        double[] readStudents = (double[]) messageBroker.readField(NetworkFieldEnum.CHOSEN_ENTRANCE_POSITIONS);
-        List<Integer> students = Arrays.stream(readStudents)
-                .mapToInt(d -> (int) d)
-                .boxed()
-                .collect(Collectors.toList());
+        List<Integer> students = request.positions();
 
         if(parameters.getUserController().selectEntranceStudents(students)){
             notifySuccessfulOperation(messageBroker);
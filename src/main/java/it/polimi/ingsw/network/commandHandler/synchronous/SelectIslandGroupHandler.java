@@ -1,18 +1,14 @@
 package it.polimi.ingsw.network.commandHandler.synchronous;
 
-import it.polimi.ingsw.network.ApplicationHelper;
-import it.polimi.ingsw.network.commandHandler.UnexecutableCommandException;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
-import it.polimi.ingsw.network.NetworkFieldEnum;
+import it.polimi.ingsw.network.request.ChoiceRequest;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
-public class SelectIslandGroupHandler extends CommandHandler{
+public class SelectIslandGroupHandler extends CommandHandler<ChoiceRequest>{
 
     public SelectIslandGroupHandler(){
         commandAccepted = CommandEnum.SELECT_ISLAND_GROUP;
@@ -23,12 +19,9 @@ public class SelectIslandGroupHandler extends CommandHandler{
      * The user sends the selected islands
      */
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) throws UnexecutableCommandException {
+    protected boolean executeRequest(ChoiceRequest request, MessageBroker messageBroker, ClientHandlerParameters parameters) {
 
-        CommandEnum readCommand = CommandEnum.fromObjectToEnum(messageBroker.readField(NetworkFieldEnum.COMMAND));
-        if(!checkHandleable(readCommand, commandAccepted)) throw new UnexecutableCommandException();
-
-        int islandId = ApplicationHelper.getIntFromBrokerField(messageBroker.readField(NetworkFieldEnum.CHOSEN_ISLAND_CHAR));
+        int islandId = request.choice();
         List<Integer> islandIds = new ArrayList<>();
         islandIds.add(islandId);
 
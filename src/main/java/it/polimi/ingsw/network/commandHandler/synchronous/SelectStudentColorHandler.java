@@ -1,17 +1,14 @@
 package it.polimi.ingsw.network.commandHandler.synchronous;
 
 import it.polimi.ingsw.model.StudentEnum;
-import it.polimi.ingsw.network.commandHandler.UnexecutableCommandException;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
-import it.polimi.ingsw.network.NetworkFieldEnum;
+import it.polimi.ingsw.network.request.StudentColorsRequest;
 
-import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
-public class SelectStudentColorHandler extends CommandHandler{
+public class SelectStudentColorHandler extends CommandHandler<StudentColorsRequest>{
 
     public SelectStudentColorHandler(){
         commandAccepted = CommandEnum.SELECT_STUDENT_COLORS;
@@ -22,14 +19,9 @@ public class SelectStudentColorHandler extends CommandHandler{
      * The user sends the selected student color
      */
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) throws UnexecutableCommandException {
+    protected boolean executeRequest(StudentColorsRequest request, MessageBroker messageBroker, ClientHandlerParameters parameters) {
 
-        CommandEnum readCommand = CommandEnum.fromObjectToEnum(messageBroker.readField(NetworkFieldEnum.COMMAND));
-        if(!checkHandleable(readCommand, commandAccepted)) throw new UnexecutableCommandException();
-
-        StudentEnum[] readColors = (StudentEnum[]) messageBroker.readField(NetworkFieldEnum.CHOSEN_STUDENT_COLORS);
-        List<StudentEnum> colors = Arrays.stream(readColors)
-                .collect(Collectors.toList());
+        List<StudentEnum> colors = request.colors();
 
         if(parameters.getUserController().selectStudentColor(colors)){
             notifySuccessfulOperation(messageBroker);
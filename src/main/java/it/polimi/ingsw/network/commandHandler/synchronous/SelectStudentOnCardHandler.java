@@ -1,16 +1,13 @@
 package it.polimi.ingsw.network.commandHandler.synchronous;
 
-import it.polimi.ingsw.network.commandHandler.UnexecutableCommandException;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
-import it.polimi.ingsw.network.NetworkFieldEnum;
+import it.polimi.ingsw.network.request.PositionsRequest;
 
-import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
-public class SelectStudentOnCardHandler extends CommandHandler{
+public class SelectStudentOnCardHandler extends CommandHandler<PositionsRequest>{
 
     public SelectStudentOnCardHandler(){
         commandAccepted = CommandEnum.SELECT_STUDENTS_ON_CARD;
@@ -21,16 +18,9 @@ public class SelectStudentOnCardHandler extends CommandHandler{
      * The user sends the selected students on the card they previously selected
      */
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) throws UnexecutableCommandException {
+    protected boolean executeRequest(PositionsRequest request, MessageBroker messageBroker, ClientHandlerParameters parameters) {
 
-        CommandEnum readCommand = CommandEnum.fromObjectToEnum(messageBroker.readField(NetworkFieldEnum.COMMAND));
-        if(!checkHandleable(readCommand, commandAccepted)) throw new UnexecutableCommandException();
-
-        double[] readStudents = (double[]) messageBroker.readField(NetworkFieldEnum.CHOSEN_CARD_POSITIONS);
-        List<Integer> students = Arrays.stream(readStudents)
-                .mapToInt(d -> (int) d)
-                .boxed()
-                .collect(Collectors.toList());
+        List<Integer> students = request.positions();
         if(parameters.getUserController().selectStudentsOnCard(students)){
             notifySuccessfulOperation(messageBroker);
             return true;
@@ -1,14 +1,12 @@
 package it.polimi.ingsw.network.commandHandler.synchronous;
 
 import it.polimi.ingsw.model.TeamEnum;
-import it.polimi.ingsw.network.ApplicationHelper;
-import it.polimi.ingsw.network.commandHandler.UnexecutableCommandException;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
-import it.polimi.ingsw.network.NetworkFieldEnum;
+import it.polimi.ingsw.network.request.ChoiceRequest;
 
-public class SelectTowerColorHandler extends CommandHandler{
+public class SelectTowerColorHandler extends CommandHandler<ChoiceRequest>{
 
     public SelectTowerColorHandler(){
         commandAccepted = CommandEnum.SELECT_TOWER_COLOR;
@@ -19,12 +17,9 @@ public class SelectTowerColorHandler extends CommandHandler{
      * team chosen is available, and notifies it to the user
      */
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) throws UnexecutableCommandException {
+    protected boolean executeRequest(ChoiceRequest request, MessageBroker messageBroker, ClientHandlerParameters parameters) {
 
-        CommandEnum readCommand = CommandEnum.fromObjectToEnum(messageBroker.readField(NetworkFieldEnum.COMMAND));
-        if(!checkHandleable(readCommand, commandAccepted)) throw new UnexecutableCommandException();
-
-        int teamColorId = ApplicationHelper.getIntFromBrokerField(messageBroker.readField(NetworkFieldEnum.ID_TOWER_COLOR));
+        int teamColorId = request.choice();
         TeamEnum teamColor = TeamEnum.getTeamFromId(teamColorId);
 
         if(parameters.getUserController().setTeamColor(teamColor, parameters.getIdUser())){
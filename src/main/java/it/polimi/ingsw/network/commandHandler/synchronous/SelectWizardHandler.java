@@ -1,13 +1,11 @@
 package it.polimi.ingsw.network.commandHandler.synchronous;
 
-import it.polimi.ingsw.network.ApplicationHelper;
-import it.polimi.ingsw.network.commandHandler.UnexecutableCommandException;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
-import it.polimi.ingsw.network.NetworkFieldEnum;
+import it.polimi.ingsw.network.request.ChoiceRequest;
 
-public class SelectWizardHandler extends CommandHandler{
+public class SelectWizardHandler extends CommandHandler<ChoiceRequest>{
 
     public SelectWizardHandler(){
         commandAccepted = CommandEnum.SELECT_WIZARD;
@@ -18,12 +16,9 @@ public class SelectWizardHandler extends CommandHandler{
      * wizard chosen is available, and notifies it to the user
      */
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) throws UnexecutableCommandException {
+    protected boolean executeRequest(ChoiceRequest request, MessageBroker messageBroker, ClientHandlerParameters parameters) {
 
-        CommandEnum readCommand = CommandEnum.fromObjectToEnum(messageBroker.readField(NetworkFieldEnum.COMMAND));
-        if(!checkHandleable(readCommand, commandAccepted)) throw new UnexecutableCommandException();
-
-        int idWizard = ApplicationHelper.getIntFromBrokerField(messageBroker.readField(NetworkFieldEnum.ID_WIZARD));
+        int idWizard = request.choice();
         // todo: Change everything into WizardEnum later
 
         if(parameters.getUserController().setWizard(idWizard*10, parameters.getIdUser())){
@@ -1,12 +1,11 @@
 package it.polimi.ingsw.network.commandHandler.synchronous;
 
-import it.polimi.ingsw.network.commandHandler.UnexecutableCommandException;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
-import it.polimi.ingsw.network.NetworkFieldEnum;
+import it.polimi.ingsw.network.request.UserRequest;
 
-public class SendNotReadyHandler extends CommandHandler{
+public class SendNotReadyHandler extends CommandHandler<UserRequest>{
 
     public SendNotReadyHandler(){
         commandAccepted = CommandEnum.NOT_READY;
@@ -16,10 +15,7 @@ public class SendNotReadyHandler extends CommandHandler{
      * Sends a message to the server letting it know the user is not ready to start the game
      */
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) throws UnexecutableCommandException {
-
-        CommandEnum readCommand = CommandEnum.fromObjectToEnum(messageBroker.readField(NetworkFieldEnum.COMMAND));
-        if(!checkHandleable(readCommand, commandAccepted)) throw new UnexecutableCommandException();
+    protected boolean executeRequest(UserRequest request, MessageBroker messageBroker, ClientHandlerParameters parameters) {
 
         // This, SendReady and StartGame should all be synchronized to some lock
         parameters.getUserLobby().readyLock.lock();
@@ -1,10 +1,10 @@
 package it.polimi.ingsw.network.commandHandler.synchronous;
 
 import it.polimi.ingsw.network.*;
-import it.polimi.ingsw.network.commandHandler.UnexecutableCommandException;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
+import it.polimi.ingsw.network.request.UserRequest;
 
-public class SendReadyHandler extends CommandHandler{
+public class SendReadyHandler extends CommandHandler<UserRequest>{
 
     public SendReadyHandler(){
         commandAccepted = CommandEnum.READY_TO_START;
@@ -14,10 +14,7 @@ public class SendReadyHandler extends CommandHandler{
      * Sends a message to the server letting it know the user is ready to start the game
      */
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) throws UnexecutableCommandException {
-
-        CommandEnum readCommand = CommandEnum.fromObjectToEnum(messageBroker.readField(NetworkFieldEnum.COMMAND));
-        if(!checkHandleable(readCommand, commandAccepted)) throw new UnexecutableCommandException();
+    protected boolean executeRequest(UserRequest request, MessageBroker messageBroker, ClientHandlerParameters parameters) {
 
         // This, SendNotReady and StartGame should all be synchronized to some lock
         parameters.getUserLobby().readyLock.lock();
@@ -1,11 +1,11 @@
 package it.polimi.ingsw.network.commandHandler.synchronous;
 
 import it.polimi.ingsw.network.*;
-import it.polimi.ingsw.network.commandHandler.UnexecutableCommandException;
 import it.polimi.ingsw.network.server.ActiveLobbies;
 import it.polimi.ingsw.network.server.ClientHandlerParameters;
+import it.polimi.ingsw.network.request.UserRequest;
 
-public class StartGameHandler extends CommandHandler{
+public class StartGameHandler extends CommandHandler<UserRequest>{
 
     public StartGameHandler(){
         commandAccepted = CommandEnum.START_GAME;
@@ -16,10 +16,7 @@ public class StartGameHandler extends CommandHandler{
      * The request will be successful only if the host coincides with the user and all players are ready
      */
     @Override
-    public boolean executeCommand(MessageBroker messageBroker, ClientHandlerParameters parameters) throws UnexecutableCommandException {
-
-        CommandEnum readCommand = CommandEnum.fromObjectToEnum(messageBroker.readField(NetworkFieldEnum.COMMAND));
-        if(!checkHandleable(readCommand, commandAccepted)) throw new UnexecutableCommandException();
+    protected boolean executeRequest(UserRequest request, MessageBroker messageBroker, ClientHandlerParameters parameters) {
 
         // This, SendNotReady and SendReady should all be synchronized to some lock
         parameters.getUserLobby().readyLock.lock();
@@ -5,9 +5,9 @@ import it.polimi.ingsw.network.CommandEnum;
 
 public abstract class ActionPhaseTurn extends ConnectionState{
 
-    public ActionPhaseTurn(GameRuleEnum rule){
+    ActionPhaseTurn(ConnectionStateEnum stateEnum, GameRuleEnum rule){
 
-        super();
+        super(stateEnum);
         if(GameRuleEnum.isAdvanced(rule.id)){
             allow(CommandEnum.SELECT_CHARACTER);
         }
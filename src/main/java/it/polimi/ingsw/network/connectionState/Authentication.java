@@ -4,9 +4,9 @@ import it.polimi.ingsw.network.CommandEnum;
 
 public class Authentication extends ConnectionState{
 
-    public Authentication(){
+    Authentication(){
 
-        super();
+        super(ConnectionStateEnum.AUTHENTICATION);
         allow(CommandEnum.CONNECTION_REQUEST);
     }
 }
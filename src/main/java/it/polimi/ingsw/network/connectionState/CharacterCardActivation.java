@@ -4,9 +4,9 @@ import it.polimi.ingsw.network.CommandEnum;
 
 public class CharacterCardActivation extends ConnectionState{
 
-    public CharacterCardActivation(){
+    CharacterCardActivation(){
 
-        super();
+        super(ConnectionStateEnum.CHARACTER_CARD_ACTIVATION);
         allow(CommandEnum.SELECT_ENTRANCE_STUDENTS);
         allow(CommandEnum.SELECT_STUDENT_COLORS);
         allow(CommandEnum.SELECT_ISLAND_GROUP);
@@ -5,9 +5,9 @@ import it.polimi.ingsw.network.CommandEnum;
 
 public class CloudChoosing extends ActionPhaseTurn{
 
-    public CloudChoosing(GameRuleEnum rule){
+    CloudChoosing(GameRuleEnum rule){
 
-        super(rule);
+        super(ConnectionStateEnum.CLOUD_CHOOSING, rule);
         allow(CommandEnum.CHOOSE_CLOUD);
 
     }
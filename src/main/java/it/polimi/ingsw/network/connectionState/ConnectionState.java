@@ -2,34 +2,49 @@ package it.polimi.ingsw.network.connectionState;
 
 import it.polimi.ingsw.network.CommandEnum;
 
-import java.util.ArrayList;
-import java.util.List;
-
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * The commands a user is allowed to send at a given point of the connection. <br>
+ * The states are immutable and created once for each rule by FactoryConnectionState,
+ * which also knows the state reached after each command
+ */
 public abstract class ConnectionState {
 
-    private final List<CommandEnum> allowedCommands;
+    private final ConnectionStateEnum stateEnum;
+    private final Set<CommandEnum> allowedCommands;
 
-    public ConnectionState(){
+    ConnectionState(ConnectionStateEnum stateEnum){
 
-        allowedCommands = new ArrayList<>();
+        this.stateEnum = stateEnum;
+        allowedCommands = EnumSet.noneOf(CommandEnum.class);
 
         allow(CommandEnum.QUIT); //quitting is allowed in every state
     }
 
     /**
-     * Adds a command to the list of allowed commands
+     * Adds a command to the set of allowed commands
      * @param command The command to allow
      */
-    //used for concrete class construction
+    //used for concrete class construction only
     protected void allow(CommandEnum command){
-        if (!allowedCommands.contains(command)) allowedCommands.add(command);
+        allowedCommands.add(command);
     }
 
     public boolean isAllowed(CommandEnum command){
         return allowedCommands.contains(command);
     }
 
-    public List<CommandEnum> allowedFields(){
-        return allowedCommands;
+    /**
+     * @return the allowed commands, in the order they're declared in CommandEnum
+     */
+    public Set<CommandEnum> allowedFields(){
+        return Collections.unmodifiableSet(allowedCommands);
+    }
+
+    public ConnectionStateEnum getStateEnum(){
+        return stateEnum;
     }
 }
@@ -0,0 +1,34 @@
+package it.polimi.ingsw.network.connectionState;
+
+import it.polimi.ingsw.controller.GameRuleEnum;
+
+import java.util.function.Function;
+
+/**
+ * The states of a connection, each one creating its ConnectionState for a given rule
+ */
+public enum ConnectionStateEnum {
+    AUTHENTICATION(false, rule -> new Authentication()),
+    LOOKING_FOR_LOBBY(false, rule -> new LookingForLobby()),
+    IN_LOBBY(false, rule -> new InLobby()),
+    STARTING_GAME(false, rule -> new StartingGame()),
+    WAITING_FOR_CONTROL(false, rule -> new WaitingForControl()),
+    PLANNING_PHASE_TURN(false, rule -> new PlanningPhaseTurn()),
+    STUDENT_CHOOSING(true, StudentChoosing::new),
+    STUDENT_MOVING(false, StudentMoving::new),
+    MN_MOVING(true, MNMoving::new),
+    CLOUD_CHOOSING(true, CloudChoosing::new),
+    END_TURN(true, EndTurn::new),
+    CHARACTER_CARD_ACTIVATION(false, rule -> new CharacterCardActivation());
+
+    /**
+     * True if the commands allowed depend on the rules of the game
+     */
+    public final boolean ruleDependent;
+    final Function<GameRuleEnum, ConnectionState> constructor;
+
+    ConnectionStateEnum(boolean ruleDependent, Function<GameRuleEnum, ConnectionState> constructor){
+        this.ruleDependent = ruleDependent;
+        this.constructor = constructor;
+    }
+}
@@ -5,9 +5,9 @@ import it.polimi.ingsw.network.CommandEnum;
 
 public class EndTurn extends ActionPhaseTurn{
 
-    public EndTurn(GameRuleEnum rule){
+    EndTurn(GameRuleEnum rule){
 
-        super(rule);
+        super(ConnectionStateEnum.END_TURN, rule);
         allow(CommandEnum.END_TURN);
 
     }
@@ -0,0 +1,152 @@
+package it.polimi.ingsw.network.connectionState;
+
+import com.google.gson.Gson;
+import it.polimi.ingsw.controller.GameRuleEnum;
+import it.polimi.ingsw.network.CommandEnum;
+
+import java.util.*;
+
+import static it.polimi.ingsw.network.connectionState.ConnectionStateEnum.*;
+
+/**
+ * Creates every connection state once for each rule, so that changing state never allocates, and
+ * holds the transition table: for each state, the states reached after each command. <br>
+ * The commands sent by the user lead to the state reached if they succeed, a failed command leaving
+ * the state as it is; the SERVER_ commands lead to the state set when the server sends them.
+ * The table can be exported, so that a client can validate its commands before sending them
+ */
+public class FactoryConnectionState {
+
+    private static final Map<ConnectionStateEnum, Map<GameRuleEnum, ConnectionState>> states = createStates();
+    private static final Map<GameRuleEnum, Map<ConnectionStateEnum, Map<CommandEnum, Set<ConnectionStateEnum>>>> transitions = createTransitions();
+
+    /**
+     * We don't want to instantiate this class
+     */
+    private FactoryConnectionState(){}
+
+    private static Map<ConnectionStateEnum, Map<GameRuleEnum, ConnectionState>> createStates(){
+        Map<ConnectionStateEnum, Map<GameRuleEnum, ConnectionState>> created = new EnumMap<>(ConnectionStateEnum.class);
+        for(ConnectionStateEnum stateEnum : ConnectionStateEnum.values()){
+            Map<GameRuleEnum, ConnectionState> byRule = new EnumMap<>(GameRuleEnum.class);
+            ConnectionState shared = stateEnum.ruleDependent ? null : stateEnum.constructor.apply(GameRuleEnum.SIMPLE_2);
+            for(GameRuleEnum rule : GameRuleEnum.values()){
+                byRule.put(rule, shared != null ? shared : stateEnum.constructor.apply(rule));
+            }
+            created.put(stateEnum, Collections.unmodifiableMap(byRule));
+        }
+        return Collections.unmodifiableMap(created);
+    }
+
+    private static Map<GameRuleEnum, Map<ConnectionStateEnum, Map<CommandEnum, Set<ConnectionStateEnum>>>> createTransitions(){
+        Map<GameRuleEnum, Map<ConnectionStateEnum, Map<CommandEnum, Set<ConnectionStateEnum>>>> created = new EnumMap<>(GameRuleEnum.class);
+        for(GameRuleEnum rule : GameRuleEnum.values()){
+            created.put(rule, createTransitions(rule));
+        }
+        return Collections.unmodifiableMap(created);
+    }
+
+    private static Map<ConnectionStateEnum, Map<CommandEnum, Set<ConnectionStateEnum>>> createTransitions(GameRuleEnum rule){
+        Map<ConnectionStateEnum, Map<CommandEnum, Set<ConnectionStateEnum>>> table = new EnumMap<>(ConnectionStateEnum.class);
+        for(ConnectionStateEnum stateEnum : ConnectionStateEnum.values()){
+            table.put(stateEnum, new EnumMap<>(CommandEnum.class));
+            addTransition(table, stateEnum, CommandEnum.QUIT); // the connection is closed
+        }
+
+        // Before the game
+        addTransition(table, AUTHENTICATION, CommandEnum.CONNECTION_REQUEST, LOOKING_FOR_LOBBY);
+        addTransition(table, LOOKING_FOR_LOBBY, CommandEnum.PLAY_GAME, IN_LOBBY);
+        addTransition(table, IN_LOBBY, CommandEnum.READY_TO_START, IN_LOBBY);
+        addTransition(table, IN_LOBBY, CommandEnum.NOT_READY, IN_LOBBY);
+        addTransition(table, IN_LOBBY, CommandEnum.START_GAME, IN_LOBBY);
+        addTransition(table, IN_LOBBY, CommandEnum.LEAVE_LOBBY, LOOKING_FOR_LOBBY);
+        addTransition(table, IN_LOBBY, CommandEnum.SERVER_LOBBY_START, STARTING_GAME);
+        addTransition(table, STARTING_GAME, CommandEnum.SELECT_WIZARD, STARTING_GAME);
+        addTransition(table, STARTING_GAME, CommandEnum.SELECT_TOWER_COLOR, STARTING_GAME);
+        addTransition(table, STARTING_GAME, CommandEnum.SERVER_GAME_START, WAITING_FOR_CONTROL);
+
+        // During the game
+        addTransition(table, WAITING_FOR_CONTROL, CommandEnum.SERVER_YOUR_TURN, PLANNING_PHASE_TURN, STUDENT_CHOOSING);
+        addTransition(table, PLANNING_PHASE_TURN, CommandEnum.CHOOSE_ASSISTANT, WAITING_FOR_CONTROL);
+        addTransition(table, STUDENT_CHOOSING, CommandEnum.SELECT_STUDENT, STUDENT_MOVING);
+        addTransition(table, STUDENT_MOVING, CommandEnum.PUT_IN_HALL, STUDENT_CHOOSING, MN_MOVING);
+        addTransition(table, STUDENT_MOVING, CommandEnum.PUT_IN_ISLAND, STUDENT_CHOOSING, MN_MOVING);
+        addTransition(table, STUDENT_MOVING, CommandEnum.DESELECT_STUDENT, STUDENT_CHOOSING);
+        addTransition(table, MN_MOVING, CommandEnum.MOVE_MN, CLOUD_CHOOSING);
+        addTransition(table, CLOUD_CHOOSING, CommandEnum.CHOOSE_CLOUD, END_TURN);
+        addTransition(table, END_TURN, CommandEnum.END_TURN, WAITING_FOR_CONTROL);
+
+        // Character cards, whose activation goes back to the state it started from
+        if(GameRuleEnum.isAdvanced(rule.id)){
+            for(ConnectionStateEnum actionPhaseState : List.of(STUDENT_CHOOSING, MN_MOVING, CLOUD_CHOOSING, END_TURN)){
+                addTransition(table, actionPhaseState, CommandEnum.SELECT_CHARACTER, CHARACTER_CARD_ACTIVATION);
+            }
+        }
+        addTransition(table, CHARACTER_CARD_ACTIVATION, CommandEnum.SELECT_ENTRANCE_STUDENTS, CHARACTER_CARD_ACTIVATION);
+        addTransition(table, CHARACTER_CARD_ACTIVATION, CommandEnum.SELECT_STUDENT_COLORS, CHARACTER_CARD_ACTIVATION);
+        addTransition(table, CHARACTER_CARD_ACTIVATION, CommandEnum.SELECT_ISLAND_GROUP, CHARACTER_CARD_ACTIVATION);
+        addTransition(table, CHARACTER_CARD_ACTIVATION, CommandEnum.SELECT_STUDENTS_ON_CARD, CHARACTER_CARD_ACTIVATION);
+        addTransition(table, CHARACTER_CARD_ACTIVATION, CommandEnum.PLAY_CHARACTER, STUDENT_CHOOSING, MN_MOVING, CLOUD_CHOOSING, END_TURN);
+
+        // The game may end at any point after it's been created
+        for(ConnectionStateEnum stateEnum : EnumSet.range(STARTING_GAME, CHARACTER_CARD_ACTIVATION)){
+            addTransition(table, stateEnum, CommandEnum.SERVER_USER_DISCONNECTED, LOOKING_FOR_LOBBY);
+            addTransition(table, stateEnum, CommandEnum.SERVER_GAME_WON, LOOKING_FOR_LOBBY);
+        }
+
+        for(ConnectionStateEnum stateEnum : ConnectionStateEnum.values()){
+            table.put(stateEnum, Collections.unmodifiableMap(table.get(stateEnum)));
+        }
+        return Collections.unmodifiableMap(table);
+    }
+
+    private static void addTransition(Map<ConnectionStateEnum, Map<CommandEnum, Set<ConnectionStateEnum>>> table,
+                                      ConnectionStateEnum from, CommandEnum command, ConnectionStateEnum... to){
+        Set<ConnectionStateEnum> nextStates = EnumSet.noneOf(ConnectionStateEnum.class);
+        nextStates.addAll(Arrays.asList(to));
+        table.get(from).put(command, Collections.unmodifiableSet(nextStates));
+    }
+
+    /**
+     * @param stateEnum the state wanted
+     * @param rule the rules of the user's game
+     * @return the only instance of the state for the given rule
+     */
+    public static ConnectionState getState(ConnectionStateEnum stateEnum, GameRuleEnum rule){
+        return states.get(stateEnum).get(rule);
+    }
+
+    /**
+     * @param stateEnum the state wanted, whose allowed commands must not depend on the rules
+     * @return the only instance of the state
+     */
+    public static ConnectionState getState(ConnectionStateEnum stateEnum){
+        return getState(stateEnum, GameRuleEnum.NO_RULE);
+    }
+
+    /**
+     * @param stateEnum the current state
+     * @param rule the rules of the user's game
+     * @param command the command sent or received
+     * @return the states the command can lead to, empty if it isn't expected in the current state
+     */
+    public static Set<ConnectionStateEnum> getNextStates(ConnectionStateEnum stateEnum, GameRuleEnum rule, CommandEnum command){
+        return transitions.get(rule).get(stateEnum).getOrDefault(command, Collections.emptySet());
+    }
+
+    /**
+     * @param rule the rules of the game
+     * @return for each state, the commands expected in it and the states they lead to. The table can't be modified
+     */
+    public static Map<ConnectionStateEnum, Map<CommandEnum, Set<ConnectionStateEnum>>> exportTable(GameRuleEnum rule){
+        return transitions.get(rule);
+    }
+
+    /**
+     * @param rule the rules of the game
+     * @return the transition table of the rule as a JSON object, keyed by the names of the states and the commands
+     */
+    public static String exportTableToJson(GameRuleEnum rule){
+        return new Gson().toJson(exportTable(rule));
+    }
+}
@@ -4,9 +4,9 @@ import it.polimi.ingsw.network.CommandEnum;
 
 public class InLobby extends ConnectionState{
 
-    public InLobby(){
+    InLobby(){
 
-        super();
+        super(ConnectionStateEnum.IN_LOBBY);
         allow(CommandEnum.READY_TO_START);
         allow(CommandEnum.NOT_READY);
         allow(CommandEnum.LEAVE_LOBBY);
@@ -4,9 +4,9 @@ import it.polimi.ingsw.network.CommandEnum;
 
 public class LookingForLobby extends ConnectionState{
 
-    public LookingForLobby(){
+    LookingForLobby(){
 
-        super();
+        super(ConnectionStateEnum.LOOKING_FOR_LOBBY);
         allow(CommandEnum.PLAY_GAME);
     }
 }
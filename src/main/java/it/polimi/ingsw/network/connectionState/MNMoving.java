@@ -5,9 +5,9 @@ import it.polimi.ingsw.network.CommandEnum;
 
 public class MNMoving extends ActionPhaseTurn {
 
-    public MNMoving(GameRuleEnum rule) {
+    MNMoving(GameRuleEnum rule){
 
-        super(rule);
+        super(ConnectionStateEnum.MN_MOVING, rule);
         allow(CommandEnum.MOVE_MN);
 
     }
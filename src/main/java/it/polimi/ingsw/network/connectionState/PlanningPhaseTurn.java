@@ -4,9 +4,9 @@ import it.polimi.ingsw.network.CommandEnum;
 
 public class PlanningPhaseTurn extends ConnectionState{
 
-    public PlanningPhaseTurn(){
+    PlanningPhaseTurn(){
 
-        super();
+        super(ConnectionStateEnum.PLANNING_PHASE_TURN);
         allow(CommandEnum.CHOOSE_ASSISTANT);
     }
 }
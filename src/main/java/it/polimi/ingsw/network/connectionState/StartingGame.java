@@ -4,9 +4,9 @@ import it.polimi.ingsw.network.CommandEnum;
 
 public class StartingGame extends ConnectionState{
 
-    public StartingGame(){
+    StartingGame(){
 
-        super();
+        super(ConnectionStateEnum.STARTING_GAME);
         allow(CommandEnum.SELECT_WIZARD);
         allow(CommandEnum.SELECT_TOWER_COLOR);
     }
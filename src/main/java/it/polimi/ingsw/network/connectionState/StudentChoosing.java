@@ -5,9 +5,9 @@ import it.polimi.ingsw.network.CommandEnum;
 
 public class StudentChoosing extends ActionPhaseTurn {
 
-    public StudentChoosing(GameRuleEnum rule) {
+    StudentChoosing(GameRuleEnum rule){
 
-        super(rule);
+        super(ConnectionStateEnum.STUDENT_CHOOSING, rule);
         allow(CommandEnum.SELECT_STUDENT);
 
     }
@@ -7,9 +7,9 @@ import it.polimi.ingsw.network.CommandEnum;
  */
 public class WaitingForControl extends ConnectionState{
 
-    public WaitingForControl(){
+    WaitingForControl(){
 
-        super();
+        super(ConnectionStateEnum.WAITING_FOR_CONTROL);
 
     }
 }
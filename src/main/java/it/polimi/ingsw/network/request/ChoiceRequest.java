@@ -0,0 +1,11 @@
+package it.polimi.ingsw.network.request;
+
+import it.polimi.ingsw.network.CommandEnum;
+
+/**
+ * The commands carrying a single number chosen by the user, such as SELECT_WIZARD (the wizard id),
+ * SELECT_STUDENT (the entrance position) or MOVE_MN (the steps of mother nature)
+ * @param choice the value of the only field the command needs besides the ids
+ */
+public record ChoiceRequest(CommandEnum command, int idUser, int idRequest, int choice) implements Request {
+}
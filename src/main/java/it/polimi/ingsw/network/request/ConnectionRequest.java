@@ -0,0 +1,20 @@
+package it.polimi.ingsw.network.request;
+
+import it.polimi.ingsw.network.CommandEnum;
+
+/**
+ * CONNECTION_REQUEST: the user chooses their nickname, or resumes the session they lost
+ * with the token received at login
+ * @param resumeToken the token of the session to resume, null for a new session
+ * @param lastAsyncIdRequest the last asynchronous message read in the session to resume
+ * @param resumable true if the new session must be kept for a while when the connection is lost,
+ *                  so that it can be resumed with the token given in the reply
+ */
+public record ConnectionRequest(int idRequest, String nickname, String resumeToken, int lastAsyncIdRequest,
+                                boolean resumable) implements Request {
+
+    @Override
+    public CommandEnum command() {
+        return CommandEnum.CONNECTION_REQUEST;
+    }
+}
@@ -0,0 +1,17 @@
+package it.polimi.ingsw.network.request;
+
+/**
+ * Reads the value of a single network field, as deserialized from the wire, into its proper type
+ * @param <T> the type of the field
+ */
+@FunctionalInterface
+public interface FieldDecoder<T> {
+
+    /**
+     * @param value the value read from the message
+     * @return the value as its proper type
+     * @throws IllegalArgumentException if the value can't be read as the type of the field
+     * @throws ClassCastException if the value can't be read as the type of the field
+     */
+    T decode(Object value);
+}
@@ -0,0 +1,130 @@
+package it.polimi.ingsw.network.request;
+
+import it.polimi.ingsw.controller.GameRuleEnum;
+import it.polimi.ingsw.model.StudentEnum;
+import it.polimi.ingsw.model.TeamEnum;
+import it.polimi.ingsw.model.game.PhaseEnum;
+import it.polimi.ingsw.network.CommandEnum;
+import it.polimi.ingsw.network.NetworkFieldEnum;
+import it.polimi.ingsw.network.WireFormatEnum;
+
+import java.util.*;
+import java.util.function.Function;
+
+import static it.polimi.ingsw.network.NetworkFieldEnum.*;
+
+/**
+ * The decoders of the network fields, built once for every field with a type to check. <br>
+ * A field is read the same way whatever the format it came with: numbers may be Integers or Doubles
+ * (json has no integers), enums may be their name and lists may be arrays or lists.
+ * Fields without a decoder are accepted as they are
+ */
+public class FieldDecoders {
+
+    private static final Map<NetworkFieldEnum, FieldDecoder<?>> decoders = new EnumMap<>(NetworkFieldEnum.class);
+
+    static {
+        for(NetworkFieldEnum field : List.of(ID_USER, ID_REQUEST, ID_PING_REQUEST, ID_TOWER_COLOR, ID_WIZARD,
+                ID_ASSISTANT, ID_CHARACTER, ID_CLOUD, CHOSEN_ENTRANCE_STUDENT, CHOSEN_ISLAND, CHOSEN_ISLAND_CHAR,
+                STEPS_MN, CHARACTER_CARD_POSITION, ASYNC_ID_REQUEST, ASYNC_ID_USER, LAST_ASYNC_ID_REQUEST))
+            decoders.put(field, FieldDecoders::decodeInt);
+
+        decoders.put(COMMAND, enumDecoder(CommandEnum.class, CommandEnum::fromObjectToEnum));
+        decoders.put(NICKNAME, value -> (String) Objects.requireNonNull(value));
+        decoders.put(RESUME_TOKEN, value -> (String) Objects.requireNonNull(value));
+        decoders.put(GAME_RULE, enumDecoder(GameRuleEnum.class, GameRuleEnum::fromObjectToEnum));
+        decoders.put(CHOSEN_ENTRANCE_POSITIONS, FieldDecoders::decodeIntList);
+        decoders.put(CHOSEN_CARD_POSITIONS, FieldDecoders::decodeIntList);
+        decoders.put(CHOSEN_STUDENT_COLORS, FieldDecoders::decodeStudentList);
+        decoders.put(GAME_PHASE, enumDecoder(PhaseEnum.class, PhaseEnum::fromObjectToEnum));
+        decoders.put(ASYNC_GAME_PHASE, enumDecoder(PhaseEnum.class, PhaseEnum::fromObjectToEnum));
+        decoders.put(ASYNC_WINNER, enumDecoder(TeamEnum.class, TeamEnum::fromObjectToEnum));
+        decoders.put(WIRE_FORMAT, enumDecoder(WireFormatEnum.class, WireFormatEnum::fromObjectToEnum));
+        decoders.put(VIEW_RESYNC, value -> (Boolean) Objects.requireNonNull(value));
+        decoders.put(COMPRESSION, value -> (Boolean) Objects.requireNonNull(value));
+        decoders.put(HEARTBEAT, value -> (Boolean) Objects.requireNonNull(value));
+        decoders.put(QUICK_MATCH, value -> (Boolean) Objects.requireNonNull(value));
+        decoders.put(RESUMABLE, value -> (Boolean) Objects.requireNonNull(value));
+    }
+
+    private FieldDecoders(){
+        // We don't want to instantiate this class
+    }
+
+    /**
+     * Checks whether the value can be read as the type of the field
+     * @param field the field of the message
+     * @param value the value read
+     * @return true if the value is valid, or if the field has no type to check
+     */
+    public static boolean isValid(NetworkFieldEnum field, Object value){
+        FieldDecoder<?> decoder = decoders.get(field);
+        if(decoder == null) return true;
+        try {
+            decoder.decode(value);
+            return true;
+        } catch (IllegalArgumentException | ClassCastException | NullPointerException e){
+            return false;
+        }
+    }
+
+    /**
+     * Reads a field needed by a request
+     * @param message the fields of the message
+     * @param field the field to read
+     * @param type the type of the field
+     * @return the value of the field as its type
+     * @throws MalformedRequestException if the field is missing or can't be read as its type
+     */
+    public static <T> T read(Map<NetworkFieldEnum, Object> message, NetworkFieldEnum field, Class<T> type)
+            throws MalformedRequestException {
+        Object value = message.get(field);
+        if(value == null) throw new MalformedRequestException("Missing field " + field, true);
+        FieldDecoder<?> decoder = decoders.get(field);
+        try {
+            return type.cast(decoder == null ? value : decoder.decode(value));
+        } catch (IllegalArgumentException | ClassCastException | NullPointerException e){
+            throw new MalformedRequestException("Invalid value for field " + field);
+        }
+    }
+
+    /**
+     * Reads a field a request may do without
+     * @param message the fields of the message
+     * @param field the field to read
+     * @param type the type of the field
+     * @param defaultValue the value used when the field is missing
+     * @return the value of the field as its type, or defaultValue
+     * @throws MalformedRequestException if the field can't be read as its type
+     */
+    public static <T> T readOptional(Map<NetworkFieldEnum, Object> message, NetworkFieldEnum field, Class<T> type,
+                                     T defaultValue) throws MalformedRequestException {
+        if(message.get(field) == null) return defaultValue;
+        return read(message, field, type);
+    }
+
+    private static Integer decodeInt(Object value){
+        if(value instanceof Integer integer) return integer;
+        double number = ((Number) value).doubleValue();
+        if(number != Math.rint(number) || Math.abs(number) > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Not an integer: " + number);
+        return (int) number;
+    }
+
+    private static List<Integer> decodeIntList(Object value){
+        if(value instanceof int[] array) return Arrays.stream(array).boxed().toList();
+        if(value instanceof double[] array) return Arrays.stream(array).mapToObj(FieldDecoders::decodeInt).toList();
+        return ((List<?>) value).stream().map(FieldDecoders::decodeInt).toList();
+    }
+
+    private static List<StudentEnum> decodeStudentList(Object value){
+        if(value instanceof StudentEnum[] array) return List.of(array);
+        return ((List<?>) value).stream()
+                .map(color -> color instanceof StudentEnum student ? student : StudentEnum.fromObjectToEnum(color))
+                .toList();
+    }
+
+    private static <E extends Enum<E>> FieldDecoder<E> enumDecoder(Class<E> enumClass, Function<Object, E> fromName){
+        return value -> enumClass.isInstance(value) ? enumClass.cast(value) : fromName.apply(value);
+    }
+}
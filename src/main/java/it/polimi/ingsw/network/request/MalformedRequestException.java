@@ -0,0 +1,30 @@
+package it.polimi.ingsw.network.request;
+
+/**
+ * Thrown when a message misses a field needed by its command, or when a field can't be read as its type
+ */
+public class MalformedRequestException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final boolean missingField;
+
+    public MalformedRequestException(String message) {
+        this(message, false);
+    }
+
+    /**
+     * @param message the description of the problem
+     * @param missingField true if the request only misses a field, false if what it sent can't be read
+     */
+    public MalformedRequestException(String message, boolean missingField) {
+        super(message);
+        this.missingField = missingField;
+    }
+
+    /**
+     * @return true if the request only misses a field needed by its command, so that every value it sent is valid
+     */
+    public boolean isMissingField() {
+        return missingField;
+    }
+}
@@ -0,0 +1,10 @@
+package it.polimi.ingsw.network.request;
+
+import it.polimi.ingsw.network.CommandEnum;
+
+/**
+ * PING and PONG, exchanged on the socket dedicated to checking the connection
+ * @param viewResync true if the client asks for the complete game view (only sent with a PING)
+ */
+public record PingRequest(CommandEnum command, int idUser, int idPingRequest, boolean viewResync) implements Request {
+}
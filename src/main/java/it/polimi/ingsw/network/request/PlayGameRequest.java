@@ -0,0 +1,15 @@
+package it.polimi.ingsw.network.request;
+
+import it.polimi.ingsw.controller.GameRuleEnum;
+import it.polimi.ingsw.network.CommandEnum;
+
+/**
+ * PLAY_GAME: the user asks for a lobby with the given rules, optionally one whose game starts as soon as it's full
+ */
+public record PlayGameRequest(int idUser, int idRequest, GameRuleEnum gameRule, boolean quickMatch) implements Request {
+
+    @Override
+    public CommandEnum command() {
+        return CommandEnum.PLAY_GAME;
+    }
+}
@@ -0,0 +1,11 @@
+package it.polimi.ingsw.network.request;
+
+import it.polimi.ingsw.network.CommandEnum;
+
+import java.util.List;
+
+/**
+ * SELECT_ENTRANCE_STUDENTS and SELECT_STUDENTS_ON_CARD: the user chooses some students by position
+ */
+public record PositionsRequest(CommandEnum command, int idUser, int idRequest, List<Integer> positions) implements Request {
+}
@@ -0,0 +1,14 @@
+package it.polimi.ingsw.network.request;
+
+import it.polimi.ingsw.network.CommandEnum;
+
+/**
+ * QUIT: the user closes the application
+ */
+public record QuitRequest(int idUser) implements Request {
+
+    @Override
+    public CommandEnum command() {
+        return CommandEnum.QUIT;
+    }
+}
@@ -0,0 +1,15 @@
+package it.polimi.ingsw.network.request;
+
+import it.polimi.ingsw.network.CommandEnum;
+
+/**
+ * A message sent by the client, already decoded and validated. <br>
+ * Every command sent by the client is decoded into one of the implementing records by RequestDecoders
+ */
+public interface Request {
+
+    /**
+     * @return the command this request was sent with
+     */
+    CommandEnum command();
+}
@@ -0,0 +1,20 @@
+package it.polimi.ingsw.network.request;
+
+import it.polimi.ingsw.network.NetworkFieldEnum;
+
+import java.util.Map;
+
+/**
+ * Builds the request of a single command from the fields of a message
+ * @param <R> the type of the request built
+ */
+@FunctionalInterface
+public interface RequestDecoder<R extends Request> {
+
+    /**
+     * @param message the fields of the message, as deserialized from the wire
+     * @return the request, with all of its fields already validated
+     * @throws MalformedRequestException if a field needed is missing or of the wrong type
+     */
+    R decode(Map<NetworkFieldEnum, Object> message) throws MalformedRequestException;
+}
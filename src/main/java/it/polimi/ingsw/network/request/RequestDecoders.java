@@ -0,0 +1,108 @@
+package it.polimi.ingsw.network.request;
+
+import it.polimi.ingsw.controller.GameRuleEnum;
+import it.polimi.ingsw.model.StudentEnum;
+import it.polimi.ingsw.network.CommandEnum;
+import it.polimi.ingsw.network.NetworkFieldEnum;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static it.polimi.ingsw.network.NetworkFieldEnum.*;
+import static it.polimi.ingsw.network.request.FieldDecoders.read;
+import static it.polimi.ingsw.network.request.FieldDecoders.readOptional;
+
+/**
+ * The decoders of the commands sent by the client, built once for every command. <br>
+ * Each decoder reads exactly the fields allowed by its command, validating them while reading
+ */
+public class RequestDecoders {
+
+    private static final Map<CommandEnum, RequestDecoder<?>> decoders = new EnumMap<>(CommandEnum.class);
+
+    static {
+        decoders.put(CommandEnum.QUIT, message -> new QuitRequest(read(message, ID_USER, Integer.class)));
+        decoders.put(CommandEnum.CONNECTION_REQUEST, message -> new ConnectionRequest(
+                read(message, ID_REQUEST, Integer.class),
+                read(message, NICKNAME, String.class),
+                readOptional(message, RESUME_TOKEN, String.class, null),
+                readOptional(message, LAST_ASYNC_ID_REQUEST, Integer.class, 0),
+                readOptional(message, RESUMABLE, Boolean.class, false)));
+        decoders.put(CommandEnum.PLAY_GAME, message -> new PlayGameRequest(
+                read(message, ID_USER, Integer.class),
+                read(message, ID_REQUEST, Integer.class),
+                read(message, GAME_RULE, GameRuleEnum.class),
+                readOptional(message, QUICK_MATCH, Boolean.class, false)));
+        decoders.put(CommandEnum.SELECT_STUDENT_COLORS, message -> new StudentColorsRequest(
+                read(message, ID_USER, Integer.class),
+                read(message, ID_REQUEST, Integer.class),
+                readList(message, CHOSEN_STUDENT_COLORS, StudentEnum.class)));
+
+        for(CommandEnum command : List.of(CommandEnum.PING, CommandEnum.PONG))
+            decoders.put(command, message -> new PingRequest(command,
+                    read(message, ID_USER, Integer.class),
+                    read(message, ID_PING_REQUEST, Integer.class),
+                    readOptional(message, VIEW_RESYNC, Boolean.class, false)));
+
+        for(CommandEnum command : List.of(CommandEnum.READY_TO_START, CommandEnum.NOT_READY, CommandEnum.LEAVE_LOBBY,
+                CommandEnum.START_GAME, CommandEnum.PUT_IN_HALL, CommandEnum.DESELECT_STUDENT, CommandEnum.END_TURN,
+                CommandEnum.PLAY_CHARACTER))
+            decoders.put(command, message -> new UserRequest(command,
+                    read(message, ID_USER, Integer.class),
+                    read(message, ID_REQUEST, Integer.class)));
+
+        for(CommandEnum command : List.of(CommandEnum.SELECT_WIZARD, CommandEnum.SELECT_TOWER_COLOR,
+                CommandEnum.CHOOSE_ASSISTANT, CommandEnum.SELECT_STUDENT, CommandEnum.PUT_IN_ISLAND, CommandEnum.MOVE_MN,
+                CommandEnum.CHOOSE_CLOUD, CommandEnum.SELECT_CHARACTER, CommandEnum.SELECT_ISLAND_GROUP)) {
+            NetworkFieldEnum choiceField = CommandEnum.getFieldsNeeded(command).get(0);
+            decoders.put(command, message -> new ChoiceRequest(command,
+                    read(message, ID_USER, Integer.class),
+                    read(message, ID_REQUEST, Integer.class),
+                    read(message, choiceField, Integer.class)));
+        }
+
+        for(CommandEnum command : List.of(CommandEnum.SELECT_ENTRANCE_STUDENTS, CommandEnum.SELECT_STUDENTS_ON_CARD)) {
+            NetworkFieldEnum positionsField = CommandEnum.getFieldsNeeded(command).get(0);
+            decoders.put(command, message -> new PositionsRequest(command,
+                    read(message, ID_USER, Integer.class),
+                    read(message, ID_REQUEST, Integer.class),
+                    readList(message, positionsField, Integer.class)));
+        }
+    }
+
+    private RequestDecoders(){
+        // We don't want to instantiate this class
+    }
+
+    /**
+     * Decodes a message sent by the client
+     * @param message the fields of the message, as deserialized from the wire
+     * @return the request of the command in the message
+     * @throws MalformedRequestException if the command isn't sent by clients, or if the fields it needs
+     * are missing or invalid
+     */
+    public static Request decode(Map<NetworkFieldEnum, Object> message) throws MalformedRequestException {
+        CommandEnum command = read(message, COMMAND, CommandEnum.class);
+        RequestDecoder<?> decoder = decoders.get(command);
+        if(decoder == null) throw new MalformedRequestException("The command " + command + " isn't a request");
+        return decoder.decode(message);
+    }
+
+    /**
+     * @param command the command to check
+     * @return true if messages with the command can be decoded
+     */
+    public static boolean isDecodable(CommandEnum command){
+        return decoders.containsKey(command);
+    }
+
+    /**
+     * Reads a list field, whose elements the FieldDecoders already read as elementType
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> readList(Map<NetworkFieldEnum, Object> message, NetworkFieldEnum field, Class<T> elementType)
+            throws MalformedRequestException {
+        return (List<T>) read(message, field, List.class);
+    }
+}
@@ -0,0 +1,17 @@
+package it.polimi.ingsw.network.request;
+
+import it.polimi.ingsw.model.StudentEnum;
+import it.polimi.ingsw.network.CommandEnum;
+
+import java.util.List;
+
+/**
+ * SELECT_STUDENT_COLORS: the user chooses some student colors for a character card
+ */
+public record StudentColorsRequest(int idUser, int idRequest, List<StudentEnum> colors) implements Request {
+
+    @Override
+    public CommandEnum command() {
+        return CommandEnum.SELECT_STUDENT_COLORS;
+    }
+}
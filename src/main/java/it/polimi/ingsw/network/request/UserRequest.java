@@ -0,0 +1,10 @@
+package it.polimi.ingsw.network.request;
+
+import it.polimi.ingsw.network.CommandEnum;
+
+/**
+ * The commands carrying nothing but the ids of the user and of the request,
+ * such as READY_TO_START, PUT_IN_HALL or END_TURN
+ */
+public record UserRequest(CommandEnum command, int idUser, int idRequest) implements Request {
+}
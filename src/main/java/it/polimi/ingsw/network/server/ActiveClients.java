@@ -1,12 +1,11 @@
 package it.polimi.ingsw.network.server;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ActiveClients {
 
-    private static Map<Integer, ClientHandler> userIdToClientHandlerAssociation = new HashMap<>();
-    private static int globalAsyncIdRequest = 1;
+    private static final Map<Integer, ClientHandler> userIdToClientHandlerAssociation = new ConcurrentHashMap<>();
     /**
      * We don't want to instantiate this class
      */
@@ -39,13 +38,10 @@ public class ActiveClients {
     }
 
     /**
-     * Increases the global request id used for asynchronous calls (server -> client)
-     * @return the newly generated request id
+     * @return the amount of users with a client handler
      */
-    //todo needs a lock?
-    public static int increaseAndGetAsyncIdRequest(){
-        globalAsyncIdRequest++;
-        return globalAsyncIdRequest;
+    public static int getActiveClientsCount(){
+        return userIdToClientHandlerAssociation.size();
     }
 
 }
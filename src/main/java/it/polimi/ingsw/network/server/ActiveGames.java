@@ -2,16 +2,46 @@ package it.polimi.ingsw.network.server;
 
 import it.polimi.ingsw.controller.Controller;
 import it.polimi.ingsw.controller.GameRuleEnum;
+import it.polimi.ingsw.network.CommandEnum;
+import it.polimi.ingsw.network.request.Request;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * The games being played, each with the executor of its commands. <br>
+ * If the server keeps a journal, every game is checkpointed to it at the end of each turn,
+ * and the games found unfinished in it at startup are restored by playing their checkpoints again.
+ * If the journal keeps recordings, each game is also recorded next to it: its seed and every command
+ * it accepted, so that GameReplay can play it again
+ */
 public class ActiveGames {
 
-    private static List<Controller> gameControllers = new ArrayList<>();
-    private static Map<Integer, Controller> userToGameAssociation = new HashMap<>();
+    private static final Map<Controller, GameExecutor> gameControllers = new ConcurrentHashMap<>(); // each game with the executor of its commands
+    private static final Map<Integer, Controller> userToGameAssociation = new ConcurrentHashMap<>();
+    private static final Map<Controller, JournaledGame> journaledGames = new ConcurrentHashMap<>();
+    private static volatile GameJournal journal; // null if the games don't survive a restart
+
+    // The commands changing a game, the only ones its recording needs
+    private static final Set<CommandEnum> recordedCommands = Collections.unmodifiableSet(EnumSet.of(
+            CommandEnum.SELECT_WIZARD, CommandEnum.SELECT_TOWER_COLOR, CommandEnum.CHOOSE_ASSISTANT,
+            CommandEnum.SELECT_STUDENT, CommandEnum.PUT_IN_HALL, CommandEnum.PUT_IN_ISLAND, CommandEnum.DESELECT_STUDENT,
+            CommandEnum.MOVE_MN, CommandEnum.CHOOSE_CLOUD, CommandEnum.END_TURN, CommandEnum.SELECT_CHARACTER,
+            CommandEnum.SELECT_STUDENT_COLORS, CommandEnum.SELECT_ENTRANCE_STUDENTS, CommandEnum.SELECT_ISLAND_GROUP,
+            CommandEnum.SELECT_STUDENTS_ON_CARD, CommandEnum.PLAY_CHARACTER));
+
+    /**
+     * A game written to the journal
+     * @param gameId the id of the game in the journal
+     * @param players the idUsers of the players, in the order the game was created with
+     * @param gameRule the rules of the game
+     * @param seed the seed the game was created with
+     * @param nicknames the nicknames of the players, in the order the game was created with
+     * @param commands the commands accepted by the game so far, only used by the executor of the game
+     */
+    private record JournaledGame(long gameId, List<Integer> players, GameRuleEnum gameRule, long seed,
+                                 List<String> nicknames, List<GameJournal.Command> commands) {}
 
     /**
      * We don't want to instantiate this class
@@ -25,7 +55,7 @@ public class ActiveGames {
      * @param lobby the lobby to get the information from
      */
     public static void createGame(Lobby lobby){
-        Controller newController = new Controller(lobby.getPlayers(), lobby.getGameType());
+        Controller newController = new Controller(lobby.getPlayers(), lobby.getGameType(), lobby.getEventBus());
         GameRuleEnum rule = lobby.getGameType();
         int playerNumber = GameRuleEnum.getNumPlayers(rule.id);
 
@@ -43,7 +73,17 @@ public class ActiveGames {
         }
 */
         // Adds the controller to the list
-        gameControllers.add(newController);
+        GameExecutor gameExecutor = new GameExecutor();
+        gameControllers.put(newController, gameExecutor);
+        GameJournal gameJournal = journal;
+        if(gameJournal != null){
+            long gameId = gameJournal.newGameId();
+            List<String> nicknames = new ArrayList<>();
+            for(Integer idUser : lobby.getPlayers()) nicknames.add(LoginHandler.getNicknameFromId(idUser));
+            gameJournal.appendGameCreated(gameId, rule, newController.getSeed(), nicknames);
+            journalGame(gameJournal, new JournaledGame(gameId, List.copyOf(lobby.getPlayers()), rule,
+                    newController.getSeed(), List.copyOf(nicknames), new ArrayList<>()), newController, lobby, gameExecutor);
+        }
 
         //Associates each user in the lobby to the newly created game
         for(Integer user : lobby.getPlayers()){
@@ -52,6 +92,140 @@ public class ActiveGames {
         lobby.setStartGame(true);
     }
 
+    /**
+     * Restores the games left unfinished in the journal, and checkpoints the new games to it from now on. <br>
+     * Each player of a restored game gets a session without a connection, which their client resumes with
+     * the token it had before the restart; the game is ended if one of them doesn't come back in time
+     * @param gameJournal the journal just opened
+     * @return the amount of games restored
+     */
+    public static int restoreGames(GameJournal gameJournal){
+        journal = gameJournal;
+        int restored = 0;
+        for(GameJournal.Entry entry : gameJournal.getUnfinishedGames()){
+            try {
+                restoreGame(gameJournal, entry);
+                restored++;
+            } catch (IOException e) {
+                System.err.println("The game " + entry.gameId() + " couldn't be restored: " + e.getMessage());
+                gameJournal.appendEnd(entry.gameId());
+            }
+        }
+        return restored;
+    }
+
+    private static void restoreGame(GameJournal gameJournal, GameJournal.Entry entry) throws IOException {
+        GameJournal.Recording checkpoint = GameJournal.decodeCheckpoint(entry.checkpoint());
+        List<GameJournal.Player> players = entry.players();
+        if(players.size() != GameRuleEnum.getNumPlayers(checkpoint.gameRule().id) ||
+                players.stream().anyMatch(player -> player.resumeToken() == null))
+            throw new IOException("Not every player can resume the game");
+
+        Lobby lobby = new Lobby(checkpoint.gameRule());
+        for(GameJournal.Player player : players){
+            int idUser = LoginHandler.getNewUserId();
+            if(!LoginHandler.login(player.nickname(), idUser)){
+                for(Integer loggedUser : lobby.getPlayers()) LoginHandler.removeNicknameFromId(loggedUser);
+                throw new IOException("The nickname " + player.nickname() + " is already taken");
+            }
+            lobby.addPlayer(idUser);
+        }
+
+        Controller controller;
+        try {
+            controller = GameReplay.replay(checkpoint, lobby.getPlayers(), lobby.getEventBus());
+        } catch (IOException | RuntimeException e) {
+            for(Integer loggedUser : lobby.getPlayers()) LoginHandler.removeNicknameFromId(loggedUser);
+            throw new IOException("The checkpoint can't be played again: " + e.getMessage(), e);
+        }
+        GameExecutor gameExecutor = new GameExecutor();
+        gameControllers.put(controller, gameExecutor);
+        for(Integer user : lobby.getPlayers()){
+            userToGameAssociation.put(user, controller);
+        }
+        lobby.setStartGame(true);
+        journalGame(gameJournal, new JournaledGame(entry.gameId(), List.copyOf(lobby.getPlayers()), checkpoint.gameRule(),
+                checkpoint.seed(), checkpoint.nicknames(), new ArrayList<>(checkpoint.commands())), controller, lobby, gameExecutor);
+
+        for(int player = 0; player < players.size(); player++){
+            ClientHandler.restore(lobby.getPlayers().get(player), players.get(player).resumeToken(),
+                    players.get(player).lastAsyncIdRequest(), lobby, controller);
+        }
+        System.out.println("Game " + entry.gameId() + " restored, waiting for its players");
+    }
+
+    /**
+     * Checkpoints a game to the journal at the end of each turn, and writes its end once it's over. <br>
+     * The checkpoint is taken by a task queued on the executor of the game, so the command ending the turn
+     * is replied to, and its asynchronous messages sent, before it's queued
+     * @param gameJournal the journal of the server
+     * @param game the game, with the commands it already accepted
+     * @param controller the controller of the game
+     * @param lobby the lobby of the game, whose bus carries the events of the game
+     * @param gameExecutor the executor of the game
+     */
+    private static void journalGame(GameJournal gameJournal, JournaledGame game, Controller controller, Lobby lobby, GameExecutor gameExecutor){
+        long gameId = game.gameId();
+        journaledGames.put(controller, game);
+        lobby.getEventBus().subscribe(event -> {
+            if(event.getSource() != controller) return;
+            switch (event.getType()) {
+                case GAME_STARTED, NEW_TURN -> gameExecutor.execute(() -> checkpointGame(gameJournal, controller, lobby));
+                // After the command ending the game, which is still to be recorded
+                case GAME_WON, USER_DISCONNECTED -> gameExecutor.execute(() -> {
+                    if(journaledGames.remove(controller) != null) gameJournal.appendEnd(gameId);
+                });
+                default -> {}
+            }
+        });
+    }
+
+    /**
+     * @param command a command sent by a player
+     * @return true if the command changes the game, so it's recorded once accepted
+     */
+    public static boolean isRecorded(CommandEnum command){
+        return recordedCommands.contains(command);
+    }
+
+    /**
+     * Records a command accepted by a game, if it changed the game. <br>
+     * Called by the executor of the game right after the command is executed, so the commands are recorded
+     * in the order they were executed
+     * @param controller the controller of the game
+     * @param idUser the user who sent the command
+     * @param request the request of the command
+     */
+    public static void recordCommand(Controller controller, int idUser, Request request){
+        GameJournal gameJournal = journal;
+        if(gameJournal == null || !recordedCommands.contains(request.command())) return;
+        JournaledGame game = journaledGames.get(controller);
+        if(game == null) return;
+        int player = game.players().indexOf(idUser);
+        if(player < 0) return;
+        game.commands().add(new GameJournal.Command(player, request));
+        gameJournal.appendCommand(game.gameId(), player, request);
+    }
+
+    /**
+     * Queues the game as it is now for the journal, runs on the executor of the game. <br>
+     * Only a copy of the commands accepted so far is taken here: the writer of the journal encodes them
+     */
+    private static void checkpointGame(GameJournal gameJournal, Controller controller, Lobby lobby){
+        JournaledGame game = journaledGames.get(controller);
+        if(game == null || !controller.isGameStarted() || controller.isGameWon() || controller.isNetworkError()) return;
+
+        List<GameJournal.Player> players = new ArrayList<>();
+        for(Integer idUser : lobby.getPlayers()){
+            ClientHandler handler = ActiveClients.getHandlerFromId(idUser);
+            players.add(new GameJournal.Player(LoginHandler.getNicknameFromId(idUser),
+                    handler == null ? null : handler.getResumeToken(),
+                    handler == null ? 0 : handler.getLastAsyncIdRequest()));
+        }
+        gameJournal.appendCheckpoint(game.gameId(), players, new GameJournal.Recording(game.gameId(), game.gameRule(),
+                game.seed(), game.nicknames(), List.copyOf(game.commands())));
+    }
+
     /**
      * Finds the controller of the game that this user is part of
      * @param idUser the user we need to know the game of
@@ -62,6 +236,14 @@ public class ActiveGames {
     }
 
 
+    /**
+     * @param controller the controller of a game being played
+     * @return the executor running the commands of the game, null if the game ended
+     */
+    public static GameExecutor getGameExecutor(Controller controller){
+        return gameControllers.get(controller);
+    }
+
     /**
      * Deletes this player's association with its current game controller
      * @param idUser the user to remove from the association map
@@ -76,7 +258,13 @@ public class ActiveGames {
      */
     public static void removeEndedGames() {
         //todo Call some method in the controller first?
-        gameControllers.removeIf(Controller::isGameWon);
-        gameControllers.removeIf(Controller::isNetworkError);
+        gameControllers.keySet().removeIf(controller -> controller.isGameWon() || controller.isNetworkError());
+    }
+
+    /**
+     * @return the amount of games being played
+     */
+    public static int getActiveGamesCount(){
+        return gameControllers.size();
     }
 }
@@ -1,13 +1,31 @@
 package it.polimi.ingsw.network.server;
 import it.polimi.ingsw.controller.GameRuleEnum;
 
-import java.util.ArrayList;
-import java.util.List;
-
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The lobbies waiting for their game to start. <br>
+ * For each rule, and separately for quick matches, the lobbies with an empty seat are kept in a queue:
+ * a player takes a seat in the lobby at its head, which leaves the queue once full, so finding a seat
+ * doesn't look at the other lobbies. A lobby is created only when the queue is empty
+ */
 public class ActiveLobbies {
 
-    private static final Object genericLock = new Object();
-    private static List<Lobby> lobbies = new ArrayList<>();
+    private static final Set<Lobby> lobbies = ConcurrentHashMap.newKeySet(); // looked up whenever a game starts or a seat is freed
+    private static final Map<GameRuleEnum, Queue<Lobby>> openLobbies = new EnumMap<>(GameRuleEnum.class);
+    private static final Map<GameRuleEnum, Queue<Lobby>> openQuickMatches = new EnumMap<>(GameRuleEnum.class);
+
+    static {
+        for (GameRuleEnum rule : GameRuleEnum.values()) {
+            openLobbies.put(rule, new ConcurrentLinkedQueue<>());
+            openQuickMatches.put(rule, new ConcurrentLinkedQueue<>());
+        }
+    }
 
     /**
      * We don't want to instantiate this class
@@ -15,61 +33,121 @@ public class ActiveLobbies {
     private ActiveLobbies(){}
 
     /**
-     * If there's already an available Lobby with the same game rules and at least an empty seat it returns the said lobby.
-     * If there's no joinable lobby, it creates one fitting the specified game rules.
+     * Reserves a seat in a lobby with the specified game rules, creating the lobby if there's no joinable one.
+     * The player must then take the seat with takeSeat
      * @param rules The rules of the wanted lobby
-     * @return A lobby with the specified game rules
+     * @param quickMatch true if the game must start as soon as the lobby is full
+     * @return A lobby with the specified game rules and a seat reserved
      */
-    public static Lobby assignLobby(GameRuleEnum rules){
+    public static Lobby reserveSeat(GameRuleEnum rules, boolean quickMatch){
 
-        Lobby lobby = searchGame(rules);
+        Queue<Lobby> queue = (quickMatch ? openQuickMatches : openLobbies).get(rules);
 
-        if (lobby == null) lobby = createLobby(rules);
+        Lobby lobby = searchGame(queue);
+        if (lobby != null) return lobby;
 
+        synchronized (queue) { // two users can't both create a lobby when one would do
+            lobby = searchGame(queue);
+            if (lobby == null) lobby = createLobby(rules, quickMatch);
+        }
         return lobby;
     }
 
     /**
-     * Looks for a Lobby with the specified game rules and at least an empty seat.
-     * Returns null if no active lobby is suitable.
+     * Adds the player to the lobby in which they reserved a seat. If the lobby is a quick match and
+     * the player was the last one missing, the game is created
+     * @param lobby The lobby returned by reserveSeat
+     * @param idUser The player to add
+     */
+    public static void takeSeat(Lobby lobby, int idUser){
+
+        lobby.addReservedPlayer(idUser);
+
+        if (lobby.isQuickMatch()) {
+            synchronized (lobby) {
+                if (!lobby.isGameStarted() &&
+                    lobby.getPlayers().size() == GameRuleEnum.getNumPlayers(lobby.getGameType().id))
+                    ActiveGames.createGame(lobby);
+            }
+        }
+    }
+
+    /**
+     * Reserves a seat in a lobby with the specified game rules and adds the player to it
      * @param rules The rules of the wanted lobby
-     * @return The joinable lobby or null if there's none
+     * @param idUser The player to add
+     * @return The lobby the player joined
      */
-    private static Lobby searchGame(GameRuleEnum rules){
+    public static Lobby joinLobby(GameRuleEnum rules, int idUser){
 
+        Lobby lobby = reserveSeat(rules, false);
+        takeSeat(lobby, idUser);
+        return lobby;
+    }
 
-        synchronized (genericLock) {
-            for (Lobby lobby:
-                 lobbies) {
-                if (lobby.getGameType().equals(rules) && !lobby.isFull()) return lobby;
+    /**
+     * Reserves a seat in the lobby at the head of the queue, dropping from the queue the lobbies with no seat left
+     * @param queue The open lobbies with the wanted rules
+     * @return The lobby in which a seat was reserved, or null if there's none
+     */
+    private static Lobby searchGame(Queue<Lobby> queue){
+
+        Lobby lobby;
+        while ((lobby = queue.peek()) != null) {
+            if (lobby.tryReserveSeat()) {
+                if (lobby.isFull()) unindex(queue, lobby);
+                return lobby;
             }
+            unindex(queue, lobby);
         }
 
         return null;
     }
 
     /**
-     * Creates a Lobby with the specified game rules
+     * Creates a Lobby with the specified game rules, with a seat reserved
      * @param rules The game rules of the lobby
-     * @return An empty lobby with the desired game rules
+     * @param quickMatch true if the game must start as soon as the lobby is full
+     * @return A lobby with the desired game rules and no players
      */
-    private static Lobby createLobby(GameRuleEnum rules){
+    private static Lobby createLobby(GameRuleEnum rules, boolean quickMatch){
 
-        Lobby lobby = new Lobby(rules);
+        Lobby lobby = new Lobby(rules, quickMatch);
+        lobby.tryReserveSeat();
 
         lobbies.add(lobby);
+        if (!lobby.isFull()) index(lobby);
 
         return lobby;
     }
 
+    private static Queue<Lobby> getQueue(Lobby lobby){
+        return (lobby.isQuickMatch() ? openQuickMatches : openLobbies).get(lobby.getGameType());
+    }
+
+    private static void index(Lobby lobby){
+        if (lobby.indexed.compareAndSet(false, true)) getQueue(lobby).offer(lobby);
+    }
+
+    private static void unindex(Queue<Lobby> queue, Lobby lobby){
+        if (lobby.indexed.compareAndSet(true, false)) queue.remove(lobby);
+    }
+
+    /**
+     * Offers the seats of a lobby again, after a player left it when it was full
+     * @param lobby The lobby that has an empty seat
+     */
+    static void reopenLobby(Lobby lobby){
+        if (lobbies.contains(lobby)) index(lobby);
+    }
+
     /**
      * Removes a lobby from the list of active lobbies
      * @param lobby The lobby to be removed
      */
     public static void removeLobby(Lobby lobby){
-        synchronized (genericLock) {
-            lobbies.remove(lobby);
-        }
+        unindex(getQueue(lobby), lobby);
+        lobbies.remove(lobby);
     }
 
     /**
@@ -81,17 +159,26 @@ public class ActiveLobbies {
 
         if (lobbies.contains(lobby) &&
             lobby.everyoneReady()   ) {
+            // Creates the controller and marks the lobby as started, so that none of its seats can be taken anymore
             ActiveGames.createGame(lobby);
-            return true; //TODO create everything
-            //todo destroy lobby after creating game?
+            return true;
         }
         return false;
     }
 
+    /**
+     * @param rules The rules of the lobbies
+     * @param quickMatch true to count the quick matches
+     * @return the amount of lobbies with an empty seat
+     */
+    public static int getOpenLobbiesCount(GameRuleEnum rules, boolean quickMatch){
+        return (quickMatch ? openQuickMatches : openLobbies).get(rules).size();
+    }
+
     /**
      * FOR TESTING PURPOSES ONLY
      */
-    public static List<Lobby> getLobbies() {
+    public static Set<Lobby> getLobbies() {
         return lobbies;
     }
 }
@@ -0,0 +1,91 @@
+package it.polimi.ingsw.network.server;
+
+import it.polimi.ingsw.network.SharedBufferOutput;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Output stream given to the client handlers. <br>
+ * The written bytes are collected and, on flush, handed over as a single message to the
+ * connection, which will write it from its I/O thread. Writing on this stream never blocks on
+ * the network, it fails instead when the client is too far behind. The shared parts of the
+ * broadcast messages are handed over without being copied
+ */
+class ChannelOutputStream extends OutputStream implements SharedBufferOutput {
+
+    private final OutboundConnection connection;
+    private final ByteArrayOutputStream pendingBytes;
+    private Object coalescingKey;
+
+    ChannelOutputStream(OutboundConnection connection){
+        this.connection = connection;
+        this.pendingBytes = new ByteArrayOutputStream();
+    }
+
+    /**
+     * Marks the next message as carrying the latest state of something, so that it can be
+     * replaced by a newer one while it's still waiting to be written
+     * @param coalescingKey the state carried by the next message, null if it can't be replaced
+     */
+    synchronized void setCoalescingKey(Object coalescingKey){
+        this.coalescingKey = coalescingKey;
+    }
+
+    /**
+     * @param coalescingKey the state carried by the message
+     * @return true if a message with the given state was still waiting and has been removed
+     */
+    boolean retract(Object coalescingKey){
+        return connection.retract(coalescingKey);
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+        checkOpen();
+        pendingBytes.write(b);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+        checkOpen();
+        pendingBytes.write(b, off, len);
+    }
+
+    /**
+     * Hands the bytes written so far to the connection as one message
+     * @throws IOException if the connection has already been closed or the client is too far behind
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        checkOpen();
+        if(pendingBytes.size() == 0) return;
+        enqueue(ByteBuffer.wrap(pendingBytes.toByteArray()));
+    }
+
+    @Override
+    public synchronized void writeShared(byte[] prefix, byte[] shared, int offset, int length) throws IOException {
+        checkOpen();
+        pendingBytes.write(prefix, 0, prefix.length);
+        // Every recipient gets its own position over the same bytes
+        enqueue(ByteBuffer.wrap(pendingBytes.toByteArray()), ByteBuffer.wrap(shared, offset, length));
+    }
+
+    private void enqueue(ByteBuffer... buffers) throws IOException {
+        Object key = coalescingKey;
+        pendingBytes.reset();
+        coalescingKey = null;
+        if(!connection.enqueue(key, buffers)) throw new IOException("The client is too far behind");
+    }
+
+    @Override
+    public void close() {
+        connection.close();
+    }
+
+    private void checkOpen() throws IOException {
+        if(!connection.isOpen()) throw new IOException("Connection closed");
+    }
+}
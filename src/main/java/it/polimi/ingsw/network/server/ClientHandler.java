@@ -1,17 +1,28 @@
 package it.polimi.ingsw.network.server;
 
+import it.polimi.ingsw.controller.Controller;
+import it.polimi.ingsw.controller.events.GameEvent;
+import it.polimi.ingsw.controller.events.GameEventEnum;
+import it.polimi.ingsw.controller.events.GameEventListener;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
 import it.polimi.ingsw.network.NetworkFieldEnum;
 import it.polimi.ingsw.network.commandHandler.asynchronous.AsyncCommandHandler;
-import it.polimi.ingsw.network.commandHandler.synchronous.CommandHandler;
-import it.polimi.ingsw.network.commandHandler.FactoryCommandHandler;
-import it.polimi.ingsw.network.commandHandler.UnexecutableCommandException;
+import it.polimi.ingsw.network.commandHandler.asynchronous.Broadcast;
+import it.polimi.ingsw.network.commandHandler.CommandRegistry;
+import it.polimi.ingsw.network.connectionState.ConnectionStateEnum;
+import it.polimi.ingsw.network.connectionState.FactoryConnectionState;
+import it.polimi.ingsw.network.Preferences;
+import it.polimi.ingsw.network.request.MalformedRequestException;
+import it.polimi.ingsw.network.request.PingRequest;
 
 import java.io.*;
 import java.net.Socket;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -20,22 +31,39 @@ import java.util.concurrent.locks.ReentrantLock;
  * After initializing the connection, this handler will continously listen for new messages
  * from the client, which will then dispatch to one of the command handlers <br>
  * If necessary, it also sends messages to the other users related to this client via
- * the other users' client handlers
+ * the other users' client handlers <br>
+ * The pings may arrive on the main socket, together with the commands, or on a second socket
+ * for the clients that didn't ask for the HEARTBEAT in their CONNECTION_REQUEST.
+ * Either way, any message received proves that the client is still connected. <br>
+ * The messages for the client are queued and written by the I/O layer, so that a slow client never
+ * blocks the handlers of the other players of its lobby. <br>
+ * The handler is subscribed to the events of its user's lobby: they're stored as they're published,
+ * and the asynchronous commands are sent only for the events received since the last time. <br>
+ * When the connection is lost the session is suspended for a grace window instead of being dropped: the
+ * asynchronous messages keep being numbered and kept in the replay buffer of the session, and a client
+ * reconnecting with its resume token gets the ones it missed on the new connection
  */
-public class ClientHandler implements Runnable{
+public class ClientHandler implements Runnable, GameEventListener {
 
-    private final List<CommandHandler> commandHandlers = FactoryCommandHandler.getAllCommandHandlers();
-    private final List<AsyncCommandHandler> asyncHandlers = FactoryCommandHandler.getAsyncCommandHandlers();
+    private static final long RESUME_GRACE_MILLIS = Preferences.readResumeGraceFromJson();
+    private static final int NO_REPLAY = -1;
+    private static final int SNAPSHOT = -2; // the client of a restored session is sent the whole state
+
+    private final Map<GameEventEnum, List<AsyncCommandHandler>> asyncHandlers = CommandRegistry.getAsyncHandlers();
+    private final Queue<GameEvent> receivedEvents = new ConcurrentLinkedQueue<>();
 
     private Socket mainSocket;
     private Socket pingSocket;
+    private ChannelOutputStream clientOutput;
     private final MessageBroker mainBroker;
-    private final MessageBroker pingBroker;
+    private final OutboundQueue outboundQueue;
     private PongHandler pongHandler;
     private AtomicBoolean connected;
     private final ReentrantLock commandLock;
-    private int asyncIdRequest;
-    private boolean alreadyAlerted;
+    private final AtomicBoolean alreadyAlerted;
+    private volatile long lastPingMillis;
+    private volatile int replayFrom; // the last asynchronous message read by a client resuming the session
+    private boolean restored; // true if the session was restored from the journal, without a connection
 
     private ClientHandlerParameters parameters;
 
@@ -44,13 +72,76 @@ public class ClientHandler implements Runnable{
      * @param mainSocket the main socket of the connection that's been created in the server
      */
     public ClientHandler(Socket mainSocket) {
+        this(mainSocket, new MessageBroker());
+    }
+
+    /**
+     * Creates a new client handler whose broker has already read the first message of the connection
+     * @param mainSocket the main socket of the connection that's been created in the server
+     * @param mainBroker the broker that read the first message, it must keep reading the same stream
+     */
+    public ClientHandler(Socket mainSocket, MessageBroker mainBroker) {
+        this(mainSocket, mainBroker, new OutboundQueue());
+    }
+
+    /**
+     * Creates a new client handler whose broker has already read the first message of the connection
+     * @param mainSocket the main socket of the connection that's been created in the server
+     * @param mainBroker the broker that read the first message, it must keep reading the same stream
+     * @param outboundQueue the queue of the messages waiting to be written to the client
+     */
+    public ClientHandler(Socket mainSocket, MessageBroker mainBroker, OutboundQueue outboundQueue) {
         this.mainSocket = mainSocket;
-        this.mainBroker = new MessageBroker();
-        this.pingBroker = new MessageBroker();
+        this.mainBroker = mainBroker;
+        this.outboundQueue = outboundQueue;
         this.parameters = new ClientHandlerParameters();
+        this.parameters.setEventListener(this);
         this.connected = new AtomicBoolean(true);
         this.commandLock = new ReentrantLock();
-        alreadyAlerted = false;
+        alreadyAlerted = new AtomicBoolean(false);
+        lastPingMillis = System.currentTimeMillis();
+        replayFrom = NO_REPLAY;
+    }
+
+    /**
+     * Creates a new client handler whose messages are read and written by someone else
+     * (the selector-based server) instead of its own threads
+     * @param mainSocket the main socket of the connection, used to close it
+     * @param clientOutput the stream on which the replies for this client are queued
+     */
+    ClientHandler(Socket mainSocket, ChannelOutputStream clientOutput) {
+        this(mainSocket);
+        this.clientOutput = clientOutput;
+    }
+
+    /**
+     * Creates the session of a player of a game restored from the journal after a restart. It has no
+     * connection: it waits in the ResumableSessions for the client to resume it with its old token,
+     * and is dropped, ending the game, if the client doesn't come back in time
+     * @param idUser the id given to the player by this server
+     * @param resumeToken the token the client resumes the session with
+     * @param lastAsyncIdRequest the sequence number of the last asynchronous message sent before the restart
+     * @param lobby the lobby of the restored game
+     * @param controller the controller of the restored game
+     * @return the handler of the session, already suspended
+     */
+    static ClientHandler restore(int idUser, String resumeToken, int lastAsyncIdRequest, Lobby lobby, Controller controller){
+        ClientHandler handler = new ClientHandler(null);
+        handler.restored = true;
+        handler.connected.set(false);
+        handler.alreadyAlerted.set(true);
+
+        ClientHandlerParameters parameters = handler.parameters;
+        parameters.setIdUser(idUser);
+        parameters.setResumeToken(resumeToken);
+        parameters.setAsyncIdRequest(lastAsyncIdRequest);
+        parameters.setUserLobby(lobby);
+        parameters.setUserController(controller);
+        parameters.setConnectionState(FactoryConnectionState.getState(ConnectionStateEnum.WAITING_FOR_CONTROL));
+
+        ActiveClients.setHandler(idUser, handler);
+        handler.suspendSession("[ user " + idUser + " ] Restored from the journal");
+        return handler;
     }
 
     /**
@@ -61,25 +152,34 @@ public class ClientHandler implements Runnable{
         this.pingSocket = pingSocket;
     }
 
+    /**
+     * Starts answering the pings of a client using a second socket for them
+     * @param pingSocket the socket that will be used to perform the ping routine
+     * @param pingBroker the broker that read the first ping from the socket
+     */
+    public void attachPingConnection(Socket pingSocket, MessageBroker pingBroker){
+        assignPingSocket(pingSocket);
+        pongHandler = new PongHandler(this, pingBroker, pingSocket);
+        pongHandler.startPonging();
+    }
+
     @Override
     public void run(){
         InputStream clientInput;
-        OutputStream clientOutput;
 
         // Start the handler's main communication with the client
         parameters.setIdUser(LoginHandler.getNewUserId());
         try {
             clientInput = mainSocket.getInputStream();
-            clientOutput = mainSocket.getOutputStream();
         } catch (IOException e) {
             connectionLostAlert("Error obtaining streams\n" + e.getMessage());
             return;
         }
 
-        pongHandler = new PongHandler(this, pingBroker, pingSocket);
-
-        // Starts the pong routine
-        pongHandler.startPonging();
+        //The replies are written by a thread of their own, never by the ones handling the commands
+        SocketWriter writer = new SocketWriter(mainSocket, outboundQueue, this);
+        clientOutput = new ChannelOutputStream(writer);
+        writer.start();
 
         //Starts a new thread which constantly receives new messages
         // from the client
@@ -87,6 +187,7 @@ public class ClientHandler implements Runnable{
             while (connected.get()){
                 try{
                     mainBroker.receive(clientInput);
+                    notifyPing();
                 }catch(IOException e){
                     connectionLostAlert("Error receiving commands from the socket");
                 }
@@ -109,65 +210,172 @@ public class ClientHandler implements Runnable{
                 continue;
             }
 
-            System.out.println("---Starting to parse a message [idUser: " + parameters.getIdUser() + "]");
-            CommandEnum command = CommandEnum.fromObjectToEnum(mainBroker.readField(NetworkFieldEnum.COMMAND));
-
-            System.out.println("---Message parsed : "+command.toString());
+            handleReceivedMessage(null);
+        }
+        // This point should never be reached in normal circumstances (unless the client disconnects)
+    }
 
-            forwardRequest();
+    /**
+     * Registers this handler without starting any thread, the messages will be
+     * handed over by calling handleAvailableMessages()
+     */
+    public void start(){
+        parameters.setIdUser(LoginHandler.getNewUserId());
+        ActiveClients.setHandler(parameters.getIdUser(), this);
+    }
 
-            if(!parameters.getConnectionState().isAllowed(command)){ // Trashes a command given at the wrong time
-                System.err.println("-+-Command not allowed");
-                //We also need to send an error to the client, not leaving it hanging
-                // duplicate code
-                mainBroker.addToMessage(NetworkFieldEnum.SERVER_REPLY_MESSAGE, "ERR");
-                mainBroker.addToMessage(NetworkFieldEnum.SERVER_REPLY_STATUS, 1);
-                mainBroker.addToMessage(NetworkFieldEnum.ID_REQUEST, mainBroker.readField(NetworkFieldEnum.ID_REQUEST));
-                mainBroker.addToMessage(NetworkFieldEnum.ERROR_STATE, "The command couldn't be handled");
-            }
-            else {
-                handleCommand(mainBroker); // runs the appropriate routine depending on the command received
-                System.out.println("---Command handled");
+    /**
+     * Handles all the synchronous messages already received, returning as soon as there are none left,
+     * or as soon as a command is handed to the executor of the user's game: the thread of the game
+     * replies to it, then calls whenGameCommandDone so that the messages after it can be handled
+     * @param whenGameCommandDone called once a command handed to the game is done
+     * @return true if every message was handled, false if a command is still being handled by the game
+     */
+    public boolean handleAvailableMessages(Runnable whenGameCommandDone){
+        try {
+            while(connected.get() && mainBroker.waitSyncMessage(0)){
+                if(!handleReceivedMessage(whenGameCommandDone)) return false;
             }
-            // This line is necessary for the quit command, we stop before trying to send
-            // a message which would result in failure anyways since the user disconnected
-            if(!connected.get()) continue;
+        } catch (InterruptedException e) {
+            //The remaining messages will be handled by the next call
+        }
+        return true;
+    }
 
-            commandLock.lock();
-            try {
-                // Sends a reply to the client
-                mainBroker.send(clientOutput);
+    /**
+     * Handles the message read with waitSyncMessage(), sends the reply and the
+     * asynchronous messages caused by it. <br>
+     * Once the user is in a game, this is done by the executor of the game, which handles the commands
+     * of its players one at a time, as it does with a session resumed in the game
+     * @param whenGameCommandDone called by the thread of the game once the command is done,
+     *                            null to wait for it on this thread
+     * @return true if the message was handled, false if it was handed to the executor of the game
+     */
+    private boolean handleReceivedMessage(Runnable whenGameCommandDone){
+        CommandEnum command = CommandEnum.fromObjectToEnum(mainBroker.readField(NetworkFieldEnum.COMMAND));
+        if(command == CommandEnum.PING){ // The heartbeat doesn't go through the command handlers
+            answerPing();
+            return true;
+        }
+        GameExecutor gameExecutor = getGameExecutor();
+        if(gameExecutor == null && command == CommandEnum.CONNECTION_REQUEST){
+            Object resumeToken = mainBroker.readField(NetworkFieldEnum.RESUME_TOKEN);
+            ClientHandler suspended = resumeToken instanceof String token ? ResumableSessions.getSuspended(token) : null;
+            if(suspended != null) gameExecutor = suspended.getGameExecutor();
+        }
+        if(gameExecutor == null) handleMessage(command);
+        else if(whenGameCommandDone == null) gameExecutor.executeAndWait(() -> handleMessage(command));
+        else {
+            gameExecutor.execute(() -> {
+                try {
+                    handleMessage(command);
+                } finally {
+                    whenGameCommandDone.run();
+                }
+            });
+            return false;
+        }
+        return true;
+    }
 
-                mainBroker.flushFirstSyncMessage();
+    /**
+     * @return the executor of the user's game, null if the user isn't playing
+     */
+    private GameExecutor getGameExecutor(){
+        Controller controller = parameters.getUserController();
+        return controller == null ? null : ActiveGames.getGameExecutor(controller);
+    }
 
-                //Here, we handle other asynchronous commands to all other players
+    /**
+     * Handles a command other than a ping
+     * @param command the command read
+     */
+    private void handleMessage(CommandEnum command){
+        commandLock.lock(); // the other players can't build messages on the broker until the reply is sent
+        try {
+            handleLockedMessage(command);
+        } finally {
+            releaseCommandLock();
+        }
+    }
 
-                tryAsyncCommandsForAll();
+    private void handleLockedMessage(CommandEnum command){
+        System.out.println("---Starting to parse a message [idUser: " + parameters.getIdUser() + "]");
 
-                clearAsyncConditions(); // here we clear the conditions for calling async methods
-                // on this client handler only, whereas the actual sending of commands happens for
-                // all of handlers
+        System.out.println("---Message parsed : "+command.toString());
 
-                cleanParameters();
+        forwardRequest();
 
-            }
-            catch (IOException e){
-                connectionLostAlert("Error while sending the reply to the client");
-            }
-            finally {
-                commandLock.unlock();
-            }
+        if(!parameters.getConnectionState().isAllowed(command)){ // Trashes a command given at the wrong time
+            System.err.println("-+-Command not allowed");
+            //We also need to send an error to the client, not leaving it hanging
+            // duplicate code
+            mainBroker.addToMessage(NetworkFieldEnum.SERVER_REPLY_MESSAGE, "ERR");
+            mainBroker.addToMessage(NetworkFieldEnum.SERVER_REPLY_STATUS, 1);
+            mainBroker.addToMessage(NetworkFieldEnum.ID_REQUEST, mainBroker.readField(NetworkFieldEnum.ID_REQUEST));
+            mainBroker.addToMessage(NetworkFieldEnum.ERROR_STATE, "The command couldn't be handled");
         }
-        // This point should never be reached in normal circumstances (unless the client disconnects)
+        else {
+            handleCommand(mainBroker); // runs the appropriate routine depending on the command received
+            System.out.println("---Command handled");
+        }
+        // This line is necessary for the quit command, we stop before trying to send
+        // a message which would result in failure anyways since the user disconnected
+        if(!connected.get()) return;
+
+        try {
+            // Sends a reply to the client
+            sendQueued(null);
+
+            mainBroker.flushFirstSyncMessage();
+
+            //Here, we handle other asynchronous commands to all other players
+
+            tryAsyncCommandsForAll();
+
+            cleanParameters();
+
+        }
+        catch (IOException e){
+            connectionLostAlert("Error while sending the reply to the client");
+        }
+    }
+
+    /**
+     * Releases the lock of the broker, sending the events received in the meantime if no one else will:
+     * the players who couldn't take the lock left them to the thread holding it.
+     * In a game they're sent by the executor of the game, which is the only one reading it
+     */
+    private void releaseCommandLock(){
+        commandLock.unlock();
+        if(commandLock.isHeldByCurrentThread() || (receivedEvents.isEmpty() && replayFrom == NO_REPLAY)) return;
+        GameExecutor gameExecutor = getGameExecutor();
+        if(gameExecutor == null || gameExecutor.isRunningTask()) sendAsynchronousCommands();
+        else gameExecutor.execute(this::sendAsynchronousCommands);
     }
 
     /**
-     * Called after trying to send the async commands for all clients;
-     * clears the condition that made the commands trigger
+     * Replies to a ping received on the main socket, without any asynchronous message
      */
-    private void clearAsyncConditions() {
-        for(AsyncCommandHandler handler : asyncHandlers){
-            handler.clearCondition(parameters);
+    private void answerPing(){
+        PingRequest ping = PongHandler.readPing(mainBroker);
+
+        commandLock.lock();
+        try {
+            if(ping != null && connected.get()){
+                if(ping.viewResync()) requestViewResync();
+                mainBroker.addToMessage(NetworkFieldEnum.COMMAND, CommandEnum.PONG);
+                mainBroker.addToMessage(NetworkFieldEnum.ID_PING_REQUEST, ping.idPingRequest());
+                mainBroker.addToMessage(NetworkFieldEnum.ID_USER, ping.idUser());
+                sendQueued(null);
+            }
+            mainBroker.flushFirstSyncMessage();
+        }
+        catch (IOException e){
+            connectionLostAlert("Couldn't send the pong command");
+        }
+        finally {
+            releaseCommandLock();
         }
     }
 
@@ -188,19 +396,20 @@ public class ClientHandler implements Runnable{
             sendAsynchronousCommands();
             return;
         }
-        // This client need to update a lobby with others
+        // This client need to update a lobby with others, the messages they share are built once
         ClientHandler handler;
+        Broadcast broadcast = new Broadcast();
 
         if(parameters.getUserLobby() != null) { //The lobby takes priority
             for (Integer user : parameters.getUserLobby().getPlayers()) {
                 handler = ActiveClients.getHandlerFromId(user);
-                handler.sendAsynchronousCommands();
+                handler.sendAsynchronousCommands(broadcast);
             }
         }
         else { // The lobby that was left is a fallback
             for (Integer user : parameters.getJustLeftLobby().getPlayers()) {
                 handler = ActiveClients.getHandlerFromId(user);
-                handler.sendAsynchronousCommands();
+                handler.sendAsynchronousCommands(broadcast);
             }
         }
     }
@@ -227,15 +436,48 @@ public class ClientHandler implements Runnable{
      * Closes connection.
      */
     public void connectionLostAlert(String error){
-        if(alreadyAlerted) return;
-        alreadyAlerted = true;
+        GameExecutor gameExecutor = getGameExecutor();
+        if(gameExecutor == null || gameExecutor.isRunningTask()) alertConnectionLost(error);
+        else gameExecutor.execute(() -> alertConnectionLost(error)); // the game is told by its own executor
+    }
+
+    private void alertConnectionLost(String error){
+        if(alreadyAlerted.getAndSet(true)) return;
 
+        if(parameters.getResumeToken() != null && RESUME_GRACE_MILLIS > 0){
+            closeConnection();
+            suspendSession(error);
+            return;
+        }
+        dropSession(error);
+    }
+
+    /**
+     * Keeps the session, with its lobby and game waiting for the client to come back, for the grace window
+     * @param reason the reason the session has no connection
+     */
+    private void suspendSession(String reason){
+        System.err.println(reason + ", the session is kept for " + RESUME_GRACE_MILLIS + " ms");
+        ResumableSessions.suspend(parameters.getResumeToken(), this, RESUME_GRACE_MILLIS, () -> {
+            GameExecutor gameExecutor = getGameExecutor();
+            String expired = "The session of user " + parameters.getIdUser() + " wasn't resumed in time";
+            if(gameExecutor == null) dropSession(expired);
+            else gameExecutor.execute(() -> dropSession(expired));
+        });
+    }
+
+    /**
+     * Removes the user from their lobby and game, which are ended, and from the users logged in
+     * @param error the reason the user is dropped
+     */
+    private void dropSession(String error){
         if(parameters.getUserLobby() != null){
             parameters.getUserLobby().removePlayer(parameters.getIdUser());
+            Broadcast broadcast = new Broadcast();
             for(Integer idUser : parameters.getUserLobby().getPlayers()){
                 if(idUser != parameters.getIdUser()){
                     //We prematurely send async commands to make sure the players know someone disconnected right away
-                    ActiveClients.getHandlerFromId(idUser).sendAsynchronousCommands();
+                    ActiveClients.getHandlerFromId(idUser).sendAsynchronousCommands(broadcast);
                 }
             }
         }
@@ -243,16 +485,17 @@ public class ClientHandler implements Runnable{
             //Save the players that will need to be notified after the lobby is cleared
             List<Integer> playersToSignal = new ArrayList<>(parameters.getUserLobby().getPlayers());
 
-            //Clear the lobby
-            parameters.getUserLobby().destroyLobby(true);
-
-            //Handle the controller
+            //Handle the controller, the players are told before the lobby empties
             parameters.getUserController().setError("Connection lost with " + LoginHandler.getNicknameFromId(parameters.getIdUser()));
             parameters.getUserController().lostConnectionHandle(parameters.getIdUser());
+
+            //Clear the lobby
+            parameters.getUserLobby().destroyLobby(true);
+            Broadcast broadcast = new Broadcast();
             for(Integer idUser : playersToSignal){
                 if(idUser != parameters.getIdUser()){
                     //We prematurely send async commands to make sure the players know someone disconnected right away
-                    ActiveClients.getHandlerFromId(idUser).sendAsynchronousCommands();
+                    ActiveClients.getHandlerFromId(idUser).sendAsynchronousCommands(broadcast);
                 }
             }
         }
@@ -262,6 +505,58 @@ public class ClientHandler implements Runnable{
         closeConnection();
     }
 
+    /**
+     * Takes over a session suspended when its connection was lost, this handler's own user is discarded. <br>
+     * The asynchronous messages the client missed are sent right after the reply to the CONNECTION_REQUEST,
+     * or a snapshot of the lobby and the game if the replay buffer didn't keep all of them,
+     * or if the session was restored after a restart
+     * @param suspended the handler of the suspended session, taken out of the ResumableSessions
+     * @param lastAsyncIdRequest the last asynchronous message the client read
+     */
+    public void resumeSession(ClientHandler suspended, int lastAsyncIdRequest){
+        int discardedUser = parameters.getIdUser();
+        parameters.takeOver(suspended.parameters);
+        GameEvent event;
+        while((event = suspended.receivedEvents.poll()) != null) receivedEvents.add(event);
+
+        ActiveClients.setHandler(parameters.getIdUser(), this);
+        if(discardedUser != parameters.getIdUser()) ActiveClients.removeUserIdToClientHandlerAssociation(discardedUser);
+        replayFrom = suspended.restored ? SNAPSHOT : lastAsyncIdRequest;
+        System.out.println("[ user " + parameters.getIdUser() + " ] Session resumed");
+    }
+
+    /**
+     * Sends again the asynchronous messages sent after the last one read by the client, in their order,
+     * or makes the next ones describe the whole state of the lobby and the game
+     * @param lastAsyncIdRequest the last asynchronous message read by the client, SNAPSHOT for a restored session
+     */
+    private void replayMissedMessages(int lastAsyncIdRequest){
+        List<ReplayBuffer.Message> missed = lastAsyncIdRequest == SNAPSHOT ? null : parameters.getReplayBuffer().since(lastAsyncIdRequest);
+        if(missed == null){
+            if(parameters.getUserLobby() != null) onEvent(new GameEvent.LobbyModified(parameters.getUserLobby()));
+            Controller controller = parameters.getUserController();
+            if(controller != null){
+                if(controller.isGameStarted()){
+                    // A client coming back after a restart may have lost the game altogether
+                    if(lastAsyncIdRequest == SNAPSHOT) onEvent(new GameEvent.GameStarted(controller));
+                    requestViewResync();
+                    onEvent(new GameEvent.NewTurn(controller));
+                }
+                else onEvent(new GameEvent.PlayerCreationModified(controller));
+            }
+            return;
+        }
+        try {
+            for(ReplayBuffer.Message message : missed){
+                mainBroker.addAllToMessage(message.fields());
+                mainBroker.setSharedPart(message.sharedPart());
+                sendQueued(null);
+            }
+        } catch (IOException e) {
+            connectionLostAlert("Couldn't send the missed asynchronous messages");
+        }
+    }
+
     /**
      * Closes the current connection's sockets
      * Sets isConnected to false.
@@ -269,8 +564,8 @@ public class ClientHandler implements Runnable{
     private void closeConnection() {
         connected.set(false);
         try{
-            mainSocket.close();
-            pingSocket.close();
+            if(mainSocket != null) mainSocket.close();
+            if(pingSocket != null) pingSocket.close();
             System.out.println("[ user " + parameters.getIdUser() + " ] Connection closed");
         }
         catch (IOException e){
@@ -285,16 +580,15 @@ public class ClientHandler implements Runnable{
      */
     public void handleCommand(MessageBroker messageBroker){
 
-        boolean successfulOperation = false;
-        for (CommandHandler commandHandler:
-             commandHandlers) {
+        CommandEnum command = CommandEnum.fromObjectToEnum(messageBroker.readField(NetworkFieldEnum.COMMAND));
+        boolean successfulOperation = CommandRegistry.dispatch(command, messageBroker, parameters);
+        Controller controller = parameters.getUserController();
+        if(successfulOperation && controller != null && ActiveGames.isRecorded(command)){
             try {
-                successfulOperation = commandHandler.executeCommand(messageBroker, parameters);
-            }
-            catch (UnexecutableCommandException e){
-                continue;
+                ActiveGames.recordCommand(controller, parameters.getIdUser(), messageBroker.readRequest());
+            } catch (MalformedRequestException e) {
+                System.err.println("- Error: An executed command couldn't be recorded");
             }
-            break;
         }
 
         if (!successfulOperation){
@@ -306,31 +600,103 @@ public class ClientHandler implements Runnable{
     }
 
     /**
-     * Each handler will see if it's appropriate to send the respective command, based on what happened
-     * in the sync commands before
+     * The handlers triggered by the events received will send the respective commands, based on what
+     * happened in the sync commands before
      * This method is called only after a synchronous command has been handled, which is correct as
      * the server can't send messages of its own volition
      */
     public void sendAsynchronousCommands(){
+        sendAsynchronousCommands(new Broadcast());
+    }
 
-        OutputStream outStream;
-        try {
-            outStream = mainSocket.getOutputStream();
-        } catch (IOException e) {
+    /**
+     * Sends the asynchronous commands to this client as one of the recipients of a change. <br>
+     * If another thread is using the broker of this client, the events are left to it
+     * @param broadcast the messages shared with the other recipients, each one is built and encoded once
+     */
+    public void sendAsynchronousCommands(Broadcast broadcast){
+
+        if(clientOutput == null){
             connectionLostAlert("Couldn't get the client's output stream");
             return;
         }
-        for(AsyncCommandHandler asyncCommandHandler : asyncHandlers){
-            if(asyncCommandHandler.executeCommand(mainBroker, parameters)){
-                mainBroker.addToMessage(NetworkFieldEnum.ASYNC_ID_REQUEST, ActiveClients.increaseAndGetAsyncIdRequest());
-                try {
-                    mainBroker.send(outStream);
-                    mainBroker.flushFirstAsyncMessage();
-                    System.out.println("-++Async message sent [idUser: "+parameters.getIdUser()+"]");
-                } catch (IOException e) {
-                    connectionLostAlert("Couldn't send the asynchronous message");
+        if(!commandLock.tryLock()) return; // sent by the thread holding the lock when it releases it
+        try {
+            int lastAsyncIdRequest = replayFrom;
+            if(lastAsyncIdRequest != NO_REPLAY){
+                replayFrom = NO_REPLAY;
+                replayMissedMessages(lastAsyncIdRequest);
+            }
+            for(GameEvent event : takeReceivedEvents()){
+                for(AsyncCommandHandler asyncCommandHandler : asyncHandlers.get(event.getType())){
+                    sendAsynchronousCommand(asyncCommandHandler, event, broadcast);
                 }
             }
+        } finally {
+            releaseCommandLock();
+        }
+    }
+
+    /**
+     * Takes out the events received so far, in the order they were published in
+     * @return the events, an event saying that a state changed only once for each state
+     */
+    private List<GameEvent> takeReceivedEvents(){
+        List<GameEvent> events = new ArrayList<>();
+        GameEvent event;
+        while((event = receivedEvents.poll()) != null){
+            // The latest state is sent anyway, telling it twice would be useless
+            if(event.getType().latestState && events.contains(event)) continue;
+            events.add(event);
+        }
+        return events;
+    }
+
+    private void sendAsynchronousCommand(AsyncCommandHandler asyncCommandHandler, GameEvent event, Broadcast broadcast){
+        // An older state still waiting to be written is replaced by the one built now,
+        // which must then cover what the client never received
+        CommandEnum coalescingKey = asyncCommandHandler.isLatestState() ? asyncCommandHandler.getCommandHandled() : null;
+        if(coalescingKey != null && asyncCommandHandler.triggerCondition(parameters, event) && clientOutput.retract(coalescingKey)){
+            asyncCommandHandler.onRetracted(parameters);
+            parameters.getReplayBuffer().retractLatest(coalescingKey);
+        }
+
+        if(asyncCommandHandler.executeCommand(mainBroker, parameters, event, broadcast)){
+            int asyncIdRequest = parameters.increaseAndGetAsyncIdRequest();
+            mainBroker.addToMessage(NetworkFieldEnum.ASYNC_ID_REQUEST, asyncIdRequest);
+            parameters.getReplayBuffer().add(asyncIdRequest, mainBroker.getOutgoingMessage(), mainBroker.getSharedPart());
+            if(!connected.get()){ // Kept for the client resuming the session
+                mainBroker.discardOutgoingMessage();
+                return;
+            }
+            try {
+                sendQueued(coalescingKey);
+                mainBroker.flushFirstAsyncMessage();
+                System.out.println("-++Async message sent [idUser: "+parameters.getIdUser()+"]");
+            } catch (IOException e) {
+                connectionLostAlert("Couldn't send the asynchronous message");
+            }
+        }
+    }
+
+    /**
+     * Stores an event of the lobby of this client, the commands for it are sent with the next ones
+     * @param event the event published
+     */
+    @Override
+    public void onEvent(GameEvent event) {
+        receivedEvents.add(event);
+    }
+
+    /**
+     * Queues the outgoing message of the main broker for the client
+     * @param coalescingKey the state carried by the message, null if it can't be replaced by a newer one
+     * @throws IOException if the connection is closed or the client is too far behind
+     */
+    private void sendQueued(Object coalescingKey) throws IOException {
+        synchronized (clientOutput){
+            clientOutput.setCoalescingKey(coalescingKey);
+            mainBroker.send(clientOutput);
         }
     }
 
@@ -339,8 +705,51 @@ public class ClientHandler implements Runnable{
     }
 
     /**
-     * Used by the Server class to coordinate opening the ping socket
-     * @return the Socket for this user
+     * Signals that a ping, or any other message, has just been received from this client,
+     * postponing its timeout in the HeartbeatScheduler
+     */
+    public void notifyPing(){
+        lastPingMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Signals that the client missed an update of the game view,
+     * the complete view will be sent with the next game update
+     */
+    public void requestViewResync(){
+        parameters.setViewResyncRequested(true);
+        Controller controller = parameters.getUserController();
+        if(controller != null) onEvent(new GameEvent.GameUpdated(controller));
+    }
+
+    public long getLastPingMillis() {
+        return lastPingMillis;
+    }
+
+    public int getIdUser() {
+        return parameters.getIdUser();
+    }
+
+    /**
+     * @return the token the client can resume this session with, null if the session can't be resumed
+     */
+    public String getResumeToken() {
+        return parameters.getResumeToken();
+    }
+
+    /**
+     * @return the sequence number of the last asynchronous message of this session
+     */
+    public int getLastAsyncIdRequest() {
+        return parameters.getAsyncIdRequest();
+    }
+
+    public MessageBroker getMainBroker() {
+        return mainBroker;
+    }
+
+    /**
+     * @return the main Socket for this user
      */
     public Socket getMainSocket(){
         return mainSocket;
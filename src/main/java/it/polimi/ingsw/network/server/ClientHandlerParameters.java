@@ -1,15 +1,24 @@
 package it.polimi.ingsw.network.server;
 
 import it.polimi.ingsw.controller.Controller;
-import it.polimi.ingsw.network.connectionState.Authentication;
+import it.polimi.ingsw.controller.events.GameEvent;
+import it.polimi.ingsw.controller.events.GameEventListener;
+import it.polimi.ingsw.model.beans.VirtualViewDeltaBean;
+import it.polimi.ingsw.network.connectionState.ConnectionStateEnum;
+import it.polimi.ingsw.network.connectionState.FactoryConnectionState;
 import it.polimi.ingsw.network.connectionState.ConnectionState;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Holds the parameters for this user's connection: <br>
  * - user id  <br>
  * - connection state (and its callback for character card playing) <br>
- * - lobby <br>
+ * - lobby, whose events are delivered to the listener of the connection <br>
  * - controller <br>
+ * - last revision of the game view sent to the user <br>
+ * - resume token, sequence number and replay buffer of the asynchronous messages, taken over by the
+ *   connection that resumes the session <br>
  */
 public class ClientHandlerParameters {
 
@@ -19,11 +28,23 @@ public class ClientHandlerParameters {
     private Lobby userLobby;
     private Lobby justLeftLobby;
     private Controller userController;
+    private int lastViewRevision;
+    private int lastViewBaseRevision; // the revision the last update started from
+    private volatile boolean viewResyncRequested;
+    private GameEventListener eventListener;
+    private volatile String resumeToken;
+    private AtomicInteger asyncIdRequest;
+    private ReplayBuffer replayBuffer;
 
     public ClientHandlerParameters(){
-        this.connectionState = new Authentication();
+        this.connectionState = FactoryConnectionState.getState(ConnectionStateEnum.AUTHENTICATION);
         this.userLobby = null;
         this.userController = null;
+        this.lastViewRevision = VirtualViewDeltaBean.COMPLETE_VIEW;
+        this.lastViewBaseRevision = VirtualViewDeltaBean.COMPLETE_VIEW;
+        this.viewResyncRequested = false;
+        this.asyncIdRequest = new AtomicInteger(0);
+        this.replayBuffer = new ReplayBuffer();
     }
 
     public int getIdUser() {
@@ -54,16 +75,62 @@ public class ClientHandlerParameters {
         return userLobby;
     }
 
+    /**
+     * Sets the lobby of the user, who from now on only receives the events of the new lobby
+     * @param userLobby the lobby joined, null if the user left it
+     */
     public void setUserLobby(Lobby userLobby) {
+        if(eventListener != null && this.userLobby != userLobby){
+            if(this.userLobby != null) this.userLobby.getEventBus().unsubscribe(eventListener);
+            if(userLobby != null){
+                userLobby.getEventBus().subscribe(eventListener);
+                // What happened before joining is summed up by the current status of the lobby
+                eventListener.onEvent(new GameEvent.LobbyModified(userLobby));
+            }
+        }
         this.userLobby = userLobby;
     }
 
+    /**
+     * @param eventListener the listener receiving the events of the lobby of the user
+     */
+    public void setEventListener(GameEventListener eventListener) {
+        this.eventListener = eventListener;
+    }
+
     public Controller getUserController() {
         return userController;
     }
 
     public void setUserController(Controller userController) {
         this.userController = userController;
+        // A new game always starts from its complete view
+        this.lastViewRevision = VirtualViewDeltaBean.COMPLETE_VIEW;
+        this.lastViewBaseRevision = VirtualViewDeltaBean.COMPLETE_VIEW;
+    }
+
+    public int getLastViewRevision() {
+        return lastViewRevision;
+    }
+
+    public void setLastViewRevision(int lastViewRevision) {
+        this.lastViewRevision = lastViewRevision;
+    }
+
+    public int getLastViewBaseRevision() {
+        return lastViewBaseRevision;
+    }
+
+    public void setLastViewBaseRevision(int lastViewBaseRevision) {
+        this.lastViewBaseRevision = lastViewBaseRevision;
+    }
+
+    public boolean isViewResyncRequested() {
+        return viewResyncRequested;
+    }
+
+    public void setViewResyncRequested(boolean viewResyncRequested) {
+        this.viewResyncRequested = viewResyncRequested;
     }
 
     public void setJustLeftLobby(Lobby userLobby) {
@@ -73,4 +140,62 @@ public class ClientHandlerParameters {
     public Lobby getJustLeftLobby() {
         return justLeftLobby;
     }
+
+    /**
+     * @return the token the client can resume this session with, null if the session can't be resumed
+     */
+    public String getResumeToken() {
+        return resumeToken;
+    }
+
+    public void setResumeToken(String resumeToken) {
+        this.resumeToken = resumeToken;
+    }
+
+    /**
+     * @return the sequence number of the next asynchronous message of this session
+     */
+    public int increaseAndGetAsyncIdRequest() {
+        return asyncIdRequest.incrementAndGet();
+    }
+
+    public int getAsyncIdRequest() {
+        return asyncIdRequest.get();
+    }
+
+    /**
+     * Goes on numbering the asynchronous messages of a session restored after a restart
+     * @param lastAsyncIdRequest the sequence number of the last asynchronous message sent before the restart
+     */
+    public void setAsyncIdRequest(int lastAsyncIdRequest) {
+        asyncIdRequest.set(lastAsyncIdRequest);
+    }
+
+    public ReplayBuffer getReplayBuffer() {
+        return replayBuffer;
+    }
+
+    /**
+     * Takes over the session of a connection that was lost: the user, their lobby and game and what was
+     * sent to them. The lobby's events are delivered to the listener of this connection from now on
+     * @param suspended the parameters of the lost connection, which mustn't be used anymore
+     */
+    public void takeOver(ClientHandlerParameters suspended) {
+        idUser = suspended.idUser;
+        connectionState = suspended.connectionState;
+        callbackConnectionState = suspended.callbackConnectionState;
+        userController = suspended.userController;
+        lastViewRevision = suspended.lastViewRevision;
+        lastViewBaseRevision = suspended.lastViewBaseRevision;
+        viewResyncRequested = suspended.viewResyncRequested;
+        resumeToken = suspended.resumeToken;
+        asyncIdRequest = suspended.asyncIdRequest;
+        replayBuffer = suspended.replayBuffer;
+
+        userLobby = suspended.userLobby;
+        if(userLobby != null){
+            userLobby.getEventBus().unsubscribe(suspended.eventListener);
+            if(eventListener != null) userLobby.getEventBus().subscribe(eventListener);
+        }
+    }
 }
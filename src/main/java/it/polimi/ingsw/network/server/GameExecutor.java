@@ -0,0 +1,123 @@
+package it.polimi.ingsw.network.server;
+
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the work of a single game one task at a time, so that its controller and its model are only ever
+ * used by one thread at a time and need no locks of their own. <br>
+ * The tasks wait in the mailbox of the game, which is drained by one of the threads of a pool shared by
+ * every game and sized to the cores: a game never takes more than one thread, and a thread switches
+ * to another game after a few tasks, so the games are spread across all the cores. <br>
+ * The threads sending the tasks don't wait for them: a command handed to its game is replied to by the
+ * thread of the game, and the connection goes on with its next command once it's done
+ */
+public class GameExecutor implements Executor {
+
+    public static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static final int TASKS_PER_TURN = 16; // taken from the mailbox before letting the other games run
+
+    private static final AtomicInteger threadsCreated = new AtomicInteger(0);
+    private static final ExecutorService pool = Executors.newFixedThreadPool(THREADS, task -> {
+        Thread thread = new Thread(task, "GameExecutor-" + threadsCreated.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final ThreadLocal<GameExecutor> running = new ThreadLocal<>();
+
+    private final Queue<Runnable> mailbox;
+    private final AtomicBoolean scheduled; // true while the mailbox is waiting for, or being drained by, a thread
+    private final AtomicLong tasksRun;
+
+    public GameExecutor(){
+        mailbox = new ConcurrentLinkedQueue<>();
+        scheduled = new AtomicBoolean(false);
+        tasksRun = new AtomicLong(0);
+    }
+
+    /**
+     * Puts a task in the mailbox of the game, it will run on a thread of the pool after the ones
+     * already in it. The calling thread never waits for it
+     * @param task the task to run
+     */
+    @Override
+    public void execute(Runnable task){
+        mailbox.add(task);
+        schedule();
+    }
+
+    /**
+     * Runs a task after the ones already in the mailbox, waiting for it to end. Only meant for the
+     * threads that have nothing else to do meanwhile, such as the one of a blocking connection, and
+     * never for a task of another game, which would keep a thread of the pool waiting. <br>
+     * If called by a task of this game the new task runs right away, since waiting would never end
+     * @param task the task to run, the exceptions it throws are thrown again
+     */
+    public void executeAndWait(Runnable task){
+        if(isRunningTask()){
+            task.run();
+            return;
+        }
+        FutureTask<Void> futureTask = new FutureTask<>(task, null);
+        execute(futureTask);
+
+        boolean interrupted = false;
+        while(true){
+            try {
+                futureTask.get();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true; // the task is already in the mailbox, we still wait for it to end
+            } catch (ExecutionException e) {
+                if(e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+                if(e.getCause() instanceof Error error) throw error;
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        if(interrupted) Thread.currentThread().interrupt();
+    }
+
+    /**
+     * @return true if the calling thread is running a task of this game
+     */
+    public boolean isRunningTask(){
+        return running.get() == this;
+    }
+
+    /**
+     * @return the amount of tasks taken from the mailbox of this game
+     */
+    public long getTasksRun(){
+        return tasksRun.get();
+    }
+
+    private void schedule(){
+        if(scheduled.compareAndSet(false, true)) pool.execute(this::drain);
+    }
+
+    /**
+     * Runs some of the tasks in the mailbox, then leaves the thread to the other games
+     */
+    private void drain(){
+        running.set(this);
+        try {
+            Runnable task;
+            for(int taken = 0; taken < TASKS_PER_TURN && (task = mailbox.poll()) != null; taken++){
+                tasksRun.incrementAndGet();
+                try {
+                    task.run();
+                } catch (RuntimeException e){
+                    System.err.println("A task of the game failed: " + e);
+                }
+            }
+        } finally {
+            running.remove();
+            scheduled.set(false);
+            // A task added after the last poll, but before the flag was cleared, would otherwise wait forever
+            if(!mailbox.isEmpty()) schedule();
+        }
+    }
+}
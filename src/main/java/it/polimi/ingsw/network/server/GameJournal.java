@@ -0,0 +1,659 @@
+package it.polimi.ingsw.network.server;
+
+import it.polimi.ingsw.controller.GameRuleEnum;
+import it.polimi.ingsw.model.StudentEnum;
+import it.polimi.ingsw.network.CommandEnum;
+import it.polimi.ingsw.network.request.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The file where the server keeps the games being played, so that they survive a restart. <br>
+ * The file is mapped in memory and grows by chunks. Each record is framed by its length and its CRC32:
+ * a record torn by a crash is found by its CRC, and the file is read up to the last complete one. <br>
+ * A record is either the checkpoint of a game, taken at the end of a turn, or the end of a game.
+ * A checkpoint is the seed of the game and the commands it accepted so far, from which GameReplay
+ * rebuilds it: the executor of the game only queues them, they are encoded, deflated and written
+ * by a thread of the journal, so the games never wait for the disk. <br>
+ * When opened, the journal is compacted to the latest checkpoint of each unfinished game,
+ * and only one server at a time can use it. <br>
+ * If asked to when opened, the journal also gives each game a recording of its own, next to it: the seed
+ * the game was created with and every command accepted by it, in order. The recordings are never compacted,
+ * so any game, finished or not, can be played again offline by GameReplay; they are only kept on request
+ * since they grow with every game played. <br>
+ * The recordings and the checkpoints start with FORMAT_VERSION, and the ones of another version are refused
+ */
+public class GameJournal {
+
+    public static final int CHUNK_BYTES = 1 << 20;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES; // length and CRC32 of the payload
+    private static final byte CHECKPOINT = 1;
+    private static final byte END = 2;
+    private static final byte GAME_CREATED = 3; // the first record of a recording
+    private static final byte COMMAND = 4;
+    // To be incremented whenever the encoding of the games changes, or the game plays their commands differently
+    private static final int FORMAT_VERSION = 2;
+
+    // The kinds of requests a recorded command is written as
+    private static final byte USER_REQUEST = 0;
+    private static final byte CHOICE_REQUEST = 1;
+    private static final byte POSITIONS_REQUEST = 2;
+    private static final byte STUDENT_COLORS_REQUEST = 3;
+
+    /**
+     * A player of a journaled game
+     * @param nickname the nickname of the player
+     * @param resumeToken the token the client resumes its session with
+     * @param lastAsyncIdRequest the sequence number of the last asynchronous message sent to the player
+     */
+    public record Player(String nickname, String resumeToken, int lastAsyncIdRequest) {}
+
+    /**
+     * The latest checkpoint of a game
+     * @param gameId the id of the game in the journal
+     * @param players the players, in the order the game was created with
+     * @param checkpoint the checkpoint as encoded by encodeCheckpoint
+     */
+    public record Entry(long gameId, List<Player> players, byte[] checkpoint) {}
+
+    /**
+     * A command accepted by a recorded game
+     * @param player the position of the player who sent it, in the order the game was created with
+     * @param request the request of the command; its idRequest is the position of the command in the recording
+     */
+    public record Command(int player, Request request) {}
+
+    /**
+     * Everything needed to play a game again
+     * @param gameId the id of the game in the journal
+     * @param gameRule the rules of the game
+     * @param seed the seed the game was created with
+     * @param nicknames the nicknames of the players, in the order the game was created with
+     * @param commands the commands accepted by the game, in the order they were executed
+     */
+    public record Recording(long gameId, GameRuleEnum gameRule, long seed, List<String> nicknames, List<Command> commands) {}
+
+    // The payload of the records of a recording is encoded by the thread queuing them, the game of a checkpoint by the writer
+    private record Pending(byte type, long gameId, List<Player> players, byte[] payload, Recording game) {}
+
+    private static final Pending CLOSE = new Pending((byte) 0, 0, null, null, null);
+
+    private final Path path;
+    private final Path recordings;
+    private final boolean recordingGames; // false if the games only get a checkpoint
+    private final Map<Long, FileChannel> openRecordings; // only used by the writer
+    private Set<FileChannel> forced; // the recordings written in the current batch
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final FileChannel channel;
+    private MappedByteBuffer mapped; // only used by the writer once the journal is open
+    private final List<Entry> unfinishedGames;
+    private final BlockingQueue<Pending> pending;
+    private final Thread writer;
+    private long nextGameId;
+    private volatile long writtenBytes;
+
+    private GameJournal(Path path, boolean recordingGames, FileChannel lockChannel, FileLock lock) throws IOException {
+        this.path = path;
+        this.recordingGames = recordingGames;
+        this.lockChannel = lockChannel;
+        this.lock = lock;
+        this.recordings = path.resolveSibling(path.getFileName() + ".games");
+        this.openRecordings = new HashMap<>();
+        if(recordingGames) Files.createDirectories(recordings);
+
+        Map<Long, Entry> games = new LinkedHashMap<>();
+        if(Files.exists(path)) games = read(path);
+        unfinishedGames = List.copyOf(games.values());
+        nextGameId = games.keySet().stream().mapToLong(Long::longValue).max().orElse(0) + 1;
+        if(Files.isDirectory(recordings)){
+            try(DirectoryStream<Path> recorded = Files.newDirectoryStream(recordings, "*.commands")){
+                for(Path recording : recorded){
+                    String name = recording.getFileName().toString();
+                    try {
+                        nextGameId = Math.max(nextGameId, Long.parseLong(name.substring(0, name.indexOf('.'))) + 1);
+                    } catch (NumberFormatException e) {
+                        // not a recording of the journal
+                    }
+                }
+            }
+        }
+
+        // The compacted journal replaces the old one only once it's complete
+        Path compacted = path.resolveSibling(path.getFileName() + ".compacting");
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try(FileChannel output = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)){
+            for(Entry entry : unfinishedGames)
+                output.write(ByteBuffer.wrap(frame(encode(CHECKPOINT, entry.gameId(), entry.players(), deflate(entry.checkpoint(), deflater)))));
+            output.force(true);
+        } finally {
+            deflater.end();
+        }
+        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        writtenBytes = channel.size();
+        mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, roundToChunk(writtenBytes + 1));
+        mapped.position((int) writtenBytes);
+
+        pending = new LinkedBlockingQueue<>();
+        writer = new Thread(this::writeRecords, "GameJournal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Opens a journal without recordings, creating it if there is none
+     * @param path the file of the journal
+     * @return the journal, with the games left unfinished by the last server that used it
+     * @throws IOException if the file can't be used, or another server is using it
+     */
+    public static GameJournal open(Path path) throws IOException {
+        return open(path, false);
+    }
+
+    /**
+     * Opens a journal, creating it if there is none
+     * @param path the file of the journal
+     * @param recordingGames true if the games are also recorded, to be played again once over
+     * @return the journal, with the games left unfinished by the last server that used it
+     * @throws IOException if the file can't be used, or another server is using it
+     */
+    public static GameJournal open(Path path, boolean recordingGames) throws IOException {
+        Path lockPath = path.resolveSibling(path.getFileName() + ".lock");
+        FileChannel lockChannel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = lockChannel.tryLock();
+        } catch (IOException | OverlappingFileLockException e) {
+            lockChannel.close();
+            lock = null;
+        }
+        if(lock == null){
+            lockChannel.close();
+            throw new IOException("The journal " + path + " is used by another server");
+        }
+        try {
+            return new GameJournal(path, recordingGames, lockChannel, lock);
+        } catch (IOException e) {
+            lock.release();
+            lockChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the games left unfinished when the journal was last closed, or when the server crashed
+     */
+    public List<Entry> getUnfinishedGames() {
+        return unfinishedGames;
+    }
+
+    /**
+     * @return the id for a new game, never used by the games in the journal or by their recordings
+     */
+    public synchronized long newGameId() {
+        return nextGameId++;
+    }
+
+    /**
+     * Queues the checkpoint of a game, it replaces the previous one once written. <br>
+     * The game is encoded by the writer, so it must not change anymore once queued
+     * @param gameId the id of the game
+     * @param players the players of the game, in the order the game was created with
+     * @param game the seed of the game and the commands it accepted so far
+     */
+    public void appendCheckpoint(long gameId, List<Player> players, Recording game) {
+        if(writer.isAlive()) pending.add(new Pending(CHECKPOINT, gameId, List.copyOf(players), null, game));
+    }
+
+    /**
+     * Queues the end of a game, which won't be restored anymore
+     * @param gameId the id of the game
+     */
+    public void appendEnd(long gameId) {
+        if(writer.isAlive()) pending.add(new Pending(END, gameId, List.of(), null, null));
+    }
+
+    /**
+     * Queues the first record of the recording of a new game, if the games are recorded
+     * @param gameId the id of the game
+     * @param gameRule the rules of the game
+     * @param seed the seed the game was created with
+     * @param nicknames the nicknames of the players, in the order the game was created with
+     */
+    public void appendGameCreated(long gameId, GameRuleEnum gameRule, long seed, List<String> nicknames) {
+        if(!recordingGames || !writer.isAlive()) return;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream output = new DataOutputStream(bytes);
+            output.writeByte(GAME_CREATED);
+            writeGame(output, gameId, gameRule, seed, nicknames);
+            pending.add(new Pending(GAME_CREATED, gameId, List.of(), bytes.toByteArray(), null));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // written in memory
+        }
+    }
+
+    /**
+     * Queues a command accepted by a recorded game, after the ones accepted before it, if the games are recorded
+     * @param gameId the id of the game
+     * @param player the position of the player who sent it, in the order the game was created with
+     * @param request the request of the command, one of the requests sent during a game
+     * @throws IllegalArgumentException if the request isn't one sent during a game
+     */
+    public void appendCommand(long gameId, int player, Request request) {
+        if(!recordingGames || !writer.isAlive()) return;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+            DataOutputStream output = new DataOutputStream(bytes);
+            output.writeByte(COMMAND);
+            output.writeLong(gameId);
+            writeCommand(output, player, request);
+            pending.add(new Pending(COMMAND, gameId, List.of(), bytes.toByteArray(), null));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // written in memory
+        }
+    }
+
+    /**
+     * @param gameId the id of a game
+     * @return the file of the recording of the game
+     */
+    public Path getRecordingPath(long gameId) {
+        return recordings.resolve(gameId + ".commands");
+    }
+
+    /**
+     * Reads a recording up to the first record missing or torn
+     * @param recording the file of the recording
+     * @return the recording, with the commands read
+     * @throws IOException if the file can't be read, doesn't start with the creation of a game
+     *                     or was written by another version of the game
+     */
+    public static Recording readRecording(Path recording) throws IOException {
+        ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(recording));
+        List<byte[]> payloads = readPayloads(file);
+        if(payloads.isEmpty()) throw new IOException("The recording " + recording + " is empty");
+
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(payloads.get(0)));
+        if(input.readByte() != GAME_CREATED) throw new IOException("The recording " + recording + " has no game");
+        Recording game = readGame(input);
+
+        List<Command> commands = new ArrayList<>();
+        for(byte[] payload : payloads.subList(1, payloads.size())){
+            input = new DataInputStream(new ByteArrayInputStream(payload));
+            if(input.readByte() != COMMAND) continue;
+            input.readLong(); // the id of the game
+            commands.add(readCommand(input, commands.size() + 1));
+        }
+        return new Recording(game.gameId(), game.gameRule(), game.seed(), game.nicknames(), List.copyOf(commands));
+    }
+
+    /**
+     * Encodes the checkpoint of a game: its seed and the commands it accepted, a few bytes for each of them
+     * @param game the game, as recorded so far
+     * @return the checkpoint, not deflated yet
+     */
+    public static byte[] encodeCheckpoint(Recording game) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + game.commands().size() * 24);
+            DataOutputStream output = new DataOutputStream(bytes);
+            writeGame(output, game.gameId(), game.gameRule(), game.seed(), game.nicknames());
+            output.writeInt(game.commands().size());
+            for(Command command : game.commands()) writeCommand(output, command.player(), command.request());
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // written in memory
+        }
+    }
+
+    /**
+     * @param checkpoint a checkpoint written by encodeCheckpoint
+     * @return the game, to be played again by GameReplay
+     * @throws IOException if the bytes aren't a checkpoint of this version of the game
+     */
+    public static Recording decodeCheckpoint(byte[] checkpoint) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(checkpoint));
+        Recording game = readGame(input);
+        List<Command> commands = new ArrayList<>();
+        for(int count = input.readInt(); commands.size() < count; ) commands.add(readCommand(input, commands.size() + 1));
+        return new Recording(game.gameId(), game.gameRule(), game.seed(), game.nicknames(), List.copyOf(commands));
+    }
+
+    /**
+     * Writes the records queued so far and closes the file
+     */
+    public void close() {
+        pending.add(CLOSE);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the bytes of the file holding records, the rest of the mapped chunk is still empty
+     */
+    public long getWrittenBytes() {
+        return writtenBytes;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * The loop of the writer: the records are deflated here, and the file is forced to the disk
+     * every time the queue has been emptied
+     */
+    private void writeRecords() {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        List<Pending> batch = new ArrayList<>();
+        forced = new HashSet<>();
+        boolean closing = false;
+        while(!closing){
+            try {
+                batch.add(pending.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            pending.drainTo(batch);
+            try {
+                for(Pending record : batch){
+                    if(record == CLOSE){
+                        closing = true;
+                        continue;
+                    }
+                    if(record.type() == GAME_CREATED || record.type() == COMMAND){
+                        writeRecording(record.gameId(), frame(record.payload()));
+                        continue;
+                    }
+                    byte[] checkpoint = record.type() == CHECKPOINT ? deflate(encodeCheckpoint(record.game()), deflater) : null;
+                    write(frame(encode(record.type(), record.gameId(), record.players(), checkpoint)));
+                    if(record.type() == END) forced.add(openRecordings.remove(record.gameId()));
+                }
+                mapped.force();
+                for(FileChannel recording : forced){
+                    if(recording == null) continue;
+                    recording.force(false);
+                    if(!openRecordings.containsValue(recording)) recording.close();
+                }
+                forced.clear();
+            } catch (IOException e) {
+                System.err.println("The games can't be written to the journal anymore: " + e.getMessage());
+                closing = true;
+            }
+            batch.clear();
+        }
+        deflater.end();
+        try {
+            for(FileChannel recording : openRecordings.values()) recording.close();
+            channel.close();
+            lock.release();
+            lockChannel.close();
+        } catch (IOException e) {
+            System.err.println("Problem while closing the journal");
+        }
+    }
+
+    private void write(byte[] record) throws IOException {
+        if(mapped.remaining() < record.length){
+            long size = roundToChunk(writtenBytes + record.length);
+            mapped.force();
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            mapped.position((int) writtenBytes);
+        }
+        mapped.put(record);
+        writtenBytes += record.length;
+    }
+
+    /**
+     * Appends a record to the recording of a game, opening it the first time. <br>
+     * A recording left torn by a crash is cut after its last complete record before going on
+     */
+    private void writeRecording(long gameId, byte[] record) throws IOException {
+        FileChannel recording = openRecordings.get(gameId);
+        if(recording == null){
+            Path file = getRecordingPath(gameId);
+            recording = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            ByteBuffer written = ByteBuffer.wrap(Files.readAllBytes(file));
+            readPayloads(written);
+            recording.truncate(written.position());
+            recording.position(written.position());
+            openRecordings.put(gameId, recording);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        while(buffer.hasRemaining()) recording.write(buffer);
+        forced.add(recording);
+    }
+
+    private static long roundToChunk(long bytes) {
+        return (bytes + CHUNK_BYTES - 1) / CHUNK_BYTES * CHUNK_BYTES;
+    }
+
+    private static byte[] encode(byte type, long gameId, List<Player> players, byte[] deflatedCheckpoint) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(deflatedCheckpoint == null ? 16 : deflatedCheckpoint.length + 128);
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeByte(type);
+        output.writeLong(gameId);
+        if(type == CHECKPOINT){
+            output.writeByte(players.size());
+            for(Player player : players){
+                output.writeUTF(player.nickname());
+                output.writeUTF(player.resumeToken() == null ? "" : player.resumeToken());
+                output.writeInt(player.lastAsyncIdRequest());
+            }
+            output.write(deflatedCheckpoint);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] frame(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return ByteBuffer.allocate(HEADER_BYTES + payload.length)
+                .putInt(payload.length).putInt((int) crc.getValue()).put(payload).array();
+    }
+
+    /**
+     * Reads the records up to the first one missing or torn
+     * @param path the file of the journal
+     * @return the latest checkpoint of each game without an end, by id
+     */
+    private static Map<Long, Entry> read(Path path) throws IOException {
+        Map<Long, Entry> games = new LinkedHashMap<>();
+        Set<Long> ended = new HashSet<>();
+        for(byte[] payload : readPayloads(ByteBuffer.wrap(Files.readAllBytes(path)))){
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload));
+            byte type = input.readByte();
+            long gameId = input.readLong();
+            if(type == END){
+                games.remove(gameId);
+                ended.add(gameId);
+            }
+            else if(type == CHECKPOINT && !ended.contains(gameId)){
+                int playerCount = input.readUnsignedByte();
+                List<Player> players = new ArrayList<>();
+                for(int player = 0; player < playerCount; player++){
+                    String nickname = input.readUTF();
+                    String resumeToken = input.readUTF();
+                    players.add(new Player(nickname, resumeToken.isEmpty() ? null : resumeToken, input.readInt()));
+                }
+                games.remove(gameId); // the games are kept in the order of their latest checkpoint
+                games.put(gameId, new Entry(gameId, players, inflate(input.readAllBytes())));
+            }
+        }
+        return games;
+    }
+
+    /**
+     * Reads the payloads of the records up to the first one missing or torn
+     * @param file the records, left positioned after the last complete one
+     * @return the payloads read
+     */
+    private static List<byte[]> readPayloads(ByteBuffer file) {
+        List<byte[]> payloads = new ArrayList<>();
+        while(file.remaining() >= HEADER_BYTES){
+            int start = file.position();
+            int length = file.getInt();
+            int expectedCrc = file.getInt();
+            if(length <= 0 || length > file.remaining()){
+                file.position(start);
+                break;
+            }
+            byte[] payload = new byte[length];
+            file.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if((int) crc.getValue() != expectedCrc){
+                file.position(start);
+                break;
+            }
+            payloads.add(payload);
+        }
+        return payloads;
+    }
+
+    private static void writeGame(DataOutputStream output, long gameId, GameRuleEnum gameRule, long seed,
+                                  List<String> nicknames) throws IOException {
+        output.writeInt(FORMAT_VERSION);
+        output.writeLong(gameId);
+        output.writeUTF(gameRule.name());
+        output.writeLong(seed);
+        output.writeByte(nicknames.size());
+        for(String nickname : nicknames) output.writeUTF(nickname);
+    }
+
+    /**
+     * @return the game read, without its commands
+     * @throws IOException if the game was written by another version of the game
+     */
+    private static Recording readGame(DataInputStream input) throws IOException {
+        if(input.available() < Integer.BYTES || input.readInt() != FORMAT_VERSION)
+            throw new IOException("Written by another version of the game");
+        long gameId = input.readLong();
+        GameRuleEnum gameRule;
+        try {
+            gameRule = GameRuleEnum.valueOf(input.readUTF());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unknown rules in the recording", e);
+        }
+        long seed = input.readLong();
+        int playerCount = input.readUnsignedByte();
+        List<String> nicknames = new ArrayList<>();
+        for(int player = 0; player < playerCount; player++) nicknames.add(input.readUTF());
+        return new Recording(gameId, gameRule, seed, List.copyOf(nicknames), List.of());
+    }
+
+    private static void writeCommand(DataOutputStream output, int player, Request request) throws IOException {
+        output.writeByte(player);
+        output.writeUTF(request.command().name());
+        writeRequest(output, request);
+    }
+
+    private static Command readCommand(DataInputStream input, int idRequest) throws IOException {
+        int player = input.readUnsignedByte();
+        return new Command(player, readRequest(input, player, idRequest));
+    }
+
+    private static void writeRequest(DataOutputStream output, Request request) throws IOException {
+        if(request instanceof ChoiceRequest choice){
+            output.writeByte(CHOICE_REQUEST);
+            output.writeInt(choice.choice());
+        }
+        else if(request instanceof PositionsRequest positions){
+            output.writeByte(POSITIONS_REQUEST);
+            output.writeByte(positions.positions().size());
+            for(Integer position : positions.positions()) output.writeInt(position);
+        }
+        else if(request instanceof StudentColorsRequest colors){
+            output.writeByte(STUDENT_COLORS_REQUEST);
+            output.writeByte(colors.colors().size());
+            for(StudentEnum color : colors.colors()) output.writeByte(color.ordinal());
+        }
+        else if(request instanceof UserRequest) output.writeByte(USER_REQUEST);
+        else throw new IllegalArgumentException(request.command() + " isn't sent during a game");
+    }
+
+    private static Request readRequest(DataInputStream input, int player, int idRequest) throws IOException {
+        CommandEnum command;
+        try {
+            command = CommandEnum.valueOf(input.readUTF());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unknown command in the recording", e);
+        }
+        switch (input.readByte()) {
+            case CHOICE_REQUEST -> {
+                return new ChoiceRequest(command, player, idRequest, input.readInt());
+            }
+            case POSITIONS_REQUEST -> {
+                List<Integer> positions = new ArrayList<>();
+                for(int size = input.readUnsignedByte(); positions.size() < size; ) positions.add(input.readInt());
+                return new PositionsRequest(command, player, idRequest, List.copyOf(positions));
+            }
+            case STUDENT_COLORS_REQUEST -> {
+                List<StudentEnum> colors = new ArrayList<>();
+                for(int size = input.readUnsignedByte(); colors.size() < size; ) colors.add(StudentEnum.values()[input.readUnsignedByte()]);
+                return new StudentColorsRequest(player, idRequest, List.copyOf(colors));
+            }
+            case USER_REQUEST -> {
+                return new UserRequest(command, player, idRequest);
+            }
+            default -> throw new IOException("Unknown request in the recording");
+        }
+    }
+
+    private static byte[] deflate(byte[] checkpoint, Deflater deflater) {
+        deflater.reset();
+        deflater.setInput(checkpoint);
+        deflater.finish();
+        ByteArrayOutputStream output = new ByteArrayOutputStream(checkpoint.length / 4 + Integer.BYTES);
+        output.writeBytes(ByteBuffer.allocate(Integer.BYTES).putInt(checkpoint.length).array());
+        byte[] buffer = new byte[4096];
+        while(!deflater.finished()){
+            int written = deflater.deflate(buffer);
+            output.write(buffer, 0, written);
+        }
+        return output.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] deflated) throws IOException {
+        int length = ByteBuffer.wrap(deflated, 0, Integer.BYTES).getInt();
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(deflated, Integer.BYTES, deflated.length - Integer.BYTES);
+            byte[] checkpoint = new byte[length];
+            int read = 0;
+            while(read < length && !inflater.finished()){
+                int inflated = inflater.inflate(checkpoint, read, length - read);
+                if(inflated == 0 && inflater.needsInput()) throw new IOException("Truncated checkpoint");
+                read += inflated;
+            }
+            return checkpoint;
+        } catch (DataFormatException e) {
+            throw new IOException("Bad checkpoint", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package it.polimi.ingsw.network.server;
+
+import it.polimi.ingsw.controller.Controller;
+import it.polimi.ingsw.controller.events.EventBus;
+import it.polimi.ingsw.network.MessageBroker;
+import it.polimi.ingsw.network.commandHandler.CommandRegistry;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plays a recorded game again, offline: the game is created with the seed of the recording, and its commands
+ * are executed in the same order by the same handlers that executed them on the server. <br>
+ * Since every random choice of a game comes from its seed, the game played again is the same game,
+ * so the recordings can be used to rebuild a game lost in a crash, to profile real matches or as benchmarks. <br>
+ * The checkpoints of the journal are played again the same way when the server restores its games
+ */
+public class GameReplay {
+
+    /**
+     * We don't want to instantiate this class
+     */
+    private GameReplay(){}
+
+    /**
+     * Plays a recorded game again, the id of each player is their position in the game
+     * @param recording the recording, read by GameJournal.readRecording
+     * @return the controller of the game, as it was after the last command recorded
+     * @throws IOException if a command isn't accepted again, so the recording was made by another version of the game
+     */
+    public static Controller replay(GameJournal.Recording recording) throws IOException {
+        List<Integer> players = new ArrayList<>();
+        for(int player = 0; player < recording.nicknames().size(); player++) players.add(player);
+        return replay(recording, players, new EventBus());
+    }
+
+    /**
+     * Plays a recorded game again for the given players, as done to restore a game from its checkpoint
+     * @param recording the recording, or the checkpoint, of the game
+     * @param players the idUsers of the players, in the order the game was created with
+     * @param eventBus the bus the game publishes its events on
+     * @return the controller of the game, as it was after the last command recorded
+     * @throws IOException if a command isn't accepted again, so the recording was made by another version of the game
+     */
+    public static Controller replay(GameJournal.Recording recording, List<Integer> players, EventBus eventBus) throws IOException {
+        if(players.size() != recording.nicknames().size())
+            throw new IOException("The game was recorded with " + recording.nicknames().size() + " players");
+        Controller controller = new Controller(players, recording.gameRule(), eventBus, recording.seed());
+
+        List<ClientHandlerParameters> parameters = new ArrayList<>();
+        for(int player = 0; player < players.size(); player++){
+            controller.setNickname(recording.nicknames().get(player), players.get(player));
+            ClientHandlerParameters playerParameters = new ClientHandlerParameters();
+            playerParameters.setIdUser(players.get(player));
+            playerParameters.setUserController(controller);
+            parameters.add(playerParameters);
+        }
+
+        MessageBroker messageBroker = new MessageBroker();
+        int executed = 0;
+        for(GameJournal.Command command : recording.commands()){
+            if(command.player() >= parameters.size())
+                throw new IOException("Command " + executed + " was sent by an unknown player");
+            messageBroker.setCurrentRequest(command.request());
+            boolean successfulOperation = CommandRegistry.dispatch(command.request().command(), messageBroker,
+                    parameters.get(command.player()));
+            messageBroker.discardOutgoingMessage();
+            messageBroker.flushFirstSyncMessage();
+            if(!successfulOperation)
+                throw new IOException("Command " + executed + " (" + command.request().command() + ") wasn't accepted again");
+            executed++;
+        }
+        return controller;
+    }
+}
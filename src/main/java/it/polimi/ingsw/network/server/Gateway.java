@@ -0,0 +1,224 @@
+package it.polimi.ingsw.network.server;
+
+import it.polimi.ingsw.network.CommandEnum;
+import it.polimi.ingsw.network.MessageBroker;
+import it.polimi.ingsw.network.NetworkFieldEnum;
+import it.polimi.ingsw.network.request.FieldDecoders;
+import it.polimi.ingsw.network.request.MalformedRequestException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Accepts the clients in place of a server and forwards their messages to several backend servers,
+ * each one a separate process holding its own lobbies and games. <br>
+ * The clients don't know about the backends: the gateway gives them user ids of its own, answers their pings
+ * and keeps the nicknames unique across the backends, while the GatewayRouter decides on which backend each
+ * user plays. Like the Server, the kind of each connection is decided by its first message
+ */
+public class Gateway {
+
+    private final int portNumber;
+    private final List<InetSocketAddress> backends;
+    private final GatewayRouter router;
+    private final Map<Integer, GatewaySession> sessions; // by the user id given by the gateway
+    private final Map<Long, GatewaySession> backendUsers; // by backend and the user id given by the backend
+    private final Map<String, GatewaySession> nicknames;
+    private final AtomicInteger nextUserId;
+    private ServerSocket serverSocket;
+
+    /**
+     * Creates a new gateway
+     * @param port the port on which the gateway starts listening for clients
+     * @param backends the addresses of the backend servers, already started
+     */
+    public Gateway(int port, List<InetSocketAddress> backends){
+        this.portNumber = port;
+        this.backends = List.copyOf(backends);
+        this.router = new GatewayRouter(backends.size());
+        this.sessions = new ConcurrentHashMap<>();
+        this.backendUsers = new ConcurrentHashMap<>();
+        this.nicknames = new ConcurrentHashMap<>();
+        this.nextUserId = new AtomicInteger(0);
+    }
+
+    /**
+     * Reads the addresses of the backends from the command line
+     * @param addresses the addresses in the form host:port, separated by commas
+     * @return the addresses read
+     * @throws IllegalArgumentException if an address has no port
+     */
+    public static List<InetSocketAddress> parseBackends(String addresses){
+        List<InetSocketAddress> parsed = new ArrayList<>();
+        for(String address : addresses.split(",")){
+            int separator = address.lastIndexOf(':');
+            if(separator <= 0) throw new IllegalArgumentException("The backend " + address + " has no port");
+            parsed.add(new InetSocketAddress(address.substring(0, separator).trim(),
+                    Integer.parseInt(address.substring(separator + 1).trim())));
+        }
+        return parsed;
+    }
+
+    /**
+     * Starts accepting the clients, until stopServer is called
+     */
+    public void startServer(){
+        ExecutorService executor = Executors.newCachedThreadPool();
+        System.out.println("Gateway starting...");
+        try{
+            serverSocket = new ServerSocket(portNumber);
+        }
+        catch (IOException e){
+            System.out.println("Error: Couldn't open the server socket");
+            System.out.println(e.getMessage());
+            return;
+        }
+        System.out.println("Gateway started, forwarding to " + backends);
+
+        while(true){
+            try{
+                Socket socket = serverSocket.accept();
+                System.out.println("New connection from " + socket.getInetAddress());
+                executor.submit(() -> startConnection(socket));
+            } catch (IOException e){
+                System.out.println(e.getMessage());
+                break;
+            }
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Stops accepting new clients, the ones already connected keep playing
+     */
+    public void stopServer(){
+        try {
+            if(serverSocket != null) serverSocket.close();
+        } catch (IOException e) {
+            //Nothing to do, the socket is being discarded anyway
+        }
+    }
+
+    /**
+     * Reads the first message of a new connection: a PING comes from the ping socket of a client, which
+     * is attached to its session, anything else starts a new session
+     * @param socket the socket just accepted
+     */
+    private void startConnection(Socket socket){
+        MessageBroker firstBroker = new MessageBroker();
+        Map<NetworkFieldEnum, Object> firstMessage;
+        try {
+            // A client that never speaks is dropped like one that stops pinging
+            socket.setSoTimeout(PongHandler.PONG_TIMEOUT_SECONDS * 1000);
+            InputStream input = socket.getInputStream();
+            while((firstMessage = firstBroker.pollMessage()) == null) firstBroker.receive(input);
+            socket.setSoTimeout(0);
+        } catch (IOException e) {
+            closeSocket(socket);
+            return;
+        }
+
+        Object command = firstMessage.get(NetworkFieldEnum.COMMAND);
+        if(command == null || !CommandEnum.PING.equals(CommandEnum.fromObjectToEnum(command))){
+            GatewaySession session = new GatewaySession(this, nextUserId.getAndIncrement(), socket, firstBroker);
+            sessions.put(session.getIdUser(), session);
+            session.run(firstMessage);
+            return;
+        }
+
+        GatewaySession pingedSession;
+        try {
+            pingedSession = sessions.get(FieldDecoders.read(firstMessage, NetworkFieldEnum.ID_USER, Integer.class));
+        } catch (MalformedRequestException e) {
+            pingedSession = null;
+        }
+        if(pingedSession == null){
+            System.out.println("Ping received for an unknown user from " + socket.getInetAddress());
+            closeSocket(socket);
+            return;
+        }
+        pingedSession.attachPingConnection(socket, firstBroker, firstMessage);
+    }
+
+    /**
+     * @param idUser the user id given by the gateway
+     * @return the backend on which the user is playing, -1 if the user isn't connected to any
+     */
+    public int getBackendOfUser(int idUser){
+        GatewaySession session = sessions.get(idUser);
+        return session == null ? -1 : session.getBackend();
+    }
+
+    /**
+     * @return the router choosing the backend of each user
+     */
+    public GatewayRouter getRouter(){
+        return router;
+    }
+
+    /**
+     * @param backend the index of the backend
+     * @return the address of the backend
+     */
+    InetSocketAddress getBackendAddress(int backend){
+        return backends.get(backend);
+    }
+
+    /**
+     * Binds a nickname to a session, unless another session is using it
+     * @return true if the session holds the nickname
+     */
+    boolean claimNickname(String nickname, GatewaySession session){
+        GatewaySession holder = nicknames.putIfAbsent(nickname, session);
+        return holder == null || holder == session;
+    }
+
+    void releaseNickname(String nickname, GatewaySession session){
+        if(nickname != null) nicknames.remove(nickname, session);
+    }
+
+    /**
+     * Remembers the user id given by a backend to a session, to translate the ids sent by that backend
+     */
+    void bindBackendUser(int backend, int backendIdUser, GatewaySession session){
+        backendUsers.put(backendKey(backend, backendIdUser), session);
+    }
+
+    void unbindBackendUser(int backend, int backendIdUser, GatewaySession session){
+        backendUsers.remove(backendKey(backend, backendIdUser), session);
+    }
+
+    /**
+     * @return the user id given by the gateway to a user of a backend, null if the user isn't known
+     */
+    Integer getGatewayIdUser(int backend, int backendIdUser){
+        GatewaySession session = backendUsers.get(backendKey(backend, backendIdUser));
+        return session == null ? null : session.getIdUser();
+    }
+
+    void removeSession(GatewaySession session){
+        sessions.remove(session.getIdUser(), session);
+    }
+
+    private static long backendKey(int backend, int backendIdUser){
+        return ((long) backend << 32) | (backendIdUser & 0xFFFFFFFFL);
+    }
+
+    private void closeSocket(Socket socket){
+        try {
+            socket.close();
+        } catch (IOException e) {
+            //Nothing to do, the socket is being discarded anyway
+        }
+    }
+}
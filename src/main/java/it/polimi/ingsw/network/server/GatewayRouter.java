@@ -0,0 +1,118 @@
+package it.polimi.ingsw.network.server;
+
+import it.polimi.ingsw.controller.GameRuleEnum;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Decides on which backend each user of the gateway plays. <br>
+ * A user connects to the backend with the least users, and is moved when joining a lobby: for each rule,
+ * and separately for quick matches, the router counts the seats still empty in the lobby it opened on each
+ * backend, and sends the players there until the lobby is full, so that the players waiting for the same
+ * kind of game meet on the same backend. A new lobby is opened on the backend with the least users
+ */
+public class GatewayRouter {
+
+    private final AtomicIntegerArray users; // connected to each backend
+    private final Map<GameRuleEnum, int[]> openSeats; // empty seats of each backend, guarded by the router
+    private final Map<GameRuleEnum, int[]> openQuickSeats;
+
+    /**
+     * @param backends the amount of backends the users are spread on
+     */
+    public GatewayRouter(int backends){
+        if(backends <= 0) throw new IllegalArgumentException("The gateway needs at least a backend");
+        users = new AtomicIntegerArray(backends);
+        openSeats = new EnumMap<>(GameRuleEnum.class);
+        openQuickSeats = new EnumMap<>(GameRuleEnum.class);
+        for(GameRuleEnum rule : GameRuleEnum.values()){
+            openSeats.put(rule, new int[backends]);
+            openQuickSeats.put(rule, new int[backends]);
+        }
+    }
+
+    /**
+     * @return the amount of backends
+     */
+    public int getBackendsCount(){
+        return users.length();
+    }
+
+    /**
+     * @return the backend with the least users, the first one when more have the same amount
+     */
+    public int getLeastLoadedBackend(){
+        int chosen = 0;
+        for(int backend = 1; backend < users.length(); backend++)
+            if(users.get(backend) < users.get(chosen)) chosen = backend;
+        return chosen;
+    }
+
+    /**
+     * Counts a user connecting to a backend
+     * @param backend the backend reached
+     */
+    public void addUser(int backend){
+        users.incrementAndGet(backend);
+    }
+
+    /**
+     * Counts a user leaving a backend
+     * @param backend the backend left
+     */
+    public void removeUser(int backend){
+        users.decrementAndGet(backend);
+    }
+
+    /**
+     * @param backend the backend to check
+     * @return the amount of users connected to the backend
+     */
+    public int getUsersCount(int backend){
+        return users.get(backend);
+    }
+
+    /**
+     * Takes a seat in a lobby with the given rules, opening a new lobby on the least loaded backend
+     * if none of the backends has an empty seat
+     * @param rules the rules of the wanted lobby
+     * @param quickMatch true if the player asked for a quick match
+     * @return the backend where the player must join the lobby
+     */
+    public synchronized int takeSeat(GameRuleEnum rules, boolean quickMatch){
+        int[] seats = (quickMatch ? openQuickSeats : openSeats).get(rules);
+        for(int backend = 0; backend < seats.length; backend++){
+            if(seats[backend] > 0){
+                seats[backend]--;
+                return backend;
+            }
+        }
+        int backend = getLeastLoadedBackend();
+        seats[backend] = GameRuleEnum.getNumPlayers(rules.id) - 1;
+        return backend;
+    }
+
+    /**
+     * Gives back the seat of a player leaving a lobby before its game started. When every seat is empty,
+     * the backend destroyed the lobby, so the next player opens a new one
+     * @param rules the rules of the lobby left
+     * @param quickMatch true if the lobby was a quick match
+     * @param backend the backend of the lobby
+     */
+    public synchronized void leaveSeat(GameRuleEnum rules, boolean quickMatch, int backend){
+        int[] seats = (quickMatch ? openQuickSeats : openSeats).get(rules);
+        seats[backend] = (seats[backend] + 1) % GameRuleEnum.getNumPlayers(rules.id);
+    }
+
+    /**
+     * @param rules the rules of the lobbies
+     * @param quickMatch true to count the seats of the quick matches
+     * @param backend the backend to check
+     * @return the empty seats the router knows of in the lobbies of the backend
+     */
+    public synchronized int getOpenSeats(GameRuleEnum rules, boolean quickMatch, int backend){
+        return (quickMatch ? openQuickSeats : openSeats).get(rules)[backend];
+    }
+}
@@ -0,0 +1,558 @@
+package it.polimi.ingsw.network.server;
+
+import it.polimi.ingsw.controller.GameRuleEnum;
+import it.polimi.ingsw.network.CommandEnum;
+import it.polimi.ingsw.network.MessageBroker;
+import it.polimi.ingsw.network.NetworkFieldEnum;
+import it.polimi.ingsw.network.request.ConnectionRequest;
+import it.polimi.ingsw.network.request.FieldDecoders;
+import it.polimi.ingsw.network.request.MalformedRequestException;
+import it.polimi.ingsw.network.request.PlayGameRequest;
+import it.polimi.ingsw.network.request.RequestDecoders;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A client of the gateway, together with its connection to the backend on which it's playing. <br>
+ * The messages of the client are read by the thread that accepted it and forwarded to the backend, with the
+ * user id replaced by the one given by the backend, while the messages of the backend are read by a thread
+ * of their own and forwarded the other way. The pings are answered by the gateway and forwarded on the main
+ * connection of the backend, which always accepts the HEARTBEAT. <br>
+ * When the user joins a lobby on another backend, the session logs in there with the same CONNECTION_REQUEST
+ * and leaves the old backend, so the client never notices the move. <br>
+ * A backend is always left with a QUIT, so that it drops the user at once instead of keeping the session
+ * for the client to resume it: the sessions of the gateway can't be resumed
+ */
+class GatewaySession {
+
+    private final Gateway gateway;
+    private final int idUser; // given by the gateway
+    private final Socket clientSocket;
+    private final MessageBroker clientBroker;
+    private final AtomicBoolean connected;
+    private OutputStream clientOutput;
+    private volatile Socket pingSocket;
+    private volatile BackendLink backend; // null until the first CONNECTION_REQUEST reaches a backend
+
+    // Guarded by the session
+    private Map<NetworkFieldEnum, Object> connectionRequest; // the last one accepted, replayed when moving
+    private Map<NetworkFieldEnum, Object> pendingConnectionRequest; // waiting for the reply of the backend
+    private String nickname;
+    private GameRuleEnum lobbyRules; // the lobby waiting for its game, null if the user isn't in one
+    private boolean lobbyQuickMatch;
+    private int lobbyBackend;
+    private boolean playGamePending; // a seat was taken for the PLAY_GAME sent to the backend
+
+    GatewaySession(Gateway gateway, int idUser, Socket clientSocket, MessageBroker clientBroker){
+        this.gateway = gateway;
+        this.idUser = idUser;
+        this.clientSocket = clientSocket;
+        this.clientBroker = clientBroker;
+        this.connected = new AtomicBoolean(true);
+    }
+
+    int getIdUser(){
+        return idUser;
+    }
+
+    /**
+     * @return the backend of the user, -1 if the user didn't reach one yet
+     */
+    int getBackend(){
+        BackendLink link = backend;
+        return link == null ? -1 : link.index;
+    }
+
+    /**
+     * Forwards the messages of the client until the connection is closed
+     * @param firstMessage the message already read when the connection was accepted
+     */
+    void run(Map<NetworkFieldEnum, Object> firstMessage){
+        InputStream clientInput;
+        try {
+            clientInput = clientSocket.getInputStream();
+            clientOutput = clientSocket.getOutputStream();
+        } catch (IOException e) {
+            close("Error obtaining streams");
+            return;
+        }
+
+        Map<NetworkFieldEnum, Object> message = firstMessage;
+        try {
+            while(connected.get()){
+                handleClientMessage(message);
+                while((message = clientBroker.pollMessage()) == null) clientBroker.receive(clientInput);
+            }
+        } catch (IOException e) {
+            close("Error receiving commands from the socket");
+        }
+    }
+
+    /**
+     * Answers the pings of a client using a second socket for them, forwarding them to the backend
+     * @param socket the ping socket
+     * @param pingBroker the broker that read the first ping from the socket
+     * @param firstPing the first ping
+     */
+    void attachPingConnection(Socket socket, MessageBroker pingBroker, Map<NetworkFieldEnum, Object> firstPing){
+        pingSocket = socket;
+        if(!connected.get()){
+            closeSocket(socket);
+            return;
+        }
+
+        Thread pingThread = new Thread(() -> {
+            try {
+                InputStream pingInput = socket.getInputStream();
+                OutputStream pingOutput = socket.getOutputStream();
+                Map<NetworkFieldEnum, Object> ping = firstPing;
+                while(connected.get()){
+                    if(readCommand(ping) == CommandEnum.PING) answerPing(ping, pingBroker, pingOutput);
+                    while((ping = pingBroker.pollMessage()) == null) pingBroker.receive(pingInput);
+                }
+            } catch (IOException e) {
+                close("Ping routine couldn't receive message");
+            }
+        });
+        pingThread.setName("GatewayPingThread");
+        pingThread.start();
+    }
+
+    private void handleClientMessage(Map<NetworkFieldEnum, Object> message) throws IOException {
+        CommandEnum command = readCommand(message);
+        if(command == CommandEnum.PING) answerPing(message, clientBroker, clientOutput);
+        else if(command == CommandEnum.CONNECTION_REQUEST) connect(message);
+        else if(command == CommandEnum.PLAY_GAME) playGame(message);
+        else forward(message);
+    }
+
+    /**
+     * Replies to a ping of the client, then forwards it to the backend, which times the silence of the user
+     */
+    private void answerPing(Map<NetworkFieldEnum, Object> ping, MessageBroker broker, OutputStream output) throws IOException {
+        synchronized (broker){
+            broker.addToMessage(NetworkFieldEnum.COMMAND, CommandEnum.PONG);
+            broker.addToMessage(NetworkFieldEnum.ID_PING_REQUEST, ping.get(NetworkFieldEnum.ID_PING_REQUEST));
+            broker.addToMessage(NetworkFieldEnum.ID_USER, ping.get(NetworkFieldEnum.ID_USER));
+            broker.send(output);
+        }
+        BackendLink link = backend;
+        if(link != null && link.idUser >= 0) forward(ping);
+    }
+
+    /**
+     * Logs the user in: the nickname is claimed on the gateway first, so that it's unique across the backends,
+     * then the request goes to the backend of the user, or to the least loaded one for a new user
+     */
+    private void connect(Map<NetworkFieldEnum, Object> request){
+        String requestedNickname;
+        try {
+            requestedNickname = ((ConnectionRequest) RequestDecoders.decode(request)).nickname();
+        } catch (MalformedRequestException e) {
+            replyError(request, e.getMessage());
+            return;
+        }
+        if(!gateway.claimNickname(requestedNickname, this)){
+            replyError(request, "Nickname already taken");
+            return;
+        }
+        synchronized (this){
+            pendingConnectionRequest = request;
+        }
+
+        Map<NetworkFieldEnum, Object> backendRequest = toBackendRequest(request);
+        BackendLink link = backend;
+        if(link != null){ // the reply is read by the thread of the backend
+            forward(backendRequest);
+            return;
+        }
+
+        GatewayRouter router = gateway.getRouter();
+        Map<NetworkFieldEnum, Object> reply = null;
+        for(int attempt = 0; attempt < router.getBackendsCount() && reply == null; attempt++){
+            int index = (router.getLeastLoadedBackend() + attempt) % router.getBackendsCount();
+            try {
+                link = new BackendLink(index, gateway.getBackendAddress(index));
+                link.send(backendRequest);
+                reply = link.receive();
+            } catch (IOException e) {
+                if(link != null) link.close();
+                link = null;
+            }
+        }
+        if(reply == null){
+            releasePendingNickname();
+            replyError(request, "No game server available");
+            return;
+        }
+
+        synchronized (this){
+            if(!connected.get()){
+                Integer backendIdUser = readBackendIdUser(reply);
+                if(isSuccess(reply) && backendIdUser != null) link.idUser = backendIdUser;
+                leave(link);
+                return;
+            }
+            backend = link;
+            router.addUser(link.index);
+        }
+        handleBackendMessage(link, reply);
+        startReading(link);
+    }
+
+    /**
+     * Takes a seat in a lobby for the user, moving the user to the backend of the lobby before joining it
+     */
+    private void playGame(Map<NetworkFieldEnum, Object> message){
+        PlayGameRequest request;
+        try {
+            request = (PlayGameRequest) RequestDecoders.decode(message);
+        } catch (MalformedRequestException e) {
+            forward(message); // the backend replies as usual
+            return;
+        }
+        BackendLink link = backend;
+        int target;
+        synchronized (this){
+            if(link == null || link.idUser < 0 || lobbyRules != null){
+                target = -1;
+            }
+            else {
+                target = gateway.getRouter().takeSeat(request.gameRule(), request.quickMatch());
+                lobbyRules = request.gameRule();
+                lobbyQuickMatch = request.quickMatch();
+                lobbyBackend = target;
+                playGamePending = true;
+            }
+        }
+        if(target >= 0 && target != link.index && !moveTo(target)){
+            leaveLobby(true);
+            replyError(message, "The game server couldn't be reached");
+            return;
+        }
+        forward(message);
+    }
+
+    /**
+     * Logs the user in on another backend with the last CONNECTION_REQUEST accepted, then leaves the old one
+     * @param target the backend to move to
+     * @return true if the user moved
+     */
+    private boolean moveTo(int target){
+        Map<NetworkFieldEnum, Object> request;
+        synchronized (this){
+            request = toBackendRequest(connectionRequest);
+        }
+
+        BackendLink link = null;
+        Map<NetworkFieldEnum, Object> reply;
+        try {
+            link = new BackendLink(target, gateway.getBackendAddress(target));
+            link.send(request);
+            reply = link.receive();
+        } catch (IOException e) {
+            if(link != null) link.close();
+            return false;
+        }
+        Integer backendIdUser = readBackendIdUser(reply);
+        if(!isSuccess(reply) || backendIdUser == null){
+            link.close();
+            return false;
+        }
+
+        BackendLink oldLink;
+        synchronized (this){
+            link.idUser = backendIdUser;
+            if(!connected.get()){
+                leave(link);
+                return false;
+            }
+            gateway.bindBackendUser(target, backendIdUser, this);
+            oldLink = backend;
+            backend = link;
+            gateway.getRouter().removeUser(oldLink.index);
+            gateway.getRouter().addUser(target);
+        }
+        gateway.unbindBackendUser(oldLink.index, oldLink.idUser, this);
+        leave(oldLink);
+        startReading(link);
+        return true;
+    }
+
+    /**
+     * Quits a backend, its connection is closed once the backend dropped the user
+     */
+    private void leave(BackendLink link){
+        link.leaving = true;
+        if(link.idUser < 0){
+            link.close();
+            return;
+        }
+        Map<NetworkFieldEnum, Object> quit = new HashMap<>();
+        quit.put(NetworkFieldEnum.COMMAND, CommandEnum.QUIT);
+        quit.put(NetworkFieldEnum.ID_USER, link.idUser);
+        try {
+            link.send(quit);
+        } catch (IOException e) {
+            link.close();
+            return;
+        }
+        if(!link.reading) startReading(link);
+    }
+
+    /**
+     * Sends a message of the client to its backend, replacing the user id
+     */
+    private void forward(Map<NetworkFieldEnum, Object> message){
+        BackendLink link = backend;
+        if(link == null){ // As the backend does with the commands sent before logging in
+            replyError(message, "The command couldn't be handled");
+            return;
+        }
+        if(message.containsKey(NetworkFieldEnum.ID_USER)) message.put(NetworkFieldEnum.ID_USER, link.idUser);
+        try {
+            link.send(message);
+        } catch (IOException e) {
+            close("Couldn't send the message to the game server");
+        }
+    }
+
+    private void startReading(BackendLink link){
+        link.reading = true;
+        Thread readerThread = new Thread(() -> {
+            try {
+                while(true){
+                    Map<NetworkFieldEnum, Object> message = link.receive();
+                    if(!link.leaving) handleBackendMessage(link, message);
+                    else if(readCommand(message) == CommandEnum.QUIT) break; // the user left a lobby, or no lobby
+                }
+            } catch (IOException e) {
+                // A backend left by a user closes the connection itself if the user was playing
+                if(link == backend && !link.leaving) close("The game server closed the connection");
+            }
+            link.close();
+        });
+        readerThread.setName("GatewayBackendReader");
+        readerThread.start();
+    }
+
+    /**
+     * Keeps track of the login and the lobby of the user, then sends a message of the backend to the client
+     * with the user ids given by the gateway
+     */
+    private void handleBackendMessage(BackendLink link, Map<NetworkFieldEnum, Object> message){
+        if(link != backend) return; // the user moved to another backend
+        CommandEnum command = readCommand(message);
+        boolean isReply = message.get(NetworkFieldEnum.SERVER_REPLY_STATUS) != null;
+
+        if(command == CommandEnum.PONG) return; // the client already got one from the gateway
+        if(command == CommandEnum.CONNECTION_REQUEST && isReply) acceptConnectionReply(link, message);
+        else if(command == CommandEnum.PLAY_GAME && isReply) acceptPlayGameReply(message);
+        else if(command == CommandEnum.LEAVE_LOBBY && isSuccess(message)) leaveLobby(true);
+        else if(command == CommandEnum.SERVER_LOBBY_START || command == CommandEnum.SERVER_GAME_START) leaveLobby(false);
+
+        if(message.containsKey(NetworkFieldEnum.ID_USER)) message.put(NetworkFieldEnum.ID_USER, idUser);
+        if(message.get(NetworkFieldEnum.ASYNC_ID_USER) instanceof Number asyncIdUser){
+            Integer gatewayIdUser = gateway.getGatewayIdUser(link.index, asyncIdUser.intValue());
+            if(gatewayIdUser != null) message.put(NetworkFieldEnum.ASYNC_ID_USER, gatewayIdUser);
+        }
+        sendToClient(message);
+    }
+
+    /**
+     * Binds the user to the id given by the backend if the login succeeded, and puts in the reply
+     * the fields negotiated between the client and the gateway instead of the ones of the backend
+     */
+    private void acceptConnectionReply(BackendLink link, Map<NetworkFieldEnum, Object> reply){
+        Integer backendIdUser = readBackendIdUser(reply);
+        Map<NetworkFieldEnum, Object> request;
+        synchronized (this){
+            request = pendingConnectionRequest;
+            pendingConnectionRequest = null;
+            if(isSuccess(reply) && backendIdUser != null && request != null){
+                if(link.idUser >= 0) gateway.unbindBackendUser(link.index, link.idUser, this);
+                link.idUser = backendIdUser;
+                gateway.bindBackendUser(link.index, backendIdUser, this);
+                String requestedNickname = (String) request.get(NetworkFieldEnum.NICKNAME);
+                if(nickname != null && !nickname.equals(requestedNickname)) gateway.releaseNickname(nickname, this);
+                nickname = requestedNickname;
+                connectionRequest = request;
+            }
+            else if(request != null && !request.get(NetworkFieldEnum.NICKNAME).equals(nickname)){
+                gateway.releaseNickname((String) request.get(NetworkFieldEnum.NICKNAME), this);
+            }
+        }
+
+        reply.remove(NetworkFieldEnum.WIRE_FORMAT);
+        reply.remove(NetworkFieldEnum.COMPRESSION);
+        reply.remove(NetworkFieldEnum.HEARTBEAT);
+        reply.remove(NetworkFieldEnum.RESUME_TOKEN); // only valid on the backend that gave it
+        reply.remove(NetworkFieldEnum.LAST_ASYNC_ID_REQUEST);
+        if(request != null && request.containsKey(NetworkFieldEnum.HEARTBEAT)) reply.put(NetworkFieldEnum.HEARTBEAT, true);
+    }
+
+    private void acceptPlayGameReply(Map<NetworkFieldEnum, Object> reply){
+        boolean seatTaken;
+        synchronized (this){
+            seatTaken = playGamePending;
+            playGamePending = false;
+        }
+        if(seatTaken && !isSuccess(reply)) leaveLobby(true);
+    }
+
+    /**
+     * Forgets the lobby of the user
+     * @param giveBackSeat true if the user left the lobby, false if its game started
+     */
+    private synchronized void leaveLobby(boolean giveBackSeat){
+        if(lobbyRules == null) return;
+        if(giveBackSeat) gateway.getRouter().leaveSeat(lobbyRules, lobbyQuickMatch, lobbyBackend);
+        lobbyRules = null;
+        playGamePending = false;
+    }
+
+    private synchronized void releasePendingNickname(){
+        if(pendingConnectionRequest == null) return;
+        String requestedNickname = (String) pendingConnectionRequest.get(NetworkFieldEnum.NICKNAME);
+        if(!requestedNickname.equals(nickname)) gateway.releaseNickname(requestedNickname, this);
+        pendingConnectionRequest = null;
+    }
+
+    /**
+     * Replies to a message of the client as the backend would do for a failed operation
+     */
+    private void replyError(Map<NetworkFieldEnum, Object> message, String errorMessage){
+        Map<NetworkFieldEnum, Object> reply = new HashMap<>(message);
+        reply.put(NetworkFieldEnum.SERVER_REPLY_MESSAGE, "ERR");
+        reply.put(NetworkFieldEnum.SERVER_REPLY_STATUS, 1);
+        reply.put(NetworkFieldEnum.ERROR_STATE, errorMessage);
+        sendToClient(reply);
+    }
+
+    private void sendToClient(Map<NetworkFieldEnum, Object> message){
+        try {
+            synchronized (clientBroker){
+                clientBroker.addAllToMessage(message);
+                clientBroker.send(clientOutput);
+            }
+        } catch (IOException e) {
+            close("Couldn't send the message to the client");
+        }
+    }
+
+    /**
+     * Closes the connections of the user, giving back the seat and the nickname
+     * @param reason the reason printed on the console
+     */
+    void close(String reason){
+        if(!connected.compareAndSet(true, false)) return;
+        System.out.println("Gateway session of user " + idUser + " closed: " + reason);
+
+        leaveLobby(true);
+        BackendLink link;
+        synchronized (this){
+            link = backend;
+            if(link != null){
+                gateway.getRouter().removeUser(link.index);
+                gateway.unbindBackendUser(link.index, link.idUser, this);
+            }
+            gateway.releaseNickname(nickname, this);
+        }
+        releasePendingNickname();
+        gateway.removeSession(this);
+
+        if(link != null) leave(link);
+        closeSocket(clientSocket);
+        if(pingSocket != null) closeSocket(pingSocket);
+    }
+
+    /**
+     * The backend always gets the pings on the main connection, whatever the client asked, and never
+     * keeps the session once the link is lost, since its resume token would only be valid on that backend
+     */
+    private static Map<NetworkFieldEnum, Object> toBackendRequest(Map<NetworkFieldEnum, Object> request){
+        Map<NetworkFieldEnum, Object> backendRequest = new HashMap<>(request);
+        backendRequest.put(NetworkFieldEnum.HEARTBEAT, true);
+        backendRequest.remove(NetworkFieldEnum.RESUME_TOKEN);
+        backendRequest.remove(NetworkFieldEnum.LAST_ASYNC_ID_REQUEST);
+        backendRequest.remove(NetworkFieldEnum.RESUMABLE);
+        return backendRequest;
+    }
+
+    private static CommandEnum readCommand(Map<NetworkFieldEnum, Object> message){
+        Object command = message.get(NetworkFieldEnum.COMMAND);
+        return command == null ? null : CommandEnum.fromObjectToEnum(command);
+    }
+
+    private static boolean isSuccess(Map<NetworkFieldEnum, Object> reply){
+        return reply.get(NetworkFieldEnum.SERVER_REPLY_STATUS) instanceof Number status && status.intValue() == 0;
+    }
+
+    private static Integer readBackendIdUser(Map<NetworkFieldEnum, Object> reply){
+        try {
+            return FieldDecoders.read(reply, NetworkFieldEnum.ID_USER, Integer.class);
+        } catch (MalformedRequestException e) {
+            return null;
+        }
+    }
+
+    private static void closeSocket(Socket socket){
+        try {
+            socket.close();
+        } catch (IOException e) {
+            //Nothing to do, the socket is being discarded anyway
+        }
+    }
+
+    /**
+     * The connection of the gateway to a backend, on behalf of a user
+     */
+    private static class BackendLink {
+
+        private final int index;
+        private final Socket socket;
+        private final InputStream input;
+        private final OutputStream output;
+        private final MessageBroker broker;
+        private volatile int idUser; // given by the backend, -1 until the login
+        private volatile boolean reading; // a thread is reading the messages of the backend
+        private volatile boolean leaving; // the user quit the backend, the messages are only read to the end
+
+        BackendLink(int index, InetSocketAddress address) throws IOException {
+            this.index = index;
+            this.socket = new Socket(address.getAddress(), address.getPort());
+            this.input = socket.getInputStream();
+            this.output = socket.getOutputStream();
+            this.broker = new MessageBroker();
+            this.idUser = -1;
+        }
+
+        void send(Map<NetworkFieldEnum, Object> message) throws IOException {
+            synchronized (broker){
+                broker.addAllToMessage(message);
+                broker.send(output);
+            }
+        }
+
+        /**
+         * Only called by a single thread at a time: the session while logging in, then the reader thread
+         * @return the next message of the backend
+         */
+        Map<NetworkFieldEnum, Object> receive() throws IOException {
+            Map<NetworkFieldEnum, Object> message;
+            while((message = broker.pollMessage()) == null) broker.receive(input);
+            return message;
+        }
+
+        void close(){
+            closeSocket(socket);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package it.polimi.ingsw.network.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Detects the connections that stopped sending anything, pings included, for the whole server. <br>
+ * It's a hashed timing wheel turned by a single thread: every connection sits in the slot of the tick
+ * at which it would time out, and is only looked at again then. Receiving a ping just updates the time
+ * the connection was last seen, so nothing is allocated nor scheduled per ping: when its slot comes up,
+ * a connection that was seen in the meantime is moved to the slot of its new deadline. <br>
+ * A connection is found out at most a tick after its timeout expired
+ */
+public class HeartbeatScheduler {
+
+    public static final long DEFAULT_TICK_MILLIS = 100;
+    private static final int WHEEL_SIZE = 64; // a power of two, the deadlines further away take more rounds
+
+    private final long timeoutMillis;
+    private final long tickMillis;
+    private final Executor alertExecutor;
+    private final List<List<Entry>> wheel; // only used by the ticking thread
+    private final Queue<Entry> newEntries;
+    private final AtomicInteger watchedCount;
+    private final ScheduledExecutorService ticker;
+    private List<Entry> spareSlot;
+    private long currentTick;
+
+    /**
+     * A watched connection, allocated once when it starts being watched
+     */
+    private static class Entry {
+        private final LongSupplier lastSeenMillis;
+        private final BooleanSupplier alive;
+        private final Runnable onTimeout;
+
+        private Entry(LongSupplier lastSeenMillis, BooleanSupplier alive, Runnable onTimeout){
+            this.lastSeenMillis = lastSeenMillis;
+            this.alive = alive;
+            this.onTimeout = onTimeout;
+        }
+    }
+
+    /**
+     * Creates a scheduler with the default tick
+     * @param timeoutMillis the maximum time a connection can stay silent
+     * @param alertExecutor runs the timeout actions, so that a slow one doesn't delay the wheel
+     */
+    public HeartbeatScheduler(long timeoutMillis, Executor alertExecutor){
+        this(timeoutMillis, DEFAULT_TICK_MILLIS, alertExecutor);
+    }
+
+    /**
+     * @param timeoutMillis the maximum time a connection can stay silent
+     * @param tickMillis the time between two turns of the wheel, the precision of the timeouts
+     * @param alertExecutor runs the timeout actions, so that a slow one doesn't delay the wheel
+     */
+    public HeartbeatScheduler(long timeoutMillis, long tickMillis, Executor alertExecutor){
+        this.timeoutMillis = timeoutMillis;
+        this.tickMillis = tickMillis;
+        this.alertExecutor = alertExecutor;
+        this.wheel = new ArrayList<>(WHEEL_SIZE);
+        for(int slot = 0; slot < WHEEL_SIZE; slot++) wheel.add(new ArrayList<>());
+        this.spareSlot = new ArrayList<>();
+        this.newEntries = new ConcurrentLinkedQueue<>();
+        this.watchedCount = new AtomicInteger(0);
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "HeartbeatScheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.currentTick = 0;
+    }
+
+    /**
+     * Starts turning the wheel
+     */
+    public void start(){
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops turning the wheel, the connections still watched won't time out anymore
+     */
+    public void stop(){
+        ticker.shutdownNow();
+    }
+
+    /**
+     * Starts watching a connection, can be called by any thread
+     * @param lastSeenMillis the time anything was last received from the connection
+     * @param alive false once the connection is closed, it's then forgotten without any action
+     * @param onTimeout the action run (once) when nothing is received for the timeout
+     */
+    public void watch(LongSupplier lastSeenMillis, BooleanSupplier alive, Runnable onTimeout){
+        newEntries.add(new Entry(lastSeenMillis, alive, onTimeout));
+        watchedCount.incrementAndGet();
+    }
+
+    /**
+     * @return the amount of connections watched, the closed ones are counted until their slot comes up
+     */
+    public int getWatchedCount(){
+        return watchedCount.get();
+    }
+
+    private void tick(){
+        long now = System.currentTimeMillis();
+
+        // The slot is swapped with an empty one, since its entries may go back into it a round later
+        int slot = (int) (currentTick & (WHEEL_SIZE - 1));
+        List<Entry> expiring = wheel.set(slot, spareSlot);
+        currentTick++;
+
+        Entry entry;
+        while((entry = newEntries.poll()) != null) check(entry, now);
+        for(Entry expiringEntry : expiring) check(expiringEntry, now);
+        expiring.clear();
+        spareSlot = expiring;
+    }
+
+    /**
+     * Fires the timeout of the entry, or puts it in the slot of its deadline
+     * @param entry the entry whose slot came up
+     * @param now the time of the current tick
+     */
+    private void check(Entry entry, long now){
+        if(!entry.alive.getAsBoolean()){
+            watchedCount.decrementAndGet();
+            return;
+        }
+        long deadline = entry.lastSeenMillis.getAsLong() + timeoutMillis;
+        if(deadline <= now){
+            watchedCount.decrementAndGet();
+            try {
+                alertExecutor.execute(entry.onTimeout);
+            } catch (RejectedExecutionException e) {
+                // The server is shutting down, the connection is being closed anyway
+            }
+            return;
+        }
+        // The slot visited by the first tick after the deadline, currentTick being the next one
+        long ticksAhead = Math.max(1, (deadline - now + tickMillis - 1) / tickMillis);
+        wheel.get((int) ((currentTick + ticksAhead - 1) & (WHEEL_SIZE - 1))).add(entry);
+    }
+}
@@ -1,10 +1,14 @@
 package it.polimi.ingsw.network.server;
 
 import it.polimi.ingsw.controller.GameRuleEnum;
+import it.polimi.ingsw.controller.events.EventBus;
+import it.polimi.ingsw.controller.events.GameEvent;
 import it.polimi.ingsw.view.LobbyBean;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class Lobby {
@@ -12,30 +16,62 @@ public class Lobby {
     private final GameRuleEnum gameType;
     private List<Integer> playersReady; //identified by idUser
     private List<Integer> players;
-    private int emptySeats;
+    private final int seats;
+    private final AtomicInteger emptySeats; // reserved before the player is added, CLOSED once destroyed
+    private final boolean quickMatch;
+    final AtomicBoolean indexed = new AtomicBoolean(false); // true while ActiveLobbies offers its seats
     private Integer host;
-    private boolean gameStarted;
+    private volatile boolean gameStarted; // read by tryReserveSeat without the lock of the lobby
     public ReentrantLock readyLock;
-    private boolean modified;
+    private final EventBus eventBus; // shared with the controller of the game
+
+    private static final int CLOSED = -1;
 
     public Lobby(GameRuleEnum gameType){
+        this(gameType, false);
+    }
+
+    /**
+     * @param gameType the rules of the game
+     * @param quickMatch true if the game starts as soon as the lobby is full, without waiting for the players to be ready
+     */
+    public Lobby(GameRuleEnum gameType, boolean quickMatch){
 
         this.gameType = gameType;
+        this.quickMatch = quickMatch;
         players = new ArrayList<>();
         host = null;
         gameStarted = false;
         playersReady = new ArrayList<>();
         readyLock = new ReentrantLock();
-        switch (this.gameType){
-            case SIMPLE_2, ADVANCED_2 ->  emptySeats = 2;
-            case SIMPLE_3, ADVANCED_3 -> emptySeats = 3;
-            case SIMPLE_4, ADVANCED_4 -> emptySeats = 4;
-        }
-        modified = true;
+        eventBus = new EventBus();
+        seats = GameRuleEnum.getNumPlayers(gameType.id);
+        emptySeats = new AtomicInteger(seats);
     }
 
     public boolean isFull(){
-        return emptySeats == 0;
+        return emptySeats.get() <= 0;
+    }
+
+    /**
+     * Takes one of the empty seats for a player who will be added right after,
+     * so that two players can't take the last seat at the same time
+     * @return true if the seat was reserved, false if the lobby is full, destroyed or its game started
+     */
+    public boolean tryReserveSeat(){
+        int empty;
+        do {
+            empty = emptySeats.get();
+            if (empty <= 0 || gameStarted) return false;
+        } while (!emptySeats.compareAndSet(empty, empty - 1));
+        return true;
+    }
+
+    /**
+     * @return true if the game starts as soon as the lobby is full
+     */
+    public boolean isQuickMatch(){
+        return quickMatch;
     }
 
     /**
@@ -47,7 +83,7 @@ public class Lobby {
         if (players.contains(idUser) &&
             !playersReady.contains(idUser)) {
             playersReady.add(idUser);
-            modified = true;
+            modified();
         }
         else ;//maybe handle case of idUser not present
     }
@@ -60,7 +96,7 @@ public class Lobby {
 
         Integer integer = idUser;
         playersReady.remove(integer);
-        modified = true;
+        modified();
     }
 
     public GameRuleEnum getGameType(){
@@ -80,9 +116,10 @@ public class Lobby {
             Integer integer = idUser;
             players.remove(integer);
             playersReady.remove(integer);
-            emptySeats++;
+            int empty = emptySeats.incrementAndGet();
             assignHost();
-            modified = true;
+            modified();
+            if (empty == 1 && !gameStarted && players.size() > 0) ActiveLobbies.reopenLobby(this);
         }
 
         if (players.size() == 0) destroyLobby();
@@ -96,13 +133,20 @@ public class Lobby {
      */
     public synchronized void addPlayer(int idUser){
 
-        if (emptySeats == 0) return;
+        if (!tryReserveSeat()) return;
 
-        players.add(idUser);
+        addReservedPlayer(idUser);
+    }
 
-        emptySeats--;
+    /**
+     * Adds a player whose seat was reserved with tryReserveSeat
+     * @param idUser The idUser of the player to add
+     */
+    public synchronized void addReservedPlayer(int idUser){
+
+        players.add(idUser);
 
-        modified = true;
+        modified();
 
         assignHost();
 
@@ -126,10 +170,10 @@ public class Lobby {
 
 
     /**
-     * Removes the lobby from the global active lobbies' list
+     * Removes the lobby from the global active lobbies' list, unless a player reserved a seat in the meantime
      */
     public void destroyLobby(){
-        ActiveLobbies.removeLobby(this);
+        if (emptySeats.compareAndSet(seats, CLOSED)) ActiveLobbies.removeLobby(this);
     }
 
     /**
@@ -186,20 +230,31 @@ public class Lobby {
         else return false;
     }
 
+    /**
+     * Sets the game of this lobby as started, after its controller has been created
+     * @param status true if the game started
+     */
     public void setStartGame(boolean status){
         gameStarted = status;
+        if(status) eventBus.publish(new GameEvent.LobbyStarted(this));
     }
 
     public boolean isGameStarted(){
         return gameStarted;
     }
 
-    public void setModified(boolean modified) {
-        this.modified = modified;
+    /**
+     * Tells the players that the status of the lobby changed
+     */
+    private void modified() {
+        eventBus.publish(new GameEvent.LobbyModified(this));
     }
 
-    public boolean isModified() {
-        return modified;
+    /**
+     * @return the bus on which the players of this lobby, and of its game, are told what happens
+     */
+    public EventBus getEventBus() {
+        return eventBus;
     }
 
     public synchronized LobbyBean toBean() {
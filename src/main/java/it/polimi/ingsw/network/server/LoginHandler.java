@@ -1,17 +1,26 @@
 package it.polimi.ingsw.network.server;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * The users logged in, indexed both by id and by nickname, so that checking if a nickname is taken
+ * doesn't need to look at every user. <br>
+ * A nickname is claimed in the nickname index first, so two users logging in at the same time
+ * with the same nickname can't both succeed
+ */
 public class LoginHandler {
 
-    private static Integer progressiveId = 0;
+    private static final AtomicInteger progressiveId = new AtomicInteger(0);
 
-    private static Map<Integer, String> idUserToNickname = new HashMap<>();
+    private static final Map<Integer, String> idUserToNickname = new ConcurrentHashMap<>();
+    private static final Map<String, Integer> nicknameToIdUser = new ConcurrentHashMap<>();
 
-    private static boolean checkIfNicknamePresent(String nickname){
-        return idUserToNickname.containsValue(nickname);
-    }
+    /**
+     * We don't want to instantiate this class
+     */
+    private LoginHandler(){}
 
     /**
      * Attempts to log a user with the proposed nickname and idUser
@@ -21,11 +30,9 @@ public class LoginHandler {
      */
     public static boolean login(String nickname, int idUser){
 
-        synchronized (idUserToNickname) {
-            if (nickname.length() == 0) return false;
-            if (checkIfNicknamePresent(nickname)) return false;
-            idUserToNickname.put(idUser, nickname);
-        }
+        if (nickname.length() == 0) return false;
+        if (nicknameToIdUser.putIfAbsent(nickname, idUser) != null) return false;
+        idUserToNickname.put(idUser, nickname);
         return true;
     }
 
@@ -34,12 +41,7 @@ public class LoginHandler {
      * @return The first available idUser
      */
     public static int getNewUserId(){
-
-        synchronized (progressiveId){
-            while (idUserToNickname.containsKey(progressiveId)) progressiveId++;
-
-            return progressiveId++;
-        }
+        return progressiveId.getAndIncrement();
     }
 
     /**
@@ -51,7 +53,27 @@ public class LoginHandler {
         return idUserToNickname.get(id);
     }
 
+    /**
+     * @param nickname the nickname of a user
+     * @return the idUser of the user logged with the nickname, null if nobody is using it
+     */
+    public static Integer getIdFromNickname(String nickname){
+        return nicknameToIdUser.get(nickname);
+    }
+
+    /**
+     * Logs the user out, making their nickname available again
+     * @param idUser the user to log out
+     */
     public static void removeNicknameFromId(int idUser) {
-        idUserToNickname.remove(idUser);
+        String nickname = idUserToNickname.remove(idUser);
+        if (nickname != null) nicknameToIdUser.remove(nickname, idUser);
+    }
+
+    /**
+     * @return the amount of users logged in
+     */
+    public static int getLoggedUsersCount(){
+        return idUserToNickname.size();
     }
 }
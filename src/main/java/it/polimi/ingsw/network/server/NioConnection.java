@@ -0,0 +1,312 @@
+package it.polimi.ingsw.network.server;
+
+import it.polimi.ingsw.network.CommandEnum;
+import it.polimi.ingsw.network.JsonFrameDecoder;
+import it.polimi.ingsw.network.MessageBroker;
+import it.polimi.ingsw.network.NetworkFieldEnum;
+import it.polimi.ingsw.network.request.PingRequest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A single client connection of the selector-based server. <br>
+ * Reading and writing on the channel only happen on the I/O thread owning this connection,
+ * while the commands are executed by the worker pool of the server. <br>
+ * The clients which asked for the HEARTBEAT send their pings on the main connection, the others
+ * still open two sockets: the kind of connection is decided by its first message,
+ * a PING means that this is the ping socket of an already logged user, anything else
+ * creates a new ClientHandler
+ */
+class NioConnection implements OutboundConnection {
+
+    private static final int READ_BUFFER_SIZE = 4096;
+
+    private final SocketChannel channel;
+    private final NioEventLoop eventLoop;
+    private final NioServer server;
+    private final JsonFrameDecoder decoder;
+    private final ByteBuffer readBuffer;
+    private final OutboundQueue outgoingMessages;
+    private final ChannelOutputStream output;
+    private final AtomicBoolean commandsScheduled;
+    private final AtomicBoolean open;
+    private final long creationMillis;
+    private SelectionKey key;
+    private boolean readingPaused; // the mailbox of the client is full, only used by the I/O thread
+
+    //Decided by the first message received, read by the HeartbeatScheduler too
+    private volatile ClientHandler clientHandler;
+    private volatile MessageBroker pingBroker;
+    private volatile ClientHandler pingedHandler;
+
+    NioConnection(SocketChannel channel, NioEventLoop eventLoop, NioServer server){
+        this.channel = channel;
+        this.eventLoop = eventLoop;
+        this.server = server;
+        this.decoder = new JsonFrameDecoder();
+        this.readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        this.outgoingMessages = server.newOutboundQueue();
+        this.output = new ChannelOutputStream(this);
+        this.commandsScheduled = new AtomicBoolean(false);
+        this.open = new AtomicBoolean(true);
+        this.creationMillis = System.currentTimeMillis();
+    }
+
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    /**
+     * Reads whatever is available on the channel and dispatches the complete messages.
+     * Called by the I/O thread only
+     */
+    void onReadable(){
+        int readBytes;
+        try {
+            readBytes = channel.read(readBuffer);
+        } catch (IOException e) {
+            connectionLost("Error receiving commands from the socket");
+            return;
+        }
+        if(readBytes < 0){
+            connectionLost("The client closed the connection");
+            return;
+        }
+
+        readBuffer.flip();
+        byte[] message;
+        try {
+            while((message = decoder.nextPayload(readBuffer)) != null){
+                dispatch(message);
+                // The format can change after a CONNECTION_REQUEST, the next bytes must follow it
+                if(clientHandler != null) decoder.setWireFormat(clientHandler.getMainBroker().getInputFormat());
+            }
+        } catch (IOException | RuntimeException | StackOverflowError e) {
+            // Whatever a client sends, only its own connection is closed and the loop goes on with the others
+            connectionLost("Bad message received");
+            return;
+        }
+        readBuffer.clear();
+
+        // The messages already read are kept, but nothing more is read until the client's mailbox has room
+        if(clientHandler != null && clientHandler.getMainBroker().isInboundPaused()){
+            readingPaused = true;
+            updateInterest(!outgoingMessages.isEmpty());
+        }
+    }
+
+    /**
+     * Starts reading again once the mailbox of the client has room, called by the I/O thread only
+     */
+    private void resumeReading(){
+        if(!readingPaused) return;
+        readingPaused = false;
+        updateInterest(!outgoingMessages.isEmpty());
+    }
+
+    /**
+     * @param writing true if there are buffers waiting to be written
+     */
+    private void updateInterest(boolean writing){
+        if(key == null || !key.isValid()) return;
+        key.interestOps((readingPaused ? 0 : SelectionKey.OP_READ) | (writing ? SelectionKey.OP_WRITE : 0));
+    }
+
+    /**
+     * Writes as many pending buffers as the channel accepts, it stops being interested
+     * in writing once they have all been written. Called by the I/O thread only
+     */
+    void onWritable(){
+        ByteBuffer buffer;
+        try {
+            while((buffer = outgoingMessages.nextBuffer()) != null){
+                channel.write(buffer);
+                if(buffer.hasRemaining()) return; // the socket buffer is full, wait for the next round
+                outgoingMessages.bufferWritten();
+            }
+        } catch (IOException e) {
+            connectionLost("Error while sending the reply to the client");
+            return;
+        }
+        updateInterest(false);
+        // A buffer could have been added after the last check
+        if(!outgoingMessages.isEmpty()) eventLoop.requestWrite(this);
+    }
+
+    @Override
+    public boolean enqueue(Object coalescingKey, ByteBuffer... buffers){
+        if(!outgoingMessages.offer(coalescingKey, buffers)) return false;
+        eventLoop.requestWrite(this);
+        return true;
+    }
+
+    @Override
+    public boolean retract(Object coalescingKey){
+        return outgoingMessages.retract(coalescingKey);
+    }
+
+    /**
+     * Sets the interest in writing, called by the I/O thread only
+     */
+    void enableWriting(){
+        updateInterest(true);
+    }
+
+    private void dispatch(byte[] message) throws IOException {
+        if(clientHandler == null && pingBroker == null){
+            chooseRole(message);
+            return;
+        }
+        if(clientHandler != null){
+            clientHandler.getMainBroker().receive(message);
+            clientHandler.notifyPing();
+            scheduleCommands();
+        }
+        else {
+            pingBroker.receive(message);
+            try {
+                if(pingBroker.waitSyncMessage(0)) answerPing();
+            } catch (InterruptedException e) {
+                //The ping will be answered the next time
+            }
+        }
+    }
+
+    /**
+     * Decides whether this is the main connection of a new client or the ping connection
+     * of an already logged one, looking at the first message received
+     * @param firstMessage the first complete message read from this connection
+     */
+    private void chooseRole(byte[] firstMessage) throws IOException {
+        MessageBroker firstBroker = new MessageBroker();
+        firstBroker.receive(firstMessage);
+        if(!firstBroker.isSyncMessageAvailable()) return; // invalid messages are discarded, as in the broker
+
+        try {
+            firstBroker.waitSyncMessage(0);
+        } catch (InterruptedException e) {
+            return;
+        }
+        Object command = firstBroker.readField(NetworkFieldEnum.COMMAND);
+        if(command != null && CommandEnum.PING.equals(CommandEnum.fromObjectToEnum(command))){
+            pingBroker = firstBroker;
+            answerPing();
+            return;
+        }
+
+        clientHandler = new ClientHandler(channel.socket(), output);
+        clientHandler.getMainBroker().setInboundRoomListener(() -> eventLoop.execute(this::resumeReading));
+        clientHandler.start();
+        clientHandler.getMainBroker().receive(firstMessage);
+        scheduleCommands();
+    }
+
+    /**
+     * Replies to the ping read on the ping broker, right on the I/O thread since it's a cheap operation
+     */
+    private void answerPing() throws IOException {
+        PingRequest ping = PongHandler.readPing(pingBroker);
+        if (ping == null) {
+            connectionLost("ERROR: socket was not dedicated for pong routine");
+            return;
+        }
+        int receivedIdUser = ping.idUser();
+        int receivedIdPingRequest = ping.idPingRequest();
+
+        if(pingedHandler == null){
+            pingedHandler = ActiveClients.getHandlerFromId(receivedIdUser);
+            if(pingedHandler == null){
+                connectionLost("Ping received for an unknown user");
+                return;
+            }
+            pingedHandler.assignPingSocket(channel.socket());
+        }
+        pingedHandler.notifyPing();
+        if(ping.viewResync()) pingedHandler.requestViewResync();
+
+        pingBroker.addToMessage(NetworkFieldEnum.COMMAND, CommandEnum.PONG);
+        pingBroker.addToMessage(NetworkFieldEnum.ID_PING_REQUEST, receivedIdPingRequest);
+        pingBroker.addToMessage(NetworkFieldEnum.ID_USER, receivedIdUser);
+        pingBroker.send(output);
+        pingBroker.flushFirstSyncMessage();
+    }
+
+    /**
+     * Makes sure a worker is handling the messages of this client, without ever
+     * having two workers handling the same client at the same time
+     */
+    private void scheduleCommands(){
+        if(commandsScheduled.compareAndSet(false, true)){
+            server.execute(this::runCommands);
+        }
+    }
+
+    private void runCommands(){
+        do {
+            // A command handed to the game keeps the flag set: its thread hands the connection back once it's done
+            if(!clientHandler.handleAvailableMessages(this::gameCommandDone)) return;
+            commandsScheduled.set(false);
+            // A message could have arrived after the last check, but before the flag was cleared
+        } while(clientHandler.isConnected()
+                && clientHandler.getMainBroker().isSyncMessageAvailable()
+                && commandsScheduled.compareAndSet(false, true));
+    }
+
+    /**
+     * Called by the thread of the game once it handled a command of this client, the workers
+     * go on with the commands received in the meantime
+     */
+    private void gameCommandDone(){
+        server.execute(this::runCommands);
+    }
+
+    /**
+     * @return the time anything was last received from the client, pings included, or the time
+     * the connection was accepted if nothing has been received yet
+     */
+    long getLastSeenMillis(){
+        ClientHandler handler = clientHandler;
+        return handler != null ? handler.getLastPingMillis() : creationMillis;
+    }
+
+    /**
+     * @return true if the silence of this connection is timed: ping connections aren't, as their
+     * pings are accounted to the main connection of their client
+     */
+    boolean isTimed(){
+        return isOpen() && pingBroker == null;
+    }
+
+    /**
+     * Closes the connection and notifies the client handler (if there is one) on a worker thread,
+     * since alerting the other players can take some time. Can be called by any thread
+     * @param error the reason of the disconnection
+     */
+    void connectionLost(String error){
+        ClientHandler handler = clientHandler != null ? clientHandler : pingedHandler;
+        close();
+        if(handler != null) server.execute(() -> handler.connectionLostAlert(error));
+    }
+
+    /**
+     * Closes the channel, can be called by any thread
+     */
+    @Override
+    public void close(){
+        if(!open.compareAndSet(true, false)) return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            //Nothing to do, the channel is being discarded anyway
+        }
+    }
+
+    @Override
+    public boolean isOpen(){
+        return open.get() && channel.isOpen();
+    }
+}
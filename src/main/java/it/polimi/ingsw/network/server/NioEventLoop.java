@@ -0,0 +1,130 @@
+package it.polimi.ingsw.network.server;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * One of the I/O threads of the selector-based server. <br>
+ * It owns a selector and all the connections registered to it: every read and write on those
+ * channels happens on this thread. Other threads interact with it only by queueing tasks
+ */
+class NioEventLoop implements Runnable {
+
+    private static final long SELECT_TIMEOUT_MILLIS = 1000;
+
+    private final Selector selector;
+    private final NioServer server;
+    private final Queue<Runnable> pendingTasks;
+    private volatile boolean running;
+    private volatile Thread loopThread;
+
+    NioEventLoop(NioServer server) throws IOException {
+        this.selector = Selector.open();
+        this.server = server;
+        this.pendingTasks = new ConcurrentLinkedQueue<>();
+        this.running = true;
+    }
+
+    /**
+     * Hands a newly accepted channel to this loop
+     * @param channel the channel of the new client
+     */
+    void register(SocketChannel channel){
+        execute(() -> {
+            NioConnection connection = new NioConnection(channel, this, server);
+            try {
+                channel.configureBlocking(false);
+                connection.setKey(channel.register(selector, SelectionKey.OP_READ, connection));
+                server.watch(connection);
+            } catch (IOException e) {
+                connection.close();
+            }
+        });
+    }
+
+    /**
+     * Asks this loop to write the pending buffers of a connection
+     * @param connection the connection with something to write
+     */
+    void requestWrite(NioConnection connection){
+        if(Thread.currentThread() == loopThread) connection.enableWriting();
+        else execute(connection::enableWriting);
+    }
+
+    /**
+     * Runs a task on this loop's thread, can be called by any thread
+     * @param task the task to run
+     */
+    void execute(Runnable task){
+        pendingTasks.add(task);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        loopThread = Thread.currentThread();
+        while(running){
+            try {
+                selector.select(SELECT_TIMEOUT_MILLIS);
+            } catch (IOException e) {
+                System.err.println("Selector error: " + e.getMessage());
+                break;
+            }
+
+            Runnable task;
+            while((task = pendingTasks.poll()) != null){
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    System.err.println("A task of the I/O thread failed: " + e);
+                }
+            }
+
+            Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+            while(selectedKeys.hasNext()){
+                SelectionKey key = selectedKeys.next();
+                selectedKeys.remove();
+                NioConnection connection = (NioConnection) key.attachment();
+                try {
+                    if(key.isValid() && key.isReadable()) connection.onReadable();
+                    if(key.isValid() && key.isWritable()) connection.onWritable();
+                } catch (CancelledKeyException e) {
+                    connection.close();
+                } catch (RuntimeException e) {
+                    // A failure of a single connection must not stop the loop, which serves all the others
+                    connection.connectionLost("Error handling the connection");
+                }
+            }
+        }
+        closeAll();
+    }
+
+    /**
+     * @return the amount of connections currently handled by this loop
+     */
+    int getConnectionsCount(){
+        return selector.keys().size();
+    }
+
+    void stop(){
+        running = false;
+        selector.wakeup();
+    }
+
+    private void closeAll(){
+        for(SelectionKey key : selector.keys()){
+            ((NioConnection) key.attachment()).close();
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            //Nothing left to do
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package it.polimi.ingsw.network.server;
+
+import it.polimi.ingsw.network.Preferences;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Selector-based version of the Eriantys Server. <br>
+ * Instead of a few threads per client, the connections are spread over a small fixed set of
+ * I/O threads (one selector each), while the commands are executed by a fixed pool of workers.
+ * Idle clients therefore cost no thread at all. <br>
+ * The I/O threads never run the code of the handlers: each connection has at most one task
+ * handling its commands waiting for a worker, and stops reading once its mailbox is full,
+ * so the queue of the workers grows with the connections and not with the messages. <br>
+ * The commands of a user in a game are handed to the executor of the game, which replies to them:
+ * a worker never waits for a game, and goes on with other clients meanwhile. <br>
+ * The protocol is the same of the Server class, so the clients don't need to know which
+ * one they are talking to
+ */
+public class NioServer {
+
+    public static final int DEFAULT_IO_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    public static final int DEFAULT_WORKER_THREADS = Runtime.getRuntime().availableProcessors();
+
+    private final int portNumber;
+    private final int ioThreadsNumber;
+    private final List<NioEventLoop> eventLoops;
+    private final ThreadPoolExecutor workers;
+    private final HeartbeatScheduler heartbeatScheduler;
+    private final long outboundHighWaterBytes;
+    private final long outboundMaxBehindMillis;
+    private ServerSocketChannel serverChannel;
+    private volatile boolean running;
+    private int nextEventLoop;
+
+    /**
+     * Creates a new selector-based Eriantys Server with the default amount of threads
+     * @param port The port on which the server starts listening for clients
+     */
+    public NioServer(int port){
+        this(port, DEFAULT_IO_THREADS, DEFAULT_WORKER_THREADS);
+    }
+
+    /**
+     * Creates a new selector-based Eriantys Server
+     * @param port The port on which the server starts listening for clients
+     * @param ioThreads the number of threads reading and writing on the sockets
+     * @param workerThreads the number of threads executing the commands
+     */
+    public NioServer(int port, int ioThreads, int workerThreads){
+        this.portNumber = port;
+        this.ioThreadsNumber = ioThreads;
+        this.eventLoops = new ArrayList<>();
+        this.workers = new ThreadPoolExecutor(workerThreads, workerThreads,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>());
+        // The timeout only closes the channel and hands the alert to the workers, it can run on the wheel
+        this.heartbeatScheduler = new HeartbeatScheduler(PongHandler.PONG_TIMEOUT_SECONDS * 1000L, Runnable::run);
+        this.outboundHighWaterBytes = Preferences.readOutboundHighWaterFromJson();
+        this.outboundMaxBehindMillis = Preferences.readOutboundMaxBehindFromJson();
+        this.nextEventLoop = 0;
+    }
+
+    /**
+     * Starts the server, the calling thread is used to accept the new clients
+     */
+    public void startServer(){
+        System.out.println("Server starting... [selector mode]");
+        try{
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(portNumber));
+            for(int thread = 0; thread < ioThreadsNumber; thread++){
+                NioEventLoop eventLoop = new NioEventLoop(this);
+                eventLoops.add(eventLoop);
+                Thread ioThread = new Thread(eventLoop);
+                ioThread.setName("NioEventLoop-" + thread);
+                ioThread.start();
+            }
+        }
+        catch (IOException e){
+            System.out.println("Error: Couldn't open the server socket");
+            System.out.println(e.getMessage());
+            stopServer();
+            return;
+        }
+        running = true;
+        heartbeatScheduler.start();
+        System.out.println("Server started");
+
+        while(running){
+            try{
+                SocketChannel channel = serverChannel.accept();
+                System.out.println("New connection from " + channel.socket().getInetAddress());
+                // Round robin between the I/O threads
+                eventLoops.get(nextEventLoop).register(channel);
+                nextEventLoop = (nextEventLoop + 1) % eventLoops.size();
+            } catch (IOException e){
+                if(running) System.out.println(e.getMessage());
+                break;
+            }
+        }
+        stopServer();
+    }
+
+    /**
+     * Executes a task on the worker pool, never on the calling thread
+     * @param task the task to execute, dropped if the server is stopping
+     */
+    void execute(Runnable task){
+        try {
+            workers.execute(task);
+        } catch (RejectedExecutionException e){
+            //The server is stopping, the connections are being closed anyway
+        }
+    }
+
+    /**
+     * @return an empty queue for the messages of a new connection, with the configured limits
+     */
+    OutboundQueue newOutboundQueue(){
+        return new OutboundQueue(outboundHighWaterBytes, outboundMaxBehindMillis);
+    }
+
+    /**
+     * Starts timing the silence of a new connection
+     * @param connection the connection just registered
+     */
+    void watch(NioConnection connection){
+        heartbeatScheduler.watch(connection::getLastSeenMillis, connection::isTimed,
+                () -> connection.connectionLost("Connection timed out"));
+    }
+
+    /**
+     * Stops accepting new clients and closes all the connections
+     */
+    public void stopServer(){
+        running = false;
+        heartbeatScheduler.stop();
+        try {
+            if(serverChannel != null) serverChannel.close();
+        } catch (IOException e) {
+            //Nothing left to do
+        }
+        for(NioEventLoop eventLoop : eventLoops) eventLoop.stop();
+        workers.shutdown();
+    }
+
+    /**
+     * @return the amount of connections currently open, ping connections included
+     */
+    public int getConnectionsCount(){
+        int connections = 0;
+        for(NioEventLoop eventLoop : eventLoops) connections += eventLoop.getConnectionsCount();
+        return connections;
+    }
+}
@@ -0,0 +1,28 @@
+package it.polimi.ingsw.network.server;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A connection whose messages are queued and written by its I/O layer, never by the threads
+ * handling the commands
+ */
+interface OutboundConnection {
+
+    /**
+     * Queues a message to be written, can be called by any thread
+     * @param coalescingKey the state carried by the message, null if it can't be replaced by a newer one
+     * @param buffers the bytes of the message
+     * @return false if the message was refused because the client is too far behind
+     */
+    boolean enqueue(Object coalescingKey, ByteBuffer... buffers);
+
+    /**
+     * @param coalescingKey the state carried by the message
+     * @return true if a message with the given state was still waiting and has been removed
+     */
+    boolean retract(Object coalescingKey);
+
+    boolean isOpen();
+
+    void close();
+}
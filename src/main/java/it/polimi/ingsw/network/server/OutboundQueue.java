@@ -0,0 +1,169 @@
+package it.polimi.ingsw.network.server;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * The messages waiting to be written to a client, filled by the threads handling the commands and
+ * drained by the I/O layer: the event loop of the selector-based server, a SocketWriter otherwise. <br>
+ * A message carrying the latest state of something, such as the lobby or the view of the game, has a
+ * coalescing key: a message with the same key still waiting in the queue is dropped when the new one
+ * arrives, so a slow client only receives the latest state. A message is never dropped once its
+ * writing started. <br>
+ * The queue is bounded: a client staying behind the high-water mark for longer than allowed, or far
+ * beyond it, is refused any further message and should be disconnected
+ */
+public class OutboundQueue {
+
+    public static final long DEFAULT_HIGH_WATER_BYTES = 1 << 20;
+    public static final long DEFAULT_MAX_BEHIND_MILLIS = 10000;
+    private static final int HARD_LIMIT_FACTOR = 4; // refused at once beyond this many times the high-water mark
+
+    private final long highWaterBytes;
+    private final long maxBehindMillis;
+    private final Deque<Message> messages;
+    private long queuedBytes;
+    private long behindSinceMillis;
+    private long coalescedCount;
+
+    /**
+     * A message made of one or more buffers, written one after the other
+     */
+    private static class Message {
+        private final ByteBuffer[] buffers;
+        private final Object coalescingKey;
+        private final long size;
+        private int currentBuffer;
+        private boolean started;
+
+        private Message(ByteBuffer[] buffers, Object coalescingKey){
+            this.buffers = buffers;
+            this.coalescingKey = coalescingKey;
+            long bytes = 0;
+            for(ByteBuffer buffer : buffers) bytes += buffer.remaining();
+            this.size = bytes;
+        }
+    }
+
+    /**
+     * Creates a queue with the default limits
+     */
+    public OutboundQueue(){
+        this(DEFAULT_HIGH_WATER_BYTES, DEFAULT_MAX_BEHIND_MILLIS);
+    }
+
+    /**
+     * @param highWaterBytes the amount of bytes the client can have waiting without being considered behind
+     * @param maxBehindMillis the time the client can stay behind before its messages are refused
+     */
+    public OutboundQueue(long highWaterBytes, long maxBehindMillis){
+        this.highWaterBytes = highWaterBytes;
+        this.maxBehindMillis = maxBehindMillis;
+        this.messages = new ArrayDeque<>();
+        this.queuedBytes = 0;
+        this.behindSinceMillis = -1;
+        this.coalescedCount = 0;
+    }
+
+    /**
+     * Adds a message at the end of the queue, can be called by any thread
+     * @param coalescingKey the state carried by the message, null if it can't be replaced by a newer one
+     * @param buffers the bytes of the message, they mustn't be modified afterwards
+     * @return false if the message was refused because the client is too far behind
+     */
+    public synchronized boolean offer(Object coalescingKey, ByteBuffer... buffers){
+        if(coalescingKey != null && remove(coalescingKey)) coalescedCount++;
+
+        Message message = new Message(buffers, coalescingKey);
+        if(queuedBytes + message.size > highWaterBytes * HARD_LIMIT_FACTOR) return false;
+        if(queuedBytes + message.size > highWaterBytes){
+            long now = System.currentTimeMillis();
+            if(behindSinceMillis < 0) behindSinceMillis = now;
+            else if(now - behindSinceMillis > maxBehindMillis) return false;
+        }
+
+        messages.add(message);
+        queuedBytes += message.size;
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Removes the message with the given state if it's still waiting, so that it can be replaced by
+     * one built knowing that the client never received it
+     * @param coalescingKey the state carried by the message
+     * @return true if a message was removed
+     */
+    public synchronized boolean retract(Object coalescingKey){
+        if(!remove(coalescingKey)) return false;
+        coalescedCount++;
+        return true;
+    }
+
+    private boolean remove(Object coalescingKey){
+        Iterator<Message> iterator = messages.iterator();
+        while(iterator.hasNext()){
+            Message message = iterator.next();
+            if(!message.started && coalescingKey.equals(message.coalescingKey)){
+                iterator.remove();
+                queuedBytes -= message.size;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the buffer to write next, null if there's nothing left. Its message can't be dropped anymore
+     */
+    public synchronized ByteBuffer nextBuffer(){
+        Message head = messages.peek();
+        if(head == null) return null;
+        head.started = true;
+        return head.buffers[head.currentBuffer];
+    }
+
+    /**
+     * Waits for something to write
+     * @param timeoutMillis the maximum time to wait
+     * @return the buffer to write next, null if there's still nothing after the timeout
+     */
+    public synchronized ByteBuffer awaitNextBuffer(long timeoutMillis) throws InterruptedException {
+        if(messages.isEmpty()) wait(timeoutMillis);
+        return nextBuffer();
+    }
+
+    /**
+     * Signals that the buffer returned by nextBuffer() has been completely written
+     */
+    public synchronized void bufferWritten(){
+        Message head = messages.peek();
+        if(head == null) return;
+        head.currentBuffer++;
+        if(head.currentBuffer < head.buffers.length) return;
+
+        messages.poll();
+        queuedBytes -= head.size;
+        if(queuedBytes <= highWaterBytes) behindSinceMillis = -1;
+    }
+
+    public synchronized boolean isEmpty(){
+        return messages.isEmpty();
+    }
+
+    /**
+     * @return the amount of bytes waiting to be written, the ones of a partially written message included
+     */
+    public synchronized long getQueuedBytes(){
+        return queuedBytes;
+    }
+
+    /**
+     * @return the amount of messages dropped because a newer state replaced them
+     */
+    public synchronized long getCoalescedCount(){
+        return coalescedCount;
+    }
+}
@@ -1,24 +1,28 @@
 package it.polimi.ingsw.network.server;
 
-import it.polimi.ingsw.network.ApplicationHelper;
 import it.polimi.ingsw.network.CommandEnum;
 import it.polimi.ingsw.network.MessageBroker;
 import it.polimi.ingsw.network.NetworkFieldEnum;
+import it.polimi.ingsw.network.request.MalformedRequestException;
+import it.polimi.ingsw.network.request.PingRequest;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
-import java.time.Duration;
-import java.util.concurrent.*;
 
+/**
+ * Answers the pings of a client using a second socket for them (the clients which didn't ask
+ * for the HEARTBEAT on the main socket). <br>
+ * A single thread reads the pings and replies right away; the silence of the client
+ * is timed by the HeartbeatScheduler of the server, like for any other connection
+ */
 public class PongHandler {
 
     private final ClientHandler clientHandler;
     private final MessageBroker pingBroker;
     private final Socket pingSocket;
     public static final int PONG_TIMEOUT_SECONDS = 5;
-    private final Duration timeout = Duration.ofSeconds(PONG_TIMEOUT_SECONDS);
     private boolean pongStarted;
 
     public PongHandler(ClientHandler clientHandler, MessageBroker pingBroker, Socket pingSocket) {
@@ -35,7 +39,7 @@ public class PongHandler {
 
         if(pongStarted) return;
 
-        new Thread(() -> {
+        Thread pongThread = new Thread(() -> {
 
             InputStream clientInput;
             OutputStream clientOutput;
@@ -48,55 +52,27 @@ public class PongHandler {
                 return;
             }
 
-            ExecutorService pingExecutor = Executors.newSingleThreadExecutor();
-
-            new Thread(() -> {
-                while (clientHandler.isConnected()) {
-                    try {
-                        pingBroker.receive(clientInput);
-                    } catch (IOException e) {
-                        clientHandler.connectionLostAlert("Pong routine couldn't receive message");
-                        return;
-                    }
-                }
-            }).start();
-
-            Future<Void> handler;
-
             while (clientHandler.isConnected()) {
 
-                handler = pingExecutor.submit(() -> {
-
-                    pingBroker.waitSyncMessage(); //operation to execute with timeout
-
-                    return null; //no need for a return value
-
-                });
-
-                // as soon as this routine starts, we need to immediately wait 5 seconds
-                // since the client must initiate the ping messages immediately
-
                 try {
-                    handler.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
-                } catch (TimeoutException e) {
-                    handler.cancel(true);
-                    clientHandler.connectionLostAlert("Connection timed out");
-                    pingBroker.flushFirstSyncMessage();
-                    break;
-                } catch (InterruptedException | ExecutionException e) {
-                    handler.cancel(true);
+                    // The first ping may have been read already, when the socket was accepted
+                    while (!pingBroker.waitSyncMessage(0)) pingBroker.receive(clientInput);
+                } catch (IOException e) {
+                    clientHandler.connectionLostAlert("Pong routine couldn't receive message");
+                    return;
+                } catch (InterruptedException e) {
                     clientHandler.connectionLostAlert("Pong routine interrupted");
-                    pingBroker.flushFirstSyncMessage();
-                    break;
+                    return;
                 }
 
-
-                if (!CommandEnum.PING
-                        .equals(CommandEnum.fromObjectToEnum(pingBroker.readField(NetworkFieldEnum.COMMAND)))) {
+                PingRequest ping = readPing(pingBroker);
+                if (ping == null) {
                     clientHandler.connectionLostAlert("ERROR: socket was not dedicated for pong routine");
                 } else {
-                    int receivedIdUser = ApplicationHelper.getIntFromBrokerField(pingBroker.readField(NetworkFieldEnum.ID_USER));
-                    int receivedIdPingRequest = ApplicationHelper.getIntFromBrokerField(pingBroker.readField(NetworkFieldEnum.ID_PING_REQUEST));
+                    int receivedIdUser = ping.idUser();
+                    int receivedIdPingRequest = ping.idPingRequest();
+                    clientHandler.notifyPing();
+                    if(ping.viewResync()) clientHandler.requestViewResync();
 
 //                    System.out.printf("Received ping #%d from user %d\n", receivedIdPingRequest, receivedIdUser);
 
@@ -113,8 +89,24 @@ public class PongHandler {
 
                 pingBroker.flushFirstSyncMessage();
             }
-        }).start();
+        });
+        pongThread.setName("PongThread");
+        pongThread.start();
 
         pongStarted = true;
     }
+
+    /**
+     * Reads the message on the ping broker as a PING
+     * @param pingBroker the broker holding the message read with waitSyncMessage()
+     * @return the ping request, or null if the message isn't a valid PING
+     */
+    static PingRequest readPing(MessageBroker pingBroker){
+        try {
+            if(pingBroker.readRequest() instanceof PingRequest ping && ping.command() == CommandEnum.PING) return ping;
+        } catch (MalformedRequestException e) {
+            // not a ping
+        }
+        return null;
+    }
 }
@@ -0,0 +1,91 @@
+package it.polimi.ingsw.network.server;
+
+import it.polimi.ingsw.network.NetworkFieldEnum;
+import it.polimi.ingsw.network.SharedMessage;
+
+import java.util.*;
+
+/**
+ * Keeps the last asynchronous messages sent to a client, so that a client reconnecting after losing
+ * its connection receives again only the ones it missed. <br>
+ * The buffer is bounded: once a message the client never read has been dropped to make room,
+ * the client can only be sent a snapshot of the current state
+ */
+public class ReplayBuffer {
+
+    public static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * An asynchronous message as it was sent to the client
+     * @param asyncIdRequest the sequence number of the message in the session
+     * @param fields the fields of this recipient only
+     * @param sharedPart the fields shared with the other recipients, null if there were none
+     */
+    public record Message(int asyncIdRequest, Map<NetworkFieldEnum, Object> fields, SharedMessage sharedPart) {}
+
+    private final int capacity;
+    private final Deque<Message> messages;
+    private int lastDropped; // the sequence number of the newest message dropped to make room
+
+    public ReplayBuffer(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the maximum amount of messages kept
+     */
+    public ReplayBuffer(int capacity){
+        if(capacity <= 0) throw new IllegalArgumentException("The buffer must hold at least a message");
+        this.capacity = capacity;
+        this.messages = new ArrayDeque<>(capacity);
+        this.lastDropped = 0;
+    }
+
+    /**
+     * Keeps a message sent, dropping the oldest one if the buffer is full
+     * @param asyncIdRequest the sequence number of the message, greater than the ones already kept
+     * @param fields the fields of this recipient only, copied
+     * @param sharedPart the fields shared with the other recipients, null if there were none
+     */
+    public synchronized void add(int asyncIdRequest, Map<NetworkFieldEnum, Object> fields, SharedMessage sharedPart){
+        if(messages.size() == capacity) lastDropped = messages.removeFirst().asyncIdRequest();
+        messages.addLast(new Message(asyncIdRequest, new HashMap<>(fields), sharedPart));
+    }
+
+    /**
+     * Forgets the newest message of a command, which was replaced by a newer state before being written:
+     * the client never needed it, so it doesn't count as dropped
+     * @param command the command of the message
+     */
+    public synchronized void retractLatest(Object command){
+        Iterator<Message> iterator = messages.descendingIterator();
+        while(iterator.hasNext()){
+            if(command.equals(commandOf(iterator.next()))){
+                iterator.remove();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @param lastAsyncIdRequest the sequence number of the last message read by the client
+     * @return the messages sent after it, in order, or null if some of them were dropped
+     */
+    public synchronized List<Message> since(int lastAsyncIdRequest){
+        if(lastDropped > lastAsyncIdRequest) return null;
+        List<Message> missed = new ArrayList<>();
+        for(Message message : messages)
+            if(message.asyncIdRequest() > lastAsyncIdRequest) missed.add(message);
+        return missed;
+    }
+
+    public synchronized int size(){
+        return messages.size();
+    }
+
+    private static Object commandOf(Message message){
+        Object command = message.fields().get(NetworkFieldEnum.COMMAND);
+        if(command == null && message.sharedPart() != null) command = message.sharedPart().getFields().get(NetworkFieldEnum.COMMAND);
+        return command;
+    }
+}
@@ -0,0 +1,92 @@
+package it.polimi.ingsw.network.server;
+
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Holds the sessions of the users who lost their connection, by the resume token given at login. <br>
+ * A suspended session keeps its lobby, its game and its nickname for a grace window: a client reconnecting
+ * with the token in time takes it over, otherwise the session is dropped as if the user had quit
+ */
+public class ResumableSessions {
+
+    private static final Map<String, Suspended> sessions = new ConcurrentHashMap<>();
+    private static final SecureRandom random = new SecureRandom();
+    private static final ScheduledExecutorService expirer = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "ResumableSessions");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private record Suspended(ClientHandler handler, ScheduledFuture<?> expiry) {}
+
+    /**
+     * We don't want to instantiate this class
+     */
+    private ResumableSessions(){}
+
+    /**
+     * @return a new token, impossible to guess, for the session of a user who just logged in
+     */
+    public static String newToken(){
+        byte[] token = new byte[16];
+        random.nextBytes(token);
+        return HexFormat.of().formatHex(token);
+    }
+
+    /**
+     * Keeps the session of a handler which lost its connection until it's resumed or the grace window ends
+     * @param token the resume token of the session
+     * @param handler the handler of the session
+     * @param graceMillis how long the session can be resumed for
+     * @param onExpiry what to do with the session if it isn't resumed in time
+     */
+    public static void suspend(String token, ClientHandler handler, long graceMillis, Runnable onExpiry){
+        synchronized (sessions){ // the expiry can't look for the session before it's stored
+            ScheduledFuture<?> expiry = expirer.schedule(() -> {
+                boolean expired;
+                synchronized (sessions){
+                    Suspended suspended = sessions.get(token);
+                    expired = suspended != null && suspended.handler() == handler && sessions.remove(token, suspended);
+                }
+                if(expired) onExpiry.run();
+            }, graceMillis, TimeUnit.MILLISECONDS);
+            sessions.put(token, new Suspended(handler, expiry));
+        }
+    }
+
+    /**
+     * @param token the resume token of the session
+     * @return the handler of the suspended session, without taking it, null if there is none
+     */
+    public static ClientHandler getSuspended(String token){
+        if(token == null) return null;
+        Suspended suspended = sessions.get(token);
+        return suspended == null ? null : suspended.handler();
+    }
+
+    /**
+     * Takes a suspended session out of the registry, so that it won't expire
+     * @param token the resume token sent by the client
+     * @param nickname the nickname sent together with the token
+     * @return the handler of the session, null if there is no session with the token and the nickname
+     */
+    public static ClientHandler resume(String token, String nickname){
+        if(token == null) return null;
+        Suspended suspended = sessions.get(token);
+        if(suspended == null || !nickname.equals(LoginHandler.getNicknameFromId(suspended.handler().getIdUser())))
+            return null;
+        if(!sessions.remove(token, suspended)) return null; // expired in the meantime
+        suspended.expiry().cancel(false);
+        return suspended.handler();
+    }
+
+    /**
+     * @return the amount of sessions waiting to be resumed
+     */
+    public static int getSuspendedCount(){
+        return sessions.size();
+    }
+}
@@ -1,22 +1,36 @@
 package it.polimi.ingsw.network.server;
 
-import it.polimi.ingsw.network.server.ClientHandler;
+import it.polimi.ingsw.network.CommandEnum;
+import it.polimi.ingsw.network.MessageBroker;
+import it.polimi.ingsw.network.NetworkFieldEnum;
+import it.polimi.ingsw.network.Preferences;
+import it.polimi.ingsw.network.request.FieldDecoders;
+import it.polimi.ingsw.network.request.MalformedRequestException;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.ArrayList;
-
-import java.util.List;
+import java.util.Map;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+/**
+ * The server with a thread for every connection. <br>
+ * The kind of each connection is decided by its first message, read on a thread of the pool:
+ * a PING means that this is the ping socket of a client still using two of them, which is paired
+ * with its main connection by the user id, anything else starts a new ClientHandler. <br>
+ * The timeouts of all the clients are checked by a single HeartbeatScheduler, while the replies
+ * of each client are written by a thread of its own from a bounded queue
+ */
 public class Server {
 
     private int portNumber; // java doesn't support unsigned int
     private ServerSocket serverSocket;
-    private List<ClientHandler> pinglessClients = new ArrayList<>(); //contains all clients not having a ping socket
+    private HeartbeatScheduler heartbeatScheduler;
+    private final long outboundHighWaterBytes;
+    private final long outboundMaxBehindMillis;
 
     /**
      * Creates a new Eriantys Server
@@ -24,7 +38,8 @@ public class Server {
      */
     public Server(int port){
         this.portNumber = port;
-        pinglessClients = new ArrayList<>();
+        this.outboundHighWaterBytes = Preferences.readOutboundHighWaterFromJson();
+        this.outboundMaxBehindMillis = Preferences.readOutboundMaxBehindFromJson();
     }
 
     /**
@@ -44,44 +59,73 @@ public class Server {
         }
         System.out.println("Server started");
 
-        ClientHandler waitingClient = null;
+        heartbeatScheduler = new HeartbeatScheduler(PongHandler.PONG_TIMEOUT_SECONDS * 1000L, executor);
+        heartbeatScheduler.start();
 
         while(true){
             try{
                 Socket socket = serverSocket.accept();
-
-                for (ClientHandler clientHandler:
-                     pinglessClients) {
-                    if (clientHandler.getMainSocket().getInetAddress().equals(socket.getInetAddress())) {
-                        waitingClient = clientHandler; //if the client connecting is in the list, we assume he's
-                                                       //asking to open a ping socket
-                    }
-                }
-
-                if (waitingClient != null){ //client is connecting again to open the ping socket
-                    waitingClient.assignPingSocket(socket);
-                    pinglessClients.remove(waitingClient);
-                    System.out.println("Starting Handler of" + waitingClient.getMainSocket().getInetAddress());
-                    executor.submit(waitingClient);
-                    // Resets the waiting client
-                    waitingClient = null;
-                }
-                else {
-                    System.out.println("New connection from " + socket.getInetAddress());
-                    pinglessClients.add(new ClientHandler(socket)); //the clientHandler is kept in the pinglessClients list
-                                                                    //waiting for the Client to establish another connection
-                                                                    //for the ping routine
-                }
-
-
+                System.out.println("New connection from " + socket.getInetAddress());
+                executor.submit(() -> startConnection(socket));
             } catch (IOException e){
                 System.out.println(e.getMessage());
                 break;
             }
         }
+        heartbeatScheduler.stop();
         executor.shutdown();
     }
 
+    /**
+     * Reads the first message of a new connection and starts handling it. Runs on a thread of the pool,
+     * which keeps running the ClientHandler if this is a main connection
+     * @param socket the socket just accepted
+     */
+    private void startConnection(Socket socket){
+        MessageBroker firstBroker = new MessageBroker();
+        Map<NetworkFieldEnum, Object> firstMessage;
+        try {
+            // A client that never speaks is dropped like one that stops pinging
+            socket.setSoTimeout(PongHandler.PONG_TIMEOUT_SECONDS * 1000);
+            InputStream input = socket.getInputStream();
+            while(!firstBroker.isSyncMessageAvailable()) firstBroker.receive(input);
+            socket.setSoTimeout(0);
+        } catch (IOException e) {
+            closeSocket(socket);
+            return;
+        }
+        // The message stays in the queue, it's read again by whoever handles the connection
+        firstMessage = firstBroker.peekSyncMessage();
+
+        Object command = firstMessage.get(NetworkFieldEnum.COMMAND);
+        if(command == null || !CommandEnum.PING.equals(CommandEnum.fromObjectToEnum(command))){
+            ClientHandler handler = new ClientHandler(socket, firstBroker,
+                    new OutboundQueue(outboundHighWaterBytes, outboundMaxBehindMillis));
+            heartbeatScheduler.watch(handler::getLastPingMillis, handler::isConnected,
+                    () -> handler.connectionLostAlert("Connection timed out"));
+            handler.run();
+            return;
+        }
 
+        ClientHandler pingedHandler;
+        try {
+            pingedHandler = ActiveClients.getHandlerFromId(FieldDecoders.read(firstMessage, NetworkFieldEnum.ID_USER, Integer.class));
+        } catch (MalformedRequestException e) {
+            pingedHandler = null;
+        }
+        if(pingedHandler == null){
+            System.out.println("Ping received for an unknown user from " + socket.getInetAddress());
+            closeSocket(socket);
+            return;
+        }
+        pingedHandler.attachPingConnection(socket, firstBroker);
+    }
 
+    private void closeSocket(Socket socket){
+        try {
+            socket.close();
+        } catch (IOException e) {
+            //Nothing to do, the socket is being discarded anyway
+        }
+    }
 }
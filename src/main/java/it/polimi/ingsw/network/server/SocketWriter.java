@@ -0,0 +1,87 @@
+package it.polimi.ingsw.network.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes the queued messages of a client of the thread-per-client server on its socket, from a thread
+ * of its own. A client slow at reading only fills its own queue, the threads handling the commands
+ * never block on its socket
+ */
+class SocketWriter implements OutboundConnection, Runnable {
+
+    private static final long WAIT_MILLIS = 1000;
+
+    private final Socket socket;
+    private final OutboundQueue queue;
+    private final ClientHandler clientHandler;
+    private volatile boolean open;
+
+    /**
+     * @param socket the main socket of the client
+     * @param queue the queue of the messages waiting to be written
+     * @param clientHandler the handler to alert if the writing fails
+     */
+    SocketWriter(Socket socket, OutboundQueue queue, ClientHandler clientHandler){
+        this.socket = socket;
+        this.queue = queue;
+        this.clientHandler = clientHandler;
+        this.open = true;
+    }
+
+    /**
+     * Starts the writing thread
+     */
+    void start(){
+        Thread thread = new Thread(this, "SocketWriter");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        OutputStream output;
+        try {
+            output = socket.getOutputStream();
+            while(isOpen()){
+                ByteBuffer buffer = queue.awaitNextBuffer(WAIT_MILLIS);
+                if(buffer == null) continue;
+                output.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                queue.bufferWritten();
+                if(queue.isEmpty()) output.flush();
+            }
+        } catch (IOException e) {
+            close();
+            clientHandler.connectionLostAlert("Error while sending the reply to the client");
+        } catch (InterruptedException e) {
+            close();
+        }
+    }
+
+    @Override
+    public boolean enqueue(Object coalescingKey, ByteBuffer... buffers) {
+        return queue.offer(coalescingKey, buffers);
+    }
+
+    @Override
+    public boolean retract(Object coalescingKey) {
+        return queue.retract(coalescingKey);
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open && !socket.isClosed();
+    }
+
+    @Override
+    public void close() {
+        open = false;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            //Nothing to do, the socket is being discarded anyway
+        }
+    }
+}
@@ -5,6 +5,7 @@ import it.polimi.ingsw.view.observer.*;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 public class VirtualView {
@@ -25,6 +26,8 @@ public class VirtualView {
     private final List<ErrorWatcher> errorWatchers;
     private SimpleGameWatcher simpleGameWatcher;
     private AdvancedGameWatcher advancedGameWatcher;
+    private final AtomicInteger revision;   // increased every time an element changes
+    private int nextElementId;
 
     public VirtualView(){
         cloudWatchers = new ArrayList<>();
@@ -34,44 +37,75 @@ public class VirtualView {
         playerWatchers = new ArrayList<>();
         advancedPlayerWatchers = new ArrayList<>();
         errorWatchers = new ArrayList<>();
+        revision = new AtomicInteger(0);
+        nextElementId = 0;
     }
 
     public void setAdvancedGameWatcher(AdvancedGameWatcher advancedGameWatcher) {
+        track(advancedGameWatcher);
         this.advancedGameWatcher = advancedGameWatcher;
     }
 
     public void addAdvancedIslandWatcher(AdvancedIslandGroupWatcher watcher){
+        track(watcher);
         advancedIslandGroupWatchers.add(watcher);
     }
 
     public void addPlayerWatcher(PlayerWatcher watcher){
+        track(watcher);
         playerWatchers.add(watcher);
     }
 
     public void addErrorWatcher(ErrorWatcher watcher){
+        track(watcher);
         errorWatchers.add(watcher);
     }
 
     public void addAdvancedPlayerWatcher(AdvancedPlayerWatcher watcher){
+        track(watcher);
         advancedPlayerWatchers.add(watcher);
     }
 
     public void addSimpleGameWatcher(SimpleGameWatcher simpleGameWatcher) {
+        track(simpleGameWatcher);
         this.simpleGameWatcher = simpleGameWatcher;
     }
 
     public void addIslandWatcher(IslandGroupWatcher watcher){
+        track(watcher);
         islandGroupWatchers.add(watcher);
     }
 
     public void addCloudWatcher(CloudWatcher watcher){
+        track(watcher);
         cloudWatchers.add(watcher);
     }
 
     public void addCharacterWatcher(CharacterWatcher watcher){
+        track(watcher);
         characterWatchers.add(watcher);
     }
 
+    /**
+     * Gives the watcher its id, in the order the elements are added
+     * @param watcher the watcher just added
+     */
+    private synchronized void track(Watcher watcher){
+        watcher.track(this, nextElementId);
+        nextElementId++;
+    }
+
+    /**
+     * @return a new revision, to be assigned to the element that just changed
+     */
+    public int nextRevision(){
+        return revision.incrementAndGet();
+    }
+
+    public int getRevision(){
+        return revision.get();
+    }
+
     public List<CloudBean> getCloudBean(){
         List<CloudBean> beans = new ArrayList<>();
         for(CloudWatcher watcher: cloudWatchers)
@@ -180,6 +214,55 @@ public class VirtualView {
     }
 
 
+    /**
+     * Collects the elements of a simple game changed after the given revision
+     * @param sinceRevision the last revision known by the receiver, COMPLETE_VIEW for the whole view
+     * @return the delta between the given revision and the current one
+     */
+    public VirtualViewDeltaBean renderSimpleChanges(int sinceRevision){
+        List<Watcher> watchers = new ArrayList<>();
+        watchers.addAll(cloudWatchers);
+        watchers.addAll(islandGroupWatchers);
+        watchers.addAll(playerWatchers);
+        watchers.addAll(errorWatchers);
+        if(simpleGameWatcher != null) watchers.add(simpleGameWatcher);
+        return renderChanges(watchers, sinceRevision, false);
+    }
+
+    /**
+     * Collects the elements of an advanced game changed after the given revision
+     * @param sinceRevision the last revision known by the receiver, COMPLETE_VIEW for the whole view
+     * @return the delta between the given revision and the current one
+     */
+    public VirtualViewDeltaBean renderAdvancedChanges(int sinceRevision){
+        List<Watcher> watchers = new ArrayList<>();
+        watchers.addAll(cloudWatchers);
+        watchers.addAll(characterWatchers);
+        watchers.addAll(advancedIslandGroupWatchers);
+        watchers.addAll(advancedPlayerWatchers);
+        watchers.addAll(errorWatchers);
+        if(advancedGameWatcher != null) watchers.add(advancedGameWatcher);
+        return renderChanges(watchers, sinceRevision, true);
+    }
+
+    private VirtualViewDeltaBean renderChanges(List<Watcher> watchers, int sinceRevision, boolean advanced){
+        // Read before looking at the elements: one changing meanwhile is just sent again next time
+        int currentRevision = revision.get();
+        boolean completeView = sinceRevision == VirtualViewDeltaBean.COMPLETE_VIEW;
+        List<VirtualViewDeltaBean.ChangedElement> changed = new ArrayList<>();
+        List<Integer> removed = new ArrayList<>();
+
+        for(Watcher watcher : watchers){
+            if(!completeView && watcher.getRevision() <= sinceRevision) continue;
+            if(watcher.isAlive()){
+                GameElementBean bean = watcher.getBean();
+                if(bean != null) changed.add(new VirtualViewDeltaBean.ChangedElement(watcher.getId(), bean));
+            }
+            else if(!completeView) removed.add(watcher.getId());
+        }
+        return new VirtualViewDeltaBean(sinceRevision, currentRevision, advanced, changed, removed);
+    }
+
     /**
      * Orders the list of island group beans based on
      * the lowest id of the islands contained in them
@@ -7,6 +7,9 @@ import it.polimi.ingsw.view.VirtualView;
 public abstract class Watcher {
     protected DrawableObject source;
     private boolean alive;
+    private VirtualView virtualView;
+    private int id;
+    private int revision;   // revision of the virtual view when this element last changed
 
     public Watcher(DrawableObject object){
         this.source = object;
@@ -15,6 +18,29 @@ public abstract class Watcher {
 
     public abstract void update();
 
+    /**
+     * Updates the bean and marks it as changed, so that it's included in the next deltas
+     */
+    public void notifyChange(){
+        update();
+        stampRevision();
+    }
+
+    /**
+     * Called by the virtual view when this watcher is added to it
+     * @param virtualView the view this watcher belongs to
+     * @param id the identifier of the element in that view
+     */
+    public void track(VirtualView virtualView, int id){
+        this.virtualView = virtualView;
+        this.id = id;
+    }
+
+    private void stampRevision(){
+        if(virtualView != null) revision = virtualView.nextRevision();
+        else revision++;
+    }
+
 
     /**
      * Use when the obj observed does not exist any more and this watcher will never
@@ -24,12 +50,20 @@ public abstract class Watcher {
     public void kill(){
         alive = false;
         source = null;
+        stampRevision(); // the removal has to reach the clients too
     }
 
     public boolean isAlive() {
         return alive;
     }
-/*
+
+    public int getId() {
+        return id;
+    }
+
+    public int getRevision() {
+        return revision;
+    }
+
     public abstract GameElementBean getBean();
- */
 }
@@ -0,0 +1,89 @@
+package it.polimi.ingsw;
+
+import java.util.Arrays;
+
+/**
+ * Timing harness of the benchmarks, which are named *Benchmark, tagged with TAG and only run by
+ * mvn test -Pbenchmark. <br>
+ * JMH isn't among the dependencies of the project: each measurement runs some warm-up rounds
+ * before the measured ones and prints the median and the best round, so the numbers are only
+ * meant to compare alternatives measured on the same machine
+ */
+public class Benchmarks {
+
+    public static final String TAG = "benchmark";
+
+    private static final int WARM_UP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+
+    // Keeps the results of the operations alive, so that the JIT can't drop the work
+    private static volatile Object sink;
+
+    private Benchmarks(){
+        // We don't want to instantiate this class
+    }
+
+    /**
+     * A single operation of a benchmark
+     */
+    @FunctionalInterface
+    public interface Operation {
+        /**
+         * @return the result of the operation, if any
+         */
+        Object run() throws Exception;
+    }
+
+    /**
+     * Runs the operation in rounds and prints the time it takes
+     * @param name the name printed with the results
+     * @param operations the operations of every round
+     * @param operation the operation to measure
+     * @return the median time of an operation, in nanoseconds
+     */
+    public static double measure(String name, int operations, Operation operation) throws Exception {
+        return measureRounds(name, operations, () -> {
+            for(int run = 0; run < operations; run++) sink = operation.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs a batch of operations in rounds, once per round, and prints the time each of its operations takes.
+     * Used when the operations can't be timed one at a time, such as those spread over many threads
+     * @param name the name printed with the results
+     * @param batchOperations the operations done by a single run of the batch
+     * @param batch the batch to measure
+     * @return the median time of an operation, in nanoseconds
+     */
+    public static double measureBatch(String name, int batchOperations, Operation batch) throws Exception {
+        return measureRounds(name, batchOperations, batch);
+    }
+
+    private static double measureRounds(String name, int operations, Operation round) throws Exception {
+        for(int warmUp = 0; warmUp < WARM_UP_ROUNDS; warmUp++) sink = round.run();
+
+        long[] rounds = new long[MEASURED_ROUNDS];
+        for(int measured = 0; measured < MEASURED_ROUNDS; measured++){
+            long start = System.nanoTime();
+            sink = round.run();
+            rounds[measured] = System.nanoTime() - start;
+        }
+        Arrays.sort(rounds);
+
+        double median = (double) rounds[MEASURED_ROUNDS / 2] / operations;
+        double best = (double) rounds[0] / operations;
+        System.out.printf("%-55s %12.1f ns/op (best %.1f) %14.0f ops/s%n", name, median, best, 1e9 / median);
+        return median;
+    }
+
+    /**
+     * Prints a result that isn't a time, such as a size
+     * @param name the name of the result
+     * @param value the value of the result
+     * @param unit the unit of the value
+     */
+    public static void report(String name, long value, String unit){
+        System.out.printf("%-55s %12d %s%n", name, value, unit);
+    }
+}
@@ -177,4 +177,38 @@ public class IslandGroupTest {
         );
 
     }
+
+    /**
+     * The influence kept by the islands follows the students added and the professors changing hands
+     */
+    @Test
+    public void influenceFollowsProfessors(){
+        IslandGroup island = group.get(0);
+        Player player1 = GameHelper.getPlayerById(game.getPlayers(), PlayerEnum.PLAYER1);
+        Player player2 = GameHelper.getPlayerById(game.getPlayers(), PlayerEnum.PLAYER2);
+        while(! island.getStudents().isEmpty())
+            island.getStudents().remove(0);
+        island.addStudent(StudentEnum.RED);
+        island.addStudent(StudentEnum.RED);
+        island.addStudent(StudentEnum.GREEN);
+        assertEquals(TeamEnum.NOTEAM, island.evaluateMostInfluential());
+
+        player1.getBoard().addToHall(StudentEnum.RED);
+        game.updateProfessor(StudentEnum.RED);
+        assertEquals(player1.getTeamColor(), island.evaluateMostInfluential());
+
+        player2.getBoard().addToHall(StudentEnum.RED);
+        player2.getBoard().addToHall(StudentEnum.RED);
+        game.updateProfessor(StudentEnum.RED);
+        assertEquals(player2.getTeamColor(), island.evaluateMostInfluential());
+
+        player1.getBoard().addToHall(StudentEnum.GREEN);
+        game.updateProfessor(StudentEnum.GREEN);
+        island.addStudent(StudentEnum.GREEN);
+        assertEquals(TeamEnum.NOTEAM, island.evaluateMostInfluential(), "Two students each should be a draw");
+
+        // A student taken away without telling the island is counted as well
+        island.getStudents().remove(island.getStudents().indexOf(StudentEnum.RED));
+        assertEquals(player1.getTeamColor(), island.evaluateMostInfluential());
+    }
 }
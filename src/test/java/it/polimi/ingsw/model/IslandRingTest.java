@@ -0,0 +1,83 @@
+package it.polimi.ingsw.model;
+
+import it.polimi.ingsw.model.game.ParameterHandler;
+import it.polimi.ingsw.model.islands.IslandGroup;
+import it.polimi.ingsw.model.islands.IslandRing;
+import it.polimi.ingsw.model.islands.UnmergeableException;
+import it.polimi.ingsw.view.VirtualView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IslandRingTest {
+
+    ParameterHandler parameters;
+    IslandRing ring;
+
+    @BeforeEach
+    public void initializeRing(){
+        parameters = new ParameterHandler(2);
+        parameters.setVirtualView(new VirtualView());
+        ring = new IslandRing(IslandGroup.getCollectionOfIslandGroup(parameters, 0, 12, parameters.getVirtualView()));
+    }
+
+    /**
+     * Merged groups take the place of their islands, and are found by their new id and by their islands
+     */
+    @Test
+    public void mergeKeepsTheOrder() throws UnmergeableException {
+        for(int island = 3; island <= 5; island++) ring.getGroup(island).build(TeamEnum.WHITE, new ArrayList<>());
+
+        IslandGroup merged = ring.merge(ring.getGroup(4), 104);
+
+        assertEquals(10, ring.size());
+        assertEquals(List.of(0, 1, 2, 104, 6, 7, 8, 9, 10, 11), ids(ring.getGroups()));
+        assertNull(ring.getGroup(3));
+        assertSame(merged, ring.getGroup(104));
+        for(int island = 3; island <= 5; island++) assertSame(merged, ring.getGroupOfIsland(island));
+        assertEquals(6, ring.step(merged, 1).getIdGroup());
+        assertEquals(2, ring.step(merged, 9).getIdGroup());
+        assertPointersFollowTheRing();
+    }
+
+    /**
+     * A group across the first island becomes the first group, and merging it again keeps it whole
+     */
+    @Test
+    public void mergeAcrossTheFirstIsland() throws UnmergeableException {
+        ring.getGroup(11).build(TeamEnum.BLACK, new ArrayList<>());
+        ring.getGroup(0).build(TeamEnum.BLACK, new ArrayList<>());
+        IslandGroup merged = ring.merge(ring.getGroup(0), 100);
+        assertEquals(List.of(100, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10), ids(ring.getGroups()));
+
+        ring.getGroup(10).build(TeamEnum.BLACK, new ArrayList<>());
+        ring.getGroup(1).build(TeamEnum.BLACK, new ArrayList<>());
+        merged = ring.merge(merged, 200);
+        assertEquals(List.of(200, 2, 3, 4, 5, 6, 7, 8, 9), ids(ring.getGroups()));
+        assertEquals(4, merged.numOfIslandsInGroup());
+        assertSame(merged, ring.getGroupOfIsland(10));
+        assertSame(merged, ring.getGroupOfIsland(1));
+        assertPointersFollowTheRing();
+
+        // A group with no towers like its own is left where it is
+        assertThrows(UnmergeableException.class, () -> ring.merge(ring.getGroup(5), 105));
+        assertEquals(9, ring.size());
+    }
+
+    private void assertPointersFollowTheRing(){
+        for(IslandGroup islandGroup : ring.getGroups()){
+            assertSame(ring.step(islandGroup, 1), islandGroup.getNextIslandGroup());
+            assertSame(islandGroup, islandGroup.getNextIslandGroup().getPrevIslandGroup());
+        }
+    }
+
+    private static List<Integer> ids(List<IslandGroup> islandGroups){
+        List<Integer> ids = new ArrayList<>();
+        for(IslandGroup islandGroup : islandGroups) ids.add(islandGroup.getIdGroup());
+        return ids;
+    }
+}
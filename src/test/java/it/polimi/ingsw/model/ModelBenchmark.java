@@ -0,0 +1,201 @@
+package it.polimi.ingsw.model;
+
+import it.polimi.ingsw.Benchmarks;
+import it.polimi.ingsw.model.game.IncorrectPlayersException;
+import it.polimi.ingsw.model.game.ParameterHandler;
+import it.polimi.ingsw.model.game.SimpleGame;
+import it.polimi.ingsw.model.islands.IslandGroup;
+import it.polimi.ingsw.model.islands.UnmergeableException;
+import it.polimi.ingsw.model.player.Player;
+import it.polimi.ingsw.model.player.PlayerEnum;
+import it.polimi.ingsw.view.VirtualView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The parts of the model run by every turn, as they are now and as they were before the students were kept
+ * as counts by color: <br>
+ * - the influence on an island group, which evaluateIsland looks for before building and merging,
+ * was counted by looking up the owner of the professor of each student on the group; <br>
+ * - updateProfessor counted the students at the tables of every player, and alerted all of them; <br>
+ * - the sack was a stack of students shuffled when filled, and each draw popped one
+ */
+@Tag(Benchmarks.TAG)
+public class ModelBenchmark {
+
+    private static final int STUDENTS_BY_COLOR = 8; // on the island group evaluated
+    private static final int SACK_STUDENTS_BY_COLOR = 24;
+    private static final int DRAWS = SACK_STUDENTS_BY_COLOR * 5;
+    private static final int SACKS = 100; // filled and emptied by each round
+
+    private SimpleGame game;
+    private ParameterHandler parameters;
+    private IslandGroup island;
+
+    @BeforeEach
+    public void createGame() throws IncorrectPlayersException {
+        game = new SimpleGame(3, List.of(0, 10, 20), List.of(TeamEnum.WHITE, TeamEnum.BLACK, TeamEnum.GREY),
+                List.of("Franco", "Mario", "Alice"), new VirtualView());
+        game.initializeGame();
+        game.initialiseSelection();
+        parameters = game.getParameters();
+
+        // Every professor is owned, the first two players owning two of them
+        List<StudentEnum> colors = StudentEnum.getStudents();
+        for(int color = 0; color < colors.size(); color++){
+            game.getPlayers().get(color % 3).getBoard().addToHall(colors.get(color));
+            game.updateProfessor(colors.get(color));
+        }
+        island = game.getIslandGroups().get(0);
+        for(StudentEnum color : colors)
+            for(int student = 0; student < STUDENTS_BY_COLOR; student++) island.addStudent(color);
+    }
+
+    @Test
+    public void compareIslandEvaluations() throws Exception {
+        List<StudentEnum> students = new ArrayList<>(island.getStudents());
+        assertEquals(oldMostInfluential(students), island.evaluateMostInfluential());
+
+        Benchmarks.measure("Influence by student, " + students.size() + " students", 10_000,
+                () -> oldMostInfluential(students));
+        Benchmarks.measure("Influence by color, " + students.size() + " students", 10_000,
+                island::evaluateMostInfluential);
+
+        // The whole evaluation: the towers are built by the first one, the island can't be merged afterwards
+        Benchmarks.measure("evaluateIsland, no merge", 10_000, () -> {
+            try {
+                game.evaluateIsland(island.getIdGroup());
+            } catch (UnmergeableException e) {
+                // the island keeps its towers
+            }
+            return island.getTowerColor();
+        });
+    }
+
+    @Test
+    public void compareProfessorUpdates() throws Exception {
+        Player player = game.getPlayers().get(1);
+        StudentEnum color = StudentEnum.getStudents().get(0); // owned by the first player
+
+        // Each operation adds a student to a table, or takes it back, then updates its professor
+        Benchmarks.measure("updateProfessor counting every table", 10_000,
+                new TableChanges(player, color, () -> oldUpdateProfessor(color)));
+        Benchmarks.measure("updateProfessor with the tracker", 10_000,
+                new TableChanges(player, color, () -> game.updateProfessor(color)));
+        assertEquals(game.getPlayers().get(0).getPlayerId(), parameters.getProfessors().get(color.index));
+    }
+
+    @Test
+    public void compareSackDraws() throws Exception {
+        Random generator = new Random(42);
+
+        // The time of a draw includes its share of filling the sack
+        Benchmarks.measureBatch("Shuffled stack, " + DRAWS + " draws", SACKS * DRAWS, () -> {
+            StudentEnum last = StudentEnum.NOSTUDENT;
+            for(int filled = 0; filled < SACKS; filled++){
+                Stack<StudentEnum> sack = oldSack(generator);
+                while(!sack.isEmpty()) last = sack.pop();
+            }
+            return last;
+        });
+        Benchmarks.measureBatch("Counts by color, " + DRAWS + " draws", SACKS * DRAWS, () -> {
+            List<StudentEnum> drawn = null;
+            for(int filled = 0; filled < SACKS; filled++){
+                Sack sack = new Sack(SACK_STUDENTS_BY_COLOR, generator);
+                drawn = sack.drawNStudents(DRAWS);
+                assertTrue(sack.isEmpty());
+            }
+            return drawn;
+        });
+    }
+
+    /**
+     * The influence as evaluateMostInfluential counted it before the groups kept it up to date
+     */
+    private TeamEnum oldMostInfluential(List<StudentEnum> students){
+        int maximumInfluence = 0;
+        TeamEnum mostInfluentialTeam = TeamEnum.NOTEAM;
+        for(TeamEnum currentTeam : TeamEnum.values()){
+            if(currentTeam.equals(TeamEnum.NOTEAM)) continue;
+
+            int currentInfluence = 0;
+            if(island.getTowerColor().equals(currentTeam)) currentInfluence += island.numOfIslandsInGroup();
+            for(StudentEnum student : students){
+                PlayerEnum professorOwner = parameters.getProfessors().get(student.ordinal());
+                if(parameters.getPlayerTeamById(professorOwner).equals(currentTeam)) currentInfluence++;
+            }
+
+            if(currentInfluence > maximumInfluence){
+                maximumInfluence = currentInfluence;
+                mostInfluentialTeam = currentTeam;
+            }
+            else if(currentInfluence == maximumInfluence) mostInfluentialTeam = TeamEnum.NOTEAM;
+        }
+        return mostInfluentialTeam;
+    }
+
+    /**
+     * The professor as updateProfessor gave it before the tracker: every table is counted, every player alerted
+     */
+    private void oldUpdateProfessor(StudentEnum professor){
+        int maximumStudents = 0;
+        PlayerEnum currentWinner = PlayerEnum.NOPLAYER;
+        for(Player player : game.getPlayers()){
+            int numberOfStudents = player.getBoard().getStudentsAtTable(professor);
+            if(numberOfStudents > maximumStudents){
+                maximumStudents = numberOfStudents;
+                currentWinner = player.getPlayerId();
+            }
+            else if(numberOfStudents == maximumStudents) currentWinner = PlayerEnum.NOPLAYER;
+        }
+        if(!currentWinner.equals(PlayerEnum.NOPLAYER)) parameters.getProfessors().set(professor.index, currentWinner);
+
+        for(Player player : game.getPlayers()) player.alert();
+        game.alert();
+    }
+
+    /**
+     * The sack as it was: every student in a list, moved at random to a stack
+     */
+    private static Stack<StudentEnum> oldSack(Random generator){
+        List<StudentEnum> students = new ArrayList<>();
+        for(StudentEnum color : StudentEnum.getStudents())
+            for(int student = 0; student < SACK_STUDENTS_BY_COLOR; student++) students.add(color);
+
+        Stack<StudentEnum> sack = new Stack<>();
+        while(students.size() > 0) sack.add(students.remove(generator.nextInt(students.size())));
+        return sack;
+    }
+
+    /**
+     * Adds a student to the table of a player and takes it back on the next operation, so the professor
+     * never changes hands, then runs the update of the professor
+     */
+    private static class TableChanges implements Benchmarks.Operation {
+
+        private final Player player;
+        private final StudentEnum color;
+        private final Runnable update;
+        private boolean added;
+
+        TableChanges(Player player, StudentEnum color, Runnable update){
+            this.player = player;
+            this.color = color;
+            this.update = update;
+        }
+
+        @Override
+        public Object run() {
+            if(added) player.getBoard().removeFromHall(color);
+            else player.getBoard().addToHall(color);
+            added = !added;
+            update.run();
+            return added;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package it.polimi.ingsw.model;
+
+import it.polimi.ingsw.model.board.Board;
+import it.polimi.ingsw.model.game.ParameterHandler;
+import it.polimi.ingsw.model.game.ProfessorTracker;
+import it.polimi.ingsw.model.player.PlayerEnum;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProfessorTrackerTest {
+
+    ParameterHandler parameters;
+    ProfessorTracker tracker;
+    Board board1;
+    Board board2;
+
+    @BeforeEach
+    public void initializeBoards(){
+        parameters = new ParameterHandler(2);
+        tracker = parameters.getProfessorTracker();
+        board1 = new Board(TeamEnum.WHITE, parameters);
+        board1.setOwner(PlayerEnum.PLAYER1);
+        board2 = new Board(TeamEnum.BLACK, parameters);
+        board2.setOwner(PlayerEnum.PLAYER2);
+    }
+
+    /**
+     * The tracker counts what the boards add to and remove from their halls
+     */
+    @Test
+    public void countsFollowTheBoards(){
+        board1.addToHall(StudentEnum.RED);
+        board1.addToHall(StudentEnum.RED);
+        board2.addToHall(StudentEnum.RED);
+        board2.removeFromHall(StudentEnum.RED);
+        board2.removeFromHall(StudentEnum.RED); // the table is already empty
+
+        assertEquals(2, tracker.getStudentsAtTable(PlayerEnum.PLAYER1, StudentEnum.RED));
+        assertEquals(0, tracker.getStudentsAtTable(PlayerEnum.PLAYER2, StudentEnum.RED));
+        assertEquals(PlayerEnum.PLAYER1, tracker.playerWithMoreStudents(StudentEnum.RED));
+        assertEquals(PlayerEnum.NOPLAYER, tracker.playerWithMoreStudents(StudentEnum.BLUE));
+
+        // A board with no owner isn't counted
+        new Board(TeamEnum.GREY, parameters).addToHall(StudentEnum.BLUE);
+        assertEquals(PlayerEnum.NOPLAYER, tracker.playerWithMoreStudents(StudentEnum.BLUE));
+    }
+
+    /**
+     * A professor changes hands only to a player with more students than anyone else,
+     * or on a draw to the player winning the draws
+     */
+    @Test
+    public void changesOfOwner(){
+        board1.addToHall(StudentEnum.GREEN);
+        Optional<ProfessorTracker.ProfessorChange> change =
+                tracker.update(StudentEnum.GREEN, PlayerEnum.NOPLAYER, PlayerEnum.NOPLAYER);
+        assertEquals(Optional.of(new ProfessorTracker.ProfessorChange(StudentEnum.GREEN, PlayerEnum.NOPLAYER, PlayerEnum.PLAYER1)),
+                change);
+        assertTrue(tracker.update(StudentEnum.GREEN, PlayerEnum.PLAYER1, PlayerEnum.NOPLAYER).isEmpty());
+
+        // A draw leaves the professor where it is, unless someone wins the draws
+        board2.addToHall(StudentEnum.GREEN);
+        assertTrue(tracker.update(StudentEnum.GREEN, PlayerEnum.PLAYER1, PlayerEnum.NOPLAYER).isEmpty());
+        assertEquals(PlayerEnum.PLAYER2,
+                tracker.update(StudentEnum.GREEN, PlayerEnum.PLAYER1, PlayerEnum.PLAYER2).get().newOwner());
+
+        // Winning the draws isn't enough with fewer students
+        board1.addToHall(StudentEnum.GREEN);
+        assertTrue(tracker.update(StudentEnum.GREEN, PlayerEnum.PLAYER1, PlayerEnum.PLAYER2).isEmpty());
+        assertEquals(PlayerEnum.PLAYER1,
+                tracker.update(StudentEnum.GREEN, PlayerEnum.PLAYER2, PlayerEnum.PLAYER2).get().newOwner());
+    }
+}
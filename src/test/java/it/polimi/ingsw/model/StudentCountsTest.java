@@ -0,0 +1,76 @@
+package it.polimi.ingsw.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StudentCountsTest {
+
+    /**
+     * Students are counted by color, seen sorted by color, and NOSTUDENT is never counted
+     */
+    @Test
+    public void countsAndOrder(){
+        StudentCounts students = new StudentCounts(List.of(StudentEnum.BLUE, StudentEnum.RED, StudentEnum.NOSTUDENT));
+        students.add(StudentEnum.RED);
+        students.add(StudentEnum.GREEN, 2);
+
+        assertEquals(5, students.size());
+        assertEquals(2, students.count(StudentEnum.RED));
+        assertEquals(0, students.count(StudentEnum.NOSTUDENT));
+        assertEquals(List.of(StudentEnum.GREEN, StudentEnum.GREEN, StudentEnum.RED, StudentEnum.RED, StudentEnum.BLUE),
+                students.toList());
+        assertEquals(StudentEnum.RED, students.get(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> students.get(5));
+
+        assertFalse(students.remove(StudentEnum.PINK));
+        assertTrue(students.remove(StudentEnum.RED));
+        assertEquals(StudentEnum.BLUE, students.removeAt(3));
+        assertEquals(List.of(StudentEnum.GREEN, StudentEnum.GREEN, StudentEnum.RED), students.toList());
+
+        StudentCounts merged = new StudentCounts(List.of(StudentEnum.PINK));
+        merged.addAll(students);
+        assertEquals(4, merged.size());
+        assertEquals(3, students.size());
+        students.clear();
+        assertTrue(students.isEmpty());
+    }
+
+    /**
+     * The list view follows the group both ways
+     */
+    @Test
+    public void listView(){
+        StudentCounts students = new StudentCounts();
+        List<StudentEnum> view = students.asList();
+
+        view.add(StudentEnum.YELLOW);
+        students.add(StudentEnum.GREEN);
+        assertEquals(List.of(StudentEnum.GREEN, StudentEnum.YELLOW), view);
+        assertTrue(view.contains(StudentEnum.YELLOW));
+        assertFalse(view.contains(StudentEnum.BLUE));
+
+        assertEquals(StudentEnum.GREEN, view.remove(0));
+        assertEquals(1, students.size());
+        assertThrows(UnsupportedOperationException.class, () -> view.set(0, StudentEnum.RED));
+    }
+
+    /**
+     * Random draws empty the group with the right amount of each color, then only give NOSTUDENT
+     */
+    @Test
+    public void randomDraws(){
+        StudentCounts students = new StudentCounts();
+        for(StudentEnum color : StudentEnum.getStudents()) students.add(color, 7);
+        int[] drawn = new int[StudentEnum.getNumStudentTypes()];
+        Random generator = new Random(22);
+
+        while(!students.isEmpty()) drawn[students.removeRandom(generator).index]++;
+
+        for(int amount : drawn) assertEquals(7, amount);
+        assertEquals(StudentEnum.NOSTUDENT, students.removeRandom(generator));
+    }
+}
@@ -0,0 +1,119 @@
+package it.polimi.ingsw.network;
+
+import it.polimi.ingsw.Benchmarks;
+import it.polimi.ingsw.controller.GameRuleEnum;
+import it.polimi.ingsw.network.server.ActiveLobbies;
+import it.polimi.ingsw.network.server.Lobby;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Players joining on several threads, through the queues of the active lobbies and through a single
+ * lock under which every lobby is looked at, full ones included, as the active lobbies used to do. <br>
+ * Also compares looking up a lobby among the registered ones, done whenever a game starts or a seat
+ * is freed, in the set of the active lobbies and in the list they used to be kept in
+ */
+@Tag(Benchmarks.TAG)
+public class ActiveLobbiesBenchmark {
+
+    private static final GameRuleEnum RULE = GameRuleEnum.ADVANCED_2;
+    private static final int THREADS = 8;
+    private static final int USERS = 1000; // for each thread
+    private static final int REGISTERED = 2000;
+
+    @Test
+    public void compareMatchmaking() throws Exception {
+        Benchmarks.measureBatch("Scanning every lobby, " + THREADS + " threads", THREADS * USERS, () -> {
+            List<Lobby> oldLobbies = new ArrayList<>();
+            Object oldLock = new Object();
+            return joinStorm(idUser -> {
+                Lobby found = null;
+                synchronized (oldLock){
+                    for(Lobby lobby : oldLobbies){
+                        if(lobby.getGameType().equals(RULE) && !lobby.isFull()){
+                            found = lobby;
+                            break;
+                        }
+                    }
+                    if(found == null){
+                        found = new Lobby(RULE);
+                        oldLobbies.add(found);
+                    }
+                    found.addPlayer(idUser);
+                }
+                return found;
+            });
+        });
+
+        Benchmarks.measureBatch("Active lobbies, " + THREADS + " threads", THREADS * USERS, () -> {
+            Set<Lobby> joined = joinStorm(idUser -> ActiveLobbies.joinLobby(RULE, idUser));
+            for(Lobby lobby : joined) lobby.destroyLobby(true);
+            assertEquals(0, ActiveLobbies.getOpenLobbiesCount(RULE, false));
+            return joined;
+        });
+    }
+
+    @Test
+    public void compareLookups() throws Exception {
+        List<Lobby> registered = new ArrayList<>();
+        for(int lobby = 0; lobby < REGISTERED; lobby++) registered.add(new Lobby(RULE));
+        List<Lobby> oldLobbies = new CopyOnWriteArrayList<>(registered);
+        Set<Lobby> lobbies = ConcurrentHashMap.newKeySet();
+        lobbies.addAll(registered);
+
+        Benchmarks.measure("CopyOnWriteArrayList.contains, " + REGISTERED + " lobbies", REGISTERED,
+                new Lookups(registered, oldLobbies::contains));
+        Benchmarks.measure("Concurrent set contains, " + REGISTERED + " lobbies", REGISTERED,
+                new Lookups(registered, lobbies::contains));
+    }
+
+    private interface Join {
+        Lobby join(int idUser);
+    }
+
+    /**
+     * The threads make their players join
+     * @return the lobbies joined
+     */
+    private Set<Lobby> joinStorm(Join join) throws InterruptedException {
+        Set<Lobby> joined = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for(int thread = 0; thread < THREADS; thread++){
+            final int firstUser = 100_000 + thread * USERS;
+            executor.execute(() -> {
+                for(int user = firstUser; user < firstUser + USERS; user++) joined.add(join.join(user));
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        return joined;
+    }
+
+    /**
+     * Looks up the registered lobbies one after the other, a lobby for each operation
+     */
+    private static class Lookups implements Benchmarks.Operation {
+
+        private final List<Lobby> registered;
+        private final Predicate<Lobby> contains;
+        private int next;
+
+        Lookups(List<Lobby> registered, Predicate<Lobby> contains){
+            this.registered = registered;
+            this.contains = contains;
+        }
+
+        @Override
+        public Object run() {
+            Lobby lobby = registered.get(next);
+            next = (next + 1) % registered.size();
+            return contains.test(lobby);
+        }
+    }
+}
@@ -1,12 +1,19 @@
 package it.polimi.ingsw.network;
 
 import it.polimi.ingsw.controller.GameRuleEnum;
+import it.polimi.ingsw.network.server.ActiveGames;
 import it.polimi.ingsw.network.server.ActiveLobbies;
 import it.polimi.ingsw.network.server.Lobby;
+import it.polimi.ingsw.network.server.LoginHandler;
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertFalse;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 public class ActiveLobbiesTest {
 
@@ -16,9 +23,89 @@ public class ActiveLobbiesTest {
     @Test
     public void lobbyFullyDestroyedTest(){
         GameRuleEnum rule = GameRuleEnum.ADVANCED_3;
-        Lobby lobby = ActiveLobbies.assignLobby(rule);
-        lobby.addPlayer(0);
+        Lobby lobby = ActiveLobbies.joinLobby(rule, 0);
         lobby.removePlayer(0);
         assertFalse(ActiveLobbies.getLobbies().contains(lobby));
+        assertFalse(lobby.tryReserveSeat());
+    }
+
+    /**
+     * Tests whether a full lobby stops being offered, and is offered again once a player leaves
+     */
+    @Test
+    public void fullLobbiesLeaveTheQueue(){
+        GameRuleEnum rule = GameRuleEnum.SIMPLE_4;
+        int openBefore = ActiveLobbies.getOpenLobbiesCount(rule, false);
+        List<Lobby> joined = new ArrayList<>();
+        for(int user = 0; user < 4; user++) joined.add(ActiveLobbies.joinLobby(rule, 1000 + user));
+
+        Lobby lobby = joined.get(3);
+        assertTrue(lobby.isFull());
+        assertEquals(openBefore, ActiveLobbies.getOpenLobbiesCount(rule, false));
+
+        lobby.removePlayer(lobby.getPlayers().get(0));
+        assertFalse(lobby.isFull());
+        assertEquals(openBefore + 1, ActiveLobbies.getOpenLobbiesCount(rule, false));
+        if(openBefore == 0) assertSame(lobby, ActiveLobbies.joinLobby(rule, 1004));
+
+        lobby.destroyLobby(true);
+        assertFalse(ActiveLobbies.getLobbies().contains(lobby));
+    }
+
+    /**
+     * Tests whether a quick match starts its game as soon as the last player joins
+     */
+    @Test
+    public void quickMatchStartsWhenFull(){
+        GameRuleEnum rule = GameRuleEnum.SIMPLE_2;
+        int first = LoginHandler.getNewUserId();
+        int second = LoginHandler.getNewUserId();
+        LoginHandler.login("QuickMatch" + first, first);
+        LoginHandler.login("QuickMatch" + second, second);
+
+        Lobby lobby = ActiveLobbies.reserveSeat(rule, true);
+        ActiveLobbies.takeSeat(lobby, first);
+        assertTrue(lobby.isQuickMatch());
+        assertFalse(lobby.isGameStarted());
+        assertNotSame(lobby, ActiveLobbies.joinLobby(rule, 2000)); // a normal lobby is never a quick match
+
+        assertSame(lobby, ActiveLobbies.reserveSeat(rule, true));
+        ActiveLobbies.takeSeat(lobby, second);
+        assertTrue(lobby.isGameStarted());
+        assertNotNull(ActiveGames.getGameFromUserId(second));
+
+        ActiveGames.deleteUserAssociation(first);
+        ActiveGames.deleteUserAssociation(second);
+        LoginHandler.removeNicknameFromId(first);
+        LoginHandler.removeNicknameFromId(second);
+    }
+
+    /**
+     * Many players join at the same time: every lobby they end up in is full
+     */
+    @Test
+    public void concurrentJoinsFillLobbies() throws InterruptedException {
+        GameRuleEnum rule = GameRuleEnum.ADVANCED_4;
+        final int threads = 8;
+        final int usersPerThread = 500;
+        assertEquals(0, ActiveLobbies.getOpenLobbiesCount(rule, false));
+
+        Set<Lobby> joined = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for(int thread = 0; thread < threads; thread++){
+            final int firstUser = 10_000 + thread * usersPerThread;
+            executor.execute(() -> {
+                for(int user = firstUser; user < firstUser + usersPerThread; user++)
+                    joined.add(ActiveLobbies.joinLobby(rule, user));
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(threads * usersPerThread / 4, joined.size());
+        for(Lobby lobby : joined) assertEquals(4, lobby.getPlayers().size());
+        assertEquals(0, ActiveLobbies.getOpenLobbiesCount(rule, false));
+
+        for(Lobby lobby : joined) lobby.destroyLobby(true);
     }
 }
@@ -0,0 +1,56 @@
+package it.polimi.ingsw.network;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import it.polimi.ingsw.Benchmarks;
+import it.polimi.ingsw.model.TeamEnum;
+import it.polimi.ingsw.model.game.AdvancedGame;
+import it.polimi.ingsw.view.VirtualView;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Size and speed of the json and binary formats for a full game update of a 4 players advanced game
+ */
+@Tag(Benchmarks.TAG)
+public class BinaryCodecBenchmark {
+
+    private static final Type mapType = new TypeToken<Map<NetworkFieldEnum, Object>>() {}.getType();
+    private static final int OPERATIONS = 2000;
+
+    @Test
+    public void compareWithJson() throws Exception {
+        final List<Integer> selectedWizards = List.of(0, 10, 20, 30);
+        final List<TeamEnum> teamColors = List.of(TeamEnum.WHITE, TeamEnum.BLACK, TeamEnum.WHITE, TeamEnum.BLACK);
+        final List<String> nicknames = List.of("Franco", "Mario", "Alice", "Niccolò");
+        VirtualView virtualView = new VirtualView();
+        AdvancedGame game = new AdvancedGame(4, new ArrayList<>(selectedWizards), new ArrayList<>(teamColors),
+                new ArrayList<>(nicknames), 20, 3, virtualView);
+        game.initializeGame();
+
+        Map<NetworkFieldEnum, Object> gameUpdate = new HashMap<>();
+        gameUpdate.put(NetworkFieldEnum.COMMAND, CommandEnum.SERVER_GAME_UPDATE);
+        gameUpdate.put(NetworkFieldEnum.ASYNC_ID_REQUEST, 42);
+        gameUpdate.put(NetworkFieldEnum.ASYNC_VIEW, virtualView.renderAdvancedView());
+
+        Gson gson = new Gson();
+        byte[] json = gson.toJson(gameUpdate, mapType).getBytes(StandardCharsets.UTF_8);
+        byte[] binary = BinaryCodec.encode(gameUpdate);
+        Benchmarks.report("4 players advanced game update, json", json.length, "bytes");
+        Benchmarks.report("4 players advanced game update, binary", binary.length, "bytes");
+
+        Benchmarks.measure("json encode", OPERATIONS,
+                () -> gson.toJson(gameUpdate, mapType).getBytes(StandardCharsets.UTF_8));
+        Benchmarks.measure("json decode", OPERATIONS,
+                () -> gson.fromJson(new String(json, StandardCharsets.UTF_8), mapType));
+        Benchmarks.measure("binary encode", OPERATIONS, () -> BinaryCodec.encode(gameUpdate));
+        Benchmarks.measure("binary decode", OPERATIONS, () -> BinaryCodec.decode(binary, binary.length));
+    }
+}
@@ -0,0 +1,181 @@
+package it.polimi.ingsw.network;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import it.polimi.ingsw.model.StudentEnum;
+import it.polimi.ingsw.model.TeamEnum;
+import it.polimi.ingsw.model.beans.VirtualViewBean;
+import it.polimi.ingsw.model.game.AdvancedGame;
+import it.polimi.ingsw.model.game.IncorrectPlayersException;
+import it.polimi.ingsw.view.VirtualView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryCodecTest {
+
+    private static final Type mapType = new TypeToken<Map<NetworkFieldEnum, Object>>() {}.getType();
+    private final Gson gson = new Gson();
+    private Map<NetworkFieldEnum, Object> gameUpdate;
+
+    /**
+     * Builds the SERVER_GAME_UPDATE message of a 4 players advanced game
+     */
+    @BeforeEach
+    public void initialize(){
+        final List<Integer> selectedWizards = List.of(0, 10, 20, 30);
+        final List<TeamEnum> teamColors = List.of(TeamEnum.WHITE, TeamEnum.BLACK, TeamEnum.WHITE, TeamEnum.BLACK);
+        final List<String> nicknames = List.of("Franco", "Mario", "Alice", "Niccolò");
+        VirtualView virtualView = new VirtualView();
+        try {
+            AdvancedGame game = new AdvancedGame(4, new ArrayList<>(selectedWizards), new ArrayList<>(teamColors),
+                    new ArrayList<>(nicknames), 20, 3, virtualView);
+            game.initializeGame();
+        } catch (IncorrectPlayersException e) {
+            fail();
+        }
+        VirtualViewBean view = virtualView.renderAdvancedView();
+
+        gameUpdate = new HashMap<>();
+        gameUpdate.put(NetworkFieldEnum.COMMAND, CommandEnum.SERVER_GAME_UPDATE);
+        gameUpdate.put(NetworkFieldEnum.ASYNC_ID_REQUEST, 42);
+        gameUpdate.put(NetworkFieldEnum.ASYNC_VIEW, view);
+    }
+
+    /**
+     * Checks that the view is decoded as a bean holding the same content gson reads from the json version
+     */
+    @Test
+    public void sameContentAsJson() throws IOException {
+        String json = gson.toJson(gameUpdate, mapType);
+
+        byte[] binary = BinaryCodec.encode(gameUpdate);
+        Map<NetworkFieldEnum, Object> fromBinary = BinaryCodec.decode(binary, binary.length);
+
+        assertEquals("SERVER_GAME_UPDATE", fromBinary.get(NetworkFieldEnum.COMMAND));
+        assertEquals(42, fromBinary.get(NetworkFieldEnum.ASYNC_ID_REQUEST));
+        assertInstanceOf(VirtualViewBean.class, fromBinary.get(NetworkFieldEnum.ASYNC_VIEW));
+        assertEquals(json, gson.toJson(fromBinary, mapType));
+        assertTrue(binary.length < json.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    /**
+     * Checks negative numbers, non whole numbers, arrays and null values
+     */
+    @Test
+    public void valuesRoundTrip() throws IOException {
+        Map<NetworkFieldEnum, Object> message = new HashMap<>();
+        message.put(NetworkFieldEnum.CHOSEN_ENTRANCE_POSITIONS, new int[]{-1, 0, 300});
+        message.put(NetworkFieldEnum.CHOSEN_STUDENT_COLORS, new StudentEnum[]{StudentEnum.RED, StudentEnum.BLUE});
+        message.put(NetworkFieldEnum.TURN, 2.5);
+        message.put(NetworkFieldEnum.NICKNAME, null);
+        message.put(NetworkFieldEnum.MORE_STUDENTS_TO_MOVE, true);
+
+        byte[] binary = BinaryCodec.encode(message);
+        Map<NetworkFieldEnum, Object> decoded = BinaryCodec.decode(binary, binary.length);
+        assertArrayEquals(new int[]{-1, 0, 300}, (int[]) decoded.get(NetworkFieldEnum.CHOSEN_ENTRANCE_POSITIONS));
+        assertArrayEquals(new StudentEnum[]{StudentEnum.RED, StudentEnum.BLUE},
+                (StudentEnum[]) decoded.get(NetworkFieldEnum.CHOSEN_STUDENT_COLORS));
+        assertEquals(2.5, decoded.get(NetworkFieldEnum.TURN));
+        assertEquals(true, decoded.get(NetworkFieldEnum.MORE_STUDENTS_TO_MOVE));
+        assertFalse(decoded.containsKey(NetworkFieldEnum.NICKNAME));
+    }
+
+    /**
+     * Checks that a message nested deeper than any view is refused instead of filling the stack
+     */
+    @Test
+    public void deepNestingRefused(){
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        binary.write(1);
+        binary.write(NetworkFieldEnum.TURN.ordinal());
+        for(int level = 0; level < 100_000; level++){
+            binary.write(6); // a list
+            binary.write(1); // of one element
+        }
+        binary.write(0);
+        byte[] payload = binary.toByteArray();
+        assertThrows(IOException.class, () -> BinaryCodec.decode(payload, payload.length));
+    }
+
+    /**
+     * Checks that a truncated message is refused instead of being read partially
+     */
+    @Test
+    public void truncatedMessage(){
+        byte[] binary = BinaryCodec.encode(gameUpdate);
+        assertThrows(IOException.class, () -> BinaryCodec.decode(binary, binary.length / 2));
+    }
+
+    /**
+     * Checks that the broker switches to the binary format and can still read the fields as usual
+     */
+    @Test
+    public void binaryNegotiation() throws IOException, InterruptedException {
+        MessageBroker clientBroker = new MessageBroker();
+        MessageBroker serverBroker = new MessageBroker();
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+
+        clientBroker.addToMessage(NetworkFieldEnum.COMMAND, CommandEnum.CONNECTION_REQUEST);
+        clientBroker.addToMessage(NetworkFieldEnum.NICKNAME, "Niccolò");
+        clientBroker.addToMessage(NetworkFieldEnum.WIRE_FORMAT, WireFormatEnum.BINARY);
+        clientBroker.send(wire);
+        serverBroker.receive(new ByteArrayInputStream(wire.toByteArray()));
+        serverBroker.waitSyncMessage();
+        assertEquals(WireFormatEnum.BINARY, serverBroker.getInputFormat());
+
+        // The server doesn't echo the format explicitly, the broker adds it to the reply
+        wire.reset();
+        serverBroker.addToMessage(NetworkFieldEnum.COMMAND, CommandEnum.CONNECTION_REQUEST);
+        serverBroker.addToMessage(NetworkFieldEnum.SERVER_REPLY_STATUS, 0);
+        serverBroker.addToMessage(NetworkFieldEnum.ID_REQUEST, 1);
+        serverBroker.send(wire);
+        clientBroker.receive(new ByteArrayInputStream(wire.toByteArray()));
+        assertEquals(WireFormatEnum.BINARY, clientBroker.getInputFormat());
+        assertEquals(WireFormatEnum.BINARY, clientBroker.getOutputFormat());
+
+        wire.reset();
+        for(Map.Entry<NetworkFieldEnum, Object> field : gameUpdate.entrySet())
+            serverBroker.addToMessage(field.getKey(), field.getValue());
+        serverBroker.send(wire);
+        clientBroker.receive(new ByteArrayInputStream(wire.toByteArray()));
+        clientBroker.waitAsyncMessage();
+        assertEquals(42, ApplicationHelper.getIntFromBrokerField(clientBroker.readAsyncField(NetworkFieldEnum.ASYNC_ID_REQUEST)));
+        assertNotNull(clientBroker.readAsyncField(NetworkFieldEnum.ASYNC_VIEW));
+    }
+
+    /**
+     * Checks that a server not accepting the binary format falls back to the length prefixed json
+     */
+    @Test
+    public void binaryRefused() throws IOException, InterruptedException {
+        MessageBroker serverBroker = new MessageBroker();
+        serverBroker.setBinaryAllowed(false);
+        serverBroker.receive(("{\"COMMAND\":\"CONNECTION_REQUEST\",\"NICKNAME\":\"gigio\",\"WIRE_FORMAT\":\"BINARY\"}")
+                .getBytes(StandardCharsets.UTF_8));
+        serverBroker.waitSyncMessage();
+        assertEquals(WireFormatEnum.LENGTH_PREFIXED, serverBroker.getInputFormat());
+        assertEquals("LENGTH_PREFIXED", serverBroker.readField(NetworkFieldEnum.WIRE_FORMAT));
+    }
+
+    /**
+     * Checks that a full game update of a 4 players advanced game takes less than half the bytes of the json
+     */
+    @Test
+    public void binarySmallerThanJson() throws IOException {
+        int jsonSize = gson.toJson(gameUpdate, mapType).getBytes(StandardCharsets.UTF_8).length;
+        int binarySize = BinaryCodec.encode(gameUpdate).length;
+        assertTrue(binarySize * 2 < jsonSize);
+    }
+}
@@ -0,0 +1,154 @@
+package it.polimi.ingsw.network;
+
+import it.polimi.ingsw.model.TeamEnum;
+import it.polimi.ingsw.model.game.AdvancedGame;
+import it.polimi.ingsw.model.game.IncorrectPlayersException;
+import it.polimi.ingsw.network.commandHandler.asynchronous.Broadcast;
+import it.polimi.ingsw.view.VirtualView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BroadcastTest {
+
+    private Map<NetworkFieldEnum, Object> gameUpdate;
+
+    /**
+     * Builds the shared fields of a SERVER_GAME_UPDATE of a 4 players advanced game
+     */
+    @BeforeEach
+    public void initialize(){
+        final List<Integer> selectedWizards = List.of(0, 10, 20, 30);
+        final List<TeamEnum> teamColors = List.of(TeamEnum.WHITE, TeamEnum.BLACK, TeamEnum.WHITE, TeamEnum.BLACK);
+        final List<String> nicknames = List.of("Franco", "Mario", "Alice", "Niccolò");
+        VirtualView virtualView = new VirtualView();
+        try {
+            AdvancedGame game = new AdvancedGame(4, new ArrayList<>(selectedWizards), new ArrayList<>(teamColors),
+                    new ArrayList<>(nicknames), 20, 3, virtualView);
+            game.initializeGame();
+        } catch (IncorrectPlayersException e) {
+            fail();
+        }
+
+        gameUpdate = new EnumMap<>(NetworkFieldEnum.class);
+        gameUpdate.put(NetworkFieldEnum.COMMAND, CommandEnum.SERVER_GAME_UPDATE);
+        gameUpdate.put(NetworkFieldEnum.ASYNC_VIEW, virtualView.renderAdvancedView());
+    }
+
+    /**
+     * Negotiates the format and the compression between a client broker and a server broker
+     * @param clientBroker the broker of the client
+     * @param serverBroker the broker of the server
+     * @param wireFormat the format asked by the client
+     * @param compression true if the client asks for compression
+     */
+    private void connect(MessageBroker clientBroker, MessageBroker serverBroker, WireFormatEnum wireFormat,
+                         boolean compression) throws IOException, InterruptedException {
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        clientBroker.addToMessage(NetworkFieldEnum.COMMAND, CommandEnum.CONNECTION_REQUEST);
+        clientBroker.addToMessage(NetworkFieldEnum.NICKNAME, "Niccolò");
+        clientBroker.addToMessage(NetworkFieldEnum.WIRE_FORMAT, wireFormat);
+        if(compression) clientBroker.addToMessage(NetworkFieldEnum.COMPRESSION, true);
+        clientBroker.send(wire);
+        serverBroker.receive(new ByteArrayInputStream(wire.toByteArray()));
+        serverBroker.waitSyncMessage();
+
+        wire.reset();
+        for(NetworkFieldEnum field : NetworkFieldEnum.values())
+            if(serverBroker.readField(field) != null) serverBroker.addToMessage(field, serverBroker.readField(field));
+        serverBroker.addToMessage(NetworkFieldEnum.SERVER_REPLY_STATUS, 0);
+        serverBroker.addToMessage(NetworkFieldEnum.ID_REQUEST, 1);
+        serverBroker.send(wire);
+        serverBroker.flushFirstSyncMessage();
+        clientBroker.receive(new ByteArrayInputStream(wire.toByteArray()));
+        clientBroker.waitSyncMessage();
+        clientBroker.flushFirstSyncMessage();
+    }
+
+    /**
+     * Sends the shared message to a recipient with its own ASYNC_ID_REQUEST
+     * @return the bytes written on the wire
+     */
+    private byte[] sendShared(MessageBroker serverBroker, SharedMessage shared, int asyncIdRequest) throws IOException {
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        serverBroker.setSharedPart(shared);
+        serverBroker.addToMessage(NetworkFieldEnum.ASYNC_ID_REQUEST, asyncIdRequest);
+        serverBroker.send(wire);
+        return wire.toByteArray();
+    }
+
+    /**
+     * Checks that every format, compressed or not, receives the shared fields together with
+     * the fields of its own recipient, and that the shared fields are encoded once per format
+     */
+    @Test
+    public void everyFormatReceivesTheUpdate() throws IOException, InterruptedException {
+        SharedMessage shared = new SharedMessage(gameUpdate);
+        int asyncIdRequest = 40;
+
+        for(WireFormatEnum format : WireFormatEnum.values()){
+            for(boolean compression : List.of(false, true)){
+                MessageBroker clientBroker = new MessageBroker();
+                MessageBroker serverBroker = new MessageBroker();
+                connect(clientBroker, serverBroker, format, compression);
+                String recipient = format.name() + (compression ? " compressed" : "");
+
+                asyncIdRequest++;
+                byte[] sent = sendShared(serverBroker, shared, asyncIdRequest);
+                if(serverBroker.isOutputCompressed()){
+                    int payloadStart = format.isFramed() ? WireFormatEnum.HEADER_BYTES : 0;
+                    assertEquals(SharedMessage.SHARED_MARKER, sent[payloadStart], recipient);
+                }
+                clientBroker.receive(new ByteArrayInputStream(sent));
+                clientBroker.waitAsyncMessage();
+                assertEquals(CommandEnum.SERVER_GAME_UPDATE.name(),
+                        clientBroker.readAsyncField(NetworkFieldEnum.COMMAND).toString(), recipient);
+                assertEquals(asyncIdRequest,
+                        ApplicationHelper.getIntFromBrokerField(clientBroker.readAsyncField(NetworkFieldEnum.ASYNC_ID_REQUEST)), recipient);
+                assertNotNull(clientBroker.readAsyncField(NetworkFieldEnum.ASYNC_VIEW), recipient);
+                clientBroker.flushFirstAsyncMessage();
+            }
+        }
+        assertEquals(WireFormatEnum.values().length, shared.getEncodingsCount());
+    }
+
+    /**
+     * Checks that the recipients of the same format get the same bytes but for their own header,
+     * and that the broker is ready for an ordinary message afterwards
+     */
+    @Test
+    public void recipientsShareTheBytes() throws IOException, InterruptedException {
+        SharedMessage shared = new SharedMessage(gameUpdate);
+        List<byte[]> sent = new ArrayList<>();
+        List<MessageBroker> clientBrokers = new ArrayList<>();
+        List<MessageBroker> serverBrokers = new ArrayList<>();
+        for(int recipient = 0; recipient < 4; recipient++){
+            MessageBroker clientBroker = new MessageBroker();
+            MessageBroker serverBroker = new MessageBroker();
+            connect(clientBroker, serverBroker, WireFormatEnum.BINARY, false);
+            clientBrokers.add(clientBroker);
+            serverBrokers.add(serverBroker);
+            sent.add(sendShared(serverBroker, shared, 7)); // same header, so the whole message is the same
+        }
+        for(byte[] message : sent) assertArrayEquals(sent.get(0), message);
+        assertEquals(1, shared.getEncodingsCount());
+
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        serverBrokers.get(0).addToMessage(NetworkFieldEnum.COMMAND, CommandEnum.PONG);
+        serverBrokers.get(0).addToMessage(NetworkFieldEnum.ID_PING_REQUEST, 3);
+        serverBrokers.get(0).send(wire);
+        assertTrue(wire.size() < sent.get(0).length / 10);
+
+        Broadcast broadcast = new Broadcast();
+        SharedMessage first = broadcast.getMessage(List.of(CommandEnum.SERVER_GAME_UPDATE, 1), () -> gameUpdate);
+        SharedMessage second = broadcast.getMessage(List.of(CommandEnum.SERVER_GAME_UPDATE, 1), () -> { fail(); return null; });
+        assertSame(first, second);
+        assertEquals(1, broadcast.getMessagesCount());
+    }
+}
@@ -194,5 +194,75 @@ public class BrokerTest {
         assertArrayEquals(parsedArray, realColors);
     }
 
+    /**
+     * Tests the negotiation of the length prefixed format: the reply to the CONNECTION_REQUEST
+     * still uses the curly brackets, every message after it is length prefixed on both sides
+     */
+    @Test
+    public void lengthPrefixedNegotiation() {
+        MessageBroker clientBroker = new MessageBroker();
+        MessageBroker serverBroker = new MessageBroker();
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+
+        try {
+            clientBroker.addToMessage(NetworkFieldEnum.COMMAND, CommandEnum.CONNECTION_REQUEST);
+            clientBroker.addToMessage(NetworkFieldEnum.NICKNAME, "Niccolò");
+            clientBroker.addToMessage(NetworkFieldEnum.WIRE_FORMAT, WireFormatEnum.LENGTH_PREFIXED);
+            clientBroker.send(wire);
+            serverBroker.receive(new ByteArrayInputStream(wire.toByteArray()));
+            serverBroker.waitSyncMessage();
+            assertEquals(WireFormatEnum.LENGTH_PREFIXED, serverBroker.getInputFormat());
+            assertEquals(WireFormatEnum.BRACES, serverBroker.getOutputFormat());
+
+            wire.reset();
+            serverBroker.addToMessage(NetworkFieldEnum.COMMAND, CommandEnum.CONNECTION_REQUEST);
+            serverBroker.addToMessage(NetworkFieldEnum.WIRE_FORMAT, serverBroker.readField(NetworkFieldEnum.WIRE_FORMAT));
+            serverBroker.addToMessage(NetworkFieldEnum.SERVER_REPLY_STATUS, 0);
+            serverBroker.addToMessage(NetworkFieldEnum.ID_REQUEST, 1);
+            serverBroker.send(wire);
+            assertEquals('{', wire.toByteArray()[0]);
+            assertEquals(WireFormatEnum.LENGTH_PREFIXED, serverBroker.getOutputFormat());
+
+            clientBroker.receive(new ByteArrayInputStream(wire.toByteArray()));
+            assertEquals(WireFormatEnum.LENGTH_PREFIXED, clientBroker.getInputFormat());
+            assertEquals(WireFormatEnum.LENGTH_PREFIXED, clientBroker.getOutputFormat());
+
+            wire.reset();
+            clientBroker.addToMessage(NetworkFieldEnum.COMMAND, CommandEnum.PLAY_GAME);
+            clientBroker.addToMessage(NetworkFieldEnum.NICKNAME, "Niccolò");
+            clientBroker.send(wire);
+            assertEquals(0, wire.toByteArray()[0]); // the header comes first
+            serverBroker.receive(new ByteArrayInputStream(wire.toByteArray()));
+            serverBroker.flushFirstSyncMessage();
+            serverBroker.waitSyncMessage();
+        } catch (IOException | InterruptedException e) {
+            fail();
+        }
+        assertEquals("Niccolò", serverBroker.readField(NetworkFieldEnum.NICKNAME));
+    }
+
+    /**
+     * Tests that a broker not allowing the length prefixed format keeps the original one
+     * and doesn't echo the request
+     */
+    @Test
+    public void lengthPrefixedRefused() {
+        broker.setLengthPrefixedAllowed(false);
+        InputStream in = this.createJSONFile("""
+                {
+                    "COMMAND" : "CONNECTION_REQUEST",
+                    "NICKNAME" : "gigio",
+                    "WIRE_FORMAT" : "LENGTH_PREFIXED"
+                }
+                """);
+        try {
+            broker.receive(in);
+            broker.waitSyncMessage();
+        } catch (IOException | InterruptedException e) {
+            fail();
+        }
+        assertNull(broker.readField(NetworkFieldEnum.WIRE_FORMAT));
+        assertEquals(WireFormatEnum.BRACES, broker.getInputFormat());
+    }
 
 }
@@ -0,0 +1,70 @@
+package it.polimi.ingsw.network;
+
+import it.polimi.ingsw.network.commandHandler.CommandRegistry;
+import it.polimi.ingsw.network.commandHandler.FactoryCommandHandler;
+import it.polimi.ingsw.network.commandHandler.synchronous.CommandHandler;
+import it.polimi.ingsw.network.server.ClientHandlerParameters;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CommandRegistryTest {
+
+    /**
+     * Receives a command without the fields it needs, so that its handler replies with an error
+     * without touching the state of the server
+     * @return the broker holding the command
+     */
+    private MessageBroker receiveMalformed(CommandEnum command) throws IOException, InterruptedException {
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        MessageBroker sender = new MessageBroker();
+        sender.addToMessage(NetworkFieldEnum.COMMAND, command);
+        sender.addToMessage(NetworkFieldEnum.ID_REQUEST, 3);
+        sender.send(wire);
+
+        MessageBroker receiver = new MessageBroker();
+        receiver.receive(new ByteArrayInputStream(wire.toByteArray()));
+        receiver.waitSyncMessage();
+        return receiver;
+    }
+
+    /**
+     * Checks that every synchronous command is routed to the handler accepting it, and that the
+     * asynchronous handlers can't be changed once shared
+     */
+    @Test
+    public void everyCommandHasItsHandler(){
+        for(CommandHandler<?> commandHandler : FactoryCommandHandler.getAllCommandHandlers()){
+            CommandEnum command = commandHandler.getCommandAccepted();
+            assertEquals(command, CommandRegistry.getCommandHandler(command).getCommandAccepted());
+        }
+        assertNull(CommandRegistry.getCommandHandler(CommandEnum.PING));
+        assertThrows(UnsupportedOperationException.class, () -> CommandRegistry.getAsyncHandlers().clear());
+    }
+
+    /**
+     * Checks that the invocations, the failures and the time spent are recorded for each command
+     */
+    @Test
+    public void invocationsAreRecorded() throws IOException, InterruptedException {
+        long invocations = CommandRegistry.getInvocations(CommandEnum.SELECT_WIZARD);
+        long failures = CommandRegistry.getFailures(CommandEnum.SELECT_WIZARD);
+        long otherInvocations = CommandRegistry.getInvocations(CommandEnum.SELECT_TOWER_COLOR);
+
+        MessageBroker broker = receiveMalformed(CommandEnum.SELECT_WIZARD);
+        assertFalse(CommandRegistry.dispatch(CommandEnum.SELECT_WIZARD, broker, new ClientHandlerParameters()));
+        assertEquals("ERR", broker.getOutgoingMessage().get(NetworkFieldEnum.SERVER_REPLY_MESSAGE));
+
+        assertEquals(invocations + 1, CommandRegistry.getInvocations(CommandEnum.SELECT_WIZARD));
+        assertEquals(failures + 1, CommandRegistry.getFailures(CommandEnum.SELECT_WIZARD));
+        assertEquals(otherInvocations, CommandRegistry.getInvocations(CommandEnum.SELECT_TOWER_COLOR));
+        assertTrue(CommandRegistry.getMaxNanos(CommandEnum.SELECT_WIZARD) > 0);
+        assertTrue(CommandRegistry.getAverageNanos(CommandEnum.SELECT_WIZARD) <= CommandRegistry.getMaxNanos(CommandEnum.SELECT_WIZARD));
+        assertTrue(CommandRegistry.getStatistics().contains(CommandEnum.SELECT_WIZARD.name()));
+        assertFalse(CommandRegistry.dispatch(CommandEnum.PONG, broker, new ClientHandlerParameters()));
+    }
+}
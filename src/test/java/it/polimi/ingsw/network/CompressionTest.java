@@ -0,0 +1,167 @@
+package it.polimi.ingsw.network;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import it.polimi.ingsw.model.TeamEnum;
+import it.polimi.ingsw.model.game.AdvancedGame;
+import it.polimi.ingsw.model.game.IncorrectPlayersException;
+import it.polimi.ingsw.view.VirtualView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompressionTest {
+
+    private static final Type mapType = new TypeToken<Map<NetworkFieldEnum, Object>>() {}.getType();
+    private final Gson gson = new Gson();
+    private Map<NetworkFieldEnum, Object> gameUpdate;
+
+    /**
+     * Builds the SERVER_GAME_UPDATE message of a 4 players advanced game
+     */
+    @BeforeEach
+    public void initialize(){
+        final List<Integer> selectedWizards = List.of(0, 10, 20, 30);
+        final List<TeamEnum> teamColors = List.of(TeamEnum.WHITE, TeamEnum.BLACK, TeamEnum.WHITE, TeamEnum.BLACK);
+        final List<String> nicknames = List.of("Franco", "Mario", "Alice", "Niccolò");
+        VirtualView virtualView = new VirtualView();
+        try {
+            AdvancedGame game = new AdvancedGame(4, new ArrayList<>(selectedWizards), new ArrayList<>(teamColors),
+                    new ArrayList<>(nicknames), 20, 3, virtualView);
+            game.initializeGame();
+        } catch (IncorrectPlayersException e) {
+            fail();
+        }
+
+        gameUpdate = new HashMap<>();
+        gameUpdate.put(NetworkFieldEnum.COMMAND, CommandEnum.SERVER_GAME_UPDATE);
+        gameUpdate.put(NetworkFieldEnum.ASYNC_ID_REQUEST, 42);
+        gameUpdate.put(NetworkFieldEnum.ASYNC_VIEW, virtualView.renderAdvancedView());
+    }
+
+    /**
+     * Checks that the payloads go through the compressor unchanged, and that only the large ones are compressed
+     */
+    @Test
+    public void roundTrip() throws IOException {
+        MessageCompressor sender = new MessageCompressor();
+        MessageCompressor receiver = new MessageCompressor();
+
+        byte[] json = gson.toJson(gameUpdate, mapType).getBytes(StandardCharsets.UTF_8);
+        for(int repetition = 0; repetition < 3; repetition++){ // the compressors are reused
+            byte[] compressed = sender.compress(json);
+            assertTrue(MessageCompressor.isCompressed(compressed, compressed.length));
+            assertTrue(compressed.length < json.length);
+            assertArrayEquals(json, receiver.decompress(compressed, compressed.length));
+        }
+
+        byte[] ping = "{\"COMMAND\":\"PING\",\"ID_USER\":1,\"ID_PING_REQUEST\":3}".getBytes(StandardCharsets.UTF_8);
+        assertSame(ping, sender.compress(ping));
+        assertFalse(MessageCompressor.isCompressed(ping, ping.length));
+
+        byte[] binary = BinaryCodec.encode(gameUpdate);
+        byte[] compressedBinary = sender.compress(binary);
+        assertArrayEquals(binary, receiver.decompress(compressedBinary, compressedBinary.length));
+        assertFalse(MessageCompressor.isCompressed(binary, binary.length));
+    }
+
+    /**
+     * Checks that corrupted data is refused
+     */
+    @Test
+    public void corruptedPayload() {
+        MessageCompressor compressor = new MessageCompressor();
+        byte[] compressed = compressor.compress(gson.toJson(gameUpdate, mapType).getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> compressor.decompress(compressed, compressed.length / 2));
+        byte[] garbage = {MessageCompressor.COMPRESSED_MARKER, 1, 2, 3, 4};
+        assertThrows(IOException.class, () -> compressor.decompress(garbage, garbage.length));
+    }
+
+    /**
+     * Checks that the compression is negotiated with the CONNECTION_REQUEST and used from the message
+     * after the reply, and that the bytes saved are recorded for the type of message
+     */
+    @Test
+    public void negotiation() throws IOException, InterruptedException {
+        MessageBroker clientBroker = new MessageBroker();
+        MessageBroker serverBroker = new MessageBroker();
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+
+        clientBroker.addToMessage(NetworkFieldEnum.COMMAND, CommandEnum.CONNECTION_REQUEST);
+        clientBroker.addToMessage(NetworkFieldEnum.NICKNAME, "Niccolò");
+        clientBroker.addToMessage(NetworkFieldEnum.WIRE_FORMAT, WireFormatEnum.LENGTH_PREFIXED);
+        clientBroker.addToMessage(NetworkFieldEnum.COMPRESSION, true);
+        clientBroker.send(wire);
+        serverBroker.receive(new ByteArrayInputStream(wire.toByteArray()));
+        serverBroker.waitSyncMessage();
+        assertFalse(serverBroker.isOutputCompressed());
+
+        wire.reset();
+        serverBroker.addToMessage(NetworkFieldEnum.COMMAND, CommandEnum.CONNECTION_REQUEST);
+        serverBroker.addToMessage(NetworkFieldEnum.SERVER_REPLY_STATUS, 0);
+        serverBroker.addToMessage(NetworkFieldEnum.ID_REQUEST, 1);
+        serverBroker.send(wire);
+        clientBroker.receive(new ByteArrayInputStream(wire.toByteArray()));
+        assertTrue(serverBroker.isOutputCompressed());
+        assertTrue(clientBroker.isOutputCompressed());
+
+        long savedBefore = CompressionStatistics.getBytesSaved(CommandEnum.SERVER_GAME_UPDATE.name());
+        wire.reset();
+        for(Map.Entry<NetworkFieldEnum, Object> field : gameUpdate.entrySet())
+            serverBroker.addToMessage(field.getKey(), field.getValue());
+        serverBroker.send(wire);
+        byte[] sent = wire.toByteArray();
+        assertEquals(MessageCompressor.COMPRESSED_MARKER, sent[WireFormatEnum.HEADER_BYTES]);
+        clientBroker.receive(new ByteArrayInputStream(sent));
+        clientBroker.waitAsyncMessage();
+        assertEquals(42, ApplicationHelper.getIntFromBrokerField(clientBroker.readAsyncField(NetworkFieldEnum.ASYNC_ID_REQUEST)));
+        assertNotNull(clientBroker.readAsyncField(NetworkFieldEnum.ASYNC_VIEW));
+        assertTrue(CompressionStatistics.getBytesSaved(CommandEnum.SERVER_GAME_UPDATE.name()) > savedBefore);
+    }
+
+    /**
+     * Checks that a server not allowing compression doesn't echo the field, and that
+     * the compression isn't used without a framed format
+     */
+    @Test
+    public void compressionRefused() throws IOException, InterruptedException {
+        MessageBroker serverBroker = new MessageBroker();
+        serverBroker.setCompressionAllowed(false);
+        serverBroker.receive(("{\"COMMAND\":\"CONNECTION_REQUEST\",\"NICKNAME\":\"gigio\",\"WIRE_FORMAT\":\"LENGTH_PREFIXED\",\"COMPRESSION\":true}")
+                .getBytes(StandardCharsets.UTF_8));
+        serverBroker.waitSyncMessage();
+        assertNull(serverBroker.readField(NetworkFieldEnum.COMPRESSION));
+        assertNull(serverBroker.getCompressor());
+
+        MessageBroker bracesBroker = new MessageBroker();
+        bracesBroker.receive(("{\"COMMAND\":\"CONNECTION_REQUEST\",\"NICKNAME\":\"gigio\",\"WIRE_FORMAT\":\"BRACES\",\"COMPRESSION\":true}")
+                .getBytes(StandardCharsets.UTF_8));
+        bracesBroker.waitSyncMessage();
+        assertNull(bracesBroker.readField(NetworkFieldEnum.COMPRESSION));
+        assertNull(bracesBroker.getCompressor());
+    }
+
+    /**
+     * Checks that a full game update of a 4 players advanced game gets smaller in both formats,
+     * and that the statistics report what was compressed
+     */
+    @Test
+    public void compressedSizes() {
+        MessageCompressor compressor = new MessageCompressor();
+        byte[] json = gson.toJson(gameUpdate, mapType).getBytes(StandardCharsets.UTF_8);
+        byte[] binary = BinaryCodec.encode(gameUpdate);
+        assertTrue(compressor.compress(json).length < json.length);
+        assertTrue(compressor.compress(binary).length < binary.length);
+
+        CompressionStatistics.record("TEST", json.length, compressor.compress(json).length);
+        assertTrue(CompressionStatistics.getReport().contains("TEST"));
+    }
+}
@@ -0,0 +1,205 @@
+package it.polimi.ingsw.network;
+
+import it.polimi.ingsw.controller.Controller;
+import it.polimi.ingsw.controller.GameRuleEnum;
+import it.polimi.ingsw.controller.events.GameEvent;
+import it.polimi.ingsw.model.TeamEnum;
+import it.polimi.ingsw.network.commandHandler.CommandRegistry;
+import it.polimi.ingsw.network.commandHandler.asynchronous.AsyncCommandHandler;
+import it.polimi.ingsw.network.connectionState.ConnectionState;
+import it.polimi.ingsw.network.connectionState.ConnectionStateEnum;
+import it.polimi.ingsw.network.connectionState.FactoryConnectionState;
+import it.polimi.ingsw.network.request.ChoiceRequest;
+import it.polimi.ingsw.network.request.ConnectionRequest;
+import it.polimi.ingsw.network.request.PlayGameRequest;
+import it.polimi.ingsw.network.request.Request;
+import it.polimi.ingsw.network.request.UserRequest;
+import it.polimi.ingsw.network.server.ClientHandlerParameters;
+import it.polimi.ingsw.network.server.LoginHandler;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionStateTest {
+
+    /**
+     * Checks that the commands a user may send in each state are exactly the ones the transition table
+     * knows, the others being sent by the server
+     */
+    @Test
+    public void allowedCommandsMatchTheTable(){
+        for(GameRuleEnum rule : GameRuleEnum.values()){
+            Map<ConnectionStateEnum, Map<CommandEnum, Set<ConnectionStateEnum>>> table = FactoryConnectionState.exportTable(rule);
+            for(ConnectionStateEnum stateEnum : ConnectionStateEnum.values()){
+                ConnectionState state = FactoryConnectionState.getState(stateEnum, rule);
+                assertEquals(stateEnum, state.getStateEnum());
+                assertTrue(state.isAllowed(CommandEnum.QUIT));
+
+                Set<CommandEnum> sentByUser = EnumSet.noneOf(CommandEnum.class);
+                for(CommandEnum command : table.get(stateEnum).keySet()){
+                    if(!command.name().startsWith("SERVER_")) sentByUser.add(command);
+                }
+                assertEquals(sentByUser, state.allowedFields(), stateEnum + " " + rule);
+            }
+        }
+    }
+
+    /**
+     * Checks that the states are shared, and that only the advanced rules allow character cards
+     */
+    @Test
+    public void statesAreShared(){
+        assertSame(FactoryConnectionState.getState(ConnectionStateEnum.IN_LOBBY, GameRuleEnum.SIMPLE_2),
+                FactoryConnectionState.getState(ConnectionStateEnum.IN_LOBBY, GameRuleEnum.ADVANCED_4));
+        assertSame(FactoryConnectionState.getState(ConnectionStateEnum.MN_MOVING, GameRuleEnum.ADVANCED_3),
+                FactoryConnectionState.getState(ConnectionStateEnum.MN_MOVING, GameRuleEnum.ADVANCED_3));
+        assertNotSame(FactoryConnectionState.getState(ConnectionStateEnum.MN_MOVING, GameRuleEnum.SIMPLE_3),
+                FactoryConnectionState.getState(ConnectionStateEnum.MN_MOVING, GameRuleEnum.ADVANCED_3));
+
+        assertFalse(FactoryConnectionState.getState(ConnectionStateEnum.END_TURN, GameRuleEnum.SIMPLE_2).isAllowed(CommandEnum.SELECT_CHARACTER));
+        assertTrue(FactoryConnectionState.getState(ConnectionStateEnum.END_TURN, GameRuleEnum.ADVANCED_2).isAllowed(CommandEnum.SELECT_CHARACTER));
+        assertThrows(UnsupportedOperationException.class,
+                () -> FactoryConnectionState.getState(ConnectionStateEnum.IN_LOBBY).allowedFields().add(CommandEnum.MOVE_MN));
+    }
+
+    /**
+     * Checks the states reached after some commands, and that the table can be exported
+     */
+    @Test
+    public void transitions(){
+        assertEquals(EnumSet.of(ConnectionStateEnum.STUDENT_CHOOSING, ConnectionStateEnum.MN_MOVING),
+                FactoryConnectionState.getNextStates(ConnectionStateEnum.STUDENT_MOVING, GameRuleEnum.SIMPLE_2, CommandEnum.PUT_IN_HALL));
+        assertEquals(EnumSet.of(ConnectionStateEnum.CHARACTER_CARD_ACTIVATION),
+                FactoryConnectionState.getNextStates(ConnectionStateEnum.CLOUD_CHOOSING, GameRuleEnum.ADVANCED_2, CommandEnum.SELECT_CHARACTER));
+        assertTrue(FactoryConnectionState.getNextStates(ConnectionStateEnum.CLOUD_CHOOSING, GameRuleEnum.SIMPLE_2, CommandEnum.SELECT_CHARACTER).isEmpty());
+        assertTrue(FactoryConnectionState.getNextStates(ConnectionStateEnum.AUTHENTICATION, GameRuleEnum.SIMPLE_2, CommandEnum.QUIT).isEmpty());
+
+        String json = FactoryConnectionState.exportTableToJson(GameRuleEnum.ADVANCED_3);
+        assertTrue(json.contains("\"CHARACTER_CARD_ACTIVATION\""));
+        assertTrue(json.contains("\"SELECT_CHARACTER\""));
+        assertFalse(FactoryConnectionState.exportTableToJson(GameRuleEnum.SIMPLE_3).contains("\"SELECT_CHARACTER\""));
+    }
+
+    /**
+     * The shared state allows the same commands as the list the handlers used to create on every change
+     */
+    @Test
+    public void sharedStateAllowsTheSameCommands(){
+        List<CommandEnum> allowedCommands = List.of(CommandEnum.QUIT, CommandEnum.MOVE_MN);
+        ConnectionState state = FactoryConnectionState.getState(ConnectionStateEnum.MN_MOVING, GameRuleEnum.SIMPLE_2);
+        for(CommandEnum command : CommandEnum.values())
+            assertEquals(allowedCommands.contains(command), state.isAllowed(command), command.name());
+        assertSame(state, FactoryConnectionState.getState(ConnectionStateEnum.MN_MOVING, GameRuleEnum.SIMPLE_2));
+    }
+
+    /**
+     * The table is written by hand next to the handlers: a whole game is played through the handlers of the
+     * server, sending the SERVER_ commands for the events of the lobby as the client handler does, and every
+     * state a handler leads to must be one of the states the table expects after its command
+     */
+    @Test
+    public void handlersFollowTheTable(){
+        GameRuleEnum rule = GameRuleEnum.ADVANCED_2; // no other test plays in its lobbies
+        List<ClientHandlerParameters> players = new ArrayList<>();
+        Queue<GameEvent> events = new ArrayDeque<>();
+        int[] ids = {LoginHandler.getNewUserId(), LoginHandler.getNewUserId()};
+        for(int player = 0; player < 2; player++){
+            ClientHandlerParameters parameters = new ClientHandlerParameters();
+            parameters.setIdUser(ids[player]);
+            parameters.setEventListener(events::add); // stored while the bus is locked, handled after each command
+            players.add(parameters);
+            play(players, events, player, new ConnectionRequest(0, "TableUser" + player + System.nanoTime(), null, 0, false));
+        }
+
+        // The second player changes their mind once before joining for good
+        play(players, events, 0, new PlayGameRequest(ids[0], 0, rule, false));
+        play(players, events, 1, new PlayGameRequest(ids[1], 0, rule, false));
+        assertSame(players.get(0).getUserLobby(), players.get(1).getUserLobby());
+        play(players, events, 1, new UserRequest(CommandEnum.LEAVE_LOBBY, ids[1], 0));
+        play(players, events, 1, new PlayGameRequest(ids[1], 0, rule, false));
+        assertSame(players.get(0).getUserLobby(), players.get(1).getUserLobby());
+        for(int player = 0; player < 2; player++)
+            play(players, events, player, new UserRequest(CommandEnum.READY_TO_START, ids[player], 0));
+        play(players, events, 0, new UserRequest(CommandEnum.START_GAME, ids[0], 0));
+        assertEquals(ConnectionStateEnum.STARTING_GAME, players.get(0).getConnectionState().getStateEnum());
+
+        Controller controller = players.get(0).getUserController();
+        for(int player = 0; player < 2; player++){
+            play(players, events, player, new ChoiceRequest(CommandEnum.SELECT_WIZARD, ids[player], 0, player));
+            play(players, events, player, new ChoiceRequest(CommandEnum.SELECT_TOWER_COLOR, ids[player], 0,
+                    player == 0 ? TeamEnum.WHITE.index : TeamEnum.BLACK.index));
+        }
+        assertTrue(controller.isGameStarted());
+
+        for(int assistant = 1; assistant <= 2; assistant++)
+            play(players, events, currentPlayer(controller, ids), new ChoiceRequest(CommandEnum.CHOOSE_ASSISTANT, 0, 0, assistant));
+        for(int turn = 0; turn < 2; turn++){
+            int player = currentPlayer(controller, ids);
+            play(players, events, player, new ChoiceRequest(CommandEnum.SELECT_STUDENT, 0, 0, 0));
+            play(players, events, player, new UserRequest(CommandEnum.DESELECT_STUDENT, 0, 0));
+            play(players, events, player, new ChoiceRequest(CommandEnum.SELECT_STUDENT, 0, 0, 0));
+            play(players, events, player, new ChoiceRequest(CommandEnum.PUT_IN_ISLAND, 0, 0, 0));
+            for(int student = 1; student < 3; student++){
+                play(players, events, player, new ChoiceRequest(CommandEnum.SELECT_STUDENT, 0, 0, student));
+                play(players, events, player, new UserRequest(CommandEnum.PUT_IN_HALL, 0, 0));
+            }
+            assertEquals(ConnectionStateEnum.MN_MOVING, players.get(player).getConnectionState().getStateEnum());
+            play(players, events, player, new ChoiceRequest(CommandEnum.MOVE_MN, 0, 0, 1));
+            play(players, events, player, new ChoiceRequest(CommandEnum.CHOOSE_CLOUD, 0, 0, turn));
+            play(players, events, player, new UserRequest(CommandEnum.END_TURN, 0, 0));
+        }
+        assertEquals(ConnectionStateEnum.PLANNING_PHASE_TURN,
+                players.get(currentPlayer(controller, ids)).getConnectionState().getStateEnum());
+
+        // The other player is told the game is over
+        controller.lostConnectionHandle(ids[1]);
+        handleEvents(players, events);
+        assertEquals(ConnectionStateEnum.LOOKING_FOR_LOBBY, players.get(0).getConnectionState().getStateEnum());
+        for(int idUser : ids) LoginHandler.removeNicknameFromId(idUser);
+    }
+
+    /**
+     * Executes a command as the server does, checking the state it leads to
+     */
+    private static void play(List<ClientHandlerParameters> players, Queue<GameEvent> events, int player, Request request){
+        ClientHandlerParameters parameters = players.get(player);
+        ConnectionStateEnum before = parameters.getConnectionState().getStateEnum();
+        assertTrue(parameters.getConnectionState().isAllowed(request.command()), request.command() + " in " + before);
+
+        MessageBroker messageBroker = new MessageBroker();
+        messageBroker.setCurrentRequest(request);
+        assertTrue(CommandRegistry.dispatch(request.command(), messageBroker, parameters), request.command() + " refused");
+        assertExpected(parameters, before, request.command());
+        handleEvents(players, events);
+    }
+
+    /**
+     * Sends the SERVER_ commands of the events published, checking the states they lead to
+     */
+    private static void handleEvents(List<ClientHandlerParameters> players, Queue<GameEvent> events){
+        GameEvent event;
+        while((event = events.poll()) != null){
+            for(AsyncCommandHandler handler : CommandRegistry.getAsyncHandlers().getOrDefault(event.getType(), List.of())){
+                for(ClientHandlerParameters parameters : players){
+                    ConnectionStateEnum before = parameters.getConnectionState().getStateEnum();
+                    if(handler.executeCommand(new MessageBroker(), parameters, event) &&
+                            parameters.getConnectionState().getStateEnum() != before)
+                        assertExpected(parameters, before, handler.getCommandHandled());
+                }
+            }
+        }
+    }
+
+    private static void assertExpected(ClientHandlerParameters parameters, ConnectionStateEnum before, CommandEnum command){
+        GameRuleEnum rule = parameters.getUserController() != null ? parameters.getUserController().getGameRule() : GameRuleEnum.NO_RULE;
+        ConnectionStateEnum after = parameters.getConnectionState().getStateEnum();
+        assertTrue(FactoryConnectionState.getNextStates(before, rule, command).contains(after),
+                command + " led from " + before + " to " + after + ", which the table doesn't expect");
+    }
+
+    private static int currentPlayer(Controller controller, int[] ids){
+        return controller.isMyTurn(ids[0]) ? 0 : 1;
+    }
+}
@@ -0,0 +1,126 @@
+package it.polimi.ingsw.network;
+
+import it.polimi.ingsw.controller.Controller;
+import it.polimi.ingsw.controller.GameRuleEnum;
+import it.polimi.ingsw.controller.events.EventBus;
+import it.polimi.ingsw.controller.events.GameEvent;
+import it.polimi.ingsw.controller.events.GameEventEnum;
+import it.polimi.ingsw.model.TeamEnum;
+import it.polimi.ingsw.model.game.PhaseEnum;
+import it.polimi.ingsw.network.commandHandler.FactoryCommandHandler;
+import it.polimi.ingsw.network.commandHandler.asynchronous.AsyncCommandHandler;
+import it.polimi.ingsw.network.commandHandler.asynchronous.YourTurnHandler;
+import it.polimi.ingsw.network.server.ClientHandlerParameters;
+import it.polimi.ingsw.network.server.Lobby;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventBusTest {
+
+    private List<GameEventEnum> types(List<GameEvent> events){
+        return events.stream().map(GameEvent::getType).toList();
+    }
+
+    /**
+     * Checks that a user receives the events of its lobby only while being part of it, starting
+     * with the status of the lobby just joined
+     */
+    @Test
+    public void lobbyEventsReachItsPlayers(){
+        Lobby lobby = new Lobby(GameRuleEnum.SIMPLE_2);
+        Lobby otherLobby = new Lobby(GameRuleEnum.SIMPLE_2);
+        List<GameEvent> received = new ArrayList<>();
+        ClientHandlerParameters parameters = new ClientHandlerParameters();
+        parameters.setEventListener(received::add);
+
+        lobby.addPlayer(1);
+        parameters.setUserLobby(lobby);
+        assertEquals(List.of(new GameEvent.LobbyModified(lobby)), received);
+
+        lobby.addPlayer(2);
+        otherLobby.addPlayer(3);
+        lobby.addReady(1);
+        lobby.setStartGame(true);
+        assertEquals(List.of(GameEventEnum.LOBBY_MODIFIED, GameEventEnum.LOBBY_MODIFIED,
+                GameEventEnum.LOBBY_MODIFIED, GameEventEnum.LOBBY_STARTED), types(received));
+
+        received.clear();
+        parameters.setUserLobby(null);
+        lobby.removePlayer(2);
+        assertTrue(received.isEmpty());
+        assertEquals(0, lobby.getEventBus().getSubscribersCount());
+    }
+
+    /**
+     * Checks that the events of a game are published in the order the players must be told them in,
+     * the turn being passed only after the view is updated
+     */
+    @Test
+    public void gameEventsComeInOrder(){
+        EventBus bus = new EventBus();
+        List<GameEvent> received = new ArrayList<>();
+        bus.subscribe(received::add);
+        Controller controller = new Controller(List.of(1, 2), GameRuleEnum.SIMPLE_2, bus);
+        controller.setNickname("Franco", 1);
+        controller.setNickname("Mario", 2);
+        controller.setWizard(0, 1);
+        controller.setWizard(10, 2);
+        controller.setTeamColor(TeamEnum.WHITE, 1);
+        controller.setTeamColor(TeamEnum.BLACK, 2);
+        assertFalse(received.isEmpty());
+        assertTrue(types(received).stream().allMatch(type -> type == GameEventEnum.PLAYER_CREATION_MODIFIED));
+
+        received.clear();
+        assertTrue(controller.startPlayingGame());
+        assertEquals(List.of(GameEventEnum.GAME_STARTED, GameEventEnum.GAME_UPDATED, GameEventEnum.NEW_TURN), types(received));
+
+        received.clear();
+        assertTrue(controller.playAssistant(1));
+        assertEquals(List.of(GameEventEnum.GAME_UPDATED, GameEventEnum.NEW_TURN), types(received));
+
+        // Only the player whose turn it is acts on it
+        AsyncCommandHandler yourTurn = new YourTurnHandler();
+        int triggered = 0;
+        for(int idUser : List.of(1, 2)){
+            ClientHandlerParameters parameters = new ClientHandlerParameters();
+            parameters.setIdUser(idUser);
+            parameters.setUserController(controller);
+            if(yourTurn.triggerCondition(parameters, received.get(1))) triggered++;
+        }
+        assertEquals(1, triggered);
+        assertFalse(yourTurn.triggerCondition(new ClientHandlerParameters(), received.get(1)));
+
+        // The last assistant starts the action phase, whose first player must be told as well
+        received.clear();
+        assertTrue(controller.playAssistant(2));
+        assertEquals(PhaseEnum.ACTION, controller.getGamePhase());
+        assertEquals(List.of(GameEventEnum.GAME_UPDATED, GameEventEnum.NEW_TURN), types(received));
+        triggered = 0;
+        for(int idUser : List.of(1, 2)){
+            ClientHandlerParameters parameters = new ClientHandlerParameters();
+            parameters.setIdUser(idUser);
+            parameters.setUserController(controller);
+            if(yourTurn.triggerCondition(parameters, received.get(1))) triggered++;
+        }
+        assertEquals(1, triggered);
+    }
+
+    /**
+     * Checks that every event is handled by some command, each command being triggered by some event
+     */
+    @Test
+    public void everyEventHasItsCommand(){
+        Map<GameEventEnum, List<AsyncCommandHandler>> handlersByEvent = FactoryCommandHandler.getAsyncCommandHandlersByEvent();
+        int handlers = 0;
+        for(GameEventEnum event : GameEventEnum.values()){
+            assertFalse(handlersByEvent.get(event).isEmpty(), event.name());
+            handlers += handlersByEvent.get(event).size();
+        }
+        assertEquals(FactoryCommandHandler.getAsyncCommandHandlers().size(), handlers);
+    }
+}
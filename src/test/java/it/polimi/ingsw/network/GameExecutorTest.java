@@ -0,0 +1,124 @@
+package it.polimi.ingsw.network;
+
+import it.polimi.ingsw.network.server.GameExecutor;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameExecutorTest {
+
+    /**
+     * Many threads send tasks to the same game: they run one at a time, in the order each thread sent them
+     */
+    @Test
+    public void tasksRunOneAtATime() throws InterruptedException {
+        GameExecutor gameExecutor = new GameExecutor();
+        final int threads = 8;
+        final int tasks = 2000;
+        AtomicInteger running = new AtomicInteger(0);
+        AtomicInteger overlaps = new AtomicInteger(0);
+        int[] lastSeen = new int[threads]; // only touched by the tasks, without locks
+        AtomicInteger outOfOrder = new AtomicInteger(0);
+
+        ExecutorService senders = Executors.newFixedThreadPool(threads);
+        for(int thread = 0; thread < threads; thread++){
+            final int sender = thread;
+            senders.execute(() -> {
+                for(int task = 1; task <= tasks; task++){
+                    final int sent = task;
+                    gameExecutor.execute(() -> {
+                        if(running.incrementAndGet() != 1) overlaps.incrementAndGet();
+                        if(lastSeen[sender] != sent - 1) outOfOrder.incrementAndGet();
+                        lastSeen[sender] = sent;
+                        running.decrementAndGet();
+                    });
+                }
+            });
+        }
+        senders.shutdown();
+        assertTrue(senders.awaitTermination(30, TimeUnit.SECONDS));
+        gameExecutor.executeAndWait(() -> {});
+
+        assertEquals(0, overlaps.get());
+        assertEquals(0, outOfOrder.get());
+        assertEquals(threads * tasks + 1, gameExecutor.getTasksRun());
+    }
+
+    /**
+     * A task waiting for another task of its game runs it right away, and a failed task doesn't stop the game
+     */
+    @Test
+    public void nestedAndFailingTasks(){
+        GameExecutor gameExecutor = new GameExecutor();
+        List<String> done = new ArrayList<>();
+
+        gameExecutor.execute(() -> { throw new IllegalStateException("failing on purpose"); });
+        gameExecutor.executeAndWait(() -> {
+            assertTrue(gameExecutor.isRunningTask());
+            gameExecutor.executeAndWait(() -> done.add("inner"));
+            done.add("outer");
+        });
+        assertEquals(List.of("inner", "outer"), done);
+        assertFalse(gameExecutor.isRunningTask());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> gameExecutor.executeAndWait(() -> { throw new IllegalArgumentException(); }));
+    }
+
+    /**
+     * Different games run on different threads of the pool at the same time
+     */
+    @Test
+    public void gamesRunInParallel() throws InterruptedException {
+        final int games = Math.min(4, GameExecutor.THREADS);
+        CountDownLatch allRunning = new CountDownLatch(games);
+        Set<String> threadNames = ConcurrentHashMap.newKeySet();
+
+        for(int game = 0; game < games; game++){
+            new GameExecutor().execute(() -> {
+                threadNames.add(Thread.currentThread().getName());
+                allRunning.countDown();
+                try {
+                    allRunning.await(5, TimeUnit.SECONDS); // every game must be running to get past this
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        assertTrue(allRunning.await(5, TimeUnit.SECONDS));
+        assertEquals(games, threadNames.size());
+    }
+
+    /**
+     * The sender of a task goes on while the game is busy, and the task runs on a thread of the pool
+     */
+    @Test
+    public void sendersDontWaitForTheGame() throws InterruptedException {
+        GameExecutor gameExecutor = new GameExecutor();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        Set<String> threadNames = ConcurrentHashMap.newKeySet();
+
+        gameExecutor.execute(() -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        gameExecutor.execute(() -> {
+            threadNames.add(Thread.currentThread().getName());
+            done.countDown();
+        });
+        assertEquals(1, done.getCount()); // both tasks were handed over while the first one is still running
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertFalse(threadNames.contains(Thread.currentThread().getName()));
+    }
+}
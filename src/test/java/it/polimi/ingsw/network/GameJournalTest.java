@@ -0,0 +1,128 @@
+package it.polimi.ingsw.network;
+
+import it.polimi.ingsw.controller.Controller;
+import it.polimi.ingsw.controller.GameRuleEnum;
+import it.polimi.ingsw.model.TeamEnum;
+import it.polimi.ingsw.model.game.PhaseEnum;
+import it.polimi.ingsw.network.request.ChoiceRequest;
+import it.polimi.ingsw.network.server.ActiveGames;
+import it.polimi.ingsw.network.server.GameJournal;
+import it.polimi.ingsw.network.server.GameReplay;
+import it.polimi.ingsw.network.server.LoginHandler;
+import it.polimi.ingsw.network.server.ResumableSessions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameJournalTest {
+
+    /**
+     * Only the latest checkpoint of the unfinished games is found when the journal is opened again,
+     * and a record torn by a crash is ignored together with what follows it. No game is recorded unless asked to
+     */
+    @Test
+    public void journalKeepsTheLatestCheckpointOfUnfinishedGames() throws IOException {
+        Path path = Files.createTempDirectory("journal").resolve("games.journal");
+        List<GameJournal.Player> players = List.of(new GameJournal.Player("Franco", "token1", 3),
+                new GameJournal.Player("Mario", "token2", 4));
+
+        GameJournal journal = GameJournal.open(path);
+        long first = journal.newGameId();
+        long second = journal.newGameId();
+        journal.appendCheckpoint(first, players, game(first, 1));
+        journal.appendCheckpoint(second, players, game(second, 2));
+        journal.appendCheckpoint(first, players, game(first, 3));
+        journal.appendEnd(second);
+        journal.appendGameCreated(first, GameRuleEnum.ADVANCED_2, 1, List.of("Franco", "Mario"));
+        assertThrows(IOException.class, () -> GameJournal.open(path), "only one server can use the journal");
+        journal.close();
+
+        journal = GameJournal.open(path);
+        assertEquals(1, journal.getUnfinishedGames().size());
+        GameJournal.Entry entry = journal.getUnfinishedGames().get(0);
+        assertEquals(first, entry.gameId());
+        assertEquals(players, entry.players());
+        assertEquals(game(first, 3), GameJournal.decodeCheckpoint(entry.checkpoint()));
+        assertTrue(journal.newGameId() > first);
+        assertFalse(Files.exists(journal.getRecordingPath(first)), "the games are only recorded on request");
+
+        journal.appendCheckpoint(first, players, game(first, 4));
+        journal.close();
+        long written = journal.getWrittenBytes();
+
+        // The last checkpoint is torn: the one before it is used
+        try(RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")){
+            file.seek(written - 1);
+            int last = file.read();
+            file.seek(written - 1);
+            file.write(last ^ 0xFF);
+        }
+        journal = GameJournal.open(path);
+        assertEquals(1, journal.getUnfinishedGames().size());
+        assertEquals(game(first, 3), GameJournal.decodeCheckpoint(journal.getUnfinishedGames().get(0).checkpoint()));
+        journal.close();
+
+        assertThrows(IOException.class, () -> GameJournal.decodeCheckpoint(new byte[]{0, 0, 0, 1}),
+                "a checkpoint of another version isn't played again");
+    }
+
+    /**
+     * A game restored from the journal goes on from the turn it was checkpointed at,
+     * with a suspended session for each player waiting for their client
+     */
+    @Test
+    public void restoredGameGoesOnFromTheCheckpoint() throws IOException {
+        List<GameJournal.Command> commands = new ArrayList<>(List.of(
+                new GameJournal.Command(0, new ChoiceRequest(CommandEnum.SELECT_WIZARD, 0, 1, 0)),
+                new GameJournal.Command(0, new ChoiceRequest(CommandEnum.SELECT_TOWER_COLOR, 0, 2, TeamEnum.WHITE.index)),
+                new GameJournal.Command(1, new ChoiceRequest(CommandEnum.SELECT_WIZARD, 1, 3, 1)),
+                new GameJournal.Command(1, new ChoiceRequest(CommandEnum.SELECT_TOWER_COLOR, 1, 4, TeamEnum.BLACK.index))));
+        long seed = Controller.newSeed();
+        List<String> nicknames = List.of("JournalFranco", "JournalMario");
+        Controller started = GameReplay.replay(new GameJournal.Recording(0, GameRuleEnum.ADVANCED_2, seed, nicknames, commands));
+        int first = started.isMyTurn(0) ? 0 : 1;
+        commands.add(new GameJournal.Command(first, new ChoiceRequest(CommandEnum.CHOOSE_ASSISTANT, first, 5, 1)));
+
+        Path path = Files.createTempDirectory("journal").resolve("games.journal");
+        GameJournal journal = GameJournal.open(path);
+        long gameId = journal.newGameId();
+        journal.appendCheckpoint(gameId, List.of(new GameJournal.Player("JournalFranco", "franco", 7),
+                new GameJournal.Player("JournalMario", "mario", 8)),
+                new GameJournal.Recording(gameId, GameRuleEnum.ADVANCED_2, seed, nicknames, commands));
+        journal.close();
+
+        journal = GameJournal.open(path);
+        try {
+            assertEquals(1, ActiveGames.restoreGames(journal));
+            List<Integer> players = List.of(LoginHandler.getIdFromNickname("JournalFranco"),
+                    LoginHandler.getIdFromNickname("JournalMario"));
+            assertNotNull(ResumableSessions.getSuspended("franco"));
+            assertEquals(8, ResumableSessions.getSuspended("mario").getLastAsyncIdRequest());
+
+            Controller restored = ActiveGames.getGameFromUserId(players.get(0));
+            assertSame(restored, ActiveGames.getGameFromUserId(players.get(1)));
+            assertNotNull(ActiveGames.getGameExecutor(restored));
+            assertEquals(seed, restored.getSeed());
+            assertEquals(PhaseEnum.PLANNING, restored.getGamePhase());
+            assertFalse(restored.isMyTurn(players.get(first)));
+            assertTrue(restored.isMyTurn(players.get(1 - first)));
+            assertTrue(restored.playAssistant(2));
+        } finally {
+            journal.close();
+        }
+    }
+
+    /**
+     * @return a game without commands, told apart by its seed
+     */
+    private static GameJournal.Recording game(long gameId, long seed){
+        return new GameJournal.Recording(gameId, GameRuleEnum.ADVANCED_2, seed, List.of("Franco", "Mario"), List.of());
+    }
+}
@@ -0,0 +1,162 @@
+package it.polimi.ingsw.network;
+
+import com.google.gson.Gson;
+import it.polimi.ingsw.controller.Controller;
+import it.polimi.ingsw.controller.GameRuleEnum;
+import it.polimi.ingsw.controller.events.EventBus;
+import it.polimi.ingsw.model.TeamEnum;
+import it.polimi.ingsw.network.commandHandler.CommandRegistry;
+import it.polimi.ingsw.network.request.ChoiceRequest;
+import it.polimi.ingsw.network.request.Request;
+import it.polimi.ingsw.network.request.UserRequest;
+import it.polimi.ingsw.network.server.ClientHandlerParameters;
+import it.polimi.ingsw.network.server.GameJournal;
+import it.polimi.ingsw.network.server.GameReplay;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameReplayTest {
+
+    private static final List<Integer> PLAYERS = List.of(11, 12);
+
+    /**
+     * Every random choice of a game comes from its seed: the sacks, mother nature and the character cards
+     */
+    @Test
+    public void sameSeedGivesTheSameGame(){
+        assertEquals(new Gson().toJson(startedGame(42).getView()), new Gson().toJson(startedGame(42).getView()));
+        assertNotEquals(new Gson().toJson(startedGame(42).getView()), new Gson().toJson(startedGame(43).getView()));
+        assertNotEquals(Controller.newSeed(), Controller.newSeed());
+    }
+
+    /**
+     * The commands accepted by a game are recorded with its seed, and the recording plays the same game again,
+     * also once a crash tore its last command
+     */
+    @Test
+    public void recordedGameIsPlayedAgain() throws IOException {
+        Path path = Files.createTempDirectory("journal").resolve("games.journal");
+        GameJournal journal = GameJournal.open(path, true);
+        long gameId = journal.newGameId();
+        long seed = Controller.newSeed();
+        Controller controller = new Controller(PLAYERS, GameRuleEnum.ADVANCED_2, new EventBus(), seed);
+        List<ClientHandlerParameters> parameters = new ArrayList<>();
+        for(int player = 0; player < PLAYERS.size(); player++){
+            controller.setNickname("Replay" + player, PLAYERS.get(player));
+            ClientHandlerParameters playerParameters = new ClientHandlerParameters();
+            playerParameters.setIdUser(PLAYERS.get(player));
+            playerParameters.setUserController(controller);
+            parameters.add(playerParameters);
+        }
+        journal.appendGameCreated(gameId, GameRuleEnum.ADVANCED_2, seed, List.of("Replay0", "Replay1"));
+
+        // The players choose their wizard and team, then play a whole round
+        int commands = 0;
+        for(int player = 0; player < PLAYERS.size(); player++){
+            commands += play(journal, gameId, parameters, player, choice(CommandEnum.SELECT_WIZARD, player));
+            commands += play(journal, gameId, parameters, player, choice(CommandEnum.SELECT_TOWER_COLOR,
+                    player == 0 ? TeamEnum.WHITE.index : TeamEnum.BLACK.index));
+        }
+        assertTrue(controller.isGameStarted());
+        for(int assistant = 1; assistant <= PLAYERS.size(); assistant++)
+            commands += play(journal, gameId, parameters, currentPlayer(controller), choice(CommandEnum.CHOOSE_ASSISTANT, assistant));
+        for(int turn = 0; turn < PLAYERS.size(); turn++){
+            int player = currentPlayer(controller);
+            for(int student = 0; student < 3; student++){
+                commands += play(journal, gameId, parameters, player, choice(CommandEnum.SELECT_STUDENT, student));
+                commands += play(journal, gameId, parameters, player, new UserRequest(CommandEnum.PUT_IN_HALL, 0, 0));
+            }
+            commands += play(journal, gameId, parameters, player, choice(CommandEnum.MOVE_MN, 1));
+            commands += play(journal, gameId, parameters, player, choice(CommandEnum.CHOOSE_CLOUD, turn));
+            commands += play(journal, gameId, parameters, player, new UserRequest(CommandEnum.END_TURN, 0, 0));
+        }
+        journal.close();
+
+        GameJournal.Recording recording = GameJournal.readRecording(journal.getRecordingPath(gameId));
+        assertEquals(GameRuleEnum.ADVANCED_2, recording.gameRule());
+        assertEquals(seed, recording.seed());
+        assertEquals(List.of("Replay0", "Replay1"), recording.nicknames());
+        assertEquals(commands, recording.commands().size());
+        String view = new Gson().toJson(controller.getView());
+        assertEquals(view, new Gson().toJson(GameReplay.replay(recording).getView()));
+
+        // A new server goes on with new ids, and the command torn by a crash is left out of the recording
+        journal = GameJournal.open(path, true);
+        assertTrue(journal.newGameId() > gameId);
+        journal.close();
+        Path file = journal.getRecordingPath(gameId);
+        try(RandomAccessFile recorded = new RandomAccessFile(file.toFile(), "rw")){
+            recorded.setLength(recorded.length() - 1);
+        }
+        assertEquals(commands - 1, GameJournal.readRecording(file).commands().size());
+    }
+
+    /**
+     * A recording made by another version of the game isn't played again, as its commands could give another game
+     */
+    @Test
+    public void recordingOfAnotherVersionIsRefused() throws IOException {
+        // The first record of a recording made before the recordings had a version
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeByte(3);
+        output.writeLong(1);
+        output.writeUTF(GameRuleEnum.ADVANCED_2.name());
+        output.writeLong(42);
+        output.writeByte(1);
+        output.writeUTF("Replay0");
+        byte[] payload = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        Path file = Files.createTempFile("recording", ".commands");
+        Files.write(file, ByteBuffer.allocate(2 * Integer.BYTES + payload.length)
+                .putInt(payload.length).putInt((int) crc.getValue()).put(payload).array());
+        IOException refused = assertThrows(IOException.class, () -> GameJournal.readRecording(file));
+        assertTrue(refused.getMessage().contains("another version"));
+    }
+
+    private static Controller startedGame(long seed){
+        Controller controller = new Controller(PLAYERS, GameRuleEnum.ADVANCED_2, new EventBus(), seed);
+        for(int player = 0; player < PLAYERS.size(); player++){
+            controller.setNickname("Seed" + player, PLAYERS.get(player));
+            controller.setWizard(player * 10, PLAYERS.get(player));
+        }
+        controller.setTeamColor(TeamEnum.WHITE, PLAYERS.get(0));
+        controller.setTeamColor(TeamEnum.BLACK, PLAYERS.get(1));
+        assertTrue(controller.startPlayingGame());
+        return controller;
+    }
+
+    private static int currentPlayer(Controller controller){
+        return controller.isMyTurn(PLAYERS.get(0)) ? 0 : 1;
+    }
+
+    private static ChoiceRequest choice(CommandEnum command, int choice){
+        return new ChoiceRequest(command, 0, 0, choice);
+    }
+
+    /**
+     * Executes a command as the server does, recording it once accepted
+     * @return 1, the commands recorded
+     */
+    private static int play(GameJournal journal, long gameId, List<ClientHandlerParameters> parameters, int player, Request request){
+        MessageBroker messageBroker = new MessageBroker();
+        messageBroker.setCurrentRequest(request);
+        assertTrue(CommandRegistry.dispatch(request.command(), messageBroker, parameters.get(player)), request.command() + " refused");
+        journal.appendCommand(gameId, player, request);
+        return 1;
+    }
+}
@@ -0,0 +1,234 @@
+package it.polimi.ingsw.network;
+
+import it.polimi.ingsw.controller.GameRuleEnum;
+import it.polimi.ingsw.network.server.Gateway;
+import it.polimi.ingsw.network.server.GatewayRouter;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GatewayTest {
+
+    /**
+     * The players looking for the same kind of game are sent to the same backend until the lobby is full,
+     * the next lobby is opened on the least loaded backend
+     */
+    @Test
+    public void routerFillsLobbiesBeforeBalancing(){
+        GatewayRouter router = new GatewayRouter(2);
+        router.addUser(0);
+        router.addUser(0);
+        assertEquals(1, router.getLeastLoadedBackend());
+
+        assertEquals(1, router.takeSeat(GameRuleEnum.SIMPLE_3, false));
+        router.addUser(1);
+        router.addUser(1);
+        router.addUser(1);
+        assertEquals(0, router.getLeastLoadedBackend());
+        assertEquals(1, router.takeSeat(GameRuleEnum.SIMPLE_3, false)); // the lobby still has a seat
+        assertEquals(0, router.takeSeat(GameRuleEnum.SIMPLE_3, true)); // a quick match is another kind of game
+        assertEquals(1, router.takeSeat(GameRuleEnum.SIMPLE_3, false));
+        assertEquals(0, router.getOpenSeats(GameRuleEnum.SIMPLE_3, false, 1));
+
+        router.leaveSeat(GameRuleEnum.SIMPLE_3, false, 1);
+        assertEquals(1, router.takeSeat(GameRuleEnum.SIMPLE_3, false));
+        assertEquals(0, router.takeSeat(GameRuleEnum.SIMPLE_3, false)); // full, a new lobby is opened
+
+        router.leaveSeat(GameRuleEnum.SIMPLE_3, false, 0); // everyone left, the backend destroyed the lobby
+        assertEquals(0, router.getOpenSeats(GameRuleEnum.SIMPLE_3, false, 0));
+    }
+
+    /**
+     * Two backend servers run in their own JVMs behind a gateway: the players of each quick match meet on
+     * the same backend, the two matches are split between the backends, and the nicknames stay unique
+     */
+    @Test
+    public void playersOfALobbyMeetOnTheSameBackend() throws Exception {
+        List<Process> backends = new ArrayList<>();
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        Gateway gateway = null;
+        List<TestClient> clients = new ArrayList<>();
+        Path journalDirectory = Files.createTempDirectory("gateway");
+        try {
+            for(int backend = 0; backend < 2; backend++){
+                int port = freePort();
+                backends.add(startBackend(port, journalDirectory.resolve("backend" + backend + ".journal")));
+                addresses.add(new InetSocketAddress("127.0.0.1", port));
+            }
+            for(InetSocketAddress address : addresses) waitForPort(address.getPort());
+
+            int gatewayPort = freePort();
+            gateway = new Gateway(gatewayPort, addresses);
+            Thread gatewayThread = new Thread(gateway::startServer);
+            gatewayThread.setDaemon(true);
+            gatewayThread.start();
+            waitForPort(gatewayPort);
+
+            for(String nickname : List.of("Alice", "Bob", "Carol", "Dave"))
+                clients.add(new TestClient(gatewayPort, nickname));
+            for(TestClient client : clients) assertEquals("OK", client.loginReply);
+
+            TestClient impostor = new TestClient(gatewayPort, "Alice");
+            clients.add(impostor);
+            assertEquals("ERR", impostor.loginReply);
+
+            for(int player = 0; player < 4; player++)
+                assertEquals("OK", clients.get(player).command(CommandEnum.PLAY_GAME,
+                        NetworkFieldEnum.GAME_RULE, GameRuleEnum.SIMPLE_2.name(), NetworkFieldEnum.QUICK_MATCH, true));
+
+            int firstBackend = gateway.getBackendOfUser(clients.get(0).idUser);
+            int secondBackend = gateway.getBackendOfUser(clients.get(2).idUser);
+            assertEquals(firstBackend, gateway.getBackendOfUser(clients.get(1).idUser));
+            assertEquals(secondBackend, gateway.getBackendOfUser(clients.get(3).idUser));
+            assertNotEquals(firstBackend, secondBackend);
+
+            for(int player = 0; player < 4; player++)
+                assertTrue(clients.get(player).waitAsync(CommandEnum.SERVER_LOBBY_START), "player " + player);
+        } finally {
+            for(TestClient client : clients) client.close();
+            if(gateway != null) gateway.stopServer();
+            for(Process backend : backends) backend.destroyForcibly();
+        }
+    }
+
+    private static Process startBackend(int port, Path journal) throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                "it.polimi.ingsw.Eriantys", "--server", "--port", String.valueOf(port),
+                "--journal", journal.toString());
+        builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        builder.redirectError(ProcessBuilder.Redirect.DISCARD);
+        return builder.start();
+    }
+
+    private static int freePort() throws IOException {
+        try(ServerSocket socket = new ServerSocket(0)){
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void waitForPort(int port) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 20_000;
+        while(System.currentTimeMillis() < deadline){
+            try {
+                new Socket("127.0.0.1", port).close();
+                return;
+            } catch (IOException e) {
+                Thread.sleep(100);
+            }
+        }
+        fail("Nothing listening on port " + port);
+    }
+
+    /**
+     * A client speaking the protocol directly, with the pings on a second socket as the clients do by default
+     */
+    private static class TestClient {
+        private final Socket mainSocket;
+        private final MessageBroker broker = new MessageBroker();
+        private final List<String> asyncCommands = Collections.synchronizedList(new ArrayList<>());
+        private Socket pingSocket;
+        private int idRequest = 1;
+        private int idUser = -1;
+        private final String loginReply;
+
+        TestClient(int port, String nickname) throws Exception {
+            mainSocket = new Socket("127.0.0.1", port);
+            broker.addToMessage(NetworkFieldEnum.COMMAND, CommandEnum.CONNECTION_REQUEST);
+            broker.addToMessage(NetworkFieldEnum.NICKNAME, nickname);
+            broker.addToMessage(NetworkFieldEnum.ID_REQUEST, idRequest);
+            broker.addToMessage(NetworkFieldEnum.WIRE_FORMAT, WireFormatEnum.BINARY);
+            broker.send(mainSocket.getOutputStream());
+            broker.receive(mainSocket.getInputStream());
+            broker.waitSyncMessage();
+            loginReply = (String) broker.readField(NetworkFieldEnum.SERVER_REPLY_MESSAGE);
+            if(broker.readField(NetworkFieldEnum.ID_USER) != null)
+                idUser = ApplicationHelper.getIntFromBrokerField(broker.readField(NetworkFieldEnum.ID_USER));
+            broker.flushFirstSyncMessage();
+            if(idUser < 0) return;
+
+            pingSocket = new Socket("127.0.0.1", port);
+            Thread pinger = new Thread(() -> {
+                MessageBroker pingBroker = new MessageBroker();
+                try {
+                    for(int ping = 1; ; ping++){
+                        pingBroker.addToMessage(NetworkFieldEnum.COMMAND, CommandEnum.PING);
+                        pingBroker.addToMessage(NetworkFieldEnum.ID_USER, idUser);
+                        pingBroker.addToMessage(NetworkFieldEnum.ID_PING_REQUEST, ping);
+                        pingBroker.send(pingSocket.getOutputStream());
+                        pingBroker.receive(pingSocket.getInputStream());
+                        pingBroker.waitSyncMessage();
+                        pingBroker.flushFirstSyncMessage();
+                        Thread.sleep(500);
+                    }
+                } catch (IOException | InterruptedException e) {
+                    // the test is over
+                }
+            });
+            pinger.setDaemon(true);
+            pinger.start();
+
+            Thread receiver = new Thread(() -> {
+                try {
+                    while(true) broker.receive(mainSocket.getInputStream());
+                } catch (IOException e) {
+                    // the test is over
+                }
+            });
+            receiver.setDaemon(true);
+            receiver.start();
+
+            Thread asyncReader = new Thread(() -> {
+                try {
+                    while(true){
+                        broker.waitAsyncMessage();
+                        asyncCommands.add(String.valueOf(broker.readAsyncField(NetworkFieldEnum.COMMAND)));
+                        broker.flushFirstAsyncMessage();
+                    }
+                } catch (InterruptedException e) {
+                    // the test is over
+                }
+            });
+            asyncReader.setDaemon(true);
+            asyncReader.start();
+        }
+
+        /**
+         * @return the reply message of the server, null if it didn't reply in time
+         */
+        String command(CommandEnum command, Object... fields) throws Exception {
+            broker.addToMessage(NetworkFieldEnum.COMMAND, command);
+            broker.addToMessage(NetworkFieldEnum.ID_REQUEST, ++idRequest);
+            broker.addToMessage(NetworkFieldEnum.ID_USER, idUser);
+            for(int field = 0; field < fields.length; field += 2)
+                broker.addToMessage((NetworkFieldEnum) fields[field], fields[field + 1]);
+            broker.send(mainSocket.getOutputStream());
+            if(!broker.waitSyncMessage(5000)) return null;
+            String reply = (String) broker.readField(NetworkFieldEnum.SERVER_REPLY_MESSAGE);
+            broker.flushFirstSyncMessage();
+            return reply;
+        }
+
+        boolean waitAsync(CommandEnum command) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while(System.currentTimeMillis() < deadline){
+                if(asyncCommands.contains(command.name())) return true;
+                Thread.sleep(50);
+            }
+            return false;
+        }
+
+        void close() throws IOException {
+            mainSocket.close();
+            if(pingSocket != null) pingSocket.close();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package it.polimi.ingsw.network;
+
+import it.polimi.ingsw.network.server.HeartbeatScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HeartbeatSchedulerTest {
+
+    private static final long TIMEOUT_MILLIS = 500;
+    private static final long TICK_MILLIS = 20;
+
+    private HeartbeatScheduler scheduler;
+
+    @BeforeEach
+    public void init(){
+        scheduler = new HeartbeatScheduler(TIMEOUT_MILLIS, TICK_MILLIS, Runnable::run);
+        scheduler.start();
+    }
+
+    @AfterEach
+    public void stop(){
+        scheduler.stop();
+    }
+
+    /**
+     * Checks that a silent connection times out once, no earlier than the timeout and at most
+     * a few ticks later
+     */
+    @Test
+    public void silentConnectionTimesOut() throws InterruptedException {
+        long start = System.currentTimeMillis();
+        AtomicLong timedOutAt = new AtomicLong();
+        CountDownLatch timedOut = new CountDownLatch(1);
+        AtomicInteger alerts = new AtomicInteger();
+
+        scheduler.watch(() -> start, () -> true, () -> {
+            alerts.incrementAndGet();
+            timedOutAt.set(System.currentTimeMillis());
+            timedOut.countDown();
+        });
+
+        assertTrue(timedOut.await(TIMEOUT_MILLIS * 4, TimeUnit.MILLISECONDS));
+        long elapsed = timedOutAt.get() - start;
+        assertTrue(elapsed >= TIMEOUT_MILLIS, "timed out after " + elapsed);
+        assertTrue(elapsed <= TIMEOUT_MILLIS + 5 * TICK_MILLIS, "timed out after " + elapsed);
+
+        Thread.sleep(TIMEOUT_MILLIS * 2);
+        assertEquals(1, alerts.get());
+        assertEquals(0, scheduler.getWatchedCount());
+    }
+
+    /**
+     * Checks that a connection seen more often than the timeout stays alive, while the ones
+     * closed in the meantime are forgotten without any alert
+     */
+    @Test
+    public void pingingConnectionSurvives() throws InterruptedException {
+        AtomicLong lastSeen = new AtomicLong(System.currentTimeMillis());
+        AtomicBoolean timedOut = new AtomicBoolean(false);
+        scheduler.watch(lastSeen::get, () -> true, () -> timedOut.set(true));
+
+        AtomicBoolean open = new AtomicBoolean(true);
+        AtomicBoolean closedTimedOut = new AtomicBoolean(false);
+        scheduler.watch(System::currentTimeMillis, open::get, () -> closedTimedOut.set(true));
+
+        for(int ping = 0; ping < 12; ping++){
+            Thread.sleep(TIMEOUT_MILLIS / 4);
+            lastSeen.set(System.currentTimeMillis());
+            if(ping == 2) open.set(false);
+        }
+        assertFalse(timedOut.get());
+        assertFalse(closedTimedOut.get());
+        assertEquals(1, scheduler.getWatchedCount());
+    }
+
+    /**
+     * Watches many connections pinging on their own: none of them times out while pinging,
+     * and the wheel notices all of them once they stop
+     */
+    @Test
+    public void manyConnections() throws InterruptedException {
+        final int connections = 20000;
+        AtomicLong lastSeen = new AtomicLong(System.currentTimeMillis());
+        CountDownLatch timedOut = new CountDownLatch(connections);
+        for(int connection = 0; connection < connections; connection++)
+            scheduler.watch(lastSeen::get, () -> true, timedOut::countDown);
+
+        // The pings only update the time, the wheel reschedules each connection once per timeout at most
+        for(int ping = 0; ping < 4; ping++){
+            Thread.sleep(TIMEOUT_MILLIS / 2);
+            lastSeen.set(System.currentTimeMillis());
+        }
+        assertEquals(connections, timedOut.getCount());
+
+        assertTrue(timedOut.await(TIMEOUT_MILLIS * 4, TimeUnit.MILLISECONDS));
+    }
+}
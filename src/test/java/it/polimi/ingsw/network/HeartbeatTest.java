@@ -0,0 +1,113 @@
+package it.polimi.ingsw.network;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HeartbeatTest {
+
+    /**
+     * Sends a CONNECTION_REQUEST from the client broker and the server's reply, echoing the fields
+     * left in the request as the ClientHandler does
+     * @param clientBroker the broker of the client
+     * @param serverBroker the broker of the server
+     * @param wireFormat the format asked by the client
+     */
+    private void connect(MessageBroker clientBroker, MessageBroker serverBroker, WireFormatEnum wireFormat)
+            throws IOException, InterruptedException {
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        clientBroker.addToMessage(NetworkFieldEnum.COMMAND, CommandEnum.CONNECTION_REQUEST);
+        clientBroker.addToMessage(NetworkFieldEnum.NICKNAME, "Niccolò");
+        clientBroker.addToMessage(NetworkFieldEnum.WIRE_FORMAT, wireFormat);
+        clientBroker.addToMessage(NetworkFieldEnum.HEARTBEAT, true);
+        clientBroker.send(wire);
+        serverBroker.receive(new ByteArrayInputStream(wire.toByteArray()));
+        serverBroker.waitSyncMessage();
+
+        wire.reset();
+        for(NetworkFieldEnum field : NetworkFieldEnum.values())
+            if(serverBroker.readField(field) != null) serverBroker.addToMessage(field, serverBroker.readField(field));
+        serverBroker.addToMessage(NetworkFieldEnum.SERVER_REPLY_STATUS, 0);
+        serverBroker.addToMessage(NetworkFieldEnum.ID_REQUEST, 1);
+        serverBroker.send(wire);
+        serverBroker.flushFirstSyncMessage();
+        clientBroker.receive(new ByteArrayInputStream(wire.toByteArray()));
+        clientBroker.waitSyncMessage();
+    }
+
+    /**
+     * Checks that both sides agree on the pings on the main socket, whatever the format
+     */
+    @Test
+    public void negotiation() throws IOException, InterruptedException {
+        for(WireFormatEnum format : WireFormatEnum.values()){
+            MessageBroker clientBroker = new MessageBroker();
+            MessageBroker serverBroker = new MessageBroker();
+            assertFalse(clientBroker.isHeartbeatOnMainSocket());
+
+            connect(clientBroker, serverBroker, format);
+            assertTrue(serverBroker.isHeartbeatOnMainSocket(), format.name());
+            assertTrue(clientBroker.isHeartbeatOnMainSocket(), format.name());
+            assertEquals(true, clientBroker.readField(NetworkFieldEnum.HEARTBEAT));
+        }
+    }
+
+    /**
+     * Checks that a server not allowing the heartbeat doesn't echo the field, so the client
+     * keeps using the ping socket
+     */
+    @Test
+    public void heartbeatRefused() throws IOException, InterruptedException {
+        MessageBroker clientBroker = new MessageBroker();
+        MessageBroker serverBroker = new MessageBroker();
+        serverBroker.setHeartbeatAllowed(false);
+
+        connect(clientBroker, serverBroker, WireFormatEnum.LENGTH_PREFIXED);
+        assertFalse(serverBroker.isHeartbeatOnMainSocket());
+        assertFalse(clientBroker.isHeartbeatOnMainSocket());
+        assertNull(clientBroker.readField(NetworkFieldEnum.HEARTBEAT));
+
+        MessageBroker otherBroker = new MessageBroker();
+        otherBroker.receive("{\"COMMAND\":\"PLAY_GAME\",\"ID_USER\":1,\"ID_REQUEST\":2,\"HEARTBEAT\":true}"
+                .getBytes(StandardCharsets.UTF_8));
+        assertFalse(otherBroker.isHeartbeatOnMainSocket()); // only a CONNECTION_REQUEST can ask for it
+    }
+
+    /**
+     * Checks that the pings written by the control broker interleave with the commands on the same
+     * stream, in the format negotiated by the main broker, and are told apart by the server
+     */
+    @Test
+    public void pingsInterleavedWithCommands() throws IOException, InterruptedException {
+        MessageBroker clientBroker = new MessageBroker();
+        MessageBroker serverBroker = new MessageBroker();
+        connect(clientBroker, serverBroker, WireFormatEnum.BINARY);
+        clientBroker.flushFirstSyncMessage();
+        MessageBroker controlBroker = clientBroker.newControlBroker();
+        assertEquals(WireFormatEnum.BINARY, controlBroker.getOutputFormat());
+
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        controlBroker.addToMessage(NetworkFieldEnum.COMMAND, CommandEnum.PING);
+        controlBroker.addToMessage(NetworkFieldEnum.ID_USER, 4);
+        controlBroker.addToMessage(NetworkFieldEnum.ID_PING_REQUEST, 1);
+        controlBroker.send(wire);
+        clientBroker.addToMessage(NetworkFieldEnum.COMMAND, CommandEnum.LEAVE_LOBBY);
+        clientBroker.addToMessage(NetworkFieldEnum.ID_USER, 4);
+        clientBroker.addToMessage(NetworkFieldEnum.ID_REQUEST, 2);
+        clientBroker.send(wire);
+
+        ByteArrayInputStream input = new ByteArrayInputStream(wire.toByteArray());
+        serverBroker.receive(input);
+        serverBroker.receive(input);
+        assertTrue(serverBroker.waitSyncMessage(0));
+        assertEquals(CommandEnum.PING.name(), serverBroker.readField(NetworkFieldEnum.COMMAND).toString());
+        assertEquals(1, ApplicationHelper.getIntFromBrokerField(serverBroker.readField(NetworkFieldEnum.ID_PING_REQUEST)));
+        assertTrue(serverBroker.waitSyncMessage(0));
+        assertEquals(CommandEnum.LEAVE_LOBBY.name(), serverBroker.readField(NetworkFieldEnum.COMMAND).toString());
+    }
+}
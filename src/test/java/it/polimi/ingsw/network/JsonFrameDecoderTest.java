@@ -0,0 +1,49 @@
+package it.polimi.ingsw.network;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonFrameDecoderTest {
+
+    /**
+     * Checks that a message split in several chunks is only returned once complete,
+     * and that the following message in the same chunk is kept separate
+     */
+    @Test
+    public void messageSplitInChunks(){
+        JsonFrameDecoder decoder = new JsonFrameDecoder();
+        String first = "{\"COMMAND\":\"PING\",\"ID_USER\":1.0}";
+        String second = "{\"COMMAND\":\"PLAY_GAME\",\"NICKNAME\":\"a}b{\"}";
+        byte[] bytes = (first + "\n" + second).getBytes(StandardCharsets.UTF_8);
+
+        List<String> messages = decoder.decode(ByteBuffer.wrap(bytes, 0, 10));
+        assertTrue(messages.isEmpty());
+        assertEquals(10, decoder.pendingBytes());
+
+        messages = decoder.decode(ByteBuffer.wrap(bytes, 10, first.length() + 5));
+        assertEquals(List.of(first), messages);
+
+        messages = decoder.decode(ByteBuffer.wrap(bytes, first.length() + 15, bytes.length - first.length() - 15));
+        assertEquals(List.of(second), messages);
+        assertEquals(0, decoder.pendingBytes());
+    }
+
+    /**
+     * Checks that multi-byte characters aren't corrupted, even when split between two reads
+     */
+    @Test
+    public void multiByteCharacters(){
+        JsonFrameDecoder decoder = new JsonFrameDecoder();
+        String message = "{\"NICKNAME\":\"Niccolò\"}";
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        int splitPoint = message.indexOf('ò') + 1; // between the two bytes of the character
+
+        assertTrue(decoder.decode(ByteBuffer.wrap(bytes, 0, splitPoint)).isEmpty());
+        assertEquals(List.of(message), decoder.decode(ByteBuffer.wrap(bytes, splitPoint, bytes.length - splitPoint)));
+    }
+}
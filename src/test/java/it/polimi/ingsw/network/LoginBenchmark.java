@@ -0,0 +1,85 @@
+package it.polimi.ingsw.network;
+
+import it.polimi.ingsw.Benchmarks;
+import it.polimi.ingsw.network.server.LoginHandler;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Storms of users logging in and out with distinct nicknames, through the login handler and through
+ * a single synchronized map checking the nicknames one by one, as the login handler used to
+ */
+@Tag(Benchmarks.TAG)
+public class LoginBenchmark {
+
+    private static final int THREADS = 8;
+    private static final int USERS = 4000; // for each thread
+
+    private final AtomicInteger storms = new AtomicInteger();
+
+    @Test
+    public void compareLoginStorms() throws Exception {
+        Map<Integer, String> oldRegistry = new HashMap<>();
+        Benchmarks.measureBatch("Synchronized map, " + THREADS + " threads", THREADS * USERS,
+                () -> storm((nickname, idUser) -> {
+                    synchronized (oldRegistry){
+                        if(oldRegistry.containsValue(nickname)) return false;
+                        oldRegistry.put(idUser, nickname);
+                        return true;
+                    }
+                }, idUser -> { synchronized (oldRegistry) { oldRegistry.remove(idUser); } }));
+
+        int loggedBefore = LoginHandler.getLoggedUsersCount();
+        Benchmarks.measureBatch("Login handler, " + THREADS + " threads", THREADS * USERS,
+                () -> storm(LoginHandler::login, LoginHandler::removeNicknameFromId));
+        assertEquals(loggedBefore, LoginHandler.getLoggedUsersCount());
+    }
+
+    private interface Login {
+        boolean login(String nickname, int idUser);
+    }
+
+    private interface Logout {
+        void logout(int idUser);
+    }
+
+    /**
+     * Each thread logs its users in, all of them staying logged until every user logged, then logs them out
+     * @return the amount of users logged in and out
+     */
+    private Integer storm(Login login, Logout logout) throws InterruptedException {
+        int storm = storms.incrementAndGet();
+        CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        AtomicInteger failures = new AtomicInteger();
+
+        for(int thread = 0; thread < THREADS; thread++){
+            final int threadIndex = thread;
+            executor.execute(() -> {
+                int[] ids = new int[USERS];
+                for(int user = 0; user < USERS; user++){
+                    ids[user] = LoginHandler.getNewUserId();
+                    if(!login.login("Storm" + storm + "_" + threadIndex + "_" + user, ids[user])) failures.incrementAndGet();
+                }
+                try {
+                    barrier.await();
+                } catch (InterruptedException | BrokenBarrierException e) {
+                    failures.incrementAndGet();
+                }
+                for(int idUser : ids) logout.logout(idUser);
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+        assertEquals(0, failures.get());
+        return THREADS * USERS;
+    }
+}
@@ -0,0 +1,115 @@
+package it.polimi.ingsw.network;
+
+import it.polimi.ingsw.network.server.LoginHandler;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoginHandlerTest {
+
+    /**
+     * Checks that a nickname is bound to a single user at a time, and that it's available again
+     * once its user logs out
+     */
+    @Test
+    public void nicknamesAreUnique(){
+        int first = LoginHandler.getNewUserId();
+        int second = LoginHandler.getNewUserId();
+        assertNotEquals(first, second);
+
+        assertFalse(LoginHandler.login("", first));
+        assertTrue(LoginHandler.login("LoginTestNick", first));
+        assertFalse(LoginHandler.login("LoginTestNick", second));
+        assertEquals("LoginTestNick", LoginHandler.getNicknameFromId(first));
+        assertEquals(first, LoginHandler.getIdFromNickname("LoginTestNick"));
+
+        LoginHandler.removeNicknameFromId(second); // never logged, nothing changes
+        assertEquals(first, LoginHandler.getIdFromNickname("LoginTestNick"));
+
+        LoginHandler.removeNicknameFromId(first);
+        assertNull(LoginHandler.getNicknameFromId(first));
+        assertNull(LoginHandler.getIdFromNickname("LoginTestNick"));
+        assertTrue(LoginHandler.login("LoginTestNick", second));
+        LoginHandler.removeNicknameFromId(second);
+    }
+
+    /**
+     * Many threads try to log in with the same few nicknames, logging out right after:
+     * a nickname is never held by two users at once, and everyone is logged out at the end
+     */
+    @Test
+    public void concurrentLoginsAndLogouts() throws InterruptedException {
+        final int threads = 8;
+        final int attempts = 5000;
+        int loggedBefore = LoginHandler.getLoggedUsersCount();
+        Map<String, Integer> holders = new ConcurrentHashMap<>();
+        AtomicInteger conflicts = new AtomicInteger();
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for(int thread = 0; thread < threads; thread++){
+            executor.execute(() -> {
+                for(int attempt = 0; attempt < attempts; attempt++){
+                    int idUser = LoginHandler.getNewUserId();
+                    ids.add(idUser);
+                    String nickname = "StormNick" + attempt % 16;
+                    if(LoginHandler.login(nickname, idUser)){
+                        if(holders.putIfAbsent(nickname, idUser) != null) conflicts.incrementAndGet();
+                        holders.remove(nickname, idUser);
+                        LoginHandler.removeNicknameFromId(idUser);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(0, conflicts.get());
+        assertEquals(threads * attempts, ids.size());
+        assertEquals(loggedBefore, LoginHandler.getLoggedUsersCount());
+    }
+
+    /**
+     * Storms of users logging in and out with distinct nicknames: every login succeeds,
+     * with all the users logged at the same time, and every logout is counted
+     */
+    @Test
+    public void loginStorm() throws InterruptedException {
+        final int threads = 8;
+        final int users = 500;
+        int loggedBefore = LoginHandler.getLoggedUsersCount();
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicInteger failures = new AtomicInteger();
+        AtomicInteger loggedTogether = new AtomicInteger();
+
+        for(int thread = 0; thread < threads; thread++){
+            final int threadIndex = thread;
+            executor.execute(() -> {
+                int[] ids = new int[users];
+                for(int user = 0; user < users; user++){
+                    ids[user] = LoginHandler.getNewUserId();
+                    if(!LoginHandler.login("Storm_" + threadIndex + "_" + user, ids[user])) failures.incrementAndGet();
+                }
+                try {
+                    barrier.await();
+                    loggedTogether.accumulateAndGet(LoginHandler.getLoggedUsersCount(), Math::max);
+                    barrier.await();
+                } catch (InterruptedException | BrokenBarrierException e) {
+                    failures.incrementAndGet();
+                }
+                for(int idUser : ids) LoginHandler.removeNicknameFromId(idUser);
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(0, failures.get());
+        assertEquals(loggedBefore + threads * users, loggedTogether.get());
+        assertEquals(loggedBefore, LoginHandler.getLoggedUsersCount());
+    }
+}
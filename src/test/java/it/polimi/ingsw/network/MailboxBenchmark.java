@@ -0,0 +1,78 @@
+package it.polimi.ingsw.network;
+
+import it.polimi.ingsw.Benchmarks;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Many producers hand messages to a single consumer, through the mailbox and through
+ * the ArrayBlockingQueue it replaced, both with the capacity used by the MessageBroker
+ */
+@Tag(Benchmarks.TAG)
+public class MailboxBenchmark {
+
+    private static final int CAPACITY = 100;
+    private static final int MESSAGES = 200_000;
+
+    @Test
+    public void compareContention() throws Exception {
+        for(int producers : List.of(1, 4, 16)){
+            Benchmarks.measureBatch("Mailbox, " + producers + " producers", MESSAGES,
+                    () -> transfer(new MailboxQueue(new Mailbox<>(CAPACITY)), producers));
+            Benchmarks.measureBatch("ArrayBlockingQueue, " + producers + " producers", MESSAGES,
+                    () -> transfer(new BlockingQueueAdapter(new ArrayBlockingQueue<>(CAPACITY)), producers));
+        }
+    }
+
+    /**
+     * Sends MESSAGES messages, split among the producers, and takes them all from the consumer thread
+     * @return the last message taken
+     */
+    private int[] transfer(Queue queue, int producers) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for(int producer = 0; producer < producers; producer++){
+            final int id = producer;
+            Thread thread = new Thread(() -> {
+                try {
+                    for(int message = 0; message < MESSAGES / producers; message++) queue.put(new int[]{id, message});
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        int[] message = null;
+        for(int received = 0; received < MESSAGES / producers * producers; received++){
+            message = queue.take();
+            assertNotNull(message);
+        }
+        for(Thread thread : threads) thread.join();
+        return message;
+    }
+
+    /**
+     * The operations compared, common to both queues
+     */
+    private interface Queue {
+        void put(int[] message) throws InterruptedException;
+        int[] take() throws InterruptedException;
+    }
+
+    private record MailboxQueue(Mailbox<int[]> mailbox) implements Queue {
+        public void put(int[] message) throws InterruptedException { mailbox.put(message); }
+        public int[] take() throws InterruptedException { return mailbox.take(); }
+    }
+
+    private record BlockingQueueAdapter(BlockingQueue<int[]> queue) implements Queue {
+        public void put(int[] message) throws InterruptedException { queue.put(message); }
+        public int[] take() throws InterruptedException { return queue.take(); }
+    }
+}
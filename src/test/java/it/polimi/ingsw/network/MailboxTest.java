@@ -0,0 +1,128 @@
+package it.polimi.ingsw.network;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MailboxTest {
+
+    /**
+     * Checks that many producers can fill the mailbox at the same time without losing a message,
+     * and that each producer's messages come out in the order they were put in
+     */
+    @Test
+    public void concurrentProducers() throws InterruptedException {
+        final int producers = 8;
+        final int messages = 20000;
+        Mailbox<int[]> mailbox = new Mailbox<>(100);
+        startProducers(mailbox, producers, messages);
+
+        int[] lastReceived = new int[producers];
+        Arrays.fill(lastReceived, -1);
+        for(int received = 0; received < producers * messages; received++){
+            int[] message = mailbox.poll(5, TimeUnit.SECONDS);
+            assertNotNull(message);
+            assertEquals(lastReceived[message[0]] + 1, message[1]);
+            lastReceived[message[0]] = message[1];
+        }
+        assertNull(mailbox.poll());
+        assertTrue(mailbox.isEmpty());
+        assertTrue(mailbox.getMaxDepth() <= 100 + producers); // the producers waited for room
+    }
+
+    private List<Thread> startProducers(Mailbox<int[]> mailbox, int producers, int messages){
+        List<Thread> threads = new ArrayList<>();
+        for(int producer = 0; producer < producers; producer++){
+            final int id = producer;
+            Thread thread = new Thread(() -> {
+                try {
+                    for(int message = 0; message < messages; message++) mailbox.put(new int[]{id, message});
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        return threads;
+    }
+
+    /**
+     * Checks that a non-blocking producer is told to stop when the mailbox is full, and called back
+     * once half of the messages have been handled
+     */
+    @Test
+    public void roomListener(){
+        Mailbox<Integer> mailbox = new Mailbox<>(10);
+        AtomicInteger calls = new AtomicInteger();
+        mailbox.setRoomListener(calls::incrementAndGet);
+
+        for(int message = 0; message < 9; message++) assertTrue(mailbox.offer(message));
+        assertFalse(mailbox.offer(9));
+        assertFalse(mailbox.offer(10)); // still stored, the producer just reads the rest of its buffer
+        assertTrue(mailbox.isProducerPaused());
+        assertEquals(11, mailbox.size());
+
+        for(int message = 0; message < 5; message++) assertEquals(message, mailbox.poll());
+        assertEquals(0, calls.get());
+        assertEquals(5, mailbox.poll());
+        assertEquals(1, calls.get());
+        assertFalse(mailbox.isProducerPaused());
+        assertEquals(6, mailbox.peek());
+    }
+
+    /**
+     * Checks that a broker reading from a stream stops reading when its mailbox is full, instead
+     * of dropping the messages, and goes on once they are handled
+     */
+    @Test
+    public void brokerDoesNotDropMessages() throws IOException, InterruptedException {
+        final int messages = 250;
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        MessageBroker sender = new MessageBroker();
+        for(int request = 0; request < messages; request++){
+            sender.addToMessage(NetworkFieldEnum.COMMAND, CommandEnum.READY_TO_START);
+            sender.addToMessage(NetworkFieldEnum.ID_USER, 1);
+            sender.addToMessage(NetworkFieldEnum.ID_REQUEST, request);
+            sender.send(wire);
+        }
+
+        MessageBroker receiver = new MessageBroker();
+        ByteArrayInputStream input = new ByteArrayInputStream(wire.toByteArray());
+        AtomicInteger read = new AtomicInteger();
+        AtomicBoolean failed = new AtomicBoolean(false);
+        Thread reader = new Thread(() -> {
+            try {
+                for(int request = 0; request < messages; request++){
+                    receiver.receive(input);
+                    read.incrementAndGet();
+                }
+            } catch (IOException e) {
+                failed.set(true);
+            }
+        });
+        reader.start();
+
+        Thread.sleep(200);
+        assertTrue(read.get() <= 101, "read " + read.get()); // the reader waits for room
+        for(int request = 0; request < messages; request++){
+            assertTrue(receiver.waitSyncMessage(2000));
+            assertEquals(request, ApplicationHelper.getIntFromBrokerField(receiver.readField(NetworkFieldEnum.ID_REQUEST)));
+            receiver.flushFirstSyncMessage();
+        }
+        reader.join(2000);
+        assertFalse(failed.get());
+        assertEquals(0, receiver.getInboundDepth());
+        assertTrue(receiver.getMaxInboundDepth() >= 100);
+    }
+}
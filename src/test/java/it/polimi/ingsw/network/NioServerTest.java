@@ -0,0 +1,283 @@
+package it.polimi.ingsw.network;
+
+import it.polimi.ingsw.controller.GameRuleEnum;
+import it.polimi.ingsw.network.server.NioServer;
+import it.polimi.ingsw.network.server.ResumableSessions;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NioServerTest {
+
+    /**
+     * Real clients log in to the selector-based server and start a quick match, with a single worker
+     * handling everyone's commands. A client losing its connection is noticed by the server,
+     * which keeps the session until the client resumes it
+     */
+    @Test
+    public void clientsPlayAndReconnect() throws Exception {
+        int port = freePort();
+        NioServer server = new NioServer(port, 1, 1);
+        Thread serverThread = new Thread(server::startServer);
+        serverThread.setDaemon(true);
+        serverThread.start();
+        waitForPort(port);
+        waitFor(() -> server.getConnectionsCount() == 0); // the probe of waitForPort
+
+        TestClient alice = new TestClient(port, "NioAlice", null);
+        TestClient bob = new TestClient(port, "NioBob", null);
+        try {
+            assertEquals("OK", alice.loginReply);
+            assertEquals("OK", bob.loginReply);
+            assertEquals(2, server.getConnectionsCount());
+
+            for(TestClient client : List.of(alice, bob))
+                assertEquals("OK", client.command(CommandEnum.PLAY_GAME,
+                        NetworkFieldEnum.GAME_RULE, GameRuleEnum.SIMPLE_2.name(), NetworkFieldEnum.QUICK_MATCH, true));
+            for(TestClient client : List.of(alice, bob))
+                assertTrue(client.waitAsync(CommandEnum.SERVER_LOBBY_START));
+
+            // The connection is lost without quitting
+            int suspended = ResumableSessions.getSuspendedCount();
+            alice.close();
+            assertTrue(waitFor(() -> server.getConnectionsCount() == 1));
+            assertTrue(waitFor(() -> ResumableSessions.getSuspendedCount() == suspended + 1));
+
+            TestClient resumed = new TestClient(port, "NioAlice", alice.resumeToken);
+            assertEquals("OK", resumed.loginReply);
+            assertEquals(alice.idUser, resumed.idUser);
+            assertEquals(suspended, ResumableSessions.getSuspendedCount());
+            alice = resumed;
+        } finally {
+            alice.quit();
+            bob.quit();
+            server.stopServer();
+        }
+    }
+
+    /**
+     * Malformed messages make the server close the connection of the client that sent them,
+     * while the I/O thread they share goes on serving everyone else
+     */
+    @Test
+    public void malformedMessagesCloseOnlyTheirConnection() throws Exception {
+        int port = freePort();
+        NioServer server = new NioServer(port, 1, 1);
+        Thread serverThread = new Thread(server::startServer);
+        serverThread.setDaemon(true);
+        serverThread.start();
+        waitForPort(port);
+
+        TestClient alice = new TestClient(port, "NioMalformedAlice", null);
+        try {
+            assertEquals("OK", alice.loginReply);
+
+            assertClosedByServer(rawSocket(port, """
+                    {"CHOSEN_ENTRANCE_POSITIONS" : "x"}"""));
+            assertClosedByServer(rawSocket(port, """
+                    {"NOT_A_FIELD" : 1}"""));
+            assertClosedByServer(rawSocket(port,
+                    "{\"ID_USER\" : " + "[".repeat(100_000) + "]".repeat(100_000) + "}"));
+
+            // A literal null can only be sent in a frame
+            Socket framed = new Socket("127.0.0.1", port);
+            MessageBroker broker = new MessageBroker();
+            broker.addToMessage(NetworkFieldEnum.COMMAND, CommandEnum.CONNECTION_REQUEST);
+            broker.addToMessage(NetworkFieldEnum.ID_REQUEST, 1);
+            broker.addToMessage(NetworkFieldEnum.NICKNAME, "NioMalformedBob");
+            broker.addToMessage(NetworkFieldEnum.WIRE_FORMAT, WireFormatEnum.LENGTH_PREFIXED);
+            broker.send(framed.getOutputStream());
+            broker.receive(framed.getInputStream());
+            byte[] payload = "null".getBytes(StandardCharsets.UTF_8);
+            DataOutputStream output = new DataOutputStream(framed.getOutputStream());
+            output.writeInt(payload.length);
+            output.write(payload);
+            output.flush();
+            assertClosedByServer(framed);
+
+            assertEquals("OK", alice.command(CommandEnum.PLAY_GAME,
+                    NetworkFieldEnum.GAME_RULE, GameRuleEnum.SIMPLE_2.name(), NetworkFieldEnum.QUICK_MATCH, true));
+            TestClient carol = new TestClient(port, "NioMalformedCarol", null);
+            assertEquals("OK", carol.loginReply);
+            carol.quit();
+        } finally {
+            alice.quit();
+            server.stopServer();
+        }
+    }
+
+    private static Socket rawSocket(int port, String message) throws IOException {
+        Socket socket = new Socket("127.0.0.1", port);
+        socket.getOutputStream().write(message.getBytes(StandardCharsets.UTF_8));
+        socket.getOutputStream().flush();
+        return socket;
+    }
+
+    private static void assertClosedByServer(Socket socket) throws IOException {
+        try(socket){
+            socket.setSoTimeout(5000);
+            assertEquals(-1, socket.getInputStream().read());
+        } catch (SocketException e) {
+            // reset by the server, closed as well
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try(ServerSocket socket = new ServerSocket(0)){
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void waitForPort(int port) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 20_000;
+        while(System.currentTimeMillis() < deadline){
+            try {
+                new Socket("127.0.0.1", port).close();
+                return;
+            } catch (IOException e) {
+                Thread.sleep(100);
+            }
+        }
+        fail("Nothing listening on port " + port);
+    }
+
+    private static boolean waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while(System.currentTimeMillis() < deadline){
+            if(condition.getAsBoolean()) return true;
+            Thread.sleep(50);
+        }
+        return false;
+    }
+
+    /**
+     * A client pinging on the main socket, keeping every asynchronous message received
+     */
+    private static class TestClient {
+        private final Socket socket;
+        private final MessageBroker broker = new MessageBroker();
+        private final BlockingQueue<Map<NetworkFieldEnum, Object>> replies = new LinkedBlockingQueue<>();
+        private final List<Map<NetworkFieldEnum, Object>> asyncMessages = Collections.synchronizedList(new ArrayList<>());
+        private int idRequest = 1;
+        private int idUser = -1;
+        private final String loginReply;
+        private final String resumeToken;
+
+        TestClient(int port, String nickname, String resumeToken) throws Exception {
+            socket = new Socket("127.0.0.1", port);
+            Thread receiver = new Thread(() -> {
+                try {
+                    while(true){
+                        broker.receive(socket.getInputStream());
+                        Map<NetworkFieldEnum, Object> message;
+                        while((message = broker.pollMessage()) != null){
+                            if(message.get(NetworkFieldEnum.ASYNC_ID_REQUEST) != null && message.get(NetworkFieldEnum.ID_REQUEST) == null)
+                                asyncMessages.add(message);
+                            else if(!CommandEnum.PONG.name().equals(String.valueOf(message.get(NetworkFieldEnum.COMMAND))))
+                                replies.add(message);
+                        }
+                    }
+                } catch (IOException e) {
+                    // the test is over
+                }
+            });
+            receiver.setDaemon(true);
+            receiver.start();
+
+            Map<NetworkFieldEnum, Object> login = new HashMap<>();
+            login.put(NetworkFieldEnum.NICKNAME, nickname);
+            login.put(NetworkFieldEnum.WIRE_FORMAT, WireFormatEnum.BINARY);
+            login.put(NetworkFieldEnum.HEARTBEAT, true);
+            login.put(NetworkFieldEnum.RESUMABLE, true);
+            if(resumeToken != null){
+                login.put(NetworkFieldEnum.RESUME_TOKEN, resumeToken);
+                login.put(NetworkFieldEnum.LAST_ASYNC_ID_REQUEST, 0);
+            }
+            Map<NetworkFieldEnum, Object> reply = send(CommandEnum.CONNECTION_REQUEST, login);
+            loginReply = reply == null ? null : (String) reply.get(NetworkFieldEnum.SERVER_REPLY_MESSAGE);
+            this.resumeToken = reply == null ? null : (String) reply.get(NetworkFieldEnum.RESUME_TOKEN);
+            if(reply != null && reply.get(NetworkFieldEnum.ID_USER) != null && "OK".equals(loginReply))
+                idUser = ApplicationHelper.getIntFromBrokerField(reply.get(NetworkFieldEnum.ID_USER));
+            if(idUser < 0) return;
+
+            Thread pinger = new Thread(() -> {
+                try {
+                    for(int ping = 1; ; ping++){
+                        synchronized (broker){
+                            broker.addToMessage(NetworkFieldEnum.COMMAND, CommandEnum.PING);
+                            broker.addToMessage(NetworkFieldEnum.ID_USER, idUser);
+                            broker.addToMessage(NetworkFieldEnum.ID_PING_REQUEST, ping);
+                            broker.send(socket.getOutputStream());
+                        }
+                        Thread.sleep(1000);
+                    }
+                } catch (IOException | InterruptedException e) {
+                    // the test is over
+                }
+            });
+            pinger.setDaemon(true);
+            pinger.start();
+        }
+
+        private Map<NetworkFieldEnum, Object> send(CommandEnum command, Map<NetworkFieldEnum, Object> fields) throws Exception {
+            synchronized (broker){
+                broker.addToMessage(NetworkFieldEnum.COMMAND, command);
+                broker.addToMessage(NetworkFieldEnum.ID_REQUEST, ++idRequest);
+                broker.addAllToMessage(fields);
+                broker.send(socket.getOutputStream());
+            }
+            return replies.poll(5, TimeUnit.SECONDS);
+        }
+
+        /**
+         * @return the reply message of the server, null if it didn't reply in time
+         */
+        String command(CommandEnum command, Object... fields) throws Exception {
+            Map<NetworkFieldEnum, Object> message = new HashMap<>();
+            message.put(NetworkFieldEnum.ID_USER, idUser);
+            for(int field = 0; field < fields.length; field += 2)
+                message.put((NetworkFieldEnum) fields[field], fields[field + 1]);
+            Map<NetworkFieldEnum, Object> reply = send(command, message);
+            return reply == null ? null : (String) reply.get(NetworkFieldEnum.SERVER_REPLY_MESSAGE);
+        }
+
+        boolean waitAsync(CommandEnum command) throws InterruptedException {
+            return waitFor(() -> {
+                synchronized (asyncMessages){
+                    return asyncMessages.stream().anyMatch(message -> command.name().equals(String.valueOf(message.get(NetworkFieldEnum.COMMAND))));
+                }
+            });
+        }
+
+        /**
+         * Quits, so that the session isn't kept after the test
+         */
+        void quit() throws IOException, InterruptedException {
+            if(idUser >= 0 && !socket.isClosed()){
+                synchronized (broker){
+                    broker.addToMessage(NetworkFieldEnum.COMMAND, CommandEnum.QUIT);
+                    broker.addToMessage(NetworkFieldEnum.ID_USER, idUser);
+                    broker.send(socket.getOutputStream());
+                }
+                Thread.sleep(300); // the server drops the user before noticing the socket closed
+            }
+            close();
+        }
+
+        void close() throws IOException {
+            socket.close();
+        }
+    }
+}
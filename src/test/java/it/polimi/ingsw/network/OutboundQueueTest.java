@@ -0,0 +1,111 @@
+package it.polimi.ingsw.network;
+
+import it.polimi.ingsw.network.server.OutboundQueue;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OutboundQueueTest {
+
+    private ByteBuffer message(String content){
+        return ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Drains the next message made of a single buffer
+     * @return its content
+     */
+    private String drain(OutboundQueue queue){
+        ByteBuffer buffer = queue.nextBuffer();
+        String content = StandardCharsets.UTF_8.decode(buffer.duplicate()).toString();
+        buffer.position(buffer.limit());
+        queue.bufferWritten();
+        return content;
+    }
+
+    /**
+     * Checks that a newer state replaces the one still waiting, going after the messages queued
+     * in the meantime, while the other messages are all kept in order
+     */
+    @Test
+    public void latestStateReplacesTheOlder(){
+        OutboundQueue queue = new OutboundQueue();
+        assertTrue(queue.offer(CommandEnum.SERVER_GAME_UPDATE, message("view 1")));
+        assertTrue(queue.offer(null, message("reply 1")));
+        assertTrue(queue.offer(CommandEnum.SERVER_LOBBY_STATUS, message("lobby 1")));
+        assertTrue(queue.offer(CommandEnum.SERVER_GAME_UPDATE, message("view 2")));
+        assertTrue(queue.offer(null, message("reply 2")));
+
+        assertEquals(1, queue.getCoalescedCount());
+        assertEquals("reply 1", drain(queue));
+        assertEquals("lobby 1", drain(queue));
+        assertEquals("view 2", drain(queue));
+        assertEquals("reply 2", drain(queue));
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.getQueuedBytes());
+    }
+
+    /**
+     * Checks that a message is never dropped once its writing started, and that a message made of
+     * several buffers is written as a whole
+     */
+    @Test
+    public void startedMessageIsKept(){
+        OutboundQueue queue = new OutboundQueue();
+        queue.offer(CommandEnum.SERVER_GAME_UPDATE, message("header "), message("view 1"));
+        ByteBuffer first = queue.nextBuffer();
+        assertFalse(queue.retract(CommandEnum.SERVER_GAME_UPDATE));
+        queue.offer(CommandEnum.SERVER_GAME_UPDATE, message("view 2"));
+        assertEquals(0, queue.getCoalescedCount());
+
+        first.position(first.limit());
+        queue.bufferWritten();
+        assertEquals("view 1", drain(queue));
+        assertTrue(queue.retract(CommandEnum.SERVER_GAME_UPDATE));
+        assertTrue(queue.isEmpty());
+    }
+
+    /**
+     * Checks that a client is refused new messages only after staying behind the high-water mark
+     * for too long, or at once when it goes far beyond it
+     */
+    @Test
+    public void clientBehindIsRefused() throws InterruptedException {
+        OutboundQueue queue = new OutboundQueue(100, 50);
+        assertTrue(queue.offer(null, ByteBuffer.allocate(80)));
+        assertTrue(queue.offer(null, ByteBuffer.allocate(80))); // behind from now on
+        assertTrue(queue.offer(null, ByteBuffer.allocate(10)));
+        Thread.sleep(80);
+        assertFalse(queue.offer(null, ByteBuffer.allocate(10)));
+
+        // Catching up clears the time behind
+        ByteBuffer buffer;
+        while((buffer = queue.nextBuffer()) != null){
+            buffer.position(buffer.limit());
+            queue.bufferWritten();
+        }
+        assertTrue(queue.offer(null, ByteBuffer.allocate(10)));
+        assertFalse(queue.offer(null, ByteBuffer.allocate(1000)));
+        assertEquals(10, queue.getQueuedBytes());
+    }
+
+    /**
+     * A client that never reads while its game is updated continuously
+     * only keeps the latest view queued, and its queue stays small
+     */
+    @Test
+    public void stalledClientKeepsTheLatestView(){
+        OutboundQueue queue = new OutboundQueue(64 * 1024, 1000);
+        byte[] view = new byte[8 * 1024];
+        for(int update = 0; update < 10000; update++){
+            assertTrue(queue.offer(CommandEnum.SERVER_GAME_UPDATE, ByteBuffer.wrap(view)));
+            assertTrue(queue.offer(null, message("reply " + update)));
+            if(update % 100 == 0) drain(queue); // a reply is written from time to time
+        }
+        assertTrue(queue.getCoalescedCount() > 0);
+        assertTrue(queue.getQueuedBytes() < 64 * 1024 * 4);
+    }
+}
@@ -0,0 +1,116 @@
+package it.polimi.ingsw.network;
+
+import it.polimi.ingsw.controller.GameRuleEnum;
+import it.polimi.ingsw.model.StudentEnum;
+import it.polimi.ingsw.network.request.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestDecodersTest {
+
+    MessageBroker broker;
+
+    @BeforeEach
+    public void init(){
+        broker = new MessageBroker();
+    }
+
+    /**
+     * Receives a json message on the broker and makes it the current synchronous message
+     * @param message the json message
+     */
+    private void receive(String message){
+        try {
+            broker.receive(message);
+            assertTrue(broker.waitSyncMessage(0));
+        } catch (IOException | InterruptedException e) {
+            fail();
+        }
+    }
+
+    /**
+     * Tests whether every command sent by the client has a decoder
+     */
+    @Test
+    public void allSyncCommandsDecodable(){
+        for(CommandEnum command : CommandEnum.getSyncCommands())
+            assertTrue(RequestDecoders.isDecodable(command), command.name());
+        for(CommandEnum command : CommandEnum.getAsyncCommands())
+            assertFalse(RequestDecoders.isDecodable(command), command.name());
+    }
+
+    /**
+     * Tests whether the fields are read as their types, numbers being received as doubles
+     */
+    @Test
+    public void typedRequests(){
+        receive("""
+                {"COMMAND" : "PLAY_GAME", "ID_USER" : 3, "ID_REQUEST" : 7, "GAME_RULE" : "ADVANCED_3"}""");
+        try {
+            assertEquals(new PlayGameRequest(3, 7, GameRuleEnum.ADVANCED_3, false), broker.readRequest());
+            assertSame(broker.readRequest(), broker.readRequest());
+        } catch (MalformedRequestException e) {
+            fail();
+        }
+
+        receive("""
+                {"COMMAND" : "MOVE_MN", "ID_USER" : 3, "ID_REQUEST" : 8, "STEPS_MN" : 2.0}""");
+        try {
+            assertEquals(new ChoiceRequest(CommandEnum.MOVE_MN, 3, 8, 2), broker.readRequest());
+        } catch (MalformedRequestException e) {
+            fail();
+        }
+
+        receive("""
+                {"COMMAND" : "SELECT_STUDENTS_ON_CARD", "ID_USER" : 3, "ID_REQUEST" : 9, "CHOSEN_CARD_POSITIONS" : [0,3]}""");
+        try {
+            assertEquals(List.of(0, 3), ((PositionsRequest) broker.readRequest()).positions());
+        } catch (MalformedRequestException e) {
+            fail();
+        }
+
+        receive("""
+                {"COMMAND" : "SELECT_STUDENT_COLORS", "ID_USER" : 3, "ID_REQUEST" : 10, "CHOSEN_STUDENT_COLORS" : ["RED","PINK"]}""");
+        try {
+            assertEquals(List.of(StudentEnum.RED, StudentEnum.PINK), ((StudentColorsRequest) broker.readRequest()).colors());
+        } catch (MalformedRequestException e) {
+            fail();
+        }
+    }
+
+    /**
+     * Tests whether a message missing a field needed by its command can't be decoded
+     */
+    @Test
+    public void missingField(){
+        receive("""
+                {"COMMAND" : "CHOOSE_CLOUD", "ID_USER" : 3, "ID_REQUEST" : 8}""");
+        assertThrows(MalformedRequestException.class, () -> broker.readRequest());
+    }
+
+    /**
+     * Tests whether the messages with fields of the wrong type are refused by the broker
+     */
+    @Test
+    public void invalidFieldsRefused(){
+        assertThrows(IOException.class, () -> broker.receive("""
+                {"COMMAND" : "PLAY_GAME", "ID_USER" : 3, "ID_REQUEST" : 7, "GAME_RULE" : "SIMPLE_7"}"""));
+        assertThrows(IOException.class, () -> broker.receive("""
+                {"COMMAND" : "MOVE_MN", "ID_USER" : 3, "ID_REQUEST" : 8, "STEPS_MN" : 1.5}"""));
+        assertThrows(IOException.class, () -> broker.receive("""
+                {"COMMAND" : "NOT_A_COMMAND", "ID_USER" : 3, "ID_REQUEST" : 9}"""));
+        assertThrows(IOException.class, () -> broker.receive("""
+                {"CHOSEN_ENTRANCE_POSITIONS" : "x"}"""));
+        assertThrows(IOException.class, () -> broker.receive("""
+                {"COMMAND" : "SELECT_ENTRANCE_STUDENTS", "ID_USER" : 3, "ID_REQUEST" : 10, "CHOSEN_ENTRANCE_POSITIONS" : "x"}"""));
+        assertThrows(IOException.class, () -> broker.receive("""
+                {"NOT_A_FIELD" : 1}"""));
+        assertThrows(IOException.class, () -> broker.receive("null"));
+        assertFalse(broker.isSyncMessageAvailable());
+    }
+}
@@ -0,0 +1,295 @@
+package it.polimi.ingsw.network;
+
+import it.polimi.ingsw.controller.GameRuleEnum;
+import it.polimi.ingsw.network.server.ReplayBuffer;
+import it.polimi.ingsw.network.server.ResumableSessions;
+import it.polimi.ingsw.network.server.Server;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResumeSessionTest {
+
+    /**
+     * The buffer gives back the messages after the last one read, unless one of them was dropped
+     */
+    @Test
+    public void replayBufferKeepsTheLastMessages(){
+        ReplayBuffer buffer = new ReplayBuffer(3);
+        for(int asyncIdRequest = 1; asyncIdRequest <= 3; asyncIdRequest++)
+            buffer.add(asyncIdRequest, Map.of(NetworkFieldEnum.COMMAND, CommandEnum.SERVER_GAME_UPDATE), null);
+        assertEquals(List.of(2, 3), ids(buffer.since(1)));
+        assertEquals(List.of(1, 2, 3), ids(buffer.since(0)));
+
+        buffer.add(4, Map.of(NetworkFieldEnum.COMMAND, CommandEnum.SERVER_YOUR_TURN), null);
+        assertNull(buffer.since(0)); // the first message was dropped
+        assertEquals(List.of(2, 3, 4), ids(buffer.since(1)));
+
+        // A state replaced before being written was never needed by the client
+        buffer.retractLatest(CommandEnum.SERVER_GAME_UPDATE);
+        assertEquals(List.of(2, 4), ids(buffer.since(1)));
+        assertEquals(List.of(), ids(buffer.since(4)));
+    }
+
+    /**
+     * A player losing the connection during a game resumes it with the token, keeps the user id and gets
+     * again the messages sent after the last one read, while the other player is never told of the loss
+     */
+    @Test
+    public void sessionIsResumedWithTheMissedMessages() throws Exception {
+        int port = freePort();
+        Thread serverThread = new Thread(() -> new Server(port).startServer());
+        serverThread.setDaemon(true);
+        serverThread.start();
+        waitForPort(port);
+
+        TestClient alice = new TestClient(port, "ResumeAlice", null, 0);
+        TestClient bob = new TestClient(port, "ResumeBob", null, 0);
+        try {
+            assertEquals("OK", alice.loginReply);
+            assertNotNull(alice.resumeToken);
+            for(TestClient client : List.of(alice, bob))
+                assertEquals("OK", client.command(CommandEnum.PLAY_GAME,
+                        NetworkFieldEnum.GAME_RULE, GameRuleEnum.SIMPLE_2.name(), NetworkFieldEnum.QUICK_MATCH, true));
+            for(TestClient client : List.of(alice, bob))
+                assertTrue(client.waitAsync(CommandEnum.SERVER_LOBBY_START));
+            Thread.sleep(500); // the other messages of the lobby start
+            List<Map<NetworkFieldEnum, Object>> sent = new ArrayList<>(alice.asyncMessages);
+            assertTrue(sent.size() >= 2);
+
+            // Alice only read the first message before the connection was lost
+            int lastRead = asyncId(sent.get(0));
+            int idUser = alice.idUser;
+            alice.close();
+            long deadline = System.currentTimeMillis() + 5000;
+            while(ResumableSessions.getSuspendedCount() == 0 && System.currentTimeMillis() < deadline) Thread.sleep(50);
+            assertEquals(1, ResumableSessions.getSuspendedCount());
+
+            TestClient impostor = new TestClient(port, "ResumeAlice", "not a token", 0);
+            assertEquals("ERR", impostor.loginReply); // the nickname is still taken
+            impostor.close();
+
+            TestClient resumed = new TestClient(port, "ResumeAlice", alice.resumeToken, lastRead);
+            alice = resumed;
+            assertEquals("OK", resumed.loginReply);
+            assertEquals(idUser, resumed.idUser);
+            assertNotNull(resumed.resumeToken);
+            assertEquals(0, ResumableSessions.getSuspendedCount());
+
+            List<Map<NetworkFieldEnum, Object>> missed = sent.subList(1, sent.size());
+            deadline = System.currentTimeMillis() + 5000;
+            while(resumed.asyncMessages.size() < missed.size() && System.currentTimeMillis() < deadline) Thread.sleep(50);
+            List<Map<NetworkFieldEnum, Object>> replayed = new ArrayList<>(resumed.asyncMessages);
+            assertEquals(missed.size(), replayed.size());
+            for(int message = 0; message < missed.size(); message++){
+                assertEquals(asyncId(missed.get(message)), asyncId(replayed.get(message)));
+                assertEquals(missed.get(message).get(NetworkFieldEnum.COMMAND), replayed.get(message).get(NetworkFieldEnum.COMMAND));
+            }
+            assertFalse(bob.hasAsync(CommandEnum.SERVER_USER_DISCONNECTED));
+        } finally {
+            alice.quit();
+            bob.quit();
+        }
+    }
+
+    /**
+     * A session not asked to be resumable gets no token, and is dropped as soon as its connection is lost:
+     * the other player is told right away
+     */
+    @Test
+    public void sessionIsOnlyResumableOnRequest() throws Exception {
+        int port = freePort();
+        Thread serverThread = new Thread(() -> new Server(port).startServer());
+        serverThread.setDaemon(true);
+        serverThread.start();
+        waitForPort(port);
+
+        TestClient carol = new TestClient(port, "DroppedCarol", null, 0, false);
+        TestClient dave = new TestClient(port, "DroppedDave", null, 0, false);
+        try {
+            assertEquals("OK", carol.loginReply);
+            assertNull(carol.resumeToken);
+            for(TestClient client : List.of(carol, dave))
+                assertEquals("OK", client.command(CommandEnum.PLAY_GAME,
+                        NetworkFieldEnum.GAME_RULE, GameRuleEnum.SIMPLE_2.name(), NetworkFieldEnum.QUICK_MATCH, true));
+            for(TestClient client : List.of(carol, dave))
+                assertTrue(client.waitAsync(CommandEnum.SERVER_LOBBY_START));
+
+            int suspendedBefore = ResumableSessions.getSuspendedCount();
+            carol.close();
+            assertTrue(dave.waitAsync(CommandEnum.SERVER_USER_DISCONNECTED));
+            assertEquals(suspendedBefore, ResumableSessions.getSuspendedCount());
+
+            TestClient again = new TestClient(port, "DroppedCarol", null, 0, false);
+            assertEquals("OK", again.loginReply); // the nickname was freed at once
+            again.quit();
+        } finally {
+            dave.quit();
+        }
+    }
+
+    private static List<Integer> ids(List<ReplayBuffer.Message> messages){
+        return messages.stream().map(ReplayBuffer.Message::asyncIdRequest).toList();
+    }
+
+    private static int asyncId(Map<NetworkFieldEnum, Object> message){
+        return ApplicationHelper.getIntFromBrokerField(message.get(NetworkFieldEnum.ASYNC_ID_REQUEST));
+    }
+
+    private static int freePort() throws IOException {
+        try(ServerSocket socket = new ServerSocket(0)){
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void waitForPort(int port) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 20_000;
+        while(System.currentTimeMillis() < deadline){
+            try {
+                new Socket("127.0.0.1", port).close();
+                return;
+            } catch (IOException e) {
+                Thread.sleep(100);
+            }
+        }
+        fail("Nothing listening on port " + port);
+    }
+
+    /**
+     * A client pinging on the main socket, keeping every asynchronous message received
+     */
+    private static class TestClient {
+        private final Socket socket;
+        private final MessageBroker broker = new MessageBroker();
+        private final BlockingQueue<Map<NetworkFieldEnum, Object>> replies = new LinkedBlockingQueue<>();
+        private final List<Map<NetworkFieldEnum, Object>> asyncMessages = Collections.synchronizedList(new ArrayList<>());
+        private int idRequest = 1;
+        private int idUser = -1;
+        private final String loginReply;
+        private final String resumeToken;
+
+        TestClient(int port, String nickname, String resumeToken, int lastAsyncIdRequest) throws Exception {
+            this(port, nickname, resumeToken, lastAsyncIdRequest, true);
+        }
+
+        TestClient(int port, String nickname, String resumeToken, int lastAsyncIdRequest, boolean resumable) throws Exception {
+            socket = new Socket("127.0.0.1", port);
+            Thread receiver = new Thread(() -> {
+                try {
+                    while(true){
+                        broker.receive(socket.getInputStream());
+                        Map<NetworkFieldEnum, Object> message;
+                        while((message = broker.pollMessage()) != null){
+                            if(message.get(NetworkFieldEnum.ASYNC_ID_REQUEST) != null && message.get(NetworkFieldEnum.ID_REQUEST) == null)
+                                asyncMessages.add(message);
+                            else if(!CommandEnum.PONG.name().equals(String.valueOf(message.get(NetworkFieldEnum.COMMAND))))
+                                replies.add(message);
+                        }
+                    }
+                } catch (IOException e) {
+                    // the test is over
+                }
+            });
+            receiver.setDaemon(true);
+            receiver.start();
+
+            Map<NetworkFieldEnum, Object> login = new HashMap<>();
+            login.put(NetworkFieldEnum.NICKNAME, nickname);
+            login.put(NetworkFieldEnum.WIRE_FORMAT, WireFormatEnum.BINARY);
+            login.put(NetworkFieldEnum.HEARTBEAT, true);
+            login.put(NetworkFieldEnum.RESUMABLE, resumable);
+            if(resumeToken != null){
+                login.put(NetworkFieldEnum.RESUME_TOKEN, resumeToken);
+                login.put(NetworkFieldEnum.LAST_ASYNC_ID_REQUEST, lastAsyncIdRequest);
+            }
+            Map<NetworkFieldEnum, Object> reply = send(CommandEnum.CONNECTION_REQUEST, login);
+            loginReply = reply == null ? null : (String) reply.get(NetworkFieldEnum.SERVER_REPLY_MESSAGE);
+            this.resumeToken = reply == null ? null : (String) reply.get(NetworkFieldEnum.RESUME_TOKEN);
+            if(reply != null && reply.get(NetworkFieldEnum.ID_USER) != null && "OK".equals(loginReply))
+                idUser = ApplicationHelper.getIntFromBrokerField(reply.get(NetworkFieldEnum.ID_USER));
+            if(idUser < 0) return;
+
+            Thread pinger = new Thread(() -> {
+                try {
+                    for(int ping = 1; ; ping++){
+                        synchronized (broker){
+                            broker.addToMessage(NetworkFieldEnum.COMMAND, CommandEnum.PING);
+                            broker.addToMessage(NetworkFieldEnum.ID_USER, idUser);
+                            broker.addToMessage(NetworkFieldEnum.ID_PING_REQUEST, ping);
+                            broker.send(socket.getOutputStream());
+                        }
+                        Thread.sleep(1000);
+                    }
+                } catch (IOException | InterruptedException e) {
+                    // the test is over
+                }
+            });
+            pinger.setDaemon(true);
+            pinger.start();
+        }
+
+        private Map<NetworkFieldEnum, Object> send(CommandEnum command, Map<NetworkFieldEnum, Object> fields) throws Exception {
+            synchronized (broker){
+                broker.addToMessage(NetworkFieldEnum.COMMAND, command);
+                broker.addToMessage(NetworkFieldEnum.ID_REQUEST, ++idRequest);
+                broker.addAllToMessage(fields);
+                broker.send(socket.getOutputStream());
+            }
+            return replies.poll(5, TimeUnit.SECONDS);
+        }
+
+        /**
+         * @return the reply message of the server, null if it didn't reply in time
+         */
+        String command(CommandEnum command, Object... fields) throws Exception {
+            Map<NetworkFieldEnum, Object> message = new HashMap<>();
+            message.put(NetworkFieldEnum.ID_USER, idUser);
+            for(int field = 0; field < fields.length; field += 2)
+                message.put((NetworkFieldEnum) fields[field], fields[field + 1]);
+            Map<NetworkFieldEnum, Object> reply = send(command, message);
+            return reply == null ? null : (String) reply.get(NetworkFieldEnum.SERVER_REPLY_MESSAGE);
+        }
+
+        boolean hasAsync(CommandEnum command){
+            synchronized (asyncMessages){
+                return asyncMessages.stream().anyMatch(message -> command.name().equals(String.valueOf(message.get(NetworkFieldEnum.COMMAND))));
+            }
+        }
+
+        boolean waitAsync(CommandEnum command) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while(System.currentTimeMillis() < deadline){
+                if(hasAsync(command)) return true;
+                Thread.sleep(50);
+            }
+            return false;
+        }
+
+        /**
+         * Quits, so that the session isn't kept after the test
+         */
+        void quit() throws IOException, InterruptedException {
+            if(idUser >= 0 && !socket.isClosed()){
+                synchronized (broker){
+                    broker.addToMessage(NetworkFieldEnum.COMMAND, CommandEnum.QUIT);
+                    broker.addToMessage(NetworkFieldEnum.ID_USER, idUser);
+                    broker.send(socket.getOutputStream());
+                }
+                Thread.sleep(300); // the server drops the user before noticing the socket closed
+            }
+            close();
+        }
+
+        void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package it.polimi.ingsw.view;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import it.polimi.ingsw.model.TeamEnum;
+import it.polimi.ingsw.model.beans.CloudBean;
+import it.polimi.ingsw.model.beans.ErrorBean;
+import it.polimi.ingsw.model.beans.VirtualViewBean;
+import it.polimi.ingsw.model.beans.VirtualViewDeltaBean;
+import it.polimi.ingsw.model.game.AdvancedGame;
+import it.polimi.ingsw.model.game.IncorrectPlayersException;
+import it.polimi.ingsw.model.player.Player;
+import it.polimi.ingsw.network.BeanTranslator;
+import it.polimi.ingsw.network.client.VirtualViewReplica;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VirtualViewDeltaTest {
+
+    private final Gson gson = new Gson();
+    private AdvancedGame game;
+    private VirtualView virtualView;
+
+    @BeforeEach
+    public void initialize(){
+        final List<Integer> selectedWizards = List.of(0, 10, 20, 30);
+        final List<TeamEnum> teamColors = List.of(TeamEnum.WHITE, TeamEnum.BLACK, TeamEnum.WHITE, TeamEnum.BLACK);
+        final List<String> nicknames = List.of("Franco", "Mario", "Alice", "Ben");
+        virtualView = new VirtualView();
+        try {
+            game = new AdvancedGame(4, new ArrayList<>(selectedWizards), new ArrayList<>(teamColors),
+                    new ArrayList<>(nicknames), 20, 3, virtualView);
+            game.initializeGame();
+        } catch (IncorrectPlayersException e) {
+            fail();
+        }
+    }
+
+    /**
+     * Checks that a replica patched with the deltas renders the same view as the complete one,
+     * and that a student moved to the hall changes far less than the whole view
+     */
+    @Test
+    public void replicaFollowsTheView(){
+        VirtualViewReplica replica = new VirtualViewReplica();
+        VirtualViewDeltaBean completeView = virtualView.renderAdvancedChanges(VirtualViewDeltaBean.COMPLETE_VIEW);
+        assertTrue(replica.apply(throughNetwork(completeView)));
+        assertSameView(virtualView.renderAdvancedView(), replica.render());
+
+        Player player = game.getPlayers().get(0);
+        game.selectStudentAtEntrance(player, 0);
+        game.moveFromEntranceToHall(player);
+
+        VirtualViewDeltaBean delta = virtualView.renderAdvancedChanges(completeView.getRevision());
+        assertEquals(completeView.getRevision(), delta.getBaseRevision());
+        assertTrue(delta.getChangedElements().size() < completeView.getChangedElements().size());
+        assertTrue(replica.apply(throughNetwork(delta)));
+        assertSameView(virtualView.renderAdvancedView(), replica.render());
+
+        int fullSize = gson.toJson(virtualView.renderAdvancedView()).length();
+        int deltaSize = gson.toJson(delta).length();
+        assertTrue(deltaSize * 4 < fullSize);
+
+        // Nothing changed since the last delta
+        VirtualViewDeltaBean emptyDelta = virtualView.renderAdvancedChanges(delta.getRevision());
+        assertTrue(emptyDelta.getChangedElements().isEmpty());
+        assertTrue(emptyDelta.getRemovedElements().isEmpty());
+    }
+
+    /**
+     * Checks that a delta not starting from the revision of the replica is refused,
+     * and that a complete view recovers from it
+     */
+    @Test
+    public void gapDetected(){
+        VirtualViewReplica replica = new VirtualViewReplica();
+        replica.apply(virtualView.renderAdvancedChanges(VirtualViewDeltaBean.COMPLETE_VIEW));
+        int knownRevision = replica.getRevision();
+
+        Player player = game.getPlayers().get(0);
+        game.selectStudentAtEntrance(player, 0);
+        game.moveFromEntranceToHall(player);
+        VirtualViewDeltaBean missed = virtualView.renderAdvancedChanges(knownRevision);
+        game.selectStudentAtEntrance(player, 1);
+        game.moveFromEntranceToHall(player);
+        VirtualViewDeltaBean following = virtualView.renderAdvancedChanges(missed.getRevision());
+
+        assertFalse(replica.apply(following));
+        assertEquals(knownRevision, replica.getRevision());
+
+        assertTrue(replica.apply(virtualView.renderAdvancedChanges(VirtualViewDeltaBean.COMPLETE_VIEW)));
+        assertSameView(virtualView.renderAdvancedView(), replica.render());
+    }
+
+    /**
+     * Checks that removed elements disappear from the replica
+     */
+    @Test
+    public void removedElements(){
+        VirtualViewReplica replica = new VirtualViewReplica();
+        List<VirtualViewDeltaBean.ChangedElement> elements = List.of(
+                new VirtualViewDeltaBean.ChangedElement(0, new CloudBean(0, new ArrayList<>())),
+                new VirtualViewDeltaBean.ChangedElement(1, new CloudBean(1, new ArrayList<>())),
+                new VirtualViewDeltaBean.ChangedElement(2, new ErrorBean("none")));
+        replica.apply(new VirtualViewDeltaBean(VirtualViewDeltaBean.COMPLETE_VIEW, 5, false, elements, List.of()));
+        assertEquals(2, replica.render().getCloudBeans().size());
+
+        assertTrue(replica.apply(new VirtualViewDeltaBean(5, 6, false, List.of(), List.of(0))));
+        assertEquals(1, replica.render().getCloudBeans().get(0).getIdCloud());
+        assertEquals(6, replica.getRevision());
+    }
+
+    /**
+     * Serializes the delta and reads it back as the client does
+     */
+    private VirtualViewDeltaBean throughNetwork(VirtualViewDeltaBean delta){
+        return BeanTranslator.readViewDeltaBean(gson.fromJson(gson.toJson(delta), Object.class));
+    }
+
+    private void assertSameView(VirtualViewBean expected, VirtualViewBean actual){
+        VirtualViewBean received = BeanTranslator.readViewBean(gson.fromJson(gson.toJson(expected), Object.class));
+        assertEquals(JsonParser.parseString(gson.toJson(received)), JsonParser.parseString(gson.toJson(actual)));
+    }
+}